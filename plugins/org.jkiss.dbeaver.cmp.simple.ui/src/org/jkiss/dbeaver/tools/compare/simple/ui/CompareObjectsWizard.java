@@ -116,12 +116,8 @@ public class CompareObjectsWizard extends Wizard implements IExportWizard {
             });
             UIUtils.showMessageBox(getShell(), CompareUIMessages.compare_objects_wizard_finish_report_title, CompareUIMessages.compare_objects_wizard_finish_report_info, SWT.ICON_INFORMATION);
         } catch (InvocationTargetException e) {
-            if (executor.getInitializeError() != null) {
-                showError(executor.getInitializeError().getMessage());
-            } else {
-                log.error(e.getTargetException());
-                showError(e.getTargetException().getMessage());
-            }
+            log.error(e.getTargetException());
+            showError(e.getTargetException().getMessage());
             return false;
         } catch (InterruptedException e) {
             showError("Compare interrupted");
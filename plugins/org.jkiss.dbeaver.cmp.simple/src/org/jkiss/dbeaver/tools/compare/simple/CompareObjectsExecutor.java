@@ -21,13 +21,15 @@ import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBConstants;
 import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
 import org.jkiss.dbeaver.model.DBPNamedObject;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.navigator.DBNDatabaseFolder;
 import org.jkiss.dbeaver.model.navigator.DBNDatabaseNode;
 import org.jkiss.dbeaver.model.navigator.meta.DBXTreeNode;
 import org.jkiss.dbeaver.model.preferences.DBPPropertyDescriptor;
-import org.jkiss.dbeaver.model.runtime.DBRProgressListener;
+import org.jkiss.dbeaver.model.runtime.BlockCanceler;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.runtime.SubTaskProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSObject;
@@ -35,109 +37,102 @@ import org.jkiss.dbeaver.model.struct.DBSObjectContainer;
 import org.jkiss.dbeaver.runtime.properties.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * Compares objects trees.
+ * Children of compared objects are compared concurrently on a bounded pool,
+ * report lines are collected in the tree order.
+ * Metadata of the same data source is read by one task at a time, so only different data sources are read in parallel.
+ */
 public class CompareObjectsExecutor {
 
     private static final Log log = Log.getLog(CompareObjectsExecutor.class);
 
-    private final Object PROPS_LOCK = new Object();
+    // Max number of objects compared (and loaded) concurrently
+    private static final int MAX_PARALLELISM = 4;
+    private static final long INITIALIZE_POLL_TIMEOUT = 100;
+    private static final long CANCEL_POLL_TIMEOUT = 100;
 
     private CompareObjectsSettings settings;
 
     private final List<DBNDatabaseNode> rootNodes;
     private final Map<DBPDataSource, DataSourcePropertyFilter> dataSourceFilters = new IdentityHashMap<>();
 
-    private final DBRProgressListener initializeFinisher;
     private final ILazyPropertyLoadListener lazyPropertyLoadListener;
 
-    private volatile int initializedCount = 0;
-    private volatile IStatus initializeError;
-    private final Map<Object, Map<DBPPropertyDescriptor, Object>> propertyValues = new IdentityHashMap<>();
-
-    private final List<CompareReportLine> reportLines = new ArrayList<>();
-    private int reportDepth = 0;
-    private CompareReportLine lastLine;
+    // Metadata read locks (per data source)
+    private final Map<DBPDataSourceContainer, Object> metadataLocks = new IdentityHashMap<>();
+    // Monitors of running tasks. Their blocks are canceled when compare is canceled.
+    private final Set<CompareTaskMonitor> taskMonitors = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    // Properties of objects which are being compared. Lazy properties are put here by the lazy load listener.
+    private final Map<Object, Map<DBPPropertyDescriptor, Object>> propertyValues = Collections.synchronizedMap(new IdentityHashMap<>());
 
-    private void reportObjectsCompareBegin(List<DBNDatabaseNode> objects)
+    private CompareReportLine createReportLine(List<DBNDatabaseNode> objects, int depth)
     {
-        reportDepth++;
-        lastLine = new CompareReportLine();
-        lastLine.depth = reportDepth;
-        lastLine.structure = objects.get(0);
-        lastLine.nodes = new DBNDatabaseNode[rootNodes.size()];
+        CompareReportLine line = new CompareReportLine();
+        line.depth = depth;
+        line.structure = objects.get(0);
+        line.nodes = new DBNDatabaseNode[rootNodes.size()];
         for (int i = 0; i < rootNodes.size(); i++) {
             for (DBNDatabaseNode node : objects) {
                 if (node == rootNodes.get(i) || node.isChildOf(rootNodes.get(i))) {
-                    lastLine.nodes[i] = node;
+                    line.nodes[i] = node;
                     break;
                 }
             }
         }
-        for (DBNDatabaseNode node : lastLine.nodes) {
+        for (DBNDatabaseNode node : line.nodes) {
             if (node == null) {
-                lastLine.hasDifference = true;
+                line.hasDifference = true;
                 break;
             }
         }
-        reportLines.add(lastLine);
+        return line;
     }
 
-    private void reportPropertyCompare(ObjectPropertyDescriptor property)
+    private void reportPropertyCompare(CompareReportLine line, ObjectPropertyDescriptor property)
     {
         CompareReportProperty reportProperty = new CompareReportProperty(property);
         reportProperty.values = new Object[rootNodes.size()];
-        for (int i = 0; i < lastLine.nodes.length; i++) {
-            DBNDatabaseNode node = lastLine.nodes[i];
+        for (int i = 0; i < line.nodes.length; i++) {
+            DBNDatabaseNode node = line.nodes[i];
             if (node == null) {
                 continue;
             }
             Map<DBPPropertyDescriptor, Object> valueMap = propertyValues.get(node.getObject());
             if (valueMap != null) {
-                reportProperty.values[i] = valueMap.get(property);
+                synchronized (valueMap) {
+                    reportProperty.values[i] = valueMap.get(property);
+                }
             }
         }
-        if (lastLine.properties == null) {
-            lastLine.properties = new ArrayList<>();
+        if (line.properties == null) {
+            line.properties = new ArrayList<>();
         }
-        lastLine.properties.add(reportProperty);
+        line.properties.add(reportProperty);
 
         Object firstValue = reportProperty.values[0];
         for (int i = 1; i < rootNodes.size(); i++) {
             if (!CompareUtils.equalPropertyValues(reportProperty.values[i], firstValue)) {
-                lastLine.hasDifference = true;
+                line.hasDifference = true;
                 break;
             }
         }
     }
 
-    private void reportObjectsCompareEnd()
-    {
-        reportDepth--;
-    }
-
     public CompareObjectsExecutor(CompareObjectsSettings settings)
     {
         this.settings = settings;
         this.rootNodes = settings.getNodes();
 
-        initializeFinisher = new DBRProgressListener() {
-            @Override
-            public void onTaskFinished(IStatus status)
-            {
-                if (!status.isOK()) {
-                    initializeError = status;
-                } else {
-                    initializedCount++;
-                }
-            }
-        };
         lazyPropertyLoadListener = new ILazyPropertyLoadListener() {
             @Override
             public void handlePropertyLoad(Object object, DBPPropertyDescriptor property, Object propertyValue, boolean completed)
             {
-                synchronized (propertyValues) {
-                    Map<DBPPropertyDescriptor, Object> objectProps = propertyValues.get(object);
-                    if (objectProps != null) {
+                Map<DBPPropertyDescriptor, Object> objectProps = propertyValues.get(object);
+                if (objectProps != null) {
+                    synchronized (objectProps) {
                         objectProps.put(property, propertyValue);
                     }
                 }
@@ -146,11 +141,6 @@ public class CompareObjectsExecutor {
         PropertiesContributor.getInstance().addLazyListener(lazyPropertyLoadListener);
     }
 
-    public IStatus getInitializeError()
-    {
-        return initializeError;
-    }
-
     public void dispose()
     {
         PropertiesContributor.getInstance().removeLazyListener(lazyPropertyLoadListener);
@@ -159,41 +149,116 @@ public class CompareObjectsExecutor {
     public CompareReport compareObjects(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes)
         throws DBException, InterruptedException
     {
-        reportLines.clear();
-        lastLine = null;
+        propertyValues.clear();
+        ForkJoinPool comparePool = new ForkJoinPool(MAX_PARALLELISM);
+        try {
+            ForkJoinTask<List<CompareReportLine>> compareTask = comparePool.submit(new CompareTask(monitor, nodes, 1));
+            boolean blocksCanceled = false;
+            while (true) {
+                try {
+                    return new CompareReport(rootNodes, compareTask.get(CANCEL_POLL_TIMEOUT, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    if (!blocksCanceled && monitor.isCanceled()) {
+                        // Workers check cancel between objects, but they may be blocked by queries
+                        cancelTaskBlocks();
+                        blocksCanceled = true;
+                    }
+                } catch (ExecutionException e) {
+                    // Pool may wrap exception thrown in a worker thread
+                    Throwable cause = e.getCause();
+                    while (cause instanceof CompareException) {
+                        cause = cause.getCause();
+                    }
+                    if (cause instanceof InterruptedException) {
+                        throw (InterruptedException) cause;
+                    } else if (cause instanceof DBException) {
+                        throw (DBException) cause;
+                    }
+                    throw new DBException("Error comparing objects", cause);
+                }
+            }
+        } finally {
+            comparePool.shutdownNow();
+        }
+    }
+
+    private void cancelTaskBlocks()
+    {
+        List<CompareTaskMonitor> monitors;
+        synchronized (taskMonitors) {
+            monitors = new ArrayList<>(taskMonitors);
+        }
+        for (CompareTaskMonitor taskMonitor : monitors) {
+            for (DBRBlockingObject block : taskMonitor.getActiveBlocks()) {
+                try {
+                    BlockCanceler.cancelBlock(taskMonitor, block, null);
+                } catch (DBException e) {
+                    log.debug("Error canceling compare query", e);
+                }
+            }
+        }
+    }
 
-        compareNodes(monitor, nodes);
-        return new CompareReport(rootNodes, reportLines);
+    private Object getMetadataLock(DBNDatabaseNode node)
+    {
+        synchronized (metadataLocks) {
+            return metadataLocks.computeIfAbsent(node.getDataSourceContainer(), c -> new Object());
+        }
     }
 
-    private void compareNodes(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes)
+    private List<CompareReportLine> compareNodes(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes, int depth)
         throws DBException, InterruptedException
     {
-        reportObjectsCompareBegin(nodes);
+        if (monitor.isCanceled()) {
+            throw new InterruptedException();
+        }
+        List<CompareReportLine> reportLines = new ArrayList<>();
+        CompareReportLine line = createReportLine(nodes, depth);
+        reportLines.add(line);
+
+        if (nodes.size() > 1) {
+            // Go deeper only if we have more than one node
+            if (!(nodes.get(0) instanceof DBNDatabaseFolder)) {
+                compareProperties(monitor, nodes, line);
+            }
 
-        try {
-            if (nodes.size() > 1) {
-                // Go deeper only if we have more than one node
-                if (!(nodes.get(0) instanceof DBNDatabaseFolder)) {
-                    compareProperties(monitor, nodes);
-                }
+            compareChildren(monitor, nodes, depth, reportLines);
+        }
+        return reportLines;
+    }
 
-                compareChildren(monitor, nodes);
+    private void initializeNodes(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes) throws DBException, InterruptedException
+    {
+        List<CompletableFuture<IStatus>> initResults = new ArrayList<>(nodes.size());
+        for (DBNDatabaseNode node : nodes) {
+            CompletableFuture<IStatus> initResult = new CompletableFuture<>();
+            initResults.add(initResult);
+            node.initializeNode(null, initResult::complete);
+            monitor.worked(1);
+        }
+        for (CompletableFuture<IStatus> initResult : initResults) {
+            IStatus status = null;
+            while (status == null) {
+                try {
+                    status = initResult.get(INITIALIZE_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (monitor.isCanceled()) {
+                        throw new InterruptedException();
+                    }
+                } catch (ExecutionException e) {
+                    throw new DBException("Error initializing node", e.getCause());
+                }
+            }
+            if (!status.isOK()) {
+                throw new DBException(status.getMessage());
             }
-        } finally {
-            reportObjectsCompareEnd();
         }
     }
 
-    private void compareProperties(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes) throws DBException, InterruptedException
+    private void compareProperties(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes, CompareReportLine line) throws DBException, InterruptedException
     {
         boolean onlyStruct = settings.isCompareOnlyStructure();
 
-        // Clear compare singletons
-        this.initializedCount = 0;
-        this.initializeError = null;
-        this.propertyValues.clear();
-
         StringBuilder title = new StringBuilder();
         // Initialize nodes
         {
@@ -201,18 +266,8 @@ public class CompareObjectsExecutor {
             for (DBNDatabaseNode node : nodes) {
                 if (title.length() > 0) title.append(", ");
                 title.append(node.getNodeFullName());
-                node.initializeNode(null, initializeFinisher);
-                monitor.worked(1);
-            }
-            while (initializedCount != nodes.size()) {
-                if (initializeError != null) {
-                    throw new DBException(initializeError.getMessage());
-                }
-                Thread.sleep(50);
-                if (monitor.isCanceled()) {
-                    throw new InterruptedException();
-                }
             }
+            initializeNodes(monitor, nodes);
         }
 
         monitor.subTask("Compare " + title.toString());
@@ -238,76 +293,75 @@ public class CompareObjectsExecutor {
         }
 
         // Load all properties
-        for (DBNDatabaseNode node : nodes) {
-            if (monitor.isCanceled()) {
-                throw new InterruptedException();
-            }
-            DBSObject databaseObject = node.getObject();
-            Map<DBPPropertyDescriptor, Object> nodeProperties = propertyValues.get(databaseObject);
-            if (nodeProperties == null) {
-                nodeProperties = new IdentityHashMap<>();
-                propertyValues.put(databaseObject, nodeProperties);
-            }
-            PropertyCollector propertySource = new PropertyCollector(databaseObject, compareLazyProperties || compareScripts);
-            for (ObjectPropertyDescriptor prop : properties) {
-                boolean isScriptProperty = prop.getId().equals(DBConstants.PARAM_OBJECT_DEFINITION_TEXT) || prop.getId().equals(DBConstants.PARAM_EXTENDED_DEFINITION_TEXT);
-                if (prop.isLazy()) {
-                    if (!compareLazyProperties) {
-                        if (compareScripts) {
-                            // Only DBPScriptObject methods
-                            if (!isScriptProperty) {
-                                continue;
+        List<Object> loadedObjects = new ArrayList<>(nodes.size());
+        try {
+            for (DBNDatabaseNode node : nodes) {
+                if (monitor.isCanceled()) {
+                    throw new InterruptedException();
+                }
+                DBSObject databaseObject = node.getObject();
+                Map<DBPPropertyDescriptor, Object> nodeProperties = propertyValues.computeIfAbsent(databaseObject, o -> new IdentityHashMap<>());
+                loadedObjects.add(databaseObject);
+                PropertyCollector propertySource = new PropertyCollector(databaseObject, compareLazyProperties || compareScripts);
+                synchronized (getMetadataLock(node)) {
+                    for (ObjectPropertyDescriptor prop : properties) {
+                        boolean isScriptProperty = prop.getId().equals(DBConstants.PARAM_OBJECT_DEFINITION_TEXT) || prop.getId().equals(DBConstants.PARAM_EXTENDED_DEFINITION_TEXT);
+                        if (prop.isLazy()) {
+                            if (!compareLazyProperties) {
+                                if (compareScripts) {
+                                    // Only DBPScriptObject methods
+                                    if (!isScriptProperty) {
+                                        continue;
+                                    }
+                                } else {
+                                    continue;
+                                }
                             }
                         } else {
+                            if (prop.isHidden()) {
+                                continue;
+                            }
+                        }
+                        if (onlyStruct && !isScriptProperty) {
                             continue;
                         }
+                        Object propertyValue = propertySource.getPropertyValue(monitor, databaseObject, prop, true);
+                        if (propertyValue instanceof DBPNamedObject) {
+                            // Compare just object names
+                            propertyValue = ((DBPNamedObject) propertyValue).getName();
+                        }
+                        synchronized (nodeProperties) {
+                            nodeProperties.put(prop, propertyValue);
+                        }
                     }
-                } else {
-                    if (prop.isHidden()) {
-                        continue;
-                    }
-                }
-                if (onlyStruct && !isScriptProperty) {
-                    continue;
-                }
-                Object propertyValue = propertySource.getPropertyValue(monitor, databaseObject, prop, true);
-                synchronized (PROPS_LOCK) {
-                    if (propertyValue instanceof DBPNamedObject) {
-                        // Compare just object names
-                        propertyValue = ((DBPNamedObject) propertyValue).getName();
-                    }
-                    nodeProperties.put(prop, propertyValue);
                 }
+                monitor.worked(1);
             }
-            monitor.worked(1);
-        }
 
-        // Compare properties
-        for (ObjectPropertyDescriptor prop : properties) {
-            reportPropertyCompare(prop);
+            // Compare properties
+            for (ObjectPropertyDescriptor prop : properties) {
+                reportPropertyCompare(line, prop);
+            }
+        } finally {
+            for (Object object : loadedObjects) {
+                propertyValues.remove(object);
+            }
         }
     }
 
-    private void compareChildren(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes) throws DBException, InterruptedException
+    private void compareChildren(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes, int depth, List<CompareReportLine> reportLines) throws DBException, InterruptedException
     {
         // Compare children
         int nodeCount = nodes.size();
+        // Load children (and cache structure) of all compared objects at once
+        List<ForkJoinTask<DBNDatabaseNode[]>> childLoaders = new ArrayList<>(nodeCount);
+        for (DBNDatabaseNode node : nodes) {
+            childLoaders.add(ForkJoinTask.adapt(() -> loadChildren(monitor, node)));
+        }
+        ForkJoinTask.invokeAll(childLoaders);
         List<DBNDatabaseNode[]> allChildren = new ArrayList<>(nodeCount);
-        // Use submonitor to avoid huge number of tasks
-        DBRProgressMonitor subMonitor = new SubTaskProgressMonitor(monitor);
-        for (int i = 0; i < nodeCount; i++) {
-            DBNDatabaseNode node = nodes.get(i);
-            // Cache structure if possible
-            if (node.getObject() instanceof DBSObjectContainer) {
-                ((DBSObjectContainer) node.getObject()).cacheStructure(subMonitor, DBSObjectContainer.STRUCT_ALL);
-            }
-            try {
-                DBNDatabaseNode[] children = node.getChildren(subMonitor);
-                allChildren.add(children);
-            } catch (Exception e) {
-                log.warn("Error reading child nodes for compare", e);
-                allChildren.add(null);
-            }
+        for (ForkJoinTask<DBNDatabaseNode[]> loader : childLoaders) {
+            allChildren.add(loader.join());
         }
 
         Set<String> allChildNames = new LinkedHashSet<>();
@@ -327,6 +381,7 @@ public class CompareObjectsExecutor {
             }
         }
 
+        List<CompareTask> childTasks = new ArrayList<>(allChildNames.size());
         for (String childName : allChildNames) {
             int[] childIndexes = new int[nodeCount];
             for (int i = 0; i < nodeCount; i++) {
@@ -359,11 +414,34 @@ public class CompareObjectsExecutor {
                     }
                 }
             }
-            // Compare children recursively
-            compareNodes(monitor, nodesToCompare);
+            childTasks.add(new CompareTask(monitor, nodesToCompare, depth + 1));
+        }
+        // Compare children recursively
+        ForkJoinTask.invokeAll(childTasks);
+        for (CompareTask childTask : childTasks) {
+            reportLines.addAll(childTask.join());
         }
     }
 
+    private DBNDatabaseNode[] loadChildren(DBRProgressMonitor monitor, DBNDatabaseNode node)
+    {
+        CompareTaskMonitor loadMonitor = new CompareTaskMonitor(monitor);
+        taskMonitors.add(loadMonitor);
+        try {
+            synchronized (getMetadataLock(node)) {
+                // Cache structure if possible
+                if (node.getObject() instanceof DBSObjectContainer) {
+                    ((DBSObjectContainer) node.getObject()).cacheStructure(loadMonitor, DBSObjectContainer.STRUCT_ALL);
+                }
+                return node.getChildren(loadMonitor);
+            }
+        } catch (Exception e) {
+            log.warn("Error reading child nodes for compare", e);
+            return null;
+        } finally {
+            taskMonitors.remove(loadMonitor);
+        }
+    }
 
     private DataSourcePropertyFilter getDataSourceFilter(DBNDatabaseNode node)
     {
@@ -371,12 +449,73 @@ public class CompareObjectsExecutor {
         if (dataSource == null) {
             return null;
         }
-        DataSourcePropertyFilter filter = dataSourceFilters.get(dataSource);
-        if (filter == null) {
-            filter = new DataSourcePropertyFilter(dataSource);
-            dataSourceFilters.put(dataSource, filter);
+        synchronized (dataSourceFilters) {
+            return dataSourceFilters.computeIfAbsent(dataSource, DataSourcePropertyFilter::new);
+        }
+    }
+
+    private class CompareTask extends RecursiveTask<List<CompareReportLine>> {
+        private final DBRProgressMonitor monitor;
+        private final List<DBNDatabaseNode> nodes;
+        private final int depth;
+
+        CompareTask(DBRProgressMonitor monitor, List<DBNDatabaseNode> nodes, int depth) {
+            this.monitor = monitor;
+            this.nodes = nodes;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<CompareReportLine> compute() {
+            CompareTaskMonitor taskMonitor = new CompareTaskMonitor(monitor);
+            taskMonitors.add(taskMonitor);
+            try {
+                return compareNodes(taskMonitor, nodes, depth);
+            } catch (DBException | InterruptedException e) {
+                throw new CompareException(e);
+            } finally {
+                taskMonitors.remove(taskMonitor);
+            }
+        }
+    }
+
+    /**
+     * Monitor of a single compare task.
+     * Progress goes to the compare monitor (as sub tasks), blocks are kept per task
+     * because tasks run queries concurrently.
+     */
+    private static class CompareTaskMonitor extends SubTaskProgressMonitor {
+        private final List<DBRBlockingObject> blocks = new ArrayList<>();
+
+        CompareTaskMonitor(DBRProgressMonitor monitor) {
+            super(monitor instanceof CompareTaskMonitor ? ((CompareTaskMonitor) monitor).original : monitor);
+        }
+
+        @Override
+        public synchronized void startBlock(DBRBlockingObject object, String taskName) {
+            blocks.add(object);
+        }
+
+        @Override
+        public synchronized void endBlock() {
+            if (!blocks.isEmpty()) {
+                blocks.remove(blocks.size() - 1);
+            }
+        }
+
+        @Override
+        public synchronized List<DBRBlockingObject> getActiveBlocks() {
+            return new ArrayList<>(blocks);
+        }
+    }
+
+    /**
+     * Carries checked compare errors through the fork-join pool
+     */
+    private static class CompareException extends RuntimeException {
+        CompareException(Exception cause) {
+            super(cause);
         }
-        return filter;
     }
 
-}
\ No newline at end of file
+}
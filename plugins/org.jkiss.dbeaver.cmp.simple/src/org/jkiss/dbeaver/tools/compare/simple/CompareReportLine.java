@@ -23,10 +23,26 @@ import java.util.List;
 /**
 * Report line
 */
-class CompareReportLine {
+public class CompareReportLine {
     DBNDatabaseNode structure;
     DBNDatabaseNode[] nodes;
     List<CompareReportProperty> properties;
     int depth;
     boolean hasDifference;
+
+    public DBNDatabaseNode getStructure() {
+        return structure;
+    }
+
+    public DBNDatabaseNode[] getNodes() {
+        return nodes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean hasDifference() {
+        return hasDifference;
+    }
 }
@@ -333,6 +333,7 @@ public class CoreMessages extends NLS {
     public static String pref_page_query_manager_group_settings;
 	public static String pref_page_query_manager_group_storage;
     public static String pref_page_query_manager_checkbox_store_log_file;
+    public static String pref_page_query_manager_checkbox_store_history;
     public static String pref_page_query_manager_logs_folder;
 	public static String pref_page_query_manager_label_days_to_store_log;
 	public static String pref_page_query_manager_label_entries_per_page;
@@ -420,6 +421,8 @@ public class CoreMessages extends NLS {
 	public static String pref_page_database_general_checkbox_show_row_count_tip;
 	public static String pref_page_database_general_server_side_object_filters;
 	public static String pref_page_database_general_server_side_object_filters_tip;
+	public static String pref_page_database_general_metadata_snapshot;
+	public static String pref_page_database_general_metadata_snapshot_tip;
 	public static String pref_page_database_general_group_query_metadata;
 	// EntityEditor
 	public static String pref_page_ui_general_keep_database_editors_tip;
@@ -60,6 +60,7 @@ public class PrefPageQueryManager extends AbstractPrefPage implements IWorkbench
     private Text textHistoryDays;
     private Text textEntriesPerPage;
     private Button checkStoreLog;
+    private Button checkStoreHistory;
     private Text textOutputFolder;
 
 
@@ -111,8 +112,18 @@ public class PrefPageQueryManager extends AbstractPrefPage implements IWorkbench
                 }
             });
             textOutputFolder = DialogUtils.createOutputFolderChooser(storageSettings, CoreMessages.pref_page_query_manager_logs_folder, null);
+            checkStoreHistory = UIUtils.createCheckbox(storageSettings, CoreMessages.pref_page_query_manager_checkbox_store_history, false);
+            gd = new GridData(GridData.HORIZONTAL_ALIGN_BEGINNING);
+            gd.horizontalSpan = 2;
+            checkStoreHistory.setLayoutData(gd);
+            checkStoreHistory.addSelectionListener(new SelectionAdapter() {
+                @Override
+                public void widgetSelected(SelectionEvent e)
+                {
+                    textHistoryDays.setEnabled(checkStoreHistory.getSelection());
+                }
+            });
             textHistoryDays = UIUtils.createLabelText(storageSettings, CoreMessages.pref_page_query_manager_label_days_to_store_log, "", SWT.BORDER, new GridData(50, SWT.DEFAULT)); //$NON-NLS-2$
-            textHistoryDays.setEnabled(false);
 
             CLabel infoLabel = UIUtils.createInfoLabel(storageSettings, CoreMessages.pref_page_query_manager_log_file_hint);
             infoLabel.setLayoutData(new GridData(GridData.FILL, GridData.BEGINNING, true, false, 2, 1));
@@ -146,6 +157,8 @@ public class PrefPageQueryManager extends AbstractPrefPage implements IWorkbench
         checkStoreLog.setSelection(store.getBoolean(QMConstants.PROP_STORE_LOG_FILE));
         textOutputFolder.setText(store.getString(QMConstants.PROP_LOG_DIRECTORY));
         UIUtils.enableWithChildren(textOutputFolder.getParent(), checkStoreLog.getSelection());
+        checkStoreHistory.setSelection(store.getBoolean(QMConstants.PROP_STORE_HISTORY));
+        textHistoryDays.setEnabled(checkStoreHistory.getSelection());
 
         super.performDefaults();
     }
@@ -180,6 +193,7 @@ public class PrefPageQueryManager extends AbstractPrefPage implements IWorkbench
         }
         store.setValue(QMConstants.PROP_STORE_LOG_FILE, checkStoreLog.getSelection());
         store.setValue(QMConstants.PROP_LOG_DIRECTORY, textOutputFolder.getText());
+        store.setValue(QMConstants.PROP_STORE_HISTORY, checkStoreHistory.getSelection());
         PrefUtils.savePreferenceStore(store);
 
         return super.performOk();
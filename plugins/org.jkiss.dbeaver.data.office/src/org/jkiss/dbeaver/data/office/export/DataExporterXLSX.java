@@ -75,6 +75,7 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
     private static final String PROP_SPLIT_BYCOL = "splitByColNum";
 
     private static final String PROP_DATE_FORMAT = "dateFormat";
+    private static final String PROP_DIRECT_WRITER = "directWriter";
 
     private static final int EXCEL2007MAXROWS = 1048575;
     private static final int EXCEL_MAX_CELL_CHARACTERS = 32767; // Total number of characters that a cell can contain - 32,767 characters
@@ -98,6 +99,7 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
     private boolean exportSql = false;
     private boolean splitSqlText = false;
     private String dateFormat = "";
+    private boolean directWrite = false;
 
     private int splitByRowCount = EXCEL2007MAXROWS;
     private int splitByCol = 0;
@@ -109,6 +111,8 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
 
     private HashMap<Object, Worksheet> worksheets;
 
+    private XLSXStreamWriter directWriter;
+
     public static Map<String, Object> getDefaultProperties() {
         Map<String, Object> properties = new HashMap<>();
         properties.put(DataExporterXLSX.PROP_ROWNUMBER, false);
@@ -123,6 +127,7 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
         properties.put(DataExporterXLSX.PROP_SPLIT_BYROWCOUNT, EXCEL2007MAXROWS);
         properties.put(DataExporterXLSX.PROP_SPLIT_BYCOL, 0);
         properties.put(DataExporterXLSX.PROP_DATE_FORMAT, "");
+        properties.put(DataExporterXLSX.PROP_DIRECT_WRITER, false);
         return properties;
     }
 
@@ -188,14 +193,12 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
             dateFormat = "";
         }
 
-        if (wb == null) {
-            wb = new SXSSFWorkbook(ROW_WINDOW);
+        try {
+            directWrite = CommonUtils.getBoolean(properties.get(PROP_DIRECT_WRITER), false);
+        } catch (Exception e) {
+            directWrite = false;
         }
 
-        worksheets = new HashMap<>(1);
-
-        styleHeader = (XSSFCellStyle) wb.createCellStyle();
-
         BorderStyle border;
 
         try {
@@ -220,6 +223,27 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
 
         }
 
+        worksheets = new HashMap<>(1);
+        this.rowCount = 0;
+
+        if (wb == null && directWrite && splitByCol <= 0) {
+            // Column grouping fills several sheets at once and appending needs existing workbook - both are done with POI
+            directWriter = new XLSXStreamWriter(
+                site.getOutputStream(),
+                Math.max(1, Math.min(splitByRowCount, EXCEL2007MAXROWS)),
+                border,
+                fontStyle,
+                dateFormat);
+            super.init(site);
+            return;
+        }
+
+        if (wb == null) {
+            wb = new SXSSFWorkbook(ROW_WINDOW);
+        }
+
+        styleHeader = (XSSFCellStyle) wb.createCellStyle();
+
         styleHeader.setBorderTop(border);
         styleHeader.setBorderBottom(border);
         styleHeader.setBorderLeft(border);
@@ -270,13 +294,19 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
                 wb.getCreationHelper().createDataFormat().getFormat(dateFormat));
         }
 
-        this.rowCount = 0;
-
         super.init(site);
     }
 
     @Override
     public void dispose() {
+        if (directWriter != null) {
+            try {
+                finishDirectWriter();
+            } catch (IOException e) {
+                log.error("Dispose error", e);
+            }
+            directWriter = null;
+        }
         try {
             if (exportSql && wb != null) {
                 try {
@@ -334,7 +364,20 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
                 .getBoolean("resultset.show.columnDescription");
     }
 
-    private void printHeader(DBCResultSet resultSet, Worksheet wsh) throws DBException {
+    private void finishDirectWriter() throws IOException {
+        if (exportSql) {
+            directWriter.startSheet(null);
+            String sqlText = getSite().getSource().getName();
+            String[] sqlLines = splitSqlText ? sqlText.split("\n", EXCEL2007MAXROWS) : new String[] { sqlText };
+            for (String line : sqlLines) {
+                directWriter.startRow();
+                directWriter.writeString(getPreparedString(line), XLSXStreamWriter.STYLE_DEFAULT);
+            }
+        }
+        directWriter.finish();
+    }
+
+    private boolean readColumnDescriptions(DBCResultSet resultSet) throws DBException {
         boolean hasDescription = false;
         if (showDescription) {
             // Read bindings to extract column descriptions
@@ -363,6 +406,11 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
                 }
             }
         }
+        return hasDescription;
+    }
+
+    private void printHeader(DBCResultSet resultSet, Worksheet wsh) throws DBException {
+        boolean hasDescription = readColumnDescriptions(resultSet);
 
         SXSSFSheet sh = (SXSSFSheet) wsh.getSh();
         Row row = sh.createRow(wsh.getCurrentRow());
@@ -373,10 +421,7 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
         for (int i = 0, columnsSize = columns.length; i < columnsSize; i++) {
             DBDAttributeBinding column = columns[i];
 
-            String colName = column.getLabel();
-            if (CommonUtils.isEmpty(colName)) {
-                colName = column.getName();
-            }
+            String colName = getColumnName(column);
             Cell cell = row.createCell(i + startCol, CellType.STRING);
             cell.setCellValue(colName);
             cell.setCellStyle(styleHeader);
@@ -411,6 +456,51 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
         sh.untrackAllColumnsForAutoSizing();
     }
 
+    private void printHeaderDirect(DBCResultSet resultSet) throws DBException, IOException {
+        boolean hasDescription = readColumnDescriptions(resultSet);
+
+        directWriter.startRow();
+        if (rowNumber) {
+            directWriter.writeBlank(XLSXStreamWriter.STYLE_DEFAULT);
+        }
+        for (DBDAttributeBinding column : columns) {
+            directWriter.writeString(getColumnName(column), XLSXStreamWriter.STYLE_HEADER);
+        }
+        if (hasDescription) {
+            directWriter.startRow();
+            if (rowNumber) {
+                directWriter.writeBlank(XLSXStreamWriter.STYLE_DEFAULT);
+            }
+            for (DBDAttributeBinding column : columns) {
+                directWriter.writeString(CommonUtils.notEmpty(column.getDescription()), XLSXStreamWriter.STYLE_HEADER);
+            }
+        }
+    }
+
+    private int[] getDirectColumnWidths() {
+        if (!printHeader) {
+            return null;
+        }
+        // Approximate auto-sizing by header length, data cells are not measured
+        int startCol = rowNumber ? 1 : 0;
+        int[] widths = new int[columns.length + startCol];
+        if (rowNumber) {
+            widths[0] = 8;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            widths[i + startCol] = Math.max(10, getColumnName(columns[i]).length() + 2);
+        }
+        return widths;
+    }
+
+    private static String getColumnName(DBDAttributeBinding column) {
+        String colName = column.getLabel();
+        if (CommonUtils.isEmpty(colName)) {
+            colName = column.getName();
+        }
+        return colName;
+    }
+
     private void writeCellValue(Cell cell, Reader reader) throws IOException {
         try {
             StringBuilder sb = new StringBuilder();
@@ -455,6 +545,11 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
     public void exportRow(DBCSession session, DBCResultSet resultSet, Object[] row)
         throws DBException, IOException {
 
+        if (directWriter != null) {
+            exportRowDirect(session, resultSet, row);
+            return;
+        }
+
         Worksheet wsh = getWsh(resultSet, row);
 
         Row rowX = wsh.getSh().createRow(wsh.getCurrentRow());
@@ -521,6 +616,64 @@ public class DataExporterXLSX extends StreamExporterAbstract implements IAppenda
         rowCount++;
     }
 
+    private void exportRowDirect(DBCSession session, DBCResultSet resultSet, Object[] row)
+        throws DBException, IOException {
+
+        if (!directWriter.isSheetOpen() || directWriter.isSheetFull()) {
+            directWriter.startSheet(getDirectColumnWidths());
+            if (printHeader) {
+                printHeaderDirect(resultSet);
+            }
+        }
+
+        directWriter.startRow();
+
+        if (rowNumber) {
+            // Header rows are counted as well, the same way as in POI mode
+            directWriter.writeNumber(directWriter.getSheetRow() - 1, XLSXStreamWriter.STYLE_CELL);
+        }
+
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            if (DBUtils.isNullValue(value)) {
+                directWriter.writeString(nullString, XLSXStreamWriter.STYLE_CELL);
+            } else if (value instanceof DBDContent) {
+                DBDContent content = (DBDContent) value;
+                try {
+                    DBDContentStorage cs = content.getContents(session.getProgressMonitor());
+                    if (cs == null) {
+                        directWriter.writeString(DBConstants.NULL_VALUE_LABEL, XLSXStreamWriter.STYLE_CELL);
+                    } else if (ContentUtils.isTextContent(content)) {
+                        Reader reader = cs.getContentReader();
+                        try {
+                            directWriter.writeString(reader, EXCEL_MAX_CELL_CHARACTERS, XLSXStreamWriter.STYLE_CELL);
+                        } finally {
+                            ContentUtils.close(reader);
+                        }
+                    } else {
+                        directWriter.writeString(BINARY_FIXED, XLSXStreamWriter.STYLE_CELL);
+                    }
+                } finally {
+                    content.release();
+                }
+            } else if (value instanceof Boolean) {
+                if (booleRedefined) {
+                    directWriter.writeString((Boolean) value ? boolTrue : boolFalse, XLSXStreamWriter.STYLE_CELL);
+                } else {
+                    directWriter.writeBoolean((Boolean) value, XLSXStreamWriter.STYLE_CELL);
+                }
+            } else if (value instanceof Number) {
+                directWriter.writeNumber((Number) value, XLSXStreamWriter.STYLE_CELL);
+            } else if (value instanceof Date) {
+                directWriter.writeDate((Date) value, XLSXStreamWriter.STYLE_DATE);
+            } else {
+                String stringValue = super.getValueDisplayString(columns[i], value);
+                directWriter.writeString(getPreparedString(stringValue), XLSXStreamWriter.STYLE_CELL);
+            }
+        }
+        rowCount++;
+    }
+
     private CellType getCellType(DBDAttributeBinding column) {
         switch (column.getDataKind()) {
         case NUMERIC:
@@ -0,0 +1,417 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.data.office.export;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+import org.jkiss.utils.xml.XMLUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes XLSX (OOXML) workbook directly into a zip stream.
+ * Sheets are written one after another, cells use inline strings and a fixed set of precomputed styles.
+ * A new sheet is started automatically once current sheet reaches the row limit.
+ */
+public class XLSXStreamWriter {
+
+    public static final int STYLE_DEFAULT = 0;
+    public static final int STYLE_CELL = 1;
+    public static final int STYLE_DATE = 2;
+    public static final int STYLE_HEADER = 3;
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final int CUSTOM_DATE_FORMAT_ID = 164;
+    private static final int BUILTIN_DATE_FORMAT_ID = 14;
+    private static final int MAX_COLUMN_WIDTH = 80;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final int maxSheetRows;
+    private final BorderStyle border;
+    private final DataExporterXLSX.FontStyleProp headerFont;
+    private final String dateFormat;
+
+    private final List<String> sheetNames = new ArrayList<>();
+    private boolean sheetOpen;
+    private boolean rowOpen;
+    private int sheetRow;
+    private int rowColumn;
+    private String rowRef;
+    private String[] columnRefs = new String[0];
+
+    public XLSXStreamWriter(
+        @NotNull OutputStream stream,
+        int maxSheetRows,
+        @NotNull BorderStyle border,
+        @NotNull DataExporterXLSX.FontStyleProp headerFont,
+        @Nullable String dateFormat)
+    {
+        this.zip = new ZipOutputStream(stream, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.maxSheetRows = maxSheetRows;
+        this.border = border;
+        this.headerFont = headerFont;
+        this.dateFormat = dateFormat;
+    }
+
+    public boolean isSheetOpen() {
+        return sheetOpen;
+    }
+
+    /**
+     * Number of rows written in the current sheet
+     */
+    public int getSheetRow() {
+        return sheetRow;
+    }
+
+    public boolean isSheetFull() {
+        return sheetOpen && sheetRow >= maxSheetRows;
+    }
+
+    /**
+     * Starts new sheet. Previous sheet (if any) is closed.
+     *
+     * @param columnWidths column widths in characters, may be null
+     */
+    public void startSheet(@Nullable int[] columnWidths) throws IOException {
+        if (sheetOpen) {
+            endSheet();
+        }
+        String sheetName = "Sheet" + sheetNames.size();
+        sheetNames.add(sheetName);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        out.write(XML_DECLARATION);
+        out.write("<worksheet xmlns=\"" + NS_MAIN + "\">");
+        if (columnWidths != null && columnWidths.length > 0) {
+            out.write("<cols>");
+            for (int i = 0; i < columnWidths.length; i++) {
+                int width = Math.min(columnWidths[i], MAX_COLUMN_WIDTH);
+                out.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + width + "\" customWidth=\"1\"/>");
+            }
+            out.write("</cols>");
+        }
+        out.write("<sheetData>");
+        sheetOpen = true;
+        sheetRow = 0;
+    }
+
+    public void endSheet() throws IOException {
+        if (!sheetOpen) {
+            return;
+        }
+        if (rowOpen) {
+            endRow();
+        }
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    public void startRow() throws IOException {
+        if (rowOpen) {
+            endRow();
+        }
+        sheetRow++;
+        rowRef = String.valueOf(sheetRow);
+        rowColumn = 0;
+        out.write("<row r=\"");
+        out.write(rowRef);
+        out.write("\">");
+        rowOpen = true;
+    }
+
+    public void endRow() throws IOException {
+        out.write("</row>");
+        rowOpen = false;
+    }
+
+    public void writeBlank(int style) throws IOException {
+        startCell(style, null);
+        out.write("/>");
+    }
+
+    public void writeString(@Nullable String value, int style) throws IOException {
+        if (CommonUtils.isEmpty(value)) {
+            writeBlank(style);
+            return;
+        }
+        startCell(style, "inlineStr");
+        out.write("><is><t xml:space=\"preserve\">");
+        writeText(value);
+        out.write("</t></is></c>");
+    }
+
+    public void writeString(@NotNull Reader reader, int maxLength, int style) throws IOException {
+        startCell(style, "inlineStr");
+        out.write("><is><t xml:space=\"preserve\">");
+        char[] buffer = new char[2000];
+        int remaining = maxLength;
+        while (remaining > 0) {
+            int count = reader.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (count <= 0) {
+                break;
+            }
+            writeText(buffer, count);
+            remaining -= count;
+        }
+        out.write("</t></is></c>");
+    }
+
+    public void writeNumber(@NotNull Number value, int style) throws IOException {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeNumericValue(value.toString(), style);
+            return;
+        }
+        double doubleValue = value.doubleValue();
+        if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+            // Not representable as a numeric cell
+            writeString(value.toString(), style);
+        } else {
+            writeNumericValue(Double.toString(doubleValue), style);
+        }
+    }
+
+    public void writeBoolean(boolean value, int style) throws IOException {
+        startCell(style, "b");
+        out.write(value ? "><v>1</v></c>" : "><v>0</v></c>");
+    }
+
+    public void writeDate(@NotNull Date value, int style) throws IOException {
+        writeNumericValue(Double.toString(DateUtil.getExcelDate(value)), style);
+    }
+
+    /**
+     * Closes the last sheet and writes workbook parts. Underlying stream is not closed.
+     */
+    public void finish() throws IOException {
+        if (sheetNames.isEmpty()) {
+            // Workbook must contain at least one sheet
+            startSheet(null);
+        }
+        endSheet();
+
+        writeEntry("xl/styles.xml", buildStyles());
+        writeEntry("xl/workbook.xml", buildWorkbook());
+        writeEntry("xl/_rels/workbook.xml.rels", buildWorkbookRelationships());
+        writeEntry("_rels/.rels", XML_DECLARATION +
+            "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">" +
+            "<Relationship Id=\"rId1\" Type=\"" + NS_RELATIONSHIPS + "/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>");
+        writeEntry("[Content_Types].xml", buildContentTypes());
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeNumericValue(String value, int style) throws IOException {
+        startCell(style, null);
+        out.write("><v>");
+        out.write(value);
+        out.write("</v></c>");
+    }
+
+    private void startCell(int style, @Nullable String type) throws IOException {
+        out.write("<c r=\"");
+        out.write(getColumnRef(rowColumn++));
+        out.write(rowRef);
+        out.write('"');
+        if (style != STYLE_DEFAULT) {
+            out.write(" s=\"");
+            out.write(Integer.toString(style));
+            out.write('"');
+        }
+        if (type != null) {
+            out.write(" t=\"");
+            out.write(type);
+            out.write('"');
+        }
+    }
+
+    private String getColumnRef(int column) {
+        if (column >= columnRefs.length) {
+            String[] refs = new String[Math.max(column + 1, columnRefs.length * 2)];
+            System.arraycopy(columnRefs, 0, refs, 0, columnRefs.length);
+            columnRefs = refs;
+        }
+        String ref = columnRefs[column];
+        if (ref == null) {
+            StringBuilder sb = new StringBuilder(3);
+            for (int i = column + 1; i > 0; i = (i - 1) / 26) {
+                sb.insert(0, (char) ('A' + (i - 1) % 26));
+            }
+            ref = sb.toString();
+            columnRefs[column] = ref;
+        }
+        return ref;
+    }
+
+    private void writeText(String text) throws IOException {
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            String repl = XMLUtils.isValidXMLChar(c) ? XMLUtils.encodeXMLChar(c) : "";
+            if (repl != null) {
+                out.write(text, start, i - start);
+                out.write(repl);
+                start = i + 1;
+            }
+        }
+        out.write(text, start, length - start);
+    }
+
+    private void writeText(char[] text, int length) throws IOException {
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            String repl = XMLUtils.isValidXMLChar(c) ? XMLUtils.encodeXMLChar(c) : "";
+            if (repl != null) {
+                out.write(text, start, i - start);
+                out.write(repl);
+                start = i + 1;
+            }
+        }
+        out.write(text, start, length - start);
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private String buildStyles() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION);
+        xml.append("<styleSheet xmlns=\"").append(NS_MAIN).append("\">");
+        boolean customDateFormat = !CommonUtils.isEmpty(dateFormat);
+        if (customDateFormat) {
+            xml.append("<numFmts count=\"1\"><numFmt numFmtId=\"").append(CUSTOM_DATE_FORMAT_ID)
+                .append("\" formatCode=\"").append(XMLUtils.escapeXml(dateFormat)).append("\"/></numFmts>");
+        }
+        xml.append("<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font><font>");
+        switch (headerFont) {
+            case BOLD:
+                xml.append("<b/>");
+                break;
+            case ITALIC:
+                xml.append("<i/>");
+                break;
+            case STRIKEOUT:
+                xml.append("<strike/>");
+                break;
+            case UNDERLINE:
+                xml.append("<u/>");
+                break;
+            default:
+                break;
+        }
+        xml.append("<sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font></fonts>");
+        xml.append("<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>");
+        xml.append("<borders count=\"2\"><border><left/><right/><top/><bottom/><diagonal/></border><border>");
+        String borderName = getBorderName();
+        for (String side : new String[] {"left", "right", "top", "bottom"}) {
+            if (borderName == null) {
+                xml.append('<').append(side).append("/>");
+            } else {
+                xml.append('<').append(side).append(" style=\"").append(borderName).append("\"><color indexed=\"64\"/></").append(side).append('>');
+            }
+        }
+        xml.append("<diagonal/></border></borders>");
+        xml.append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+        // Order must match STYLE_* constants
+        xml.append("<cellXfs count=\"4\">");
+        xml.append("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>");
+        xml.append("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\"/>");
+        xml.append("<xf numFmtId=\"").append(customDateFormat ? CUSTOM_DATE_FORMAT_ID : BUILTIN_DATE_FORMAT_ID)
+            .append("\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyNumberFormat=\"1\" applyBorder=\"1\"/>");
+        xml.append("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyFont=\"1\" applyBorder=\"1\"/>");
+        xml.append("</cellXfs>");
+        xml.append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+        xml.append("</styleSheet>");
+        return xml.toString();
+    }
+
+    @Nullable
+    private String getBorderName() {
+        switch (border) {
+            case NONE:
+                return null;
+            case THICK:
+                return "thick";
+            case MEDIUM:
+                return "medium";
+            default:
+                return "thin";
+        }
+    }
+
+    private String buildWorkbook() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION);
+        xml.append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_RELATIONSHIPS).append("\"><sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<sheet name=\"").append(XMLUtils.escapeXml(sheetNames.get(i)))
+                .append("\" sheetId=\"").append(i + 1).append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        xml.append("</sheets></workbook>");
+        return xml.toString();
+    }
+
+    private String buildWorkbookRelationships() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION);
+        xml.append("<Relationships xmlns=\"").append(NS_PACKAGE_RELATIONSHIPS).append("\">");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<Relationship Id=\"rId").append(i + 1).append("\" Type=\"").append(NS_RELATIONSHIPS)
+                .append("/worksheet\" Target=\"worksheets/sheet").append(i + 1).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheetNames.size() + 1).append("\" Type=\"").append(NS_RELATIONSHIPS)
+            .append("/styles\" Target=\"styles.xml\"/>");
+        xml.append("</Relationships>");
+        return xml.toString();
+    }
+
+    private String buildContentTypes() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION);
+        xml.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        xml.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        xml.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        xml.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        xml.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i + 1)
+                .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        xml.append("</Types>");
+        return xml.toString();
+    }
+
+}
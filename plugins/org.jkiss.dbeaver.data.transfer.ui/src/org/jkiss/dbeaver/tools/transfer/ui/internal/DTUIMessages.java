@@ -101,6 +101,9 @@ public class DTUIMessages extends NLS {
 	public static String database_producer_page_extract_settings_threads_num_text_tooltip;
 	public static String database_producer_page_extract_settings_new_connection_checkbox_tooltip;
 	public static String database_producer_page_extract_settings_row_count_checkbox_tooltip;
+	public static String database_producer_page_extract_settings_pipelined_transfer_checkbox_tooltip;
+	public static String database_producer_page_extract_settings_partition_count_tooltip;
+	public static String database_producer_page_extract_settings_partition_column_tooltip;
 	public static String database_producer_page_extract_settings_text_fetch_size_label;
 	public static String database_producer_page_extract_settings_text_fetch_size_tooltip;
 
@@ -0,0 +1,377 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.data.DBDValueMeta;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.utils.RuntimeUtils;
+
+import java.util.List;
+
+/**
+ * Pipelined data receiver.
+ * Decouples data producer from data consumer: producer thread reads row values into a bounded
+ * ring buffer while consumer thread drains it. Producer is blocked when buffer is full (backpressure).
+ *
+ * Pipelining is used only for plain (non-complex, non-LOB) result sets because complex values may depend
+ * on the open source cursor. Otherwise all rows are passed to the consumer directly.
+ */
+public class DataTransferPipeline implements DBDDataReceiver {
+
+    private static final Log log = Log.getLog(DataTransferPipeline.class);
+
+    private static final long POLL_TIMEOUT = 100;
+
+    private final DBSDataContainer dataContainer;
+    private final IDataTransferConsumer<?, ?> consumer;
+    private final int bufferSize;
+
+    private DBDAttributeBinding[] bindings;
+    private DBDValueHandler[] valueHandlers;
+    private DataTransferRowBuffer buffer;
+    private Thread consumerThread;
+    private volatile Throwable consumerError;
+    private volatile boolean canceled;
+
+    private long rowsProduced;
+    private volatile long rowsConsumed;
+    private long producerStallTime;
+    private long consumerStallTime;
+    private long fetchStartTime;
+    private long elapsedTime;
+
+    public DataTransferPipeline(@NotNull DBSDataContainer dataContainer, @NotNull IDataTransferConsumer<?, ?> consumer, int bufferSize) {
+        this.dataContainer = dataContainer;
+        this.consumer = consumer;
+        this.bufferSize = bufferSize;
+    }
+
+    public long getRowsProduced() {
+        return rowsProduced;
+    }
+
+    public long getRowsConsumed() {
+        return rowsConsumed;
+    }
+
+    /**
+     * Total time (ms) producer waited for a free buffer slot, i.e. time consumer was the bottleneck
+     */
+    public long getProducerStallTime() {
+        return producerStallTime;
+    }
+
+    /**
+     * Total time (ms) consumer waited for rows, i.e. time producer was the bottleneck
+     */
+    public long getConsumerStallTime() {
+        return consumerStallTime;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    @Override
+    public void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) throws DBCException {
+        checkConsumerError();
+        consumer.fetchStart(session, resultSet, offset, maxRows);
+
+        fetchStartTime = System.currentTimeMillis();
+        bindings = DBUtils.makeLeafAttributeBindings(session, dataContainer, resultSet);
+        if (!isPipelineSupported(bindings)) {
+            log.debug("Result set of '" + dataContainer.getName() + "' contains complex values. Pipelined transfer disabled.");
+            buffer = null;
+            return;
+        }
+        valueHandlers = new DBDValueHandler[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            valueHandlers[i] = bindings[i].getValueHandler();
+        }
+        buffer = new DataTransferRowBuffer(bufferSize, bindings.length);
+        BufferedResultSet bufferedResultSet = new BufferedResultSet(resultSet);
+        consumerThread = new Thread(
+            () -> drainBuffer(session, buffer, bufferedResultSet),
+            "Data transfer consumer (" + consumer.getObjectName() + ")");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @Override
+    public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        if (buffer == null) {
+            consumer.fetchRow(session, resultSet);
+            rowsProduced++;
+            rowsConsumed++;
+            return;
+        }
+        DBRProgressMonitor monitor = session.getProgressMonitor();
+        Object[] slot;
+        try {
+            for (;;) {
+                checkConsumerError();
+                if (monitor.isCanceled()) {
+                    cancel();
+                    throw new DBCException("Data transfer canceled");
+                }
+                slot = buffer.beginWrite(POLL_TIMEOUT);
+                if (slot != null) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw new DBCException("Data transfer interrupted", e);
+        }
+        for (int i = 0; i < bindings.length; i++) {
+            if (valueHandlers[i] != null) {
+                slot[i] = valueHandlers[i].fetchValueObject(session, resultSet, bindings[i], i);
+            } else {
+                slot[i] = resultSet.getAttributeValue(i);
+            }
+        }
+        buffer.commitWrite();
+        rowsProduced++;
+    }
+
+    @Override
+    public void fetchEnd(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        try {
+            if (buffer != null) {
+                buffer.close();
+                waitForConsumer(session.getProgressMonitor());
+                producerStallTime += buffer.getWriteStallTime();
+                consumerStallTime += buffer.getReadStallTime();
+                buffer = null;
+            }
+            checkConsumerError();
+            consumer.fetchEnd(session, resultSet);
+        } finally {
+            elapsedTime += System.currentTimeMillis() - fetchStartTime;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (consumerThread != null && consumerThread.isAlive()) {
+            // Fetch was aborted before fetchEnd
+            cancel();
+            try {
+                consumerThread.join(POLL_TIMEOUT * 10);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+        consumerThread = null;
+        buffer = null;
+        consumer.close();
+    }
+
+    @NotNull
+    @Override
+    public DBCStatistics getStatistics() {
+        return consumer.getStatistics();
+    }
+
+    /**
+     * Rethrows error which happened in the consumer thread.
+     * Must be called by producer after data read because data containers do not propagate fetchEnd errors.
+     */
+    public void checkConsumerError() throws DBCException {
+        Throwable error = consumerError;
+        if (error != null) {
+            if (error instanceof DBCException) {
+                throw (DBCException) error;
+            }
+            throw new DBCException("Error transferring data to '" + consumer.getObjectName() + "'", error);
+        }
+    }
+
+    @NotNull
+    public String getStatisticsSummary() {
+        long elapsed = Math.max(elapsedTime, 1);
+        return "Pipelined transfer of '" + dataContainer.getName() + "': " +
+            "produced " + rowsProduced + " rows (" + (rowsProduced * 1000 / elapsed) + " rows/s, stalled " +
+            RuntimeUtils.formatExecutionTime(producerStallTime) + "), " +
+            "consumed " + rowsConsumed + " rows (" + (rowsConsumed * 1000 / elapsed) + " rows/s, stalled " +
+            RuntimeUtils.formatExecutionTime(consumerStallTime) + ")";
+    }
+
+    private void cancel() {
+        canceled = true;
+        DataTransferRowBuffer curBuffer = buffer;
+        if (curBuffer != null) {
+            curBuffer.abort();
+        }
+    }
+
+    private void waitForConsumer(DBRProgressMonitor monitor) throws DBCException {
+        Thread thread = consumerThread;
+        if (thread == null) {
+            return;
+        }
+        try {
+            while (thread.isAlive()) {
+                if (monitor.isCanceled()) {
+                    cancel();
+                }
+                thread.join(POLL_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw new DBCException("Data transfer interrupted", e);
+        } finally {
+            consumerThread = null;
+        }
+    }
+
+    private void drainBuffer(DBCSession session, DataTransferRowBuffer rowBuffer, BufferedResultSet resultSet) {
+        try {
+            while (!canceled) {
+                Object[] row = rowBuffer.beginRead(POLL_TIMEOUT);
+                if (row == null) {
+                    if (rowBuffer.isFinished()) {
+                        break;
+                    }
+                    continue;
+                }
+                resultSet.setRow(row);
+                consumer.fetchRow(session, resultSet);
+                rowBuffer.commitRead();
+                rowsConsumed++;
+            }
+        } catch (Throwable e) {
+            consumerError = e;
+            rowBuffer.abort();
+        }
+    }
+
+    private static boolean isPipelineSupported(DBDAttributeBinding[] bindings) {
+        for (DBDAttributeBinding binding : bindings) {
+            DBPDataKind dataKind = binding.getDataKind();
+            if (dataKind.isComplex() || dataKind == DBPDataKind.CONTENT || binding.getParentObject() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Result set which returns values of the current buffered row.
+     * Meta information is taken from the source result set.
+     */
+    private static class BufferedResultSet implements DBCResultSet {
+        private final DBCSession session;
+        private final DBCStatement sourceStatement;
+        private final DBCResultSetMetaData meta;
+        @Nullable
+        private final String resultSetName;
+        private Object[] row;
+
+        BufferedResultSet(DBCResultSet source) throws DBCException {
+            this.session = source.getSession();
+            this.sourceStatement = source.getSourceStatement();
+            this.meta = source.getMeta();
+            this.resultSetName = source.getResultSetName();
+        }
+
+        void setRow(Object[] row) {
+            this.row = row;
+        }
+
+        @Override
+        public DBCSession getSession() {
+            return session;
+        }
+
+        @Override
+        public DBCStatement getSourceStatement() {
+            return sourceStatement;
+        }
+
+        @Override
+        public Object getAttributeValue(int index) throws DBCException {
+            if (index < 0 || index >= row.length) {
+                throw new DBCException("Attribute index out of range (" + index + "/" + row.length + ")");
+            }
+            return row[index];
+        }
+
+        @Override
+        public Object getAttributeValue(String name) throws DBCException {
+            List<DBCAttributeMetaData> attributes = meta.getAttributes();
+            for (int i = 0; i < attributes.size(); i++) {
+                if (attributes.get(i).getName().equals(name)) {
+                    return getAttributeValue(i);
+                }
+            }
+            throw new DBCException("Bad attribute name: " + name);
+        }
+
+        @Override
+        public DBDValueMeta getAttributeValueMeta(int index) throws DBCException {
+            return null;
+        }
+
+        @Override
+        public DBDValueMeta getRowMeta() throws DBCException {
+            return null;
+        }
+
+        @Override
+        public boolean nextRow() throws DBCException {
+            return false;
+        }
+
+        @Override
+        public boolean moveTo(int position) throws DBCException {
+            return false;
+        }
+
+        @NotNull
+        @Override
+        public DBCResultSetMetaData getMeta() throws DBCException {
+            return meta;
+        }
+
+        @Override
+        public String getResultSetName() throws DBCException {
+            return resultSetName;
+        }
+
+        @Override
+        public Object getFeature(String name) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            row = null;
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer;
+
+import org.jkiss.code.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded ring buffer of reusable row slots.
+ * Designed for exactly one writer thread and one reader thread.
+ * Writer fills slot returned by {@link #beginWrite(long)} and publishes it with {@link #commitWrite()}.
+ * Reader gets published slot with {@link #beginRead(long)} and releases it with {@link #commitRead()}.
+ * Slot arrays are reused, so reader must not keep references to them after commit.
+ */
+public class DataTransferRowBuffer {
+
+    private final Object[][] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int head;
+    private int tail;
+    private int count;
+    private boolean closed;
+    private boolean aborted;
+
+    private long writeStallNanos;
+    private long readStallNanos;
+
+    public DataTransferRowBuffer(int capacity, int columnCount) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Bad buffer capacity: " + capacity);
+        }
+        this.slots = new Object[capacity][];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Object[columnCount];
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Waits for free slot.
+     * @return slot to fill or null if timeout elapsed or buffer was aborted
+     */
+    @Nullable
+    public Object[] beginWrite(long timeoutMs) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (count == slots.length && !aborted) {
+                long waitStart = System.nanoTime();
+                long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                while (count == slots.length && !aborted && nanos > 0) {
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                writeStallNanos += System.nanoTime() - waitStart;
+            }
+            if (aborted || count == slots.length) {
+                return null;
+            }
+            return slots[tail];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes slot obtained with {@link #beginWrite(long)}
+     */
+    public void commitWrite() {
+        lock.lock();
+        try {
+            tail = (tail + 1) % slots.length;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for published slot.
+     * @return slot to read or null if timeout elapsed or buffer is drained or aborted
+     */
+    @Nullable
+    public Object[] beginRead(long timeoutMs) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (count == 0 && !closed && !aborted) {
+                long waitStart = System.nanoTime();
+                long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                while (count == 0 && !closed && !aborted && nanos > 0) {
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                readStallNanos += System.nanoTime() - waitStart;
+            }
+            if (aborted || count == 0) {
+                return null;
+            }
+            return slots[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases slot obtained with {@link #beginRead(long)}
+     */
+    public void commitRead() {
+        lock.lock();
+        try {
+            head = (head + 1) % slots.length;
+            count--;
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks end of data. Reader will drain remaining slots.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops both writer and reader. Remaining slots are discarded.
+     */
+    public void abort() {
+        lock.lock();
+        try {
+            aborted = true;
+            for (Object[] slot : slots) {
+                Arrays.fill(slot, null);
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if buffer was closed and all rows were read, or if it was aborted
+     */
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return aborted || (closed && count == 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWriteStallTime() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(writeStallNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReadStallTime() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(readStallNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
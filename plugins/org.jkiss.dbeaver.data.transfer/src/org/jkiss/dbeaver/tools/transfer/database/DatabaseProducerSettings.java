@@ -32,11 +32,14 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
 
     public enum ExtractType {
         SINGLE_QUERY,
-        SEGMENTS
+        SEGMENTS,
+        PARTITIONS
     }
 
     private static final int DEFAULT_SEGMENT_SIZE = 100000;
     private static final int DEFAULT_FETCH_SIZE = 10000;
+    private static final int DEFAULT_PIPELINE_BUFFER_SIZE = 10000;
+    private static final int DEFAULT_PARTITION_COUNT = 4;
 
     private int segmentSize = DEFAULT_SEGMENT_SIZE;
 
@@ -46,6 +49,10 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
     private boolean selectedColumnsOnly = false;
     private ExtractType extractType = ExtractType.SINGLE_QUERY;
     private int fetchSize = DEFAULT_FETCH_SIZE;
+    private boolean pipelinedTransfer = false;
+    private int pipelineBufferSize = DEFAULT_PIPELINE_BUFFER_SIZE;
+    private int partitionCount = DEFAULT_PARTITION_COUNT;
+    private String partitionColumn;
 
     public DatabaseProducerSettings() {
     }
@@ -108,6 +115,51 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
         this.extractType = extractType;
     }
 
+    /**
+     * Read and write data in separate threads connected with a bounded row buffer
+     */
+    public boolean isPipelinedTransfer() {
+        return pipelinedTransfer;
+    }
+
+    public void setPipelinedTransfer(boolean pipelinedTransfer) {
+        this.pipelinedTransfer = pipelinedTransfer;
+    }
+
+    public int getPipelineBufferSize() {
+        return pipelineBufferSize;
+    }
+
+    public void setPipelineBufferSize(int pipelineBufferSize) {
+        if (pipelineBufferSize > 0) {
+            this.pipelineBufferSize = pipelineBufferSize;
+        }
+    }
+
+    /**
+     * Number of parallel readers in partitions extract mode
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public void setPartitionCount(int partitionCount) {
+        if (partitionCount > 0) {
+            this.partitionCount = partitionCount;
+        }
+    }
+
+    /**
+     * Column used to split table into key ranges. If empty then leading primary key column is used.
+     */
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
     @Override
     public void loadSettings(DBRRunnableContext runnableContext, DataTransferSettings dataTransferSettings, Map<String, Object> settings) {
         extractType = CommonUtils.valueOf(ExtractType.class, (String) settings.get("extractType"), extractType);
@@ -117,6 +169,10 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
         queryRowCount = CommonUtils.toBoolean(settings.get("queryRowCount"));
         selectedColumnsOnly = CommonUtils.toBoolean(settings.get("selectedColumnsOnly"));
         selectedRowsOnly = CommonUtils.toBoolean(settings.get("selectedRowsOnly"));
+        pipelinedTransfer = CommonUtils.toBoolean(settings.get("pipelinedTransfer"));
+        setPipelineBufferSize(CommonUtils.toInt(settings.get("pipelineBufferSize"), DEFAULT_PIPELINE_BUFFER_SIZE));
+        setPartitionCount(CommonUtils.toInt(settings.get("partitionCount"), DEFAULT_PARTITION_COUNT));
+        partitionColumn = CommonUtils.toString(settings.get("partitionColumn"), null);
     }
 
     @Override
@@ -128,6 +184,12 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
         settings.put("queryRowCount", queryRowCount);
         settings.put("selectedColumnsOnly", selectedColumnsOnly);
         settings.put("selectedRowsOnly", selectedRowsOnly);
+        settings.put("pipelinedTransfer", pipelinedTransfer);
+        settings.put("pipelineBufferSize", pipelineBufferSize);
+        settings.put("partitionCount", partitionCount);
+        if (!CommonUtils.isEmpty(partitionColumn)) {
+            settings.put("partitionColumn", partitionColumn);
+        }
     }
 
     @Override
@@ -139,6 +201,7 @@ public class DatabaseProducerSettings implements IDataTransferSettings {
         DTUtils.addSummary(summary, DTMessages.data_transfer_wizard_output_checkbox_select_row_count, queryRowCount);
         DTUtils.addSummary(summary, DTMessages.data_transfer_wizard_output_checkbox_selected_rows_only, selectedRowsOnly);
         DTUtils.addSummary(summary, DTMessages.data_transfer_wizard_output_checkbox_selected_columns_only, selectedColumnsOnly);
+        DTUtils.addSummary(summary, DTMessages.data_transfer_wizard_output_checkbox_pipelined_transfer, pipelinedTransfer);
 
         return summary.toString();
     }
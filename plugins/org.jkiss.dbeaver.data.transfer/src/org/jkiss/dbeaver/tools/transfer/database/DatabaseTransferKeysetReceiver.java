@@ -0,0 +1,191 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer.database;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLUtils;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+
+import java.util.List;
+
+/**
+ * Segmented read helper which uses keyset (seek) pagination instead of OFFSET.
+ * Remembers unique key values of the last received row and makes filter which reads the next segment after them.
+ * Passes the logical row offset to the target receiver so it sees the same offsets as in OFFSET mode.
+ */
+class DatabaseTransferKeysetReceiver implements DBDDataReceiver {
+
+    private static final Log log = Log.getLog(DatabaseTransferKeysetReceiver.class);
+
+    private final DBDDataReceiver target;
+    private final DBPDataSource dataSource;
+    @Nullable
+    private final DBDDataFilter dataFilter;
+    private final List<? extends DBSEntityAttribute> keyAttributes;
+    private final DBDDataFilter orderedFilter;
+
+    private long offset;
+    private DBCAttributeMetaData[] keyMetaAttributes;
+    private DBDValueHandler[] keyValueHandlers;
+    private Object[] lastKeyValues;
+
+    private DatabaseTransferKeysetReceiver(
+        @NotNull DBDDataReceiver target,
+        @NotNull DBPDataSource dataSource,
+        @Nullable DBDDataFilter dataFilter,
+        @NotNull List<? extends DBSEntityAttribute> keyAttributes,
+        @NotNull DBDDataFilter orderedFilter)
+    {
+        this.target = target;
+        this.dataSource = dataSource;
+        this.dataFilter = dataFilter;
+        this.keyAttributes = keyAttributes;
+        this.orderedFilter = orderedFilter;
+    }
+
+    /**
+     * Creates keyset receiver for the specified entity.
+     * Returns null if entity has no suitable unique key or data filter can't be combined with keyset condition.
+     */
+    @Nullable
+    static DatabaseTransferKeysetReceiver create(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSEntity entity,
+        @Nullable DBDDataFilter dataFilter,
+        @NotNull DBDDataReceiver target)
+    {
+        DBPDataSource dataSource = entity.getDataSource();
+        if (dataSource == null) {
+            return null;
+        }
+        List<? extends DBSEntityAttribute> keyAttributes;
+        try {
+            keyAttributes = DBUtils.getBestTableIdentifier(monitor, entity);
+        } catch (DBException e) {
+            log.debug("Can't read unique key of '" + entity.getName() + "'", e);
+            return null;
+        }
+        if (keyAttributes.isEmpty()) {
+            return null;
+        }
+        for (DBSEntityAttribute attr : keyAttributes) {
+            if (!SQLUtils.isKeysetAttribute(attr)) {
+                return null;
+            }
+        }
+        DBDDataFilter orderedFilter = SQLUtils.makeKeysetFilter(dataSource, dataFilter, keyAttributes, null);
+        if (orderedFilter == null) {
+            return null;
+        }
+        return new DatabaseTransferKeysetReceiver(target, dataSource, dataFilter, keyAttributes, orderedFilter);
+    }
+
+    /**
+     * Filter which reads rows in key order. Used for the first segment and as OFFSET fallback.
+     */
+    @NotNull
+    DBDDataFilter getOrderedFilter() {
+        return orderedFilter;
+    }
+
+    /**
+     * Makes filter which reads rows following the last received row.
+     * Returns null if key values of the last row are not available.
+     */
+    @Nullable
+    DBDDataFilter makeNextSegmentFilter() {
+        if (lastKeyValues == null) {
+            return null;
+        }
+        return SQLUtils.makeKeysetFilter(dataSource, dataFilter, keyAttributes, lastKeyValues);
+    }
+
+    void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    @Override
+    public void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) throws DBCException {
+        keyMetaAttributes = null;
+        keyValueHandlers = null;
+        lastKeyValues = null;
+
+        DBCResultSetMetaData meta = resultSet.getMeta();
+        if (meta != null) {
+            List<DBCAttributeMetaData> rsAttributes = meta.getAttributes();
+            DBCAttributeMetaData[] metaAttributes = new DBCAttributeMetaData[keyAttributes.size()];
+            DBDValueHandler[] valueHandlers = new DBDValueHandler[keyAttributes.size()];
+            for (int i = 0; i < metaAttributes.length; i++) {
+                for (DBCAttributeMetaData rsAttr : rsAttributes) {
+                    if (SQLUtils.compareAliases(rsAttr.getName(), keyAttributes.get(i).getName())) {
+                        metaAttributes[i] = rsAttr;
+                        valueHandlers[i] = DBUtils.findValueHandler(session, rsAttr);
+                        break;
+                    }
+                }
+                if (metaAttributes[i] == null) {
+                    // Key column is not in result set. Next segments will be read by offset
+                    metaAttributes = null;
+                    break;
+                }
+            }
+            if (metaAttributes != null) {
+                keyMetaAttributes = metaAttributes;
+                keyValueHandlers = valueHandlers;
+            }
+        }
+
+        target.fetchStart(session, resultSet, this.offset + offset, maxRows);
+    }
+
+    @Override
+    public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        target.fetchRow(session, resultSet);
+
+        if (keyMetaAttributes != null) {
+            if (lastKeyValues == null) {
+                lastKeyValues = new Object[keyMetaAttributes.length];
+            }
+            for (int i = 0; i < keyMetaAttributes.length; i++) {
+                lastKeyValues[i] = keyValueHandlers[i].fetchValueObject(
+                    session, resultSet, keyMetaAttributes[i], keyMetaAttributes[i].getOrdinalPosition());
+            }
+        }
+    }
+
+    @Override
+    public void fetchEnd(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        target.fetchEnd(session, resultSet);
+    }
+
+    @Override
+    public void close() {
+        target.close();
+    }
+
+}
@@ -0,0 +1,505 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer.database;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.ProxyProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLUtils;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+import org.jkiss.utils.CommonUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Reads single table in several parallel threads.
+ * Table is split into key ranges by a numeric or date/time column (primary key by default).
+ * Range bounds are calculated from column MIN/MAX values. Each range is read in a separate isolated context.
+ * All rows are passed to the same data receiver, calls to receiver are serialized.
+ * Statements of all partitions are registered in the caller monitor as a single block, so canceling
+ * the caller cancels all partition queries.
+ */
+public class DatabaseTransferPartitionedReader {
+
+    private static final Log log = Log.getLog(DatabaseTransferPartitionedReader.class);
+
+    private final DBSEntity entity;
+    private final DBSDataContainer dataContainer;
+    @Nullable
+    private final DBDDataFilter dataFilter;
+    private final DatabaseProducerSettings settings;
+    private final long readFlags;
+
+    private volatile Throwable readError;
+
+    public DatabaseTransferPartitionedReader(
+        @NotNull DBSEntity entity,
+        @Nullable DBDDataFilter dataFilter,
+        @NotNull DatabaseProducerSettings settings,
+        long readFlags)
+    {
+        this.entity = entity;
+        this.dataContainer = (DBSDataContainer) entity;
+        this.dataFilter = dataFilter;
+        this.settings = settings;
+        this.readFlags = readFlags;
+    }
+
+    /**
+     * Checks whether entity can be read by partitions
+     */
+    public static boolean isPartitioningSupported(@NotNull DBSDataContainer dataContainer) {
+        return dataContainer instanceof DBSEntity &&
+            dataContainer.getDataSource() != null &&
+            !dataContainer.getDataSource().getContainer().getDriver().isEmbedded();
+    }
+
+    /**
+     * Reads all partitions and feeds them to the receiver.
+     * Receiver gets exactly one fetchStart, fetchEnd and close call.
+     *
+     * @return read statistics or null if table can't be partitioned
+     */
+    @Nullable
+    public DBCStatistics readData(
+        @NotNull DBCExecutionSource source,
+        @NotNull DBCSession session,
+        @NotNull DBDDataReceiver dataReceiver) throws DBException
+    {
+        DBRProgressMonitor monitor = session.getProgressMonitor();
+        DBSEntityAttribute attribute = findPartitionAttribute(monitor);
+        if (attribute == null) {
+            log.debug("No suitable partition column found in '" + entity.getName() + "'");
+            return null;
+        }
+        List<String> partitions = makePartitions(source, session, attribute, settings.getPartitionCount());
+        if (partitions.isEmpty()) {
+            return null;
+        }
+        log.debug("Read '" + entity.getName() + "' in " + partitions.size() + " partitions by '" + attribute.getName() + "'");
+
+        DBCStatistics statistics = new DBCStatistics();
+        PartitionReceiver receiver = new PartitionReceiver(dataReceiver, partitions.size());
+        Deque<String> queue = new ArrayDeque<>(partitions);
+        int threadCount = Math.min(settings.getPartitionCount(), partitions.size());
+        List<Thread> readers = new ArrayList<>(threadCount);
+        List<PartitionMonitor> partitionMonitors = new ArrayList<>(threadCount);
+        readError = null;
+        // Partition monitors keep their own blocks. Parent monitor gets one block which cancels all of them.
+        monitor.startBlock((cancelMonitor, blockThread) -> cancelPartitions(partitionMonitors), null);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                PartitionMonitor partitionMonitor = new PartitionMonitor(monitor);
+                synchronized (partitionMonitors) {
+                    partitionMonitors.add(partitionMonitor);
+                }
+                Thread reader = new Thread(
+                    () -> readPartitions(partitionMonitor, source, session.getExecutionContext(), receiver, queue, statistics),
+                    "Partition reader " + (i + 1) + " (" + entity.getName() + ")");
+                reader.setDaemon(true);
+                readers.add(reader);
+                reader.start();
+            }
+            boolean canceled = false;
+            for (Thread reader : readers) {
+                try {
+                    while (reader.isAlive()) {
+                        if (!canceled && monitor.isCanceled()) {
+                            canceled = true;
+                            cancelPartitions(partitionMonitors);
+                        }
+                        reader.join(100);
+                    }
+                } catch (InterruptedException e) {
+                    readError = e;
+                    cancelPartitions(partitionMonitors);
+                }
+            }
+            if (readError != null) {
+                if (readError instanceof DBException) {
+                    throw (DBException) readError;
+                }
+                throw new DBCException("Error reading partitioned data from '" + entity.getName() + "'", readError);
+            }
+        } finally {
+            monitor.endBlock();
+            receiver.finish();
+        }
+        return statistics;
+    }
+
+    private static void cancelPartitions(@NotNull List<PartitionMonitor> partitionMonitors) {
+        List<PartitionMonitor> monitors;
+        synchronized (partitionMonitors) {
+            monitors = new ArrayList<>(partitionMonitors);
+        }
+        for (PartitionMonitor partitionMonitor : monitors) {
+            partitionMonitor.cancel();
+        }
+    }
+
+    private void readPartitions(
+        @NotNull PartitionMonitor monitor,
+        @NotNull DBCExecutionSource source,
+        @NotNull DBCExecutionContext baseContext,
+        @NotNull PartitionReceiver receiver,
+        @NotNull Deque<String> queue,
+        @NotNull DBCStatistics totalStatistics)
+    {
+        DBCExecutionContext context = null;
+        try {
+            for (;;) {
+                String condition;
+                synchronized (queue) {
+                    condition = queue.poll();
+                }
+                if (condition == null || monitor.isCanceled()) {
+                    break;
+                }
+                if (context == null) {
+                    context = DBUtils.getObjectOwnerInstance(entity).openIsolatedContext(monitor, "Data transfer partition reader", baseContext);
+                }
+                DBDDataFilter partitionFilter = dataFilter == null ? new DBDDataFilter() : new DBDDataFilter(dataFilter);
+                if (CommonUtils.isEmpty(partitionFilter.getWhere())) {
+                    partitionFilter.setWhere(condition);
+                } else {
+                    partitionFilter.setWhere("(" + partitionFilter.getWhere() + ") AND " + condition);
+                }
+                try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.UTIL, "Read partition")) {
+                    session.enableLogging(false);
+                    DBCStatistics statistics = dataContainer.readData(
+                        source, session, receiver, partitionFilter, -1, -1, readFlags, settings.getFetchSize());
+                    synchronized (totalStatistics) {
+                        totalStatistics.accumulate(statistics);
+                    }
+                    // Session must be still open here: the last partition passes it to the target fetchEnd
+                    receiver.partitionFinished(session);
+                }
+            }
+        } catch (Throwable e) {
+            if (readError == null) {
+                readError = e;
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    @Nullable
+    private DBSEntityAttribute findPartitionAttribute(@NotNull DBRProgressMonitor monitor) throws DBException {
+        String columnName = settings.getPartitionColumn();
+        if (!CommonUtils.isEmpty(columnName)) {
+            DBSEntityAttribute attribute = DBUtils.findObject(entity.getAttributes(monitor), columnName, true);
+            if (attribute == null) {
+                throw new DBException("Partition column '" + columnName + "' not found in '" + entity.getName() + "'");
+            }
+            if (!isPartitionAttribute(attribute)) {
+                throw new DBException("Partition column '" + columnName + "' must be numeric or date/time");
+            }
+            return attribute;
+        }
+        List<? extends DBSEntityAttribute> identifier = DBUtils.getBestTableIdentifier(monitor, entity);
+        if (!identifier.isEmpty() && isPartitionAttribute(identifier.get(0))) {
+            // Leading key column is indexed so range scans are cheap
+            return identifier.get(0);
+        }
+        return null;
+    }
+
+    private static boolean isPartitionAttribute(@NotNull DBSEntityAttribute attribute) {
+        return attribute.getDataKind() == DBPDataKind.NUMERIC || attribute.getDataKind() == DBPDataKind.DATETIME;
+    }
+
+    /**
+     * Reads MIN/MAX values of partition column and splits them into ranges.
+     * Returns list of SQL conditions. Ranges are half-open, so each row belongs to exactly one partition.
+     */
+    @NotNull
+    private List<String> makePartitions(
+        @NotNull DBCExecutionSource source,
+        @NotNull DBCSession session,
+        @NotNull DBSEntityAttribute attribute,
+        int partitionCount) throws DBCException
+    {
+        DBPDataSource dataSource = entity.getDataSource();
+        String columnName = DBUtils.getQuotedIdentifier(attribute);
+
+        StringBuilder query = new StringBuilder();
+        query.append("SELECT MIN(").append(columnName).append("), MAX(").append(columnName).append(") FROM ");
+        query.append(DBUtils.getObjectFullName(entity, DBPEvaluationContext.DML));
+        SQLUtils.appendQueryConditions(dataSource, query, null, dataFilter);
+
+        Object minValue, maxValue;
+        session.getProgressMonitor().subTask("Calculate partitions of '" + entity.getName() + "'");
+        try (DBCStatement dbStat = session.prepareStatement(DBCStatementType.QUERY, query.toString(), false, false, false)) {
+            dbStat.setStatementSource(source);
+            if (!dbStat.executeStatement()) {
+                return Collections.emptyList();
+            }
+            DBCResultSet dbResult = dbStat.openResultSet();
+            if (dbResult == null) {
+                return Collections.emptyList();
+            }
+            try {
+                if (!dbResult.nextRow()) {
+                    return Collections.emptyList();
+                }
+                minValue = dbResult.getAttributeValue(0);
+                maxValue = dbResult.getAttributeValue(1);
+            } finally {
+                dbResult.close();
+            }
+        }
+
+        List<Object> bounds = new ArrayList<>();
+        if (minValue instanceof Date && maxValue instanceof Date) {
+            for (long bound : splitRange(((Date) minValue).getTime(), ((Date) maxValue).getTime(), partitionCount)) {
+                bounds.add(new Timestamp(bound));
+            }
+        } else if (isIntegral(minValue) && isIntegral(maxValue)) {
+            for (long bound : splitRange(((Number) minValue).longValue(), ((Number) maxValue).longValue(), partitionCount)) {
+                bounds.add(bound);
+            }
+        } else if (minValue instanceof Number && maxValue instanceof Number) {
+            double min = ((Number) minValue).doubleValue();
+            double max = ((Number) maxValue).doubleValue();
+            bounds.add(min);
+            if (max > min) {
+                for (int i = 1; i < partitionCount; i++) {
+                    bounds.add(min + (max - min) * i / partitionCount);
+                }
+            }
+            bounds.add(max);
+        } else {
+            if (minValue != null || maxValue != null) {
+                log.debug("Unsupported partition column value type: " + (minValue == null ? maxValue : minValue).getClass().getName());
+            }
+            // Empty table or unsupported values
+            return Collections.emptyList();
+        }
+
+        // Inner bounds split ranges. The first and the last ranges are open
+        // so we do not depend on MIN/MAX values precision.
+        List<String> conditions = new ArrayList<>();
+        int rangeCount = bounds.size() - 1;
+        for (int i = 0; i < rangeCount; i++) {
+            StringBuilder condition = new StringBuilder();
+            if (i > 0) {
+                condition.append(columnName).append(" >= ").append(SQLUtils.convertValueToSQL(dataSource, attribute, bounds.get(i)));
+            }
+            if (i < rangeCount - 1) {
+                if (condition.length() > 0) {
+                    condition.append(" AND ");
+                }
+                condition.append(columnName).append(" < ").append(SQLUtils.convertValueToSQL(dataSource, attribute, bounds.get(i + 1)));
+            }
+            if (condition.length() == 0) {
+                condition.append(columnName).append(" IS NOT NULL");
+            }
+            conditions.add("(" + condition + ")");
+        }
+        if (!attribute.isRequired()) {
+            conditions.add("(" + columnName + " IS NULL)");
+        }
+        return conditions;
+    }
+
+    private static boolean isIntegral(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() < 64;
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            return decimal.scale() <= 0 && decimal.toBigInteger().bitLength() < 64;
+        }
+        return false;
+    }
+
+    /**
+     * Splits [min, max] into at most partitionCount ranges.
+     * Returns range bounds, first element is min and last is max.
+     */
+    public static long[] splitRange(long min, long max, int partitionCount) {
+        if (max <= min || partitionCount <= 1) {
+            return new long[] { min, Math.max(min, max) };
+        }
+        BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min));
+        if (span.compareTo(BigInteger.valueOf(partitionCount)) < 0) {
+            partitionCount = span.intValue();
+        }
+        long[] bounds = new long[partitionCount + 1];
+        BigInteger count = BigInteger.valueOf(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            bounds[i] = BigInteger.valueOf(min).add(span.multiply(BigInteger.valueOf(i)).divide(count)).longValue();
+        }
+        bounds[partitionCount] = max;
+        return bounds;
+    }
+
+    /**
+     * Serializes calls of parallel readers to the single target receiver.
+     * Target gets fetchStart from the first started partition and fetchEnd from the last finished one,
+     * while session of that partition is still open. If some partition was not read (error or cancel)
+     * then target is closed without fetchEnd.
+     */
+    public static class PartitionReceiver implements DBDDataReceiver {
+        private final DBDDataReceiver target;
+        private final Map<DBCSession, DBCResultSet> endedResultSets = new IdentityHashMap<>();
+        private int pendingPartitions;
+        private boolean started;
+        private boolean ended;
+        private DBCResultSet firstResultSet;
+
+        public PartitionReceiver(@NotNull DBDDataReceiver target, int partitionCount) {
+            this.target = target;
+            this.pendingPartitions = partitionCount;
+        }
+
+        @Override
+        public synchronized void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) throws DBCException {
+            if (!started) {
+                target.fetchStart(session, resultSet, offset, maxRows);
+                started = true;
+                firstResultSet = resultSet;
+            }
+        }
+
+        @Override
+        public synchronized void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+            target.fetchRow(session, resultSet);
+        }
+
+        @Override
+        public synchronized void fetchEnd(DBCSession session, DBCResultSet resultSet) throws DBCException {
+            // Target fetchEnd is called in partitionFinished, after the last partition
+            endedResultSets.put(session, resultSet);
+        }
+
+        @Override
+        public void close() {
+            // Target receiver is closed by partitioned reader
+        }
+
+        /**
+         * Must be called by partition reader after partition data was read, before partition session is closed.
+         * Data container errors in fetchEnd are only logged, so target fetchEnd errors are thrown from here.
+         */
+        public synchronized void partitionFinished(@NotNull DBCSession session) throws DBCException {
+            DBCResultSet resultSet = endedResultSets.remove(session);
+            pendingPartitions--;
+            if (pendingPartitions == 0 && started && !ended) {
+                ended = true;
+                target.fetchEnd(session, resultSet != null ? resultSet : firstResultSet);
+            }
+        }
+
+        /**
+         * Closes target receiver. Called once by partitioned reader after all partitions.
+         */
+        public synchronized void finish() {
+            endedResultSets.clear();
+            firstResultSet = null;
+            target.close();
+        }
+    }
+
+    /**
+     * Partition reader monitor. Keeps its own blocks stack and reports progress to the parent monitor.
+     */
+    private class PartitionMonitor extends ProxyProgressMonitor {
+        private final List<DBRBlockingObject> blocks = new ArrayList<>();
+        private volatile boolean canceled;
+
+        PartitionMonitor(DBRProgressMonitor original) {
+            super(original);
+        }
+
+        @Override
+        public void beginTask(String name, int totalWork) {
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void subTask(String name) {
+        }
+
+        @Override
+        public void worked(int work) {
+            synchronized (original) {
+                original.worked(work);
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled || readError != null || original.isCanceled();
+        }
+
+        @Override
+        public synchronized void startBlock(DBRBlockingObject object, String taskName) {
+            blocks.add(object);
+        }
+
+        @Override
+        public synchronized void endBlock() {
+            if (!blocks.isEmpty()) {
+                blocks.remove(blocks.size() - 1);
+            }
+        }
+
+        @Override
+        public synchronized List<DBRBlockingObject> getActiveBlocks() {
+            return new ArrayList<>(blocks);
+        }
+
+        void cancel() {
+            canceled = true;
+            for (DBRBlockingObject block : getActiveBlocks()) {
+                try {
+                    block.cancelBlock(this, null);
+                } catch (DBException e) {
+                    log.debug("Error canceling partition query", e);
+                }
+            }
+        }
+    }
+
+}
@@ -25,6 +25,7 @@ import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.*;
 import org.jkiss.dbeaver.model.app.DBPProject;
 import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
 import org.jkiss.dbeaver.model.exec.*;
 import org.jkiss.dbeaver.model.impl.AbstractExecutionSource;
 import org.jkiss.dbeaver.model.impl.DataSourceContextProvider;
@@ -42,6 +43,7 @@ import org.jkiss.dbeaver.model.task.DBTTask;
 import org.jkiss.dbeaver.model.task.DBTaskUtils;
 import org.jkiss.dbeaver.runtime.DBWorkbench;
 import org.jkiss.dbeaver.runtime.serialize.DBPObjectSerializer;
+import org.jkiss.dbeaver.tools.transfer.DataTransferPipeline;
 import org.jkiss.dbeaver.tools.transfer.IDataTransferConsumer;
 import org.jkiss.dbeaver.tools.transfer.IDataTransferNodePrimary;
 import org.jkiss.dbeaver.tools.transfer.IDataTransferProcessor;
@@ -250,28 +252,83 @@ public class DatabaseTransferProducer implements IDataTransferProducer<DatabaseP
 
                         monitor.beginTask(DTMessages.data_transfer_wizard_job_task_export_table_data, (int) totalRows);
 
+                        // In pipelined mode rows are read in this thread and written by consumer in a separate thread
+                        DataTransferPipeline pipeline = settings.isPipelinedTransfer() ?
+                            new DataTransferPipeline(dataContainer, consumer, settings.getPipelineBufferSize()) : null;
+                        DBDDataReceiver dataReceiver = pipeline != null ? pipeline : consumer;
                         try {
                             monitor.subTask("Read data");
 
+                            DatabaseProducerSettings.ExtractType extractType = settings.getExtractType();
+                            if (extractType == DatabaseProducerSettings.ExtractType.PARTITIONS) {
+                                DBCStatistics statistics = null;
+                                if (DatabaseTransferPartitionedReader.isPartitioningSupported(dataContainer)) {
+                                    statistics = new DatabaseTransferPartitionedReader((DBSEntity) dataContainer, dataFilter, settings, readFlags)
+                                        .readData(transferSource, session, dataReceiver);
+                                }
+                                if (statistics != null) {
+                                    producerStatistics.accumulate(statistics);
+                                    if (pipeline != null) {
+                                        pipeline.checkConsumerError();
+                                    }
+                                } else {
+                                    log.debug("Can't read '" + dataContainer.getName() + "' by partitions. Use single query.");
+                                    extractType = DatabaseProducerSettings.ExtractType.SINGLE_QUERY;
+                                }
+                            }
+
                             // Perform export
-                            if (settings.getExtractType() == DatabaseProducerSettings.ExtractType.SINGLE_QUERY) {
+                            if (extractType == DatabaseProducerSettings.ExtractType.SINGLE_QUERY) {
                                 // Just do it in single query
-                                producerStatistics.accumulate(dataContainer.readData(transferSource, session, consumer, dataFilter, -1, -1, readFlags, settings.getFetchSize()));
-                            } else {
+                                producerStatistics.accumulate(dataContainer.readData(transferSource, session, dataReceiver, dataFilter, -1, -1, readFlags, settings.getFetchSize()));
+                                if (pipeline != null) {
+                                    pipeline.checkConsumerError();
+                                }
+                            } else if (extractType == DatabaseProducerSettings.ExtractType.SEGMENTS) {
                                 // Read all data by segments
                                 long offset = 0;
                                 int segmentSize = settings.getSegmentSize();
+                                // Tables with unique key are read by keyset (seek) pagination.
+                                // Each segment starts right after the key of the previous segment last row, so database doesn't re-scan skipped rows.
+                                DatabaseTransferKeysetReceiver keysetReceiver = dataContainer instanceof DBSEntity ?
+                                    DatabaseTransferKeysetReceiver.create(monitor, (DBSEntity) dataContainer, dataFilter, dataReceiver) : null;
+                                DBDDataFilter segmentFilter = keysetReceiver != null ? keysetReceiver.getOrderedFilter() : dataFilter;
+                                long segmentOffset = 0;
                                 for (; ; ) {
-                                    DBCStatistics statistics = dataContainer.readData(
-                                        transferSource, session, consumer, dataFilter, offset, segmentSize, readFlags, settings.getFetchSize());
+                                    DBCStatistics statistics;
+                                    if (keysetReceiver != null) {
+                                        keysetReceiver.setOffset(offset - segmentOffset);
+                                        statistics = dataContainer.readData(
+                                            transferSource, session, keysetReceiver, segmentFilter, segmentOffset, segmentSize, readFlags, settings.getFetchSize());
+                                    } else {
+                                        statistics = dataContainer.readData(
+                                            transferSource, session, dataReceiver, segmentFilter, offset, segmentSize, readFlags, settings.getFetchSize());
+                                    }
+                                    if (pipeline != null) {
+                                        pipeline.checkConsumerError();
+                                    }
                                     if (statistics == null || statistics.getRowsFetched() < segmentSize) {
                                         // Done
                                         break;
                                     }
                                     producerStatistics.accumulate(statistics);
                                     offset += statistics.getRowsFetched();
+                                    if (keysetReceiver != null) {
+                                        DBDDataFilter nextFilter = keysetReceiver.makeNextSegmentFilter();
+                                        if (nextFilter != null) {
+                                            segmentFilter = nextFilter;
+                                            segmentOffset = 0;
+                                        } else {
+                                            // Key values are not available. Continue by offset in key order
+                                            segmentFilter = keysetReceiver.getOrderedFilter();
+                                            segmentOffset = offset;
+                                        }
+                                    }
                                 }
                             }
+                            if (pipeline != null) {
+                                log.debug(pipeline.getStatisticsSummary());
+                            }
                         } finally {
                             monitor.done();
                         }
@@ -52,6 +52,7 @@ import org.jkiss.utils.IOUtils;
 import org.jkiss.utils.io.ByteOrderMark;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -119,8 +120,15 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
     private PrintWriter writer;
     private int multiFileNumber;
     private long bytesWritten = 0;
+    // Characters accepted by the writer but not yet flushed to the output stream
+    private long charsPending = 0;
+    private float maxBytesPerChar = 1;
 
     private DBDAttributeBinding[] columnMetas;
+    private DBDFetchPlan fetchPlan;
+    private final DBDFetchPlan.ErrorHandler fetchErrorHandler = this::handleFetchError;
+    // Source row indexes of plain top-level bindings, -1 for nested and custom bindings
+    private int[] columnValueIndexes;
     private DBDAttributeBinding[] columnBindings;
     private File lobDirectory;
     private long lobCount;
@@ -168,6 +176,14 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
                 .toArray(DBDAttributeBinding[]::new);
         }
 
+        fetchPlan = DBDFetchPlan.forMetaAttributes(columnMetas);
+        columnValueIndexes = new int[columnBindings.length];
+        for (int i = 0; i < columnBindings.length; i++) {
+            DBDAttributeBinding column = columnBindings[i];
+            boolean plainColumn = column.getLevel() == 0 && !column.isCustom() && column.getOrdinalPosition() < columnMetas.length;
+            columnValueIndexes[i] = plainColumn ? column.getOrdinalPosition() : -1;
+        }
+
         if (!initialized) {
             /*// For multi-streams export header only once
             if (!settings.isUseSingleFile() || parameters.orderNumber == 0) */{
@@ -182,24 +198,23 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
     public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
         try {
             // Check for file split
-            if (settings.isSplitOutFiles() && !parameters.isBinary && !firstRow) {
-                writer.flush();
-                if (bytesWritten >= settings.getMaxOutFileSize()) {
-                    // First add footer for the previous file
-                    exportFooterInFile(session.getProgressMonitor());
-                    // Make new file with the header
-                    createNewOutFile();
-                    exportHeaderInFile(session);
-                }
+            if (settings.isSplitOutFiles() && !parameters.isBinary && !firstRow && isOutFileSizeExceeded()) {
+                // First add footer for the previous file
+                exportFooterInFile(session.getProgressMonitor());
+                // Make new file with the header
+                createNewOutFile();
+                exportHeaderInFile(session);
             }
 
             // Get values
-            Object[] srcRow = fetchRow(session, resultSet, columnMetas);
+            Object[] srcRow = fetchPlan.fetchRow(session, resultSet, fetchErrorHandler);
             Object[] targetRow;
             targetRow = new Object[columnBindings.length];
             for (int i = 0; i < columnBindings.length; i++) {
-                DBDAttributeBinding column = columnBindings[i];
-                Object value = DBUtils.getAttributeValue(column, columnMetas, srcRow);
+                int valueIndex = columnValueIndexes[i];
+                Object value = valueIndex >= 0 ?
+                    srcRow[valueIndex] :
+                    DBUtils.getAttributeValue(columnBindings[i], columnMetas, srcRow);
                 if (value instanceof DBDContent) {
                     // Check for binary type export
                     if (!ContentUtils.isTextContent((DBDContent) value)) {
@@ -312,7 +327,7 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
         try {
             if (outputClipboard) {
                 this.outputBuffer = new StringWriter(2048);
-                this.writer = new PrintWriter(this.outputBuffer, true);
+                this.writer = new PrintWriter(this.outputBuffer, false);
             } else {
                 openOutputStreams();
             }
@@ -386,7 +401,18 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
         }
 
         if (!parameters.isBinary) {
-            this.writer = new PrintWriter(new OutputStreamWriter(this.outputStream, settings.getOutputEncoding()), true);
+            // No autoflush: the writer is flushed explicitly on file split and when the stream is closed
+            final OutputStreamWriter streamWriter = new OutputStreamWriter(this.outputStream, settings.getOutputEncoding());
+            Writer bufferedWriter = new BufferedWriter(streamWriter, OUT_FILE_BUFFER_SIZE);
+            if (settings.isSplitOutFiles()) {
+                try {
+                    this.maxBytesPerChar = Charset.forName(streamWriter.getEncoding()).newEncoder().maxBytesPerChar();
+                } catch (Exception e) {
+                    this.maxBytesPerChar = 4;
+                }
+                bufferedWriter = new WriterStatProxy(bufferedWriter);
+            }
+            this.writer = new PrintWriter(bufferedWriter, false);
         }
     }
 
@@ -421,10 +447,24 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
         }
     }
 
+    /**
+     * Checks whether current output file reached the maximum size.
+     * Writer is flushed only if buffered characters may exceed the size limit.
+     */
+    private boolean isOutFileSizeExceeded() {
+        final long maxOutFileSize = settings.getMaxOutFileSize();
+        if (bytesWritten + (long) (charsPending * maxBytesPerChar) < maxOutFileSize) {
+            return false;
+        }
+        writer.flush();
+        return bytesWritten >= maxOutFileSize;
+    }
+
     private void createNewOutFile() throws IOException {
         closeOutputStreams();
 
         bytesWritten = 0;
+        charsPending = 0;
         multiFileNumber++;
         outputFile = makeOutputFile();
         outputFiles.add(outputFile);
@@ -686,6 +726,10 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
         return null;
     }
 
+    /**
+     * @deprecated use {@link DBDFetchPlan} built once per result set
+     */
+    @Deprecated
     public static Object[] fetchRow(DBCSession session, DBCResultSet resultSet, DBDAttributeBinding[] attributes) throws DBCException {
         int columnCount = attributes.length; // Column count without virtual columns
 
@@ -705,6 +749,14 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
         return row;
     }
 
+    private Object handleFetchError(int index, Throwable error) {
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        log.debug("Error fetching '" + columnMetas[index].getName() + "' value: " + error.getMessage());
+        return null;
+    }
+
     @NotNull
     public StreamConsumerSettings getSettings() {
         return settings;
@@ -854,6 +906,36 @@ public class StreamTransferConsumer implements IDataTransferConsumer<StreamConsu
 
     }
 
+    private class WriterStatProxy extends FilterWriter {
+        WriterStatProxy(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            charsPending++;
+        }
+
+        @Override
+        public void write(@NotNull char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            charsPending += len;
+        }
+
+        @Override
+        public void write(@NotNull String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            charsPending += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            charsPending = 0;
+        }
+    }
+
     public static class ObjectSerializer implements DBPObjectSerializer<DBTTask, StreamTransferConsumer> {
 
         @Override
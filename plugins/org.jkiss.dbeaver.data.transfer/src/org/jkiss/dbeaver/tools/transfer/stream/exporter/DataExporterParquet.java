@@ -0,0 +1,327 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer.stream.exporter;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDContent;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporterSite;
+import org.jkiss.utils.CommonUtils;
+import org.jkiss.utils.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Apache Parquet exporter
+ */
+public class DataExporterParquet extends StreamExporterAbstract {
+
+    private static final Log log = Log.getLog(DataExporterParquet.class);
+
+    private static final String PROP_COMPRESSION = "compression";
+    private static final String PROP_DICTIONARY = "dictionary";
+    private static final String PROP_ROW_GROUP_SIZE = "rowGroupSize";
+
+    private static final int DEFAULT_ROW_GROUP_SIZE = 100000;
+    private static final long MAX_ROW_GROUP_BYTES = 128 * 1024 * 1024;
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    private ParquetWriter.Codec codec;
+    private boolean useDictionary;
+    private int rowGroupSize;
+
+    private DBDAttributeBinding[] columns;
+    private ParquetWriter.Column[] parquetColumns;
+    private ParquetWriter writer;
+
+    @Override
+    public void init(IStreamDataExporterSite site) throws DBException {
+        super.init(site);
+        codec = CommonUtils.valueOf(
+            ParquetWriter.Codec.class,
+            CommonUtils.toString(site.getProperties().get(PROP_COMPRESSION)).toUpperCase(),
+            ParquetWriter.Codec.GZIP);
+        useDictionary = CommonUtils.getBoolean(site.getProperties().get(PROP_DICTIONARY), true);
+        rowGroupSize = CommonUtils.toInt(site.getProperties().get(PROP_ROW_GROUP_SIZE), DEFAULT_ROW_GROUP_SIZE);
+        if (rowGroupSize <= 0) {
+            rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+        }
+    }
+
+    @Override
+    public void exportHeader(DBCSession session) throws DBException, IOException {
+        columns = getSite().getAttributes();
+        parquetColumns = new ParquetWriter.Column[columns.length];
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < columns.length; i++) {
+            String baseName = CommonUtils.isEmpty(columns[i].getName()) ? "column" + (i + 1) : columns[i].getName();
+            String name = baseName;
+            for (int k = 2; !names.add(name); k++) {
+                name = baseName + "_" + k;
+            }
+            parquetColumns[i] = makeColumn(name, columns[i]);
+        }
+        writer = new ParquetWriter(getSite().getOutputStream(), parquetColumns, codec, useDictionary, rowGroupSize, MAX_ROW_GROUP_BYTES);
+        writer.start();
+    }
+
+    @Override
+    public void exportRow(DBCSession session, DBCResultSet resultSet, Object[] row) throws DBException, IOException {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = convertValue(session.getProgressMonitor(), columns[i], parquetColumns[i], row[i]);
+        }
+        writer.writeRow(values);
+    }
+
+    @Override
+    public void exportFooter(DBRProgressMonitor monitor) throws IOException {
+        if (writer != null) {
+            writer.finish();
+            writer = null;
+        }
+    }
+
+    @NotNull
+    private static ParquetWriter.Column makeColumn(@NotNull String name, @NotNull DBDAttributeBinding attr) {
+        switch (attr.getDataKind()) {
+            case BOOLEAN:
+                return new ParquetWriter.Column(name, ParquetWriter.ColumnType.BOOLEAN);
+            case NUMERIC:
+                switch (attr.getTypeID()) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.INT32);
+                    case Types.BIGINT:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.INT64);
+                    case Types.REAL:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.FLOAT);
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.DOUBLE);
+                    case Types.NUMERIC:
+                    case Types.DECIMAL: {
+                        int precision = CommonUtils.toInt(attr.getPrecision());
+                        int scale = CommonUtils.toInt(attr.getScale());
+                        if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+                            return new ParquetWriter.Column(name, ParquetWriter.ColumnType.DECIMAL, precision, scale);
+                        }
+                        break;
+                    }
+                }
+                // Unknown precision - keep exact text representation
+                return new ParquetWriter.Column(name, ParquetWriter.ColumnType.STRING);
+            case DATETIME:
+                switch (attr.getTypeID()) {
+                    case Types.DATE:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.DATE);
+                    case Types.TIMESTAMP:
+                    case Types.TIMESTAMP_WITH_TIMEZONE:
+                        return new ParquetWriter.Column(name, ParquetWriter.ColumnType.TIMESTAMP);
+                }
+                return new ParquetWriter.Column(name, ParquetWriter.ColumnType.STRING);
+            case BINARY:
+            case CONTENT:
+                if (attr.getDataKind() == DBPDataKind.BINARY || !isTextType(attr)) {
+                    return new ParquetWriter.Column(name, ParquetWriter.ColumnType.BINARY);
+                }
+                return new ParquetWriter.Column(name, ParquetWriter.ColumnType.STRING);
+            default:
+                return new ParquetWriter.Column(name, ParquetWriter.ColumnType.STRING);
+        }
+    }
+
+    private static boolean isTextType(@NotNull DBDAttributeBinding attr) {
+        switch (attr.getTypeID()) {
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.SQLXML:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Nullable
+    private Object convertValue(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBDAttributeBinding attr,
+        @NotNull ParquetWriter.Column column,
+        @Nullable Object value) throws DBException, IOException
+    {
+        if (DBUtils.isNullValue(value)) {
+            return null;
+        }
+        if (value instanceof DBDContent) {
+            DBDContent content = (DBDContent) value;
+            try {
+                DBDContentStorage cs = content.getContents(monitor);
+                if (cs == null) {
+                    return null;
+                }
+                if (column.getType() == ParquetWriter.ColumnType.BINARY) {
+                    try (InputStream in = cs.getContentStream()) {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        IOUtils.copyStream(in, buffer);
+                        return buffer.toByteArray();
+                    }
+                } else {
+                    try (Reader in = cs.getContentReader()) {
+                        return IOUtils.readToString(in);
+                    }
+                }
+            } finally {
+                content.release();
+            }
+        }
+        try {
+            switch (column.getType()) {
+                case BOOLEAN:
+                    if (value instanceof Boolean) {
+                        return value;
+                    } else if (value instanceof Number) {
+                        return ((Number) value).intValue() != 0;
+                    }
+                    return CommonUtils.getBoolean(value.toString());
+                case INT32: {
+                    long longValue = toLong(value);
+                    if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+                        throw new ArithmeticException("integer overflow");
+                    }
+                    return (int) longValue;
+                }
+                case INT64:
+                    return toLong(value);
+                case FLOAT:
+                    return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString().trim());
+                case DOUBLE:
+                    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+                case DECIMAL: {
+                    BigDecimal decimal;
+                    if (value instanceof BigDecimal) {
+                        decimal = (BigDecimal) value;
+                    } else if (value instanceof BigInteger) {
+                        decimal = new BigDecimal((BigInteger) value);
+                    } else {
+                        decimal = new BigDecimal(value.toString().trim());
+                    }
+                    // Column scale is fixed, so value must fit without rounding
+                    decimal = decimal.setScale(column.getScale(), RoundingMode.UNNECESSARY);
+                    if (decimal.precision() > column.getPrecision()) {
+                        throw new ArithmeticException("precision overflow");
+                    }
+                    return decimal;
+                }
+                case DATE: {
+                    LocalDate date = toLocalDate(value);
+                    if (date != null) {
+                        return (int) date.toEpochDay();
+                    }
+                    break;
+                }
+                case TIMESTAMP: {
+                    Long millis = toEpochMillis(value);
+                    if (millis != null) {
+                        return millis;
+                    }
+                    break;
+                }
+                case BINARY:
+                    if (value instanceof byte[]) {
+                        return value;
+                    }
+                    return getValueDisplayString(attr, value).getBytes(StandardCharsets.UTF_8);
+                default:
+                    return value instanceof String ? value : getValueDisplayString(attr, value);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new DBException("Can't convert value '" + value + "' of column '" + attr.getName() + "' to Parquet " + column.getType(), e);
+        }
+        throw new DBException("Unsupported Parquet " + column.getType() + " value of column '" + attr.getName() + "': " + value.getClass().getName());
+    }
+
+    /**
+     * Converts value to integer. Fractional values are rejected.
+     */
+    private static long toLong(@NotNull Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        return new BigDecimal(value.toString().trim()).longValueExact();
+    }
+
+    @Nullable
+    private static LocalDate toLocalDate(@NotNull Object value) {
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        } else if (value instanceof java.util.Date) {
+            return Instant.ofEpochMilli(((java.util.Date) value).getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        } else if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalDate();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toLocalDate();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toLocalDate();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Long toEpochMillis(@NotNull Object value) {
+        if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).getTime();
+        } else if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value).getTime();
+        } else if (value instanceof LocalDate) {
+            return Timestamp.valueOf(((LocalDate) value).atStartOfDay()).getTime();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant().toEpochMilli();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant().toEpochMilli();
+        } else if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,636 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer.stream.exporter;
+
+import org.jkiss.code.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal Apache Parquet file writer.
+ * Writes flat schema of optional columns. Rows are buffered in memory and written as row groups,
+ * each column chunk consists of optional dictionary page and a single data page (v1).
+ * File metadata and page headers are encoded with Thrift compact protocol.
+ */
+public class ParquetWriter {
+
+    public static final String CREATED_BY = "DBeaver";
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // Physical types
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_FLOAT = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+
+    // Converted types
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DECIMAL = 5;
+    private static final int CONVERTED_DATE = 6;
+    private static final int CONVERTED_TIMESTAMP_MILLIS = 9;
+
+    // Encodings
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE = 3;
+
+    // Page types
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+
+    private static final int REPETITION_OPTIONAL = 1;
+
+    public enum ColumnType {
+        BOOLEAN(TYPE_BOOLEAN, -1),
+        INT32(TYPE_INT32, -1),
+        INT64(TYPE_INT64, -1),
+        FLOAT(TYPE_FLOAT, -1),
+        DOUBLE(TYPE_DOUBLE, -1),
+        STRING(TYPE_BYTE_ARRAY, CONVERTED_UTF8),
+        BINARY(TYPE_BYTE_ARRAY, -1),
+        DECIMAL(TYPE_BYTE_ARRAY, CONVERTED_DECIMAL),
+        DATE(TYPE_INT32, CONVERTED_DATE),
+        TIMESTAMP(TYPE_INT64, CONVERTED_TIMESTAMP_MILLIS);
+
+        private final int physicalType;
+        private final int convertedType;
+
+        ColumnType(int physicalType, int convertedType) {
+            this.physicalType = physicalType;
+            this.convertedType = convertedType;
+        }
+    }
+
+    public enum Codec {
+        UNCOMPRESSED(0),
+        GZIP(2);
+
+        private final int id;
+
+        Codec(int id) {
+            this.id = id;
+        }
+    }
+
+    public static class Column {
+        private final String name;
+        private final ColumnType type;
+        private final int precision;
+        private final int scale;
+
+        public Column(@NotNull String name, @NotNull ColumnType type) {
+            this(name, type, 0, 0);
+        }
+
+        public Column(@NotNull String name, @NotNull ColumnType type, int precision, int scale) {
+            this.name = name;
+            this.type = type;
+            this.precision = precision;
+            this.scale = scale;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public int getPrecision() {
+            return precision;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+    }
+
+    private static class ColumnChunkInfo {
+        long fileOffset;
+        long dataPageOffset;
+        long dictionaryPageOffset = -1;
+        long numValues;
+        long uncompressedSize;
+        long compressedSize;
+        int encoding;
+    }
+
+    private static class RowGroupInfo {
+        final List<ColumnChunkInfo> columns = new ArrayList<>();
+        long totalByteSize;
+        long numRows;
+    }
+
+    private final OutputStream out;
+    private final Column[] columns;
+    private final Codec codec;
+    private final boolean useDictionary;
+    private final int rowGroupSize;
+    private final long rowGroupBytes;
+
+    private final List<Object>[] buffers;
+    private int bufferedRows;
+    private long bufferedBytes;
+    private long position;
+    private long totalRows;
+    private final List<RowGroupInfo> rowGroups = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    public ParquetWriter(
+        @NotNull OutputStream out,
+        @NotNull Column[] columns,
+        @NotNull Codec codec,
+        boolean useDictionary,
+        int rowGroupSize,
+        long rowGroupBytes)
+    {
+        this.out = out;
+        this.columns = columns;
+        this.codec = codec;
+        this.useDictionary = useDictionary;
+        this.rowGroupSize = rowGroupSize;
+        this.rowGroupBytes = rowGroupBytes;
+        this.buffers = new List[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            buffers[i] = new ArrayList<>();
+        }
+    }
+
+    public void start() throws IOException {
+        write(MAGIC);
+    }
+
+    /**
+     * Adds row to the current row group. Values must match column types:
+     * Boolean, Integer (INT32, days since epoch for DATE), Long (INT64, epoch millis for TIMESTAMP),
+     * Float, Double, String, byte[] or BigDecimal.
+     */
+    public void writeRow(@NotNull Object[] row) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            Object value = row[i];
+            if (value != null) {
+                switch (columns[i].type) {
+                    case STRING:
+                        value = value.toString().getBytes(StandardCharsets.UTF_8);
+                        break;
+                    case DECIMAL:
+                        value = ((BigDecimal) value).setScale(columns[i].scale, RoundingMode.HALF_UP).unscaledValue().toByteArray();
+                        break;
+                }
+                bufferedBytes += value instanceof byte[] ? ((byte[]) value).length + 4 : 8;
+            }
+            buffers[i].add(value);
+        }
+        bufferedRows++;
+        if (bufferedRows >= rowGroupSize || bufferedBytes >= rowGroupBytes) {
+            flushRowGroup();
+        }
+    }
+
+    public void flushRowGroup() throws IOException {
+        if (bufferedRows == 0) {
+            return;
+        }
+        RowGroupInfo rowGroup = new RowGroupInfo();
+        rowGroup.numRows = bufferedRows;
+        for (int i = 0; i < columns.length; i++) {
+            ColumnChunkInfo chunk = writeColumnChunk(columns[i], buffers[i]);
+            rowGroup.columns.add(chunk);
+            rowGroup.totalByteSize += chunk.uncompressedSize;
+            buffers[i].clear();
+        }
+        rowGroups.add(rowGroup);
+        totalRows += bufferedRows;
+        bufferedRows = 0;
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Writes remaining rows and file footer. Doesn't close the underlying stream.
+     */
+    public void finish() throws IOException {
+        flushRowGroup();
+        byte[] footer = encodeFileMetaData();
+        write(footer);
+        ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(footer.length);
+        write(length.array());
+        write(MAGIC);
+        out.flush();
+    }
+
+    private ColumnChunkInfo writeColumnChunk(Column column, List<Object> values) throws IOException {
+        ColumnChunkInfo chunk = new ColumnChunkInfo();
+        chunk.numValues = values.size();
+        chunk.fileOffset = position;
+
+        List<Object> nonNull = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value != null) {
+                nonNull.add(value);
+            }
+        }
+
+        // Dictionary pays off only if encoded indices plus dictionary are smaller than plain values
+        Map<Object, Integer> dictionary = null;
+        if (useDictionary && column.type != ColumnType.BOOLEAN && !nonNull.isEmpty()) {
+            dictionary = new LinkedHashMap<>();
+            long dictionarySize = 0, plainSize = 0;
+            for (Object value : nonNull) {
+                long valueSize = value instanceof byte[] ? ((byte[]) value).length + 4 : 8;
+                plainSize += valueSize;
+                if (dictionary.putIfAbsent(dictionaryKey(value), dictionary.size()) == null) {
+                    dictionarySize += valueSize;
+                }
+            }
+            long indexSize = (long) nonNull.size() * getBitWidth(dictionary.size()) / 8 + 1;
+            if (dictionarySize + indexSize >= plainSize) {
+                dictionary = null;
+            }
+        }
+
+        byte[] encodedValues;
+        if (dictionary != null) {
+            List<Object> dictValues = new ArrayList<>(dictionary.size());
+            for (Object key : dictionary.keySet()) {
+                dictValues.add(key instanceof ByteBuffer ? ((ByteBuffer) key).array() : key);
+            }
+            chunk.dictionaryPageOffset = position;
+            writeDictionaryPage(chunk, encodePlain(column, dictValues), dictValues.size());
+
+            int bitWidth = getBitWidth(dictionary.size());
+            int[] indices = new int[nonNull.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = dictionary.get(dictionaryKey(nonNull.get(i)));
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffer.write(bitWidth);
+            writeBitPacked(buffer, indices, bitWidth);
+            encodedValues = buffer.toByteArray();
+            chunk.encoding = ENCODING_PLAIN_DICTIONARY;
+        } else {
+            encodedValues = encodePlain(column, nonNull);
+            chunk.encoding = ENCODING_PLAIN;
+        }
+
+        ByteArrayOutputStream page = new ByteArrayOutputStream(encodedValues.length + 16);
+        byte[] levels = encodeDefinitionLevels(values);
+        writeIntLE(page, levels.length);
+        page.write(levels);
+        page.write(encodedValues);
+
+        chunk.dataPageOffset = position;
+        byte[] body = page.toByteArray();
+        byte[] compressed = compress(body);
+        ThriftWriter header = new ThriftWriter();
+        header.writeI32(1, PAGE_DATA);
+        header.writeI32(2, body.length);
+        header.writeI32(3, compressed.length);
+        header.beginStruct(5);
+        header.writeI32(1, values.size());
+        header.writeI32(2, chunk.encoding);
+        header.writeI32(3, ENCODING_RLE);
+        header.writeI32(4, ENCODING_RLE);
+        header.endStruct();
+        header.endStruct();
+        byte[] headerBytes = header.toByteArray();
+        write(headerBytes);
+        write(compressed);
+        chunk.uncompressedSize += headerBytes.length + body.length;
+        chunk.compressedSize += headerBytes.length + compressed.length;
+        return chunk;
+    }
+
+    private void writeDictionaryPage(ColumnChunkInfo chunk, byte[] body, int numValues) throws IOException {
+        byte[] compressed = compress(body);
+        ThriftWriter header = new ThriftWriter();
+        header.writeI32(1, PAGE_DICTIONARY);
+        header.writeI32(2, body.length);
+        header.writeI32(3, compressed.length);
+        header.beginStruct(7);
+        header.writeI32(1, numValues);
+        header.writeI32(2, ENCODING_PLAIN_DICTIONARY);
+        header.endStruct();
+        header.endStruct();
+        byte[] headerBytes = header.toByteArray();
+        write(headerBytes);
+        write(compressed);
+        chunk.uncompressedSize += headerBytes.length + body.length;
+        chunk.compressedSize += headerBytes.length + compressed.length;
+    }
+
+    private byte[] encodeFileMetaData() {
+        ThriftWriter meta = new ThriftWriter();
+        meta.writeI32(1, 1);
+
+        meta.beginList(2, ThriftWriter.TYPE_STRUCT, columns.length + 1);
+        meta.beginStruct();
+        meta.writeString(4, "schema");
+        meta.writeI32(5, columns.length);
+        meta.endStruct();
+        for (Column column : columns) {
+            meta.beginStruct();
+            meta.writeI32(1, column.type.physicalType);
+            meta.writeI32(3, REPETITION_OPTIONAL);
+            meta.writeString(4, column.name);
+            if (column.type.convertedType >= 0) {
+                meta.writeI32(6, column.type.convertedType);
+            }
+            if (column.type == ColumnType.DECIMAL) {
+                meta.writeI32(7, column.scale);
+                meta.writeI32(8, column.precision);
+            }
+            meta.endStruct();
+        }
+
+        meta.writeI64(3, totalRows);
+
+        meta.beginList(4, ThriftWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroupInfo rowGroup : rowGroups) {
+            meta.beginStruct();
+            meta.beginList(1, ThriftWriter.TYPE_STRUCT, rowGroup.columns.size());
+            for (int i = 0; i < rowGroup.columns.size(); i++) {
+                ColumnChunkInfo chunk = rowGroup.columns.get(i);
+                meta.beginStruct();
+                meta.writeI64(2, chunk.fileOffset);
+                meta.beginStruct(3);
+                meta.writeI32(1, columns[i].type.physicalType);
+                if (chunk.dictionaryPageOffset >= 0) {
+                    meta.beginList(2, ThriftWriter.TYPE_I32, 3);
+                    meta.writeListI32(ENCODING_PLAIN_DICTIONARY);
+                    meta.writeListI32(ENCODING_PLAIN);
+                } else {
+                    meta.beginList(2, ThriftWriter.TYPE_I32, 2);
+                    meta.writeListI32(ENCODING_PLAIN);
+                }
+                meta.writeListI32(ENCODING_RLE);
+                meta.beginList(3, ThriftWriter.TYPE_BINARY, 1);
+                meta.writeListString(columns[i].name);
+                meta.writeI32(4, codec.id);
+                meta.writeI64(5, chunk.numValues);
+                meta.writeI64(6, chunk.uncompressedSize);
+                meta.writeI64(7, chunk.compressedSize);
+                meta.writeI64(9, chunk.dataPageOffset);
+                if (chunk.dictionaryPageOffset >= 0) {
+                    meta.writeI64(11, chunk.dictionaryPageOffset);
+                }
+                meta.endStruct();
+                meta.endStruct();
+            }
+            meta.writeI64(2, rowGroup.totalByteSize);
+            meta.writeI64(3, rowGroup.numRows);
+            meta.endStruct();
+        }
+
+        meta.writeString(6, CREATED_BY);
+        meta.endStruct();
+        return meta.toByteArray();
+    }
+
+    private byte[] encodePlain(Column column, List<Object> values) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        switch (column.type.physicalType) {
+            case TYPE_BOOLEAN: {
+                int current = 0;
+                for (int i = 0; i < values.size(); i++) {
+                    if ((Boolean) values.get(i)) {
+                        current |= 1 << (i % 8);
+                    }
+                    if (i % 8 == 7) {
+                        buffer.write(current);
+                        current = 0;
+                    }
+                }
+                if (values.size() % 8 != 0) {
+                    buffer.write(current);
+                }
+                break;
+            }
+            case TYPE_INT32:
+                for (Object value : values) {
+                    writeIntLE(buffer, ((Number) value).intValue());
+                }
+                break;
+            case TYPE_INT64:
+                for (Object value : values) {
+                    writeLongLE(buffer, ((Number) value).longValue());
+                }
+                break;
+            case TYPE_FLOAT:
+                for (Object value : values) {
+                    writeIntLE(buffer, Float.floatToIntBits(((Number) value).floatValue()));
+                }
+                break;
+            case TYPE_DOUBLE:
+                for (Object value : values) {
+                    writeLongLE(buffer, Double.doubleToLongBits(((Number) value).doubleValue()));
+                }
+                break;
+            default:
+                for (Object value : values) {
+                    byte[] bytes = (byte[]) value;
+                    writeIntLE(buffer, bytes.length);
+                    buffer.write(bytes);
+                }
+                break;
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Definition levels (0 - null, 1 - defined) in RLE/bit-packing hybrid encoding using RLE runs only.
+     */
+    private static byte[] encodeDefinitionLevels(List<Object> values) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < values.size()) {
+            boolean defined = values.get(i) != null;
+            int runLength = 1;
+            while (i + runLength < values.size() && (values.get(i + runLength) != null) == defined) {
+                runLength++;
+            }
+            writeVarInt(buffer, (long) runLength << 1);
+            buffer.write(defined ? 1 : 0);
+            i += runLength;
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Values in RLE/bit-packing hybrid encoding using a single bit-packed run (padded to 8 values).
+     */
+    static void writeBitPacked(ByteArrayOutputStream buffer, int[] values, int bitWidth) {
+        int groups = (values.length + 7) / 8;
+        writeVarInt(buffer, ((long) groups << 1) | 1);
+        long bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < groups * 8; i++) {
+            int value = i < values.length ? values[i] : 0;
+            bits |= ((long) value) << bitCount;
+            bitCount += bitWidth;
+            while (bitCount >= 8) {
+                buffer.write((int) (bits & 0xFF));
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+    }
+
+    static int getBitWidth(int dictionarySize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionarySize - 1));
+    }
+
+    private byte[] compress(byte[] data) throws IOException {
+        if (codec == Codec.GZIP) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(data);
+            }
+            return buffer.toByteArray();
+        }
+        return data;
+    }
+
+    private static Object dictionaryKey(Object value) {
+        return value instanceof byte[] ? ByteBuffer.wrap((byte[]) value) : value;
+    }
+
+    private void write(byte[] data) throws IOException {
+        out.write(data);
+        position += data.length;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream buffer, int value) {
+        buffer.write(value & 0xFF);
+        buffer.write((value >>> 8) & 0xFF);
+        buffer.write((value >>> 16) & 0xFF);
+        buffer.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeLongLE(ByteArrayOutputStream buffer, long value) {
+        writeIntLE(buffer, (int) value);
+        writeIntLE(buffer, (int) (value >>> 32));
+    }
+
+    static void writeVarInt(ByteArrayOutputStream buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+
+    /**
+     * Thrift compact protocol encoder (only the parts used by Parquet metadata).
+     */
+    static class ThriftWriter {
+        static final int TYPE_I32 = 5;
+        static final int TYPE_I64 = 6;
+        static final int TYPE_BINARY = 8;
+        static final int TYPE_LIST = 9;
+        static final int TYPE_STRUCT = 12;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final short[] lastFieldIds = new short[16];
+        private int depth = 0;
+
+        void writeI32(int fieldId, int value) {
+            writeFieldHeader(fieldId, TYPE_I32);
+            writeVarInt(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void writeI64(int fieldId, long value) {
+            writeFieldHeader(fieldId, TYPE_I64);
+            writeVarInt(buffer, (value << 1) ^ (value >> 63));
+        }
+
+        void writeString(int fieldId, String value) {
+            writeFieldHeader(fieldId, TYPE_BINARY);
+            writeListString(value);
+        }
+
+        void beginStruct(int fieldId) {
+            writeFieldHeader(fieldId, TYPE_STRUCT);
+            beginStruct();
+        }
+
+        /**
+         * Begins struct as a list element
+         */
+        void beginStruct() {
+            lastFieldIds[++depth] = 0;
+        }
+
+        void endStruct() {
+            buffer.write(0);
+            if (depth > 0) {
+                depth--;
+            }
+        }
+
+        void beginList(int fieldId, int elementType, int size) {
+            writeFieldHeader(fieldId, TYPE_LIST);
+            if (size < 15) {
+                buffer.write((size << 4) | elementType);
+            } else {
+                buffer.write(0xF0 | elementType);
+                writeVarInt(buffer, size);
+            }
+        }
+
+        void writeListI32(int value) {
+            writeVarInt(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void writeListString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(buffer, bytes.length);
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+
+        private void writeFieldHeader(int fieldId, int type) {
+            int delta = fieldId - lastFieldIds[depth];
+            if (delta > 0 && delta <= 15) {
+                buffer.write((delta << 4) | type);
+            } else {
+                buffer.write(type);
+                writeVarInt(buffer, (fieldId << 1) ^ (fieldId >> 31));
+            }
+            lastFieldIds[depth] = (short) fieldId;
+        }
+    }
+
+}
@@ -34,6 +34,7 @@ import org.jkiss.dbeaver.tools.transfer.stream.*;
 import org.jkiss.dbeaver.utils.GeneralUtils;
 import org.jkiss.utils.CommonUtils;
 import org.jkiss.utils.Pair;
+import org.jkiss.utils.csv.CSVParser;
 import org.jkiss.utils.csv.CSVReader;
 import org.jkiss.utils.io.BOMInputStream;
 
@@ -57,6 +58,7 @@ public class DataImporterCSV extends StreamImporterAbstract {
     private static final String PROP_EMPTY_STRING_NULL = "emptyStringNull";
     private static final String PROP_ESCAPE_CHAR = "escapeChar";
     private static final String PROP_TRIM_WHITESPACES = "trimWhitespaces";
+    private static final String PROP_PARSE_THREADS = "parseThreads";
     public static final int READ_BUFFER_SIZE = 255 * 1024;
 
     public enum HeaderPosition {
@@ -156,6 +158,42 @@ public class DataImporterCSV extends StreamImporterAbstract {
     }
 
     private CSVReader openCSVReader(Reader reader, Map<String, Object> processorProperties) {
+        return new CSVReader(reader, CSVReader.DEFAULT_SKIP_LINES, openCSVParser(processorProperties));
+    }
+
+    private RowReader openRowReader(Reader reader, Map<String, Object> processorProperties) {
+        final int parseThreads = CommonUtils.toInt(processorProperties.get(PROP_PARSE_THREADS), 1);
+        if (parseThreads > 1) {
+            final CSVParser parser = openCSVParser(processorProperties);
+            final ParallelCSVReader csvReader = new ParallelCSVReader(
+                reader, parser.getSeparator(), parser.getQuotechar(), parser.getEscape(), parseThreads, ParallelCSVReader.DEFAULT_CHUNK_SIZE);
+            return new RowReader() {
+                @Override
+                public String[] readNext() throws IOException {
+                    return csvReader.readNext();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    csvReader.close();
+                }
+            };
+        }
+        final CSVReader csvReader = openCSVReader(reader, processorProperties);
+        return new RowReader() {
+            @Override
+            public String[] readNext() throws IOException {
+                return csvReader.readNext();
+            }
+
+            @Override
+            public void close() throws IOException {
+                csvReader.close();
+            }
+        };
+    }
+
+    private CSVParser openCSVParser(Map<String, Object> processorProperties) {
         String delimiter = StreamTransferUtils.getDelimiterString(processorProperties, PROP_DELIMITER);
         String quoteChar = CommonUtils.toString(processorProperties.get(PROP_QUOTE_CHAR));
         if (CommonUtils.isEmpty(quoteChar)) {
@@ -165,7 +203,7 @@ public class DataImporterCSV extends StreamImporterAbstract {
         if (CommonUtils.isEmpty(escapeChar)) {
             escapeChar = "\\";
         }
-        return new CSVReader(reader, delimiter.charAt(0), quoteChar.charAt(0), escapeChar.charAt(0));
+        return new CSVParser(delimiter.charAt(0), quoteChar.charAt(0), escapeChar.charAt(0));
     }
 
     private Reader openStreamReader(InputStream inputStream, Map<String, Object> processorProperties, boolean useBufferedStream) throws UnsupportedEncodingException {
@@ -215,7 +253,7 @@ public class DataImporterCSV extends StreamImporterAbstract {
             applyTransformHints(resultSet, consumer, properties, PROP_TIMESTAMP_FORMAT, PROP_TIMESTAMP_ZONE);
 
             try (Reader reader = openStreamReader(inputStream, properties, true)) {
-                try (CSVReader csvReader = openCSVReader(reader, properties)) {
+                try (RowReader csvReader = openRowReader(reader, properties)) {
 
                     int maxRows = site.getSettings().getMaxRows();
                     int targetAttrSize = entityMapping.getStreamColumns().size();
@@ -251,7 +289,9 @@ public class DataImporterCSV extends StreamImporterAbstract {
                         }
                         if (trimWhitespaces) {
                             for (int i = 0; i < line.length; i++) {
-                                line[i] = line[i].trim();
+                                if (line[i] != null) {
+                                    line[i] = line[i].trim();
+                                }
                             }
                         }
                         if (emptyStringNull) {
@@ -291,4 +331,8 @@ public class DataImporterCSV extends StreamImporterAbstract {
 
     }
 
+    private interface RowReader extends Closeable {
+        String[] readNext() throws IOException;
+    }
+
 }
@@ -0,0 +1,164 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer.stream.importer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.csv.CSVReader;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * CSV reader which parses input on a fork-join pool.
+ * <p>
+ * Input is split into chunks of whole lines on record boundaries: the chunker tracks quotation state
+ * the same way as {@link org.jkiss.utils.csv.CSVParser} does, so a quoted multi-line value never spans two chunks.
+ * Each chunk is parsed by its own {@link CSVReader}, rows are returned in the original order.
+ */
+public class ParallelCSVReader implements Closeable {
+
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final BufferedReader reader;
+    private final char separator;
+    private final char quoteChar;
+    private final char escapeChar;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final ForkJoinPool pool;
+
+    private final Deque<Future<List<String[]>>> pendingChunks = new ArrayDeque<>();
+    private Iterator<String[]> currentChunk;
+    private boolean endOfStream;
+
+    public ParallelCSVReader(@NotNull Reader reader, char separator, char quoteChar, char escapeChar, int threads, int chunkSize) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.separator = separator;
+        this.quoteChar = quoteChar;
+        this.escapeChar = escapeChar;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = threads * 2;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @Nullable
+    public String[] readNext() throws IOException {
+        while (currentChunk == null || !currentChunk.hasNext()) {
+            submitChunks();
+            Future<List<String[]>> chunk = pendingChunks.poll();
+            if (chunk == null) {
+                return null;
+            }
+            currentChunk = getChunkRows(chunk).iterator();
+        }
+        return currentChunk.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        pendingChunks.clear();
+        reader.close();
+    }
+
+    private void submitChunks() throws IOException {
+        while (!endOfStream && pendingChunks.size() < maxPendingChunks) {
+            final String chunk = readChunk();
+            if (chunk == null) {
+                endOfStream = true;
+                break;
+            }
+            pendingChunks.add(pool.submit(() -> parseChunk(chunk)));
+        }
+    }
+
+    @Nullable
+    private String readChunk() throws IOException {
+        StringBuilder chunk = new StringBuilder(chunkSize + 1024);
+        boolean inQuotes = false;
+        boolean inField = false;
+        for (;;) {
+            String line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            chunk.append(line).append('\n');
+
+            // Mirrors CSVParser state transitions (with default strictQuotes and ignoreQuotations)
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                boolean quoted = inQuotes || inField;
+                if (c == escapeChar) {
+                    if (quoted && i + 1 < line.length() && (line.charAt(i + 1) == quoteChar || line.charAt(i + 1) == escapeChar)) {
+                        i++;
+                    }
+                } else if (c == quoteChar) {
+                    if (quoted && i + 1 < line.length() && line.charAt(i + 1) == quoteChar) {
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+                    }
+                    inField = !inField;
+                } else if (c == separator && !inQuotes) {
+                    inField = false;
+                } else {
+                    inField = true;
+                }
+            }
+            if (!inQuotes) {
+                inField = false;
+                if (chunk.length() >= chunkSize) {
+                    break;
+                }
+            }
+        }
+        return chunk.length() == 0 ? null : chunk.toString();
+    }
+
+    private List<String[]> parseChunk(String chunk) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CSVReader csvReader = new CSVReader(new StringReader(chunk), separator, quoteChar, escapeChar)) {
+            for (String[] row = csvReader.readNext(); row != null; row = csvReader.readNext()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<String[]> getChunkRows(Future<List<String[]>> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("CSV parsing interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error parsing CSV", e.getCause());
+        }
+    }
+
+}
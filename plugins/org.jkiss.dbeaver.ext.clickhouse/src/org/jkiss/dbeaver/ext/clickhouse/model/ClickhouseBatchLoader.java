@@ -0,0 +1,123 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.clickhouse.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+
+import java.util.Map;
+
+/**
+ * Bulk loader based on large insert blocks.
+ *
+ * ClickHouse works best with rare big inserts: driver sends the whole prepared statement batch
+ * as a single block in its native binary format. So rows are accumulated until flush
+ * instead of being sent in small batches.
+ */
+public class ClickhouseBatchLoader implements DBSDataBulkLoader, DBSDataBulkLoader.BulkLoadManager {
+
+    private static final Log log = Log.getLog(ClickhouseBatchLoader.class);
+
+    private final ClickhouseDataSource dataSource;
+    private DBSAttributeBase[] attributes;
+    private DBDValueHandler[] valueHandlers;
+    private String tableFQN;
+    private DBCStatement statement;
+    private int blockRows;
+    private long rowCount;
+
+    public ClickhouseBatchLoader(ClickhouseDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @NotNull
+    @Override
+    public BulkLoadManager createBulkLoad(
+        @NotNull DBCSession session,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBSAttributeBase[] attributes,
+        @NotNull DBCExecutionSource source,
+        int batchSize,
+        Map<String, Object> options) throws DBCException
+    {
+        this.attributes = attributes;
+        this.valueHandlers = new DBDValueHandler[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i] = DBUtils.findValueHandler(session, attributes[i]);
+        }
+        this.tableFQN = DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
+
+        StringBuilder query = new StringBuilder();
+        query.append("INSERT INTO ").append(tableFQN).append(" (");
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) query.append(',');
+            query.append(DBUtils.getQuotedIdentifier(dataSource, attributes[i].getName()));
+        }
+        query.append(") VALUES (");
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) query.append(',');
+            query.append('?');
+        }
+        query.append(')');
+
+        statement = session.prepareStatement(DBCStatementType.QUERY, query.toString(), false, false, false);
+        statement.setStatementSource(source);
+        return this;
+    }
+
+    @Override
+    public void addRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i].bindValueObject(session, statement, attributes[i], i, attributeValues[i]);
+        }
+        statement.addToBatch();
+        blockRows++;
+    }
+
+    @Override
+    public void flushRows(@NotNull DBCSession session) throws DBCException {
+        if (blockRows == 0) {
+            return;
+        }
+        session.getProgressMonitor().subTask("Insert block of " + blockRows + " rows into " + tableFQN);
+        statement.executeStatementBatch();
+        rowCount += blockRows;
+        blockRows = 0;
+    }
+
+    @Override
+    public void finishBulkLoad(@NotNull DBCSession session) throws DBCException {
+        flushRows(session);
+
+        log.debug("Block insert has been finished (" + rowCount + ")");
+    }
+
+    @Override
+    public void close() {
+        if (statement != null) {
+            statement.close();
+            statement = null;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.jkiss.dbeaver.model.DBPDataSourceContainer;
 import org.jkiss.dbeaver.model.DBPDataSourceInfo;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCDatabaseMetaData;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
 import org.jkiss.dbeaver.model.struct.DBSDataType;
 
 import java.util.Date;
@@ -69,6 +70,14 @@ public class ClickhouseDataSource extends GenericDataSource {
         return super.resolveDataType(monitor, typeFullName);
     }
 
+    @Override
+    public <T> T getAdapter(Class<T> adapter) {
+        if (adapter == DBSDataBulkLoader.class) {
+            return adapter.cast(new ClickhouseBatchLoader(this));
+        }
+        return super.getAdapter(adapter);
+    }
+
     @Override
     protected DBPDataSourceInfo createDataSourceInfo(DBRProgressMonitor monitor, @NotNull JDBCDatabaseMetaData metaData) {
         GenericDataSourceInfo info = (GenericDataSourceInfo) super.createDataSourceInfo(monitor, metaData);
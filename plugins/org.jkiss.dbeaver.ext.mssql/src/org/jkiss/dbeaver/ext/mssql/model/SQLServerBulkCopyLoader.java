@@ -0,0 +1,323 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.mssql.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDContent;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.rdb.DBSManipulationType;
+import org.jkiss.dbeaver.utils.ContentUtils;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Bulk loader based on SQLServerBulkCopy (TDS bulk copy protocol).
+ *
+ * Rows are buffered until flush and then sent to the server with a single writeToServer call.
+ * LOB values are read from their content storage into String or byte[] values when a row is added.
+ * Driver classes are accessed with reflection, bulk record is a dynamic proxy of ISQLServerBulkRecord.
+ */
+public class SQLServerBulkCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.BulkLoadManager {
+
+    private static final Log log = Log.getLog(SQLServerBulkCopyLoader.class);
+
+    private static final String BULK_COPY_CLASS = "com.microsoft.sqlserver.jdbc.SQLServerBulkCopy";
+    private static final String BULK_COPY_OPTIONS_CLASS = "com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions";
+    private static final String BULK_RECORD_CLASS = "com.microsoft.sqlserver.jdbc.ISQLServerBulkRecord";
+
+    private final SQLServerDataSource dataSource;
+    private DBSAttributeBase[] attributes;
+    private DBDValueHandler[] valueHandlers;
+    private String tableFQN;
+
+    private Class<?> bulkRecordClass;
+    private Object bulkCopy;
+    private Method writeToServerMethod;
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private long rowCount;
+
+    public SQLServerBulkCopyLoader(SQLServerDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @NotNull
+    @Override
+    public BulkLoadManager createBulkLoad(
+        @NotNull DBCSession session,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBSAttributeBase[] attributes,
+        @NotNull DBCExecutionSource source,
+        int batchSize,
+        Map<String, Object> options) throws DBCException
+    {
+        this.attributes = attributes;
+        this.valueHandlers = new DBDValueHandler[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i] = DBUtils.findValueHandler(session, attributes[i]);
+        }
+        this.tableFQN = DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
+        try {
+            // Use reflection to create bulk copy
+            Connection connection = ((JDBCSession) session).getOriginal();
+            ClassLoader driverClassLoader = connection.getClass().getClassLoader();
+
+            Class<?> bulkCopyClass = Class.forName(BULK_COPY_CLASS, true, driverClassLoader);
+            Class<?> bulkCopyOptionsClass = Class.forName(BULK_COPY_OPTIONS_CLASS, true, driverClassLoader);
+            bulkRecordClass = Class.forName(BULK_RECORD_CLASS, true, driverClassLoader);
+
+            bulkCopy = bulkCopyClass.getConstructor(Connection.class).newInstance(connection);
+            bulkCopyClass.getMethod("setDestinationTableName", String.class).invoke(bulkCopy, tableFQN);
+
+            Object bulkCopyOptions = makeBulkCopyOptions(bulkCopyOptionsClass, attributes, batchSize);
+            bulkCopyClass.getMethod("setBulkCopyOptions", bulkCopyOptionsClass).invoke(bulkCopy, bulkCopyOptions);
+
+            Method addColumnMappingMethod = bulkCopyClass.getMethod("addColumnMapping", Integer.TYPE, String.class);
+            for (int i = 0; i < attributes.length; i++) {
+                addColumnMappingMethod.invoke(bulkCopy, i + 1, attributes[i].getName());
+            }
+
+            writeToServerMethod = bulkCopyClass.getMethod("writeToServer", bulkRecordClass);
+        } catch (Exception e) {
+            if (e instanceof InvocationTargetException) {
+                throw new DBCException("Can't instantiate SQLServerBulkCopy", ((InvocationTargetException) e).getTargetException());
+            }
+            throw new DBCException("Can't instantiate SQLServerBulkCopy", e);
+        }
+        return this;
+    }
+
+    /**
+     * Creates bulk copy options.
+     * Bulk copy doesn't use SET IDENTITY_INSERT (see {@link SQLServerTableBase#beforeDataChange}), so source identity
+     * values are kept explicitly. NULLs are kept as is instead of being replaced with column defaults.
+     */
+    @NotNull
+    public static Object makeBulkCopyOptions(
+        @NotNull Class<?> bulkCopyOptionsClass,
+        @NotNull DBSAttributeBase[] attributes,
+        int batchSize) throws ReflectiveOperationException
+    {
+        Object bulkCopyOptions = bulkCopyOptionsClass.getConstructor().newInstance();
+        if (batchSize > 0) {
+            bulkCopyOptionsClass.getMethod("setBatchSize", Integer.TYPE).invoke(bulkCopyOptions, batchSize);
+        }
+        bulkCopyOptionsClass.getMethod("setBulkCopyTimeout", Integer.TYPE).invoke(bulkCopyOptions, 0);
+        bulkCopyOptionsClass.getMethod("setKeepNulls", Boolean.TYPE).invoke(bulkCopyOptions, true);
+        if (SQLServerTableBase.hasIdentityInsert(DBSManipulationType.INSERT, attributes)) {
+            bulkCopyOptionsClass.getMethod("setKeepIdentity", Boolean.TYPE).invoke(bulkCopyOptions, true);
+        }
+        return bulkCopyOptions;
+    }
+
+    @Override
+    public void addRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        Object[] row = new Object[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            row[i] = convertValue(session.getProgressMonitor(), attributes[i], valueHandlers[i], attributeValues[i]);
+        }
+        rows.add(row);
+    }
+
+    /**
+     * Converts value into one of types supported by bulk copy record.
+     * Content values are read from their storage and released.
+     */
+    @Nullable
+    public static Object convertValue(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSAttributeBase attribute,
+        @Nullable DBDValueHandler valueHandler,
+        @Nullable Object value) throws DBCException
+    {
+        if (DBUtils.isNullValue(value)) {
+            return null;
+        } else if (value instanceof DBDContent) {
+            DBDContent content = (DBDContent) value;
+            try {
+                return readContent(monitor, attribute, content);
+            } finally {
+                content.release();
+            }
+        } else if (value instanceof Number || value instanceof String || value instanceof Boolean || value instanceof byte[] ||
+            value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof Timestamp)
+        {
+            return value;
+        } else if (value instanceof Date) {
+            return new Timestamp(((Date) value).getTime());
+        } else if (valueHandler != null) {
+            return valueHandler.getValueDisplayString(attribute, value, DBDDisplayFormat.NATIVE);
+        } else {
+            return value.toString();
+        }
+    }
+
+    @NotNull
+    private static Object readContent(@NotNull DBRProgressMonitor monitor, @NotNull DBSAttributeBase attribute, @NotNull DBDContent content) throws DBCException {
+        if (!ContentUtils.isTextContent(content)) {
+            byte[] bytes = ContentUtils.getContentBinaryValue(monitor, content);
+            if (bytes == null) {
+                throw new DBCException("Can't read binary content of column '" + attribute.getName() + "'");
+            }
+            return bytes;
+        }
+        DBDContentStorage storage = content.getContents(monitor);
+        if (storage == null) {
+            throw new DBCException("Can't read text content of column '" + attribute.getName() + "'");
+        }
+        try (Reader reader = storage.getContentReader()) {
+            if (reader == null) {
+                throw new DBCException("Can't read text content of column '" + attribute.getName() + "'");
+            }
+            StringWriter buffer = new StringWriter();
+            ContentUtils.copyStreams(reader, content.getContentLength(), buffer, monitor);
+            return buffer.toString();
+        } catch (IOException e) {
+            throw new DBCException("Error reading text content of column '" + attribute.getName() + "'", e);
+        }
+    }
+
+    @Override
+    public void flushRows(@NotNull DBCSession session) throws DBCException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        session.getProgressMonitor().subTask("Bulk copy " + rows.size() + " rows into " + tableFQN);
+        try {
+            writeToServerMethod.invoke(bulkCopy, createBulkRecord());
+        } catch (Throwable e) {
+            if (e instanceof InvocationTargetException) {
+                e = ((InvocationTargetException) e).getTargetException();
+            }
+            throw new DBCException("Error copying dataset on remote server", e);
+        }
+        rowCount += rows.size();
+        rows.clear();
+    }
+
+    @Override
+    public void finishBulkLoad(@NotNull DBCSession session) throws DBCException {
+        flushRows(session);
+
+        // Commit changes
+        DBCTransactionManager txnManager = DBUtils.getTransactionManager(session.getExecutionContext());
+        if (txnManager != null && !txnManager.isAutoCommit()) {
+            session.getProgressMonitor().subTask("Commit bulk copy");
+            txnManager.commit(session);
+        }
+
+        log.debug("Bulk copy has been finished (" + rowCount + ")");
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+        if (bulkCopy != null) {
+            try {
+                bulkCopy.getClass().getMethod("close").invoke(bulkCopy);
+            } catch (Throwable e) {
+                log.debug("Error closing bulk copy", e);
+            }
+            bulkCopy = null;
+        }
+    }
+
+    /**
+     * Bulk record over buffered rows.
+     * Methods which are not used for row data (e.g. format settings) return default values.
+     */
+    private Object createBulkRecord() {
+        Iterator<Object[]> rowIterator = rows.iterator();
+        Object[][] currentRow = new Object[1][];
+        return Proxy.newProxyInstance(bulkRecordClass.getClassLoader(), new Class[] { bulkRecordClass }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnOrdinals": {
+                    Set<Integer> ordinals = new LinkedHashSet<>();
+                    for (int i = 1; i <= attributes.length; i++) {
+                        ordinals.add(i);
+                    }
+                    return ordinals;
+                }
+                case "getColumnName":
+                    return attributes[(Integer) args[0] - 1].getName();
+                case "getColumnType":
+                    return attributes[(Integer) args[0] - 1].getTypeID();
+                case "getPrecision": {
+                    DBSAttributeBase attr = attributes[(Integer) args[0] - 1];
+                    switch (attr.getDataKind()) {
+                        case NUMERIC:
+                            return CommonUtils.toInt(attr.getPrecision());
+                        case STRING:
+                        case BINARY:
+                            return (int) Math.min(attr.getMaxLength(), Integer.MAX_VALUE);
+                        default:
+                            return 0;
+                    }
+                }
+                case "getScale":
+                    return CommonUtils.toInt(attributes[(Integer) args[0] - 1].getScale());
+                case "isAutoIncrement":
+                    return false;
+                case "next":
+                    if (rowIterator.hasNext()) {
+                        currentRow[0] = rowIterator.next();
+                        return true;
+                    }
+                    return false;
+                case "getRowData":
+                    return currentRow[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Bulk record " + tableFQN;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == Boolean.TYPE) {
+                return false;
+            } else if (returnType == Integer.TYPE) {
+                return 0;
+            } else if (returnType == Long.TYPE) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+
+}
@@ -253,7 +253,7 @@ public abstract class SQLServerTableBase extends JDBCTable<SQLServerDataSource,
         }
     }
 
-    private boolean hasIdentityInsert(@NotNull DBSManipulationType type, @NotNull DBSAttributeBase[] attributes) {
+    static boolean hasIdentityInsert(@NotNull DBSManipulationType type, @NotNull DBSAttributeBase[] attributes) {
         if (type == DBSManipulationType.INSERT) {
             for (DBSAttributeBase attr : attributes) {
                 if (attr instanceof SQLServerTableColumn && ((SQLServerTableColumn) attr).isIdentity()) {
@@ -0,0 +1,316 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.mysql.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDContent;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLUtils;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.runtime.DBWorkbench;
+import org.jkiss.dbeaver.utils.ContentUtils;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Map;
+
+/**
+ * Bulk loader based on LOAD DATA LOCAL INFILE.
+ *
+ * Rows are written in the default LOAD DATA text format (tab separated, backslash escaped, \N for NULL)
+ * into a temporary file which is then streamed to the server by the driver.
+ * Binary and BLOB columns are written in hex and decoded with UNHEX. LOB values are read from their content storage.
+ * Requires allowLoadLocalInfile driver property and local_infile server variable.
+ */
+public class MySQLLoadDataLoader implements DBSDataBulkLoader, DBSDataBulkLoader.BulkLoadManager {
+
+    private static final Log log = Log.getLog(MySQLLoadDataLoader.class);
+
+    private static final String NULL_VALUE = "\\N";
+
+    private final MySQLDataSource dataSource;
+    private DBSDataContainer table;
+    private DBSAttributeBase[] attributes;
+    private DBDValueHandler[] valueHandlers;
+    private boolean[] binaryColumns;
+    private Writer dataWriter;
+    private File dataFile;
+
+    private int bufferSize = 100 * 1024;
+
+    public MySQLLoadDataLoader(MySQLDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @NotNull
+    @Override
+    public BulkLoadManager createBulkLoad(
+        @NotNull DBCSession session,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBSAttributeBase[] attributes,
+        @NotNull DBCExecutionSource source,
+        int batchSize,
+        Map<String, Object> options) throws DBCException
+    {
+        this.table = dataContainer;
+        this.attributes = attributes;
+        this.valueHandlers = new DBDValueHandler[attributes.length];
+        this.binaryColumns = new boolean[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i] = DBUtils.findValueHandler(session, attributes[i]);
+            binaryColumns[i] = isBinaryColumn(attributes[i]);
+        }
+        try {
+            File tempFolder = DBWorkbench.getPlatform().getTempFolder(session.getProgressMonitor(), "mysql-load-datasets");
+            dataFile = new File(tempFolder, CommonUtils.escapeFileName(DBUtils.getObjectFullName(table, DBPEvaluationContext.DML)) + "-" + System.currentTimeMillis() + ".txt");  //$NON-NLS-1$ //$NON-NLS-2$
+            if (!dataFile.createNewFile()) {
+                throw new IOException("Can't create data file " + dataFile.getAbsolutePath());
+            }
+            dataWriter = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(dataFile), StandardCharsets.UTF_8),
+                bufferSize);
+        } catch (Exception e) {
+            throw new DBCException("Can't create LOAD DATA file", e);
+        }
+        return this;
+    }
+
+    @Override
+    public void addRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            appendValue(session.getProgressMonitor(), line, attributes[i], binaryColumns[i], valueHandlers[i], attributeValues[i]);
+        }
+        line.append('\n');
+        try {
+            dataWriter.write(line.toString());
+        } catch (IOException e) {
+            throw new DBCException("Error writing LOAD DATA line", e);
+        }
+    }
+
+    /**
+     * Binary columns are loaded in hex via user variable and UNHEX
+     */
+    public static boolean isBinaryColumn(@NotNull DBSAttributeBase attribute) {
+        switch (attribute.getDataKind()) {
+            case BINARY:
+                return true;
+            case CONTENT:
+                switch (attribute.getTypeID()) {
+                    case Types.BLOB:
+                    case Types.BINARY:
+                    case Types.VARBINARY:
+                    case Types.LONGVARBINARY:
+                        return true;
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Appends value in LOAD DATA text format.
+     * Content values are read from their storage and released.
+     */
+    public static void appendValue(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull StringBuilder line,
+        @NotNull DBSAttributeBase attribute,
+        boolean binary,
+        @Nullable DBDValueHandler valueHandler,
+        @Nullable Object value) throws DBCException
+    {
+        if (DBUtils.isNullValue(value)) {
+            line.append(NULL_VALUE);
+        } else if (value instanceof DBDContent) {
+            DBDContent content = (DBDContent) value;
+            try {
+                if (binary) {
+                    appendHexValue(line, readBinaryContent(monitor, attribute, content));
+                } else {
+                    appendEscapedValue(line, readTextContent(monitor, attribute, content));
+                }
+            } finally {
+                content.release();
+            }
+        } else if (binary) {
+            if (value instanceof byte[]) {
+                appendHexValue(line, (byte[]) value);
+            } else if (value instanceof String) {
+                appendHexValue(line, ((String) value).getBytes(StandardCharsets.UTF_8));
+            } else {
+                throw new DBCException("Unsupported value type " + value.getClass().getName() + " of binary column '" + attribute.getName() + "'");
+            }
+        } else if (value instanceof Number) {
+            line.append(value);
+        } else if (value instanceof Boolean) {
+            line.append((Boolean) value ? '1' : '0');
+        } else if (valueHandler != null) {
+            appendEscapedValue(line, valueHandler.getValueDisplayString(attribute, value, DBDDisplayFormat.NATIVE));
+        } else {
+            appendEscapedValue(line, value.toString());
+        }
+    }
+
+    @NotNull
+    private static byte[] readBinaryContent(@NotNull DBRProgressMonitor monitor, @NotNull DBSAttributeBase attribute, @NotNull DBDContent content) throws DBCException {
+        byte[] bytes = ContentUtils.getContentBinaryValue(monitor, content);
+        if (bytes == null) {
+            throw new DBCException("Can't read binary content of column '" + attribute.getName() + "'");
+        }
+        return bytes;
+    }
+
+    @NotNull
+    private static String readTextContent(@NotNull DBRProgressMonitor monitor, @NotNull DBSAttributeBase attribute, @NotNull DBDContent content) throws DBCException {
+        if (!ContentUtils.isTextContent(content)) {
+            throw new DBCException("Binary content can't be loaded into text column '" + attribute.getName() + "'");
+        }
+        DBDContentStorage storage = content.getContents(monitor);
+        if (storage == null) {
+            throw new DBCException("Can't read text content of column '" + attribute.getName() + "'");
+        }
+        try (Reader reader = storage.getContentReader()) {
+            if (reader == null) {
+                throw new DBCException("Can't read text content of column '" + attribute.getName() + "'");
+            }
+            StringWriter buffer = new StringWriter();
+            ContentUtils.copyStreams(reader, content.getContentLength(), buffer, monitor);
+            return buffer.toString();
+        } catch (IOException e) {
+            throw new DBCException("Error reading text content of column '" + attribute.getName() + "'", e);
+        }
+    }
+
+    private static void appendHexValue(StringBuilder line, byte[] bytes) {
+        for (byte b : bytes) {
+            line.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+    }
+
+    private static void appendEscapedValue(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': line.append("\\\\"); break;
+                case '\t': line.append("\\t"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\0': line.append("\\0"); break;
+                default: line.append(c); break;
+            }
+        }
+    }
+
+    @Override
+    public void flushRows(@NotNull DBCSession session) throws DBCException {
+        try {
+            dataWriter.flush();
+        } catch (IOException e) {
+            throw new DBCException("Error saving LOAD DATA file", e);
+        }
+    }
+
+    @Override
+    public void finishBulkLoad(@NotNull DBCSession session) throws DBCException {
+        try {
+            dataWriter.flush();
+            dataWriter.close();
+        } catch (IOException e) {
+            log.debug(e);
+        }
+        dataWriter = null;
+
+        String tableFQN = DBUtils.getObjectFullName(table, DBPEvaluationContext.DML);
+
+        session.getProgressMonitor().subTask("Load data into " + tableFQN);
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder setClause = new StringBuilder();
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) columns.append(',');
+            String columnName = DBUtils.getQuotedIdentifier(dataSource, attributes[i].getName());
+            if (binaryColumns[i]) {
+                String varName = "@bin" + i;
+                columns.append(varName);
+                if (setClause.length() > 0) setClause.append(',');
+                setClause.append(columnName).append("=UNHEX(").append(varName).append(")");
+            } else {
+                columns.append(columnName);
+            }
+        }
+        // Driver reads local file itself so use forward slashes which work on all platforms
+        String queryText = "LOAD DATA LOCAL INFILE " + SQLUtils.quoteString(dataSource, dataFile.getAbsolutePath().replace('\\', '/')) +
+            " INTO TABLE " + tableFQN + " CHARACTER SET utf8mb4 (" + columns + ")";
+        if (setClause.length() > 0) {
+            queryText += " SET " + setClause;
+        }
+
+        try {
+            int rowCount = JDBCUtils.executeUpdate((JDBCSession) session, queryText);
+
+            // Commit changes
+            DBCTransactionManager txnManager = DBUtils.getTransactionManager(session.getExecutionContext());
+            if (txnManager != null && !txnManager.isAutoCommit()) {
+                session.getProgressMonitor().subTask("Commit LOAD DATA");
+                txnManager.commit(session);
+            }
+
+            log.debug("Data file has been loaded (" + rowCount + ")");
+        } catch (Throwable e) {
+            throw new DBCException("Error loading data on remote server. Make sure that allowLoadLocalInfile driver property and local_infile server variable are enabled", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (dataWriter != null) {
+            try {
+                dataWriter.close();
+            } catch (IOException e) {
+                log.debug(e);
+            }
+            dataWriter = null;
+        }
+        if (dataFile != null && dataFile.exists()) {
+            if (!dataFile.delete()) {
+                log.debug("Error deleting data file " + dataFile.getAbsolutePath());
+                dataFile.deleteOnExit();
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.jkiss.dbeaver.model.meta.ForTest;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.sql.SQLConstants;
 import org.jkiss.dbeaver.model.sql.SQLState;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
 import org.jkiss.dbeaver.model.struct.DBSDataType;
 import org.jkiss.dbeaver.model.struct.DBSObject;
 import org.jkiss.dbeaver.model.struct.DBSObjectFilter;
@@ -487,6 +488,16 @@ public class OracleDataSource extends JDBCDataSource implements DBPObjectStatist
         }
     }
 
+    @Nullable
+    @Override
+    protected String readMetadataVersion(@NotNull JDBCSession session) throws SQLException {
+        // Any DDL changes LAST_DDL_TIME of the object. Dropped objects are detected by objects count.
+        return JDBCUtils.queryString(
+            session,
+            "SELECT " + OracleUtils.getSysCatalogHint(this) + " TO_CHAR(MAX(LAST_DDL_TIME),'YYYYMMDDHH24MISS') || '/' || COUNT(*) FROM " +
+                OracleUtils.getAdminAllViewPrefix(session.getProgressMonitor(), this, "OBJECTS"));
+    }
+
     @Override
     public DBSObject refreshObject(@NotNull DBRProgressMonitor monitor)
         throws DBException {
@@ -542,6 +553,11 @@ public class OracleDataSource extends JDBCDataSource implements DBPObjectStatist
             return adapter.cast(new OracleQueryPlanner(this));
         } else if(adapter == DBAUserPasswordManager.class) {
             return adapter.cast(new OracleChangeUserPasswordManager(this));
+        } else if (adapter == DBSDataBulkLoader.class) {
+            // APPEND_VALUES hint is available since 11g R2
+            if (isAtLeastV11()) {
+                return adapter.cast(new OracleDirectPathLoader(this));
+            }
         }
         return super.getAdapter(adapter);
     }
@@ -0,0 +1,128 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.oracle.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.jkiss.dbeaver.model.struct.DBSDataBulkLoader;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+
+import java.util.Map;
+
+/**
+ * Bulk loader based on direct-path array insert.
+ *
+ * Rows are bound to a single INSERT statement with APPEND_VALUES hint and sent to the server
+ * as one array per flush. Direct-path insert writes data above the table high water mark and
+ * requires commit before the table may be accessed again in the same transaction, so each flush is committed.
+ */
+public class OracleDirectPathLoader implements DBSDataBulkLoader, DBSDataBulkLoader.BulkLoadManager {
+
+    private static final Log log = Log.getLog(OracleDirectPathLoader.class);
+
+    private final OracleDataSource dataSource;
+    private DBSAttributeBase[] attributes;
+    private DBDValueHandler[] valueHandlers;
+    private String tableFQN;
+    private DBCStatement statement;
+    private int batchRows;
+    private long rowCount;
+
+    public OracleDirectPathLoader(OracleDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @NotNull
+    @Override
+    public BulkLoadManager createBulkLoad(
+        @NotNull DBCSession session,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBSAttributeBase[] attributes,
+        @NotNull DBCExecutionSource source,
+        int batchSize,
+        Map<String, Object> options) throws DBCException
+    {
+        this.attributes = attributes;
+        this.valueHandlers = new DBDValueHandler[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i] = DBUtils.findValueHandler(session, attributes[i]);
+        }
+        this.tableFQN = DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
+
+        StringBuilder query = new StringBuilder();
+        query.append("INSERT /*+ APPEND_VALUES */ INTO ").append(tableFQN).append(" (");
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) query.append(',');
+            query.append(DBUtils.getQuotedIdentifier(dataSource, attributes[i].getName()));
+        }
+        query.append(") VALUES (");
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0) query.append(',');
+            query.append('?');
+        }
+        query.append(')');
+
+        statement = session.prepareStatement(DBCStatementType.QUERY, query.toString(), false, false, false);
+        statement.setStatementSource(source);
+        return this;
+    }
+
+    @Override
+    public void addRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        for (int i = 0; i < attributes.length; i++) {
+            valueHandlers[i].bindValueObject(session, statement, attributes[i], i, attributeValues[i]);
+        }
+        statement.addToBatch();
+        batchRows++;
+    }
+
+    @Override
+    public void flushRows(@NotNull DBCSession session) throws DBCException {
+        if (batchRows == 0) {
+            return;
+        }
+        session.getProgressMonitor().subTask("Direct-path insert " + batchRows + " rows into " + tableFQN);
+        statement.executeStatementBatch();
+        rowCount += batchRows;
+        batchRows = 0;
+
+        DBCTransactionManager txnManager = DBUtils.getTransactionManager(session.getExecutionContext());
+        if (txnManager != null && !txnManager.isAutoCommit()) {
+            txnManager.commit(session);
+        }
+    }
+
+    @Override
+    public void finishBulkLoad(@NotNull DBCSession session) throws DBCException {
+        flushRows(session);
+
+        log.debug("Direct-path insert has been finished (" + rowCount + ")");
+    }
+
+    @Override
+    public void close() {
+        if (statement != null) {
+            statement.close();
+            statement = null;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.postgresql.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.ext.postgresql.PostgreConstants;
+import org.jkiss.dbeaver.model.data.DBDContent;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.utils.ContentUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Writer of COPY binary format.
+ *
+ * Encodes row values directly into the PostgreSQL binary wire representation of the target column types.
+ * Data is accumulated in a reusable direct buffer and written into the channel when the buffer is full or on flush.
+ * Values which can't be represented exactly in the target type (e.g. out of range integers) or have unsupported
+ * type are rejected with an error. Content values (LOBs) are read from their storage and released.
+ */
+public class PostgreCopyBinaryWriter {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    private static final LocalDate PG_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDateTime PG_EPOCH = PG_EPOCH_DATE.atStartOfDay();
+    private static final Instant PG_EPOCH_INSTANT = PG_EPOCH.toInstant(ZoneOffset.UTC);
+
+    private static final short NUMERIC_POS = 0x0000;
+    private static final short NUMERIC_NEG = 0x4000;
+    private static final short NUMERIC_NAN = (short) 0xC000;
+
+    public enum FieldType {
+        BOOL,
+        INT2,
+        INT4,
+        INT8,
+        FLOAT4,
+        FLOAT8,
+        NUMERIC,
+        TEXT,
+        JSONB,
+        BYTEA,
+        UUID,
+        DATE,
+        TIMESTAMP,
+        TIMESTAMPTZ
+    }
+
+    private final WritableByteChannel channel;
+    private final FieldType[] fieldTypes;
+    private final ByteBuffer buffer;
+
+    public PostgreCopyBinaryWriter(@NotNull WritableByteChannel channel, @NotNull FieldType[] fieldTypes, int bufferSize) {
+        this.channel = channel;
+        this.fieldTypes = fieldTypes;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns binary field type for the PostgreSQL type name or null if values of this type can't be encoded.
+     */
+    @Nullable
+    public static FieldType getFieldType(@NotNull String typeName) {
+        String alias = PostgreConstants.DATA_TYPE_ALIASES.get(typeName);
+        if (alias != null) {
+            typeName = alias;
+        }
+        switch (typeName) {
+            case PostgreConstants.TYPE_BOOL: return FieldType.BOOL;
+            case PostgreConstants.TYPE_INT2: return FieldType.INT2;
+            case PostgreConstants.TYPE_INT4: return FieldType.INT4;
+            case PostgreConstants.TYPE_INT8: return FieldType.INT8;
+            case PostgreConstants.TYPE_FLOAT4: return FieldType.FLOAT4;
+            case PostgreConstants.TYPE_FLOAT8: return FieldType.FLOAT8;
+            case "numeric": return FieldType.NUMERIC;
+            case "text":
+            case "name":
+            case PostgreConstants.TYPE_VARCHAR:
+            case PostgreConstants.TYPE_BPCHAR:
+            case PostgreConstants.TYPE_JSON:
+                return FieldType.TEXT;
+            case PostgreConstants.TYPE_JSONB: return FieldType.JSONB;
+            case "bytea": return FieldType.BYTEA;
+            case PostgreConstants.TYPE_UUID: return FieldType.UUID;
+            case "date": return FieldType.DATE;
+            case PostgreConstants.TYPE_TIMESTAMP: return FieldType.TIMESTAMP;
+            case PostgreConstants.TYPE_TIMESTAMPTZ: return FieldType.TIMESTAMPTZ;
+            default:
+                return null;
+        }
+    }
+
+    public void writeHeader() throws IOException {
+        ensureCapacity(SIGNATURE.length + 8);
+        buffer.put(SIGNATURE);
+        // Flags and header extension length
+        buffer.putInt(0);
+        buffer.putInt(0);
+    }
+
+    public void writeTrailer() throws IOException {
+        ensureCapacity(2);
+        buffer.putShort((short) -1);
+    }
+
+    /**
+     * Writes a tuple. Values must be in the same order as field types.
+     */
+    public void writeRow(@NotNull DBRProgressMonitor monitor, @NotNull Object[] values) throws IOException, DBCException {
+        ensureCapacity(2);
+        buffer.putShort((short) fieldTypes.length);
+        for (int i = 0; i < fieldTypes.length; i++) {
+            Object value = values[i];
+            if (value instanceof DBDContent) {
+                DBDContent content = (DBDContent) value;
+                try {
+                    value = readContent(monitor, fieldTypes[i], content);
+                } finally {
+                    content.release();
+                }
+            }
+            writeField(fieldTypes[i], value);
+        }
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeField(FieldType type, Object value) throws IOException, DBCException {
+        if (value == null) {
+            ensureCapacity(4);
+            buffer.putInt(-1);
+            return;
+        }
+        switch (type) {
+            case BOOL:
+                ensureCapacity(5);
+                buffer.putInt(1);
+                buffer.put(toBoolean(type, value) ? (byte) 1 : (byte) 0);
+                break;
+            case INT2:
+                ensureCapacity(6);
+                buffer.putInt(2);
+                buffer.putShort((short) toLong(type, value, Short.MIN_VALUE, Short.MAX_VALUE));
+                break;
+            case INT4:
+                ensureCapacity(8);
+                buffer.putInt(4);
+                buffer.putInt((int) toLong(type, value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                break;
+            case INT8:
+                ensureCapacity(12);
+                buffer.putInt(8);
+                buffer.putLong(toLong(type, value, Long.MIN_VALUE, Long.MAX_VALUE));
+                break;
+            case FLOAT4:
+                ensureCapacity(8);
+                buffer.putInt(4);
+                buffer.putFloat(toNumber(type, value).floatValue());
+                break;
+            case FLOAT8:
+                ensureCapacity(12);
+                buffer.putInt(8);
+                buffer.putDouble(toNumber(type, value).doubleValue());
+                break;
+            case NUMERIC:
+                writeNumeric(value);
+                break;
+            case TEXT:
+                writeBytes(null, toText(type, value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case JSONB:
+                // jsonb binary format is version number followed by json text
+                writeBytes((byte) 1, toText(type, value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case BYTEA:
+                if (!(value instanceof byte[])) {
+                    throw unsupportedValue(type, value);
+                }
+                writeBytes(null, (byte[]) value);
+                break;
+            case UUID: {
+                UUID uuid;
+                if (value instanceof UUID) {
+                    uuid = (UUID) value;
+                } else if (value instanceof String) {
+                    uuid = java.util.UUID.fromString(((String) value).trim());
+                } else {
+                    throw unsupportedValue(type, value);
+                }
+                ensureCapacity(20);
+                buffer.putInt(16);
+                buffer.putLong(uuid.getMostSignificantBits());
+                buffer.putLong(uuid.getLeastSignificantBits());
+                break;
+            }
+            case DATE:
+                ensureCapacity(8);
+                buffer.putInt(4);
+                buffer.putInt((int) ChronoUnit.DAYS.between(PG_EPOCH_DATE, toLocalDate(type, value)));
+                break;
+            case TIMESTAMP:
+                ensureCapacity(12);
+                buffer.putInt(8);
+                buffer.putLong(ChronoUnit.MICROS.between(PG_EPOCH, toLocalDateTime(type, value)));
+                break;
+            case TIMESTAMPTZ:
+                ensureCapacity(12);
+                buffer.putInt(8);
+                buffer.putLong(ChronoUnit.MICROS.between(PG_EPOCH_INSTANT, toInstant(type, value)));
+                break;
+        }
+    }
+
+    private void writeBytes(@Nullable Byte prefix, byte[] bytes) throws IOException {
+        int length = bytes.length + (prefix == null ? 0 : 1);
+        ensureCapacity(5);
+        buffer.putInt(length);
+        if (prefix != null) {
+            buffer.put(prefix);
+        }
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else if (bytes.length <= buffer.capacity()) {
+            flush();
+            buffer.put(bytes);
+        } else {
+            // Value is bigger than the buffer - write it directly
+            flush();
+            ByteBuffer valueBuffer = ByteBuffer.wrap(bytes);
+            while (valueBuffer.hasRemaining()) {
+                channel.write(valueBuffer);
+            }
+        }
+    }
+
+    private void writeNumeric(Object value) throws IOException, DBCException {
+        if (value instanceof Double && ((Double) value).isNaN() || value instanceof Float && ((Float) value).isNaN()) {
+            ensureCapacity(12);
+            buffer.putInt(8);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort(NUMERIC_NAN);
+            buffer.putShort((short) 0);
+            return;
+        }
+        short[] numeric = encodeNumeric(toBigDecimal(FieldType.NUMERIC, value));
+        ensureCapacity(4 + numeric.length * 2);
+        buffer.putInt(numeric.length * 2);
+        for (short s : numeric) {
+            buffer.putShort(s);
+        }
+    }
+
+    /**
+     * Encodes decimal into numeric binary representation: ndigits, weight, sign, dscale and base 10000 digits.
+     */
+    @NotNull
+    static short[] encodeNumeric(@NotNull BigDecimal value) {
+        short sign = value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS;
+        int dscale = Math.max(value.scale(), 0);
+        String plain = value.abs().toPlainString();
+        int pointPos = plain.indexOf('.');
+        String intPart = pointPos < 0 ? plain : plain.substring(0, pointPos);
+        String fracPart = pointPos < 0 ? "" : plain.substring(pointPos + 1);
+
+        // Align both parts to groups of 4 decimal digits
+        StringBuilder digits = new StringBuilder();
+        for (int i = intPart.length() % 4; i > 0 && i < 4; i++) {
+            digits.append('0');
+        }
+        digits.append(intPart);
+        int intGroups = digits.length() / 4;
+        digits.append(fracPart);
+        while (digits.length() % 4 != 0) {
+            digits.append('0');
+        }
+
+        int groupCount = digits.length() / 4;
+        short[] groups = new short[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            groups[i] = Short.parseShort(digits.substring(i * 4, i * 4 + 4));
+        }
+        int first = 0, last = groupCount;
+        while (first < last && groups[first] == 0) {
+            first++;
+        }
+        while (last > first && groups[last - 1] == 0) {
+            last--;
+        }
+        int ndigits = last - first;
+        int weight = ndigits == 0 ? 0 : intGroups - 1 - first;
+
+        short[] result = new short[4 + ndigits];
+        result[0] = (short) ndigits;
+        result[1] = (short) weight;
+        result[2] = ndigits == 0 ? NUMERIC_POS : sign;
+        result[3] = (short) dscale;
+        System.arraycopy(groups, first, result, 4, ndigits);
+        return result;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    @Nullable
+    private static Object readContent(@NotNull DBRProgressMonitor monitor, @NotNull FieldType type, @NotNull DBDContent content) throws DBCException {
+        if (content.isNull()) {
+            return null;
+        }
+        if (type == FieldType.BYTEA) {
+            byte[] bytes = ContentUtils.getContentBinaryValue(monitor, content);
+            if (bytes == null) {
+                throw new DBCException("Can't read binary content for " + type + " field");
+            }
+            return bytes;
+        }
+        if (type != FieldType.TEXT && type != FieldType.JSONB) {
+            throw unsupportedValue(type, content);
+        }
+        if (!ContentUtils.isTextContent(content)) {
+            throw new DBCException("Binary content can't be written into " + type + " field");
+        }
+        DBDContentStorage storage = content.getContents(monitor);
+        if (storage == null) {
+            throw new DBCException("Can't read text content for " + type + " field");
+        }
+        try (Reader reader = storage.getContentReader()) {
+            if (reader == null) {
+                throw new DBCException("Can't read text content for " + type + " field");
+            }
+            StringWriter text = new StringWriter();
+            ContentUtils.copyStreams(reader, content.getContentLength(), text, monitor);
+            return text.toString();
+        } catch (IOException e) {
+            throw new DBCException("Error reading text content for " + type + " field", e);
+        }
+    }
+
+    private static DBCException unsupportedValue(FieldType type, Object value) {
+        return new DBCException("Value of type " + value.getClass().getName() + " can't be written into " + type + " field");
+    }
+
+    private static String toText(FieldType type, Object value) throws DBCException {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw unsupportedValue(type, value);
+    }
+
+    private static boolean toBoolean(FieldType type, Object value) throws DBCException {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        } else if (value instanceof String) {
+            String strValue = ((String) value).trim();
+            return strValue.equalsIgnoreCase("true") || strValue.equalsIgnoreCase("t") || strValue.equals("1");
+        }
+        throw unsupportedValue(type, value);
+    }
+
+    private static Number toNumber(FieldType type, Object value) throws DBCException {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return toBigDecimal(type, value);
+    }
+
+    /**
+     * Converts value to integer. Fractional and out of range values are rejected.
+     */
+    private static long toLong(FieldType type, Object value, long minValue, long maxValue) throws DBCException {
+        long result;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            result = ((Number) value).longValue();
+        } else if (value instanceof Boolean) {
+            result = (Boolean) value ? 1 : 0;
+        } else {
+            try {
+                result = toBigDecimal(type, value).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new DBCException("Value " + value + " is out of " + type + " range", e);
+            }
+        }
+        if (result < minValue || result > maxValue) {
+            throw new DBCException("Value " + value + " is out of " + type + " range");
+        }
+        return result;
+    }
+
+    private static BigDecimal toBigDecimal(FieldType type, Object value) throws DBCException {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double doubleValue = ((Number) value).doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                throw new DBCException("Value " + value + " can't be written into " + type + " field");
+            }
+            return new BigDecimal(value.toString());
+        } else if (value instanceof String) {
+            try {
+                return new BigDecimal(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw new DBCException("Bad numeric value '" + value + "' for " + type + " field", e);
+            }
+        }
+        throw unsupportedValue(type, value);
+    }
+
+    private static LocalDate toLocalDate(FieldType type, Object value) throws DBCException {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        } else if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        return toLocalDateTime(type, value).toLocalDate();
+    }
+
+    private static LocalDateTime toLocalDateTime(FieldType type, Object value) throws DBCException {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        } else if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        } else if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().atStartOfDay();
+        } else if (value instanceof Date) {
+            return LocalDateTime.ofInstant(((Date) value).toInstant(), ZoneId.systemDefault());
+        } else if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toLocalDateTime();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toLocalDateTime();
+        } else if (value instanceof String) {
+            try {
+                return Timestamp.valueOf(((String) value).trim()).toLocalDateTime();
+            } catch (IllegalArgumentException e) {
+                throw new DBCException("Bad date/time value '" + value + "' for " + type + " field", e);
+            }
+        }
+        throw unsupportedValue(type, value);
+    }
+
+    private static Instant toInstant(FieldType type, Object value) throws DBCException {
+        if (value instanceof Instant) {
+            return (Instant) value;
+        } else if (value instanceof Date && !(value instanceof java.sql.Date)) {
+            // Timestamp keeps nanos in its instant
+            return ((Date) value).toInstant();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        }
+        return toLocalDateTime(type, value).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+}
@@ -20,6 +20,7 @@ import org.jkiss.code.NotNull;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBPEvaluationContext;
 import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDContent;
 import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
 import org.jkiss.dbeaver.model.data.DBDValueHandler;
 import org.jkiss.dbeaver.model.exec.*;
@@ -36,11 +37,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Bulk loader based on CopyManager
+ * Bulk loader based on CopyManager.
+ * Uses binary COPY format if all target columns have binary encoding, otherwise CSV.
  *
  * //        new CopyManager((BaseConnection) conn)
  * //            .copyIn(
@@ -61,12 +64,19 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
 
     private AttrMapping[] mappings;
 
+    private Method copyInStreamMethod;
+    private PostgreCopyBinaryWriter binaryWriter;
+    private FileOutputStream binaryStream;
+    private Object[] binaryRow;
+
     private int copyBufferSize = 100 * 1024;
+    private int binaryBufferSize = 1024 * 1024;
 
     private static class AttrMapping {
         PostgreTableColumn tableAttr;
         DBDValueHandler valueHandler;
         int srcPos;
+        PostgreCopyBinaryWriter.FieldType binaryType;
 
         AttrMapping(PostgreTableColumn tableAttr, DBDValueHandler valueHandler, int srcPos) {
             this.tableAttr = tableAttr;
@@ -100,20 +110,11 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
 
             // Get method copyIn(final String sql, Reader from, int bufferSize)
             copyInMethod = copyManagerClass.getMethod("copyIn", String.class, Reader.class, Integer.TYPE);
+            // Get method copyIn(final String sql, InputStream from, int bufferSize)
+            copyInStreamMethod = copyManagerClass.getMethod("copyIn", String.class, InputStream.class, Integer.TYPE);
 
             copyManager = copyManagerClass.getConstructor(baseConnectionClass).newInstance(pgConnection);
 
-            File tempFolder = DBWorkbench.getPlatform().getTempFolder(session.getProgressMonitor(), "postgesql-copy-datasets");
-            csvFile = new File(tempFolder, CommonUtils.escapeFileName(table.getFullyQualifiedName(DBPEvaluationContext.DML)) + "-" + System.currentTimeMillis() + ".csv");  //$NON-NLS-1$ //$NON-NLS-2$
-            if (!csvFile.createNewFile()){
-                throw new IOException("Can't create CSV file " + csvFile.getAbsolutePath());
-            }
-
-            csvWriter = new BufferedWriter(
-                new FileWriter(csvFile, StandardCharsets.UTF_8),
-                copyBufferSize
-                );
-
             List<? extends PostgreTableColumn> tableAttrs = CommonUtils.safeList(table.getAttributes(session.getProgressMonitor()));
             tableAttrs.removeIf(a -> a.getOrdinalPosition() < 0);
             mappings = new AttrMapping[tableAttrs.size()];
@@ -126,16 +127,67 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
                     valueHandler,
                     ArrayUtils.indexOf(attributes, attr)
                 );
+                mapping.binaryType = attr.getTypeName() == null ? null : PostgreCopyBinaryWriter.getFieldType(attr.getTypeName());
                 mappings[i] = mapping;
             }
+
+            File tempFolder = DBWorkbench.getPlatform().getTempFolder(session.getProgressMonitor(), "postgesql-copy-datasets");
+            if (isBinaryCopySupported()) {
+                // Values are encoded directly into the binary wire format. No text formatting and parsing on both sides
+                List<PostgreCopyBinaryWriter.FieldType> fieldTypes = new ArrayList<>();
+                for (AttrMapping mapping : mappings) {
+                    if (mapping.srcPos >= 0) {
+                        fieldTypes.add(mapping.binaryType);
+                    }
+                }
+                csvFile = createDataFile(tempFolder, ".bin");
+                binaryStream = new FileOutputStream(csvFile);
+                binaryWriter = new PostgreCopyBinaryWriter(
+                    binaryStream.getChannel(),
+                    fieldTypes.toArray(new PostgreCopyBinaryWriter.FieldType[0]),
+                    binaryBufferSize);
+                binaryWriter.writeHeader();
+                binaryRow = new Object[fieldTypes.size()];
+            } else {
+                csvFile = createDataFile(tempFolder, ".csv");
+                csvWriter = new BufferedWriter(
+                    new FileWriter(csvFile, StandardCharsets.UTF_8),
+                    copyBufferSize
+                );
+            }
         } catch (Exception e) {
             throw new DBCException("Can't instantiate CopyManager", e);
         }
         return this;
     }
 
+    private File createDataFile(File tempFolder, String extension) throws IOException {
+        File dataFile = new File(tempFolder, CommonUtils.escapeFileName(table.getFullyQualifiedName(DBPEvaluationContext.DML)) + "-" + System.currentTimeMillis() + extension);  //$NON-NLS-1$
+        if (!dataFile.createNewFile()) {
+            throw new IOException("Can't create COPY data file " + dataFile.getAbsolutePath());
+        }
+        return dataFile;
+    }
+
+    private boolean isBinaryCopySupported() {
+        boolean hasColumns = false;
+        for (AttrMapping mapping : mappings) {
+            if (mapping.srcPos >= 0) {
+                if (mapping.binaryType == null) {
+                    return false;
+                }
+                hasColumns = true;
+            }
+        }
+        return hasColumns;
+    }
+
     @Override
     public void addRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        if (binaryWriter != null) {
+            addBinaryRow(session, attributeValues);
+            return;
+        }
         StringBuilder line = new StringBuilder();
         boolean hasCell = false;
         for (AttrMapping mapping : mappings) {
@@ -165,6 +217,31 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
         }
     }
 
+    private void addBinaryRow(@NotNull DBCSession session, @NotNull Object[] attributeValues) throws DBCException {
+        int index = 0;
+        for (AttrMapping mapping : mappings) {
+            if (mapping.srcPos >= 0) {
+                Object srcValue = attributeValues[mapping.srcPos];
+                if (DBUtils.isNullValue(srcValue)) {
+                    srcValue = null;
+                } else if ((mapping.binaryType == PostgreCopyBinaryWriter.FieldType.TEXT || mapping.binaryType == PostgreCopyBinaryWriter.FieldType.JSONB) &&
+                    !(srcValue instanceof String) && !(srcValue instanceof DBDContent))
+                {
+                    // Content (LOB) values are read from their storage by binary writer
+                    srcValue = mapping.valueHandler.getValueDisplayString(mapping.tableAttr, srcValue, DBDDisplayFormat.NATIVE);
+                }
+                binaryRow[index++] = srcValue;
+            }
+        }
+        try {
+            binaryWriter.writeRow(session.getProgressMonitor(), binaryRow);
+        } catch (DBCException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DBCException("Error writing COPY binary row", e);
+        }
+    }
+
     private String convertStringValueToCell(String strValue) {
         return '"' +
             strValue.replace("\"", "\\\"") +
@@ -174,6 +251,10 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
     @Override
     public void flushRows(@NotNull DBCSession session) throws DBCException {
         try {
+            if (binaryWriter != null) {
+                binaryWriter.flush();
+                return;
+            }
             csvWriter.flush();
         } catch (IOException e) {
             throw new DBCException("Error saving CSV data", e);
@@ -182,24 +263,49 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
 
     @Override
     public void finishBulkLoad(@NotNull DBCSession session) throws DBCException {
+        boolean binaryMode = binaryWriter != null;
         try {
-            csvWriter.flush();
-            csvWriter.close();
+            if (binaryMode) {
+                binaryWriter.writeTrailer();
+                binaryWriter.flush();
+                binaryStream.close();
+            } else {
+                csvWriter.flush();
+                csvWriter.close();
+            }
         } catch (IOException e) {
+            if (binaryMode) {
+                throw new DBCException("Error saving COPY binary data", e);
+            }
             log.debug(e);
         }
         csvWriter = null;
+        binaryWriter = null;
+        binaryStream = null;
 
         String tableFQN = table.getFullyQualifiedName(DBPEvaluationContext.DML);
 
         session.getProgressMonitor().subTask("Copy into " + tableFQN);
 
-        String queryText = "COPY " + tableFQN + " FROM STDIN (FORMAT CSV)";
-
         try {
             Object rowCount;
-            try (Reader csvReader = new FileReader(csvFile, StandardCharsets.UTF_8)) {
-                rowCount = copyInMethod.invoke(copyManager, queryText, csvReader, copyBufferSize);
+            if (binaryMode) {
+                StringBuilder columns = new StringBuilder();
+                for (AttrMapping mapping : mappings) {
+                    if (mapping.srcPos >= 0) {
+                        if (columns.length() > 0) columns.append(',');
+                        columns.append(DBUtils.getQuotedIdentifier(mapping.tableAttr));
+                    }
+                }
+                String queryText = "COPY " + tableFQN + " (" + columns + ") FROM STDIN (FORMAT BINARY)";
+                try (InputStream dataStream = new FileInputStream(csvFile)) {
+                    rowCount = copyInStreamMethod.invoke(copyManager, queryText, dataStream, copyBufferSize);
+                }
+            } else {
+                String queryText = "COPY " + tableFQN + " FROM STDIN (FORMAT CSV)";
+                try (Reader csvReader = new FileReader(csvFile, StandardCharsets.UTF_8)) {
+                    rowCount = copyInMethod.invoke(copyManager, queryText, csvReader, copyBufferSize);
+                }
             }
 
             // Commit changes
@@ -209,7 +315,7 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
                 txnManager.commit(session);
             }
 
-            log.debug("CSV has been imported (" + rowCount + ")");
+            log.debug((binaryMode ? "Binary data" : "CSV") + " has been imported (" + rowCount + ")");
         } catch (Throwable e) {
             if (e instanceof InvocationTargetException) {
                 e = ((InvocationTargetException) e).getTargetException();
@@ -221,6 +327,14 @@ public class PostgreCopyLoader implements DBSDataBulkLoader, DBSDataBulkLoader.B
     @Override
 
     public void close() {
+        if (binaryStream != null) {
+            try {
+                binaryStream.close();
+            } catch (IOException e) {
+                log.debug(e);
+            }
+            binaryStream = null;
+        }
         if (csvFile != null && csvFile.exists()) {
             if (!csvFile.delete()) {
                 log.debug("Error deleting CSV file " + csvFile.getAbsolutePath());
@@ -1204,7 +1204,23 @@ public class SQLCompletionAnalyzer implements DBRRunnableParametrized<DBRProgres
         assistantParams.setCaseSensitive(request.getWordDetector().isQuoted(objectName));
         assistantParams.setGlobalSearch(request.getContext().isSearchGlobally());
         assistantParams.setMaxResults(MAX_STRUCT_PROPOSALS);
-        Collection<DBSObjectReference> references = assistant.findObjectsByMask(monitor, request.getContext().getExecutionContext(), assistantParams);
+        Collection<DBSObjectReference> references = null;
+        DBPDataSource dataSource = request.getContext().getDataSource();
+        boolean useLocalIndex = dataSource != null && request.getContext().isUseLocalIndex();
+        if (useLocalIndex) {
+            // Try local index first. Server search is used if index is not ready, expired or has no matches
+            references = SQLObjectNameIndexManager.getInstance().findObjects(monitor, dataSource, assistantParams);
+        }
+        if (CommonUtils.isEmpty(references)) {
+            references = assistant.findObjectsByMask(monitor, request.getContext().getExecutionContext(), assistantParams);
+            if (references.isEmpty() && useLocalIndex) {
+                // Nothing contains the typed word. Try abbreviations and typos
+                List<DBSObjectReference> fuzzyReferences = SQLObjectNameIndexManager.getInstance().findFuzzyObjects(monitor, dataSource, assistantParams);
+                if (fuzzyReferences != null) {
+                    references = fuzzyReferences;
+                }
+            }
+        }
         for (DBSObjectReference reference : references) {
             proposals.add(
                 makeProposalsFromObject(
@@ -0,0 +1,485 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.sql.completion;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.text.TextUtils;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Local index of database object names used by SQL completion.
+ * <p>
+ * Entries are kept in an immutable array sorted by lower-cased name. Prefix masks are resolved with binary search,
+ * %substring% masks are resolved with a single search over all names joined together, other masks with a linear scan.
+ * Names joined together are built lazily by the first substring lookup after modification.
+ * Modifications replace the whole array so lookups never need to lock.
+ */
+public class SQLObjectNameIndex {
+
+    private static final int INDEX_MAGIC = 0x44424958;
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_DESCRIPTION_LENGTH = 1000;
+
+    private static final char MATCH_ANY = '%';
+    private static final char MATCH_ONE = '_';
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = (o1, o2) -> {
+        int res = o1.lowerName.compareTo(o2.lowerName);
+        if (res == 0) {
+            res = o1.name.compareTo(o2.name);
+        }
+        if (res == 0) {
+            res = Arrays.compare(o1.containerPath, o2.containerPath);
+        }
+        if (res == 0) {
+            res = o1.typeName.compareTo(o2.typeName);
+        }
+        return res;
+    };
+
+    public static class Entry {
+        private final String name;
+        private final String lowerName;
+        private final String[] containerPath;
+        private final String typeName;
+        private final String description;
+
+        public Entry(@NotNull String name, @NotNull String[] containerPath, @NotNull String typeName, @Nullable String description) {
+            this.name = name;
+            this.lowerName = name.toLowerCase(Locale.ENGLISH);
+            this.containerPath = containerPath;
+            this.typeName = typeName;
+            this.description = description == null || description.length() <= MAX_DESCRIPTION_LENGTH ?
+                description : description.substring(0, MAX_DESCRIPTION_LENGTH);
+        }
+
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        @NotNull
+        public String[] getContainerPath() {
+            return containerPath;
+        }
+
+        @NotNull
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @Nullable
+        public String getDescription() {
+            return description;
+        }
+
+        boolean isInContainer(@NotNull String[] path) {
+            if (path.length > containerPath.length) {
+                return false;
+            }
+            for (int i = 0; i < path.length; i++) {
+                if (!path[i].equals(containerPath[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(".", containerPath) + (containerPath.length == 0 ? "" : ".") + name + " (" + typeName + ")";
+        }
+    }
+
+    /**
+     * All lower-cased names joined in a single string
+     */
+    private static class NameBuffer {
+        private final Entry[] entries;
+        private final String names;
+        private final int[] offsets;
+
+        NameBuffer(@NotNull Entry[] entries) {
+            this.entries = entries;
+            this.offsets = new int[entries.length];
+            StringBuilder buffer = new StringBuilder(entries.length * 16);
+            for (int i = 0; i < entries.length; i++) {
+                offsets[i] = buffer.length();
+                // Separator can't be a part of the searched substring
+                buffer.append(entries[i].lowerName).append('\n');
+            }
+            this.names = buffer.toString();
+        }
+    }
+
+    private final Object modifyLock = new Object();
+    private volatile Entry[] entries = new Entry[0];
+    private volatile NameBuffer nameBuffer;
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Replaces index contents
+     */
+    public void setEntries(@NotNull Collection<Entry> newEntries) {
+        Entry[] sorted = internEntries(newEntries).toArray(new Entry[0]);
+        Arrays.sort(sorted, ENTRY_COMPARATOR);
+        synchronized (modifyLock) {
+            updateEntries(sorted);
+        }
+    }
+
+    public void addEntry(@NotNull Entry entry) {
+        synchronized (modifyLock) {
+            Entry[] current = entries;
+            int pos = Arrays.binarySearch(current, entry, ENTRY_COMPARATOR);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -(pos + 1);
+            Entry[] updated = new Entry[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, pos);
+            updated[pos] = entry;
+            System.arraycopy(current, pos, updated, pos + 1, current.length - pos);
+            updateEntries(updated);
+        }
+    }
+
+    /**
+     * Removes object with specified name from the specified container
+     */
+    public void removeEntry(@NotNull String name, @NotNull String[] containerPath) {
+        synchronized (modifyLock) {
+            Entry[] current = entries;
+            String lowerName = name.toLowerCase(Locale.ENGLISH);
+            List<Entry> result = new ArrayList<>(current.length);
+            for (int i = 0; i < current.length; i++) {
+                Entry entry = current[i];
+                if (entry.lowerName.equals(lowerName) && entry.name.equals(name) && Arrays.equals(entry.containerPath, containerPath)) {
+                    continue;
+                }
+                result.add(entry);
+            }
+            if (result.size() != current.length) {
+                updateEntries(result.toArray(new Entry[0]));
+            }
+        }
+    }
+
+    /**
+     * Removes all objects which belong to the specified container or its children
+     */
+    public void removeContainer(@NotNull String[] containerPath) {
+        synchronized (modifyLock) {
+            Entry[] current = entries;
+            List<Entry> result = new ArrayList<>(current.length);
+            for (Entry entry : current) {
+                if (!entry.isInContainer(containerPath)) {
+                    result.add(entry);
+                }
+            }
+            if (result.size() != current.length) {
+                updateEntries(result.toArray(new Entry[0]));
+            }
+        }
+    }
+
+    private void updateEntries(@NotNull Entry[] newEntries) {
+        entries = newEntries;
+        // Incremental updates come in bursts, so name buffer is rebuilt on the next substring lookup
+        nameBuffer = null;
+    }
+
+    /**
+     * Finds objects by LIKE mask.
+     *
+     * @param mask          name mask. Supports % and _ wildcards.
+     * @param caseSensitive match name case
+     * @param containerPath optional container filter. Objects of container children are also included.
+     * @param typeNames     optional object types filter
+     * @param maxResults    maximum number of results
+     * @return list of matched entries or null if mask is not supported by index
+     */
+    @Nullable
+    public List<Entry> findEntries(
+        @NotNull String mask,
+        boolean caseSensitive,
+        @Nullable String[] containerPath,
+        @Nullable Collection<String> typeNames,
+        int maxResults)
+    {
+        if (mask.indexOf('\\') != -1) {
+            // Escaped wildcards
+            return null;
+        }
+        Entry[] current = entries;
+        String lowerMask = mask.toLowerCase(Locale.ENGLISH);
+        String prefix = getMaskPrefix(lowerMask);
+        List<Entry> result = new ArrayList<>();
+
+        String substring = prefix.isEmpty() ? getMaskSubstring(lowerMask) : null;
+        if (substring != null) {
+            // Search substring in all names at once. It is much faster than checking names one by one.
+            NameBuffer buffer = getNameBuffer(current);
+            for (int searchPos = 0; result.size() < maxResults; ) {
+                int matchPos = buffer.names.indexOf(substring, searchPos);
+                if (matchPos == -1) {
+                    break;
+                }
+                int entryIndex = Arrays.binarySearch(buffer.offsets, matchPos);
+                if (entryIndex < 0) {
+                    entryIndex = -(entryIndex + 1) - 1;
+                }
+                if (matchesFilter(current[entryIndex], mask, caseSensitive, containerPath, typeNames)) {
+                    result.add(current[entryIndex]);
+                }
+                searchPos = entryIndex + 1 < buffer.offsets.length ? buffer.offsets[entryIndex + 1] : buffer.names.length();
+            }
+            return result;
+        }
+
+        boolean exactPrefix = prefix.length() == lowerMask.length() - 1 && lowerMask.charAt(lowerMask.length() - 1) == MATCH_ANY;
+        for (int i = prefix.isEmpty() ? 0 : findFirstWithPrefix(current, prefix); i < current.length && result.size() < maxResults; i++) {
+            Entry entry = current[i];
+            if (!prefix.isEmpty() && !entry.lowerName.startsWith(prefix)) {
+                break;
+            }
+            if (!exactPrefix && !matchesMask(entry.lowerName, lowerMask)) {
+                continue;
+            }
+            if (matchesFilter(entry, mask, caseSensitive, containerPath, typeNames)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds objects which names contain all characters of the %substring% mask in the same order.
+     * Matches abbreviations and typos like "cstord" for "customer_order".
+     * Results are ordered by {@link TextUtils#fuzzyScore(CharSequence, CharSequence)}, the best matches first.
+     *
+     * @return list of matched entries or null if mask is not a %substring% mask
+     */
+    @Nullable
+    public List<Entry> findFuzzyEntries(
+        @NotNull String mask,
+        @Nullable String[] containerPath,
+        @Nullable Collection<String> typeNames,
+        int maxResults)
+    {
+        String query = mask.indexOf('\\') == -1 ? getMaskSubstring(mask.toLowerCase(Locale.ENGLISH)) : null;
+        if (CommonUtils.isEmpty(query)) {
+            return null;
+        }
+        List<Entry> matched = new ArrayList<>();
+        Map<Entry, Integer> scores = new IdentityHashMap<>();
+        for (Entry entry : entries) {
+            if (isSubsequence(query, entry.lowerName) && matchesFilter(entry, mask, false, containerPath, typeNames)) {
+                matched.add(entry);
+                scores.put(entry, TextUtils.fuzzyScore(entry.lowerName, query, Locale.ENGLISH));
+            }
+        }
+        // Stable sort, entries with the same score stay ordered by name
+        matched.sort((o1, o2) -> Integer.compare(scores.get(o2), scores.get(o1)));
+        return matched.size() <= maxResults ? matched : new ArrayList<>(matched.subList(0, maxResults));
+    }
+
+    private static boolean isSubsequence(@NotNull String query, @NotNull String str) {
+        int strPos = 0;
+        for (int i = 0; i < query.length(); i++) {
+            strPos = str.indexOf(query.charAt(i), strPos) + 1;
+            if (strPos == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesFilter(
+        @NotNull Entry entry,
+        @NotNull String mask,
+        boolean caseSensitive,
+        @Nullable String[] containerPath,
+        @Nullable Collection<String> typeNames)
+    {
+        return
+            (!caseSensitive || matchesMask(entry.name, mask)) &&
+            (containerPath == null || entry.isInContainer(containerPath)) &&
+            (typeNames == null || typeNames.contains(entry.typeName));
+    }
+
+    @NotNull
+    private NameBuffer getNameBuffer(@NotNull Entry[] current) {
+        NameBuffer buffer = nameBuffer;
+        if (buffer == null || buffer.entries != current) {
+            buffer = new NameBuffer(current);
+            nameBuffer = buffer;
+        }
+        return buffer;
+    }
+
+    private static String getMaskPrefix(String mask) {
+        for (int i = 0; i < mask.length(); i++) {
+            char c = mask.charAt(i);
+            if (c == MATCH_ANY || c == MATCH_ONE) {
+                return mask.substring(0, i);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns substring of %substring% mask or null if mask has other form
+     */
+    @Nullable
+    private static String getMaskSubstring(String mask) {
+        if (mask.length() < 2 || mask.charAt(0) != MATCH_ANY || mask.charAt(mask.length() - 1) != MATCH_ANY) {
+            return null;
+        }
+        String substring = mask.substring(1, mask.length() - 1);
+        if (substring.indexOf(MATCH_ANY) != -1 || substring.indexOf(MATCH_ONE) != -1) {
+            return null;
+        }
+        return substring;
+    }
+
+    private static int findFirstWithPrefix(Entry[] entries, String prefix) {
+        int low = 0, high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].lowerName.compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Matches string against LIKE pattern
+     */
+    static boolean matchesMask(@NotNull String str, @NotNull String mask) {
+        int strPos = 0, maskPos = 0;
+        int anyMaskPos = -1, anyStrPos = 0;
+        while (strPos < str.length()) {
+            if (maskPos < mask.length()) {
+                char mc = mask.charAt(maskPos);
+                if (mc == MATCH_ANY) {
+                    anyMaskPos = maskPos++;
+                    anyStrPos = strPos;
+                    continue;
+                }
+                if (mc == MATCH_ONE || mc == str.charAt(strPos)) {
+                    strPos++;
+                    maskPos++;
+                    continue;
+                }
+            }
+            if (anyMaskPos == -1) {
+                return false;
+            }
+            maskPos = anyMaskPos + 1;
+            strPos = ++anyStrPos;
+        }
+        while (maskPos < mask.length() && mask.charAt(maskPos) == MATCH_ANY) {
+            maskPos++;
+        }
+        return maskPos == mask.length();
+    }
+
+    /**
+     * Shares container paths and type names between entries
+     */
+    private static List<Entry> internEntries(Collection<Entry> source) {
+        Map<String, String> strings = new HashMap<>();
+        Map<List<String>, String[]> paths = new HashMap<>();
+        List<Entry> result = new ArrayList<>(source.size());
+        for (Entry entry : source) {
+            String[] path = paths.computeIfAbsent(Arrays.asList(entry.containerPath), p -> {
+                String[] newPath = new String[p.size()];
+                for (int i = 0; i < newPath.length; i++) {
+                    newPath[i] = strings.computeIfAbsent(p.get(i), s -> s);
+                }
+                return newPath;
+            });
+            String typeName = strings.computeIfAbsent(entry.typeName, s -> s);
+            if (path == entry.containerPath && typeName == entry.typeName) {
+                result.add(entry);
+            } else {
+                result.add(new Entry(entry.name, path, typeName, entry.description));
+            }
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////
+    // Persistence
+
+    public void saveIndex(@NotNull OutputStream stream) throws IOException {
+        Entry[] current = entries;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeInt(current.length);
+        for (Entry entry : current) {
+            out.writeUTF(entry.name);
+            out.writeShort(entry.containerPath.length);
+            for (String pathItem : entry.containerPath) {
+                out.writeUTF(pathItem);
+            }
+            out.writeUTF(entry.typeName);
+            out.writeUTF(CommonUtils.notEmpty(entry.description));
+        }
+        out.flush();
+    }
+
+    public void loadIndex(@NotNull InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != INDEX_MAGIC) {
+            throw new IOException("Bad object name index format");
+        }
+        int version = in.readInt();
+        if (version != INDEX_VERSION) {
+            throw new IOException("Unsupported object name index version: " + version);
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad object name index size: " + count);
+        }
+        List<Entry> loaded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            String[] path = new String[in.readShort()];
+            for (int k = 0; k < path.length; k++) {
+                path[k] = in.readUTF();
+            }
+            String typeName = in.readUTF();
+            String description = in.readUTF();
+            loaded.add(new Entry(name, path, typeName, description.isEmpty() ? null : description));
+        }
+        setEntries(loaded);
+    }
+
+}
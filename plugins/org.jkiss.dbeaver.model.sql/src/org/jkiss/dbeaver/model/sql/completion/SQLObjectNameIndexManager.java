@@ -0,0 +1,591 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.sql.completion;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.*;
+import org.jkiss.dbeaver.model.app.DBPDataSourceRegistry;
+import org.jkiss.dbeaver.model.app.DBPProject;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContextDefaults;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.*;
+import org.jkiss.dbeaver.model.struct.rdb.DBSProcedure;
+import org.jkiss.dbeaver.model.struct.rdb.DBSProcedureContainer;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains local object name indexes of connected data sources.
+ * <p>
+ * Index is loaded from the project metadata folder and then rebuilt from the server in background
+ * once per connection. After that it is kept up to date with object add/remove events.
+ * Index is released on disconnect.
+ */
+public class SQLObjectNameIndexManager implements DBPEventListener {
+
+    private static final Log log = Log.getLog(SQLObjectNameIndexManager.class);
+
+    private static final String INDEX_FOLDER = "completion-index";
+    private static final String INDEX_FILE_EXT = ".idx";
+    private static final int MAX_INDEX_SIZE = 500000;
+    // Index is rebuilt if it is older than this. Expired index is not used for search, because
+    // it can't contain objects created outside (e.g. by other clients) since it was built.
+    private static final long MAX_INDEX_AGE = 10 * 60 * 1000;
+
+    private static SQLObjectNameIndexManager instance;
+
+    public static synchronized SQLObjectNameIndexManager getInstance() {
+        if (instance == null) {
+            instance = new SQLObjectNameIndexManager();
+        }
+        return instance;
+    }
+
+    private final Map<DBPDataSourceContainer, IndexInfo> indexes = new HashMap<>();
+    private final Set<DBPDataSourceRegistry> registries = new HashSet<>();
+
+    private SQLObjectNameIndexManager() {
+    }
+
+    /**
+     * Returns index of the specified data source or null if index is not ready yet.
+     * Schedules index load/refresh if needed.
+     */
+    @Nullable
+    public SQLObjectNameIndex getIndex(@NotNull DBPDataSource dataSource) {
+        DBPDataSourceContainer container = dataSource.getContainer();
+        IndexInfo info;
+        synchronized (indexes) {
+            info = indexes.get(container);
+            if (info == null) {
+                info = new IndexInfo(container);
+                indexes.put(container, info);
+                DBPDataSourceRegistry registry = container.getRegistry();
+                if (registries.add(registry)) {
+                    registry.addDataSourceListener(this);
+                }
+            }
+        }
+        if (info.needsRefresh() && container.isConnected()) {
+            info.scheduleRefresh();
+        }
+        return info.loaded && !info.isExpired() ? info.index : null;
+    }
+
+    /**
+     * Finds objects in local index.
+     *
+     * @return found object references or null if index can't be used for this search
+     */
+    @Nullable
+    public List<DBSObjectReference> findObjects(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBPDataSource dataSource,
+        @NotNull DBSStructureAssistant.ObjectsSearchParams params)
+    {
+        return findObjects(monitor, dataSource, params, false);
+    }
+
+    /**
+     * Finds objects by abbreviations and typos in local index, as completion of loaded objects does.
+     * Should be used if neither local index nor server have objects containing the mask.
+     *
+     * @return found object references or null if index can't be used for this search
+     */
+    @Nullable
+    public List<DBSObjectReference> findFuzzyObjects(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBPDataSource dataSource,
+        @NotNull DBSStructureAssistant.ObjectsSearchParams params)
+    {
+        if (params.isCaseSensitive()) {
+            return null;
+        }
+        return findObjects(monitor, dataSource, params, true);
+    }
+
+    @Nullable
+    private List<DBSObjectReference> findObjects(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBPDataSource dataSource,
+        @NotNull DBSStructureAssistant.ObjectsSearchParams params,
+        boolean fuzzy)
+    {
+        SQLObjectNameIndex index = getIndex(dataSource);
+        if (index == null) {
+            return null;
+        }
+        String[] containerPath = null;
+        DBSObject parentObject = params.getParentObject();
+        if (parentObject != null && !(parentObject instanceof DBPDataSource)) {
+            containerPath = getObjectPath(parentObject);
+        } else if (!params.isGlobalSearch()) {
+            containerPath = getDefaultContainerPath(dataSource);
+        }
+        Map<String, DBSObjectType> types = new LinkedHashMap<>();
+        for (DBSObjectType type : params.getObjectTypes()) {
+            types.put(type.getTypeName(), type);
+        }
+        List<SQLObjectNameIndex.Entry> entries = fuzzy ?
+            index.findFuzzyEntries(
+                params.getMask(),
+                containerPath,
+                types.keySet(),
+                params.getMaxResults()) :
+            index.findEntries(
+                params.getMask(),
+                params.isCaseSensitive(),
+                containerPath,
+                types.keySet(),
+                params.getMaxResults());
+        if (entries == null) {
+            return null;
+        }
+        List<DBSObjectReference> result = new ArrayList<>(entries.size());
+        for (SQLObjectNameIndex.Entry entry : entries) {
+            result.add(new IndexedObjectReference(monitor, dataSource, entry, types.get(entry.getTypeName())));
+        }
+        return result;
+    }
+
+    @Override
+    public void handleDataSourceEvent(@NotNull DBPEvent event) {
+        DBSObject object = event.getObject();
+        if (object instanceof DBPDataSourceContainer) {
+            handleContainerEvent(event, (DBPDataSourceContainer) object);
+            return;
+        }
+        if (object == null || object instanceof DBPDataSource || object.getDataSource() == null) {
+            return;
+        }
+        IndexInfo info;
+        synchronized (indexes) {
+            info = indexes.get(object.getDataSource().getContainer());
+        }
+        if (info == null) {
+            return;
+        }
+        switch (event.getAction()) {
+            case OBJECT_ADD: {
+                DBSObjectType objectType = getIndexedObjectType(object);
+                if (objectType != null) {
+                    SQLObjectNameIndex.Entry entry = makeEntry(object, objectType);
+                    info.applyChange(index -> index.addEntry(entry));
+                }
+                break;
+            }
+            case OBJECT_REMOVE: {
+                String name = object.getName();
+                String[] parentPath = getObjectPath(object.getParentObject());
+                String[] objectPath = getObjectPath(object);
+                info.applyChange(index -> {
+                    index.removeEntry(name, parentPath);
+                    index.removeContainer(objectPath);
+                });
+                break;
+            }
+            case OBJECT_UPDATE:
+                if (event.getData() == DBPEvent.RENAME) {
+                    // Old name is unknown at this point
+                    info.refreshed = false;
+                    info.scheduleRefresh();
+                }
+                break;
+        }
+    }
+
+    private void handleContainerEvent(@NotNull DBPEvent event, @NotNull DBPDataSourceContainer container) {
+        boolean removed = event.getAction() == DBPEvent.Action.OBJECT_REMOVE;
+        boolean disconnected = event.getAction() == DBPEvent.Action.OBJECT_UPDATE && Boolean.FALSE.equals(event.getEnabled());
+        if (!removed && !disconnected) {
+            return;
+        }
+        IndexInfo info;
+        synchronized (indexes) {
+            // Release index memory. On the next connect it is loaded from the file and rebuilt again.
+            info = indexes.remove(container);
+        }
+        if (info != null) {
+            info.cancelRefresh();
+            if (removed) {
+                info.deleteIndexFile();
+            }
+        }
+    }
+
+    @Nullable
+    private static DBSObjectType getIndexedObjectType(@NotNull DBSObject object) {
+        DBSStructureAssistant assistant = DBUtils.getAdapter(DBSStructureAssistant.class, object.getDataSource());
+        if (assistant == null) {
+            return null;
+        }
+        for (DBSObjectType type : assistant.getAutoCompleteObjectTypes()) {
+            Class<? extends DBSObject> typeClass = type.getTypeClass();
+            if (typeClass != null && typeClass.isInstance(object)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    private static SQLObjectNameIndex.Entry makeEntry(@NotNull DBSObject object, @NotNull DBSObjectType objectType) {
+        return new SQLObjectNameIndex.Entry(
+            object.getName(),
+            getObjectPath(object.getParentObject()),
+            objectType.getTypeName(),
+            object.getDescription());
+    }
+
+    @NotNull
+    private static SQLObjectNameIndex.Entry makeEntry(@NotNull DBSObjectReference reference) {
+        return new SQLObjectNameIndex.Entry(
+            reference.getName(),
+            getObjectPath(reference.getContainer()),
+            reference.getObjectType().getTypeName(),
+            reference.getObjectDescription());
+    }
+
+    /**
+     * Object path without data source
+     */
+    @NotNull
+    private static String[] getObjectPath(@Nullable DBSObject object) {
+        List<String> path = new ArrayList<>();
+        for (DBSObject obj = object; obj != null && !(obj instanceof DBPDataSource) && !(obj instanceof DBPDataSourceContainer); obj = obj.getParentObject()) {
+            path.add(0, obj.getName());
+        }
+        return path.toArray(new String[0]);
+    }
+
+    @Nullable
+    private static String[] getDefaultContainerPath(@NotNull DBPDataSource dataSource) {
+        DBCExecutionContext executionContext = DBUtils.getDefaultContext(dataSource, true);
+        if (executionContext == null) {
+            return null;
+        }
+        DBCExecutionContextDefaults<?, ?> contextDefaults = executionContext.getContextDefaults();
+        if (contextDefaults == null) {
+            return null;
+        }
+        DBSObject defaultObject = contextDefaults.getDefaultSchema();
+        if (defaultObject == null) {
+            defaultObject = contextDefaults.getDefaultCatalog();
+        }
+        return defaultObject == null ? null : getObjectPath(defaultObject);
+    }
+
+    private class IndexInfo {
+        private final DBPDataSourceContainer container;
+        private final SQLObjectNameIndex index = new SQLObjectNameIndex();
+        private volatile boolean loaded;
+        private volatile boolean refreshed;
+        // Time of the last refresh attempt and of the last successful rebuild (or of the loaded index file)
+        private volatile long refreshStartTime;
+        private volatile long rebuildTime;
+        private IndexRefreshJob refreshJob;
+        // Changes received while index is rebuilt. They are applied to the rebuilt index again.
+        private List<Consumer<SQLObjectNameIndex>> rebuildChanges;
+
+        IndexInfo(@NotNull DBPDataSourceContainer container) {
+            this.container = container;
+        }
+
+        boolean needsRefresh() {
+            return !refreshed || System.currentTimeMillis() - refreshStartTime > MAX_INDEX_AGE;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - rebuildTime > MAX_INDEX_AGE;
+        }
+
+        synchronized void scheduleRefresh() {
+            if (refreshJob == null) {
+                refreshJob = new IndexRefreshJob(this);
+                refreshJob.schedule();
+            }
+        }
+
+        synchronized void refreshFinished() {
+            refreshJob = null;
+        }
+
+        synchronized void cancelRefresh() {
+            if (refreshJob != null) {
+                refreshJob.cancel();
+            }
+        }
+
+        synchronized void applyChange(@NotNull Consumer<SQLObjectNameIndex> change) {
+            if (rebuildChanges != null) {
+                rebuildChanges.add(change);
+            }
+            if (loaded) {
+                change.accept(index);
+            }
+        }
+
+        @Nullable
+        Path getIndexFile(boolean create) {
+            DBPProject project = container.getProject();
+            if (project == null) {
+                return null;
+            }
+            Path metadataFolder = project.getMetadataFolder(create);
+            if (metadataFolder == null) {
+                return null;
+            }
+            return metadataFolder.resolve(INDEX_FOLDER).resolve(CommonUtils.escapeFileName(container.getId()) + INDEX_FILE_EXT);
+        }
+
+        void loadIndex() {
+            Path indexFile = getIndexFile(false);
+            if (indexFile == null || !Files.exists(indexFile)) {
+                return;
+            }
+            try (InputStream is = new GZIPInputStream(Files.newInputStream(indexFile))) {
+                index.loadIndex(is);
+                rebuildTime = Files.getLastModifiedTime(indexFile).toMillis();
+                loaded = true;
+            } catch (IOException e) {
+                log.debug("Error loading object name index of '" + container.getName() + "'", e);
+            }
+        }
+
+        void saveIndex() {
+            Path indexFile = getIndexFile(true);
+            if (indexFile == null) {
+                return;
+            }
+            try {
+                Files.createDirectories(indexFile.getParent());
+                Path tmpFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+                try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(tmpFile))) {
+                    index.saveIndex(os);
+                }
+                Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.debug("Error saving object name index of '" + container.getName() + "'", e);
+            }
+        }
+
+        void deleteIndexFile() {
+            Path indexFile = getIndexFile(false);
+            if (indexFile != null) {
+                try {
+                    Files.deleteIfExists(indexFile);
+                } catch (IOException e) {
+                    log.debug("Error deleting object name index of '" + container.getName() + "'", e);
+                }
+            }
+        }
+
+        void rebuildIndex(@NotNull DBRProgressMonitor monitor) throws DBException {
+            DBPDataSource dataSource = container.getDataSource();
+            if (dataSource == null) {
+                return;
+            }
+            DBSStructureAssistant assistant = DBUtils.getAdapter(DBSStructureAssistant.class, dataSource);
+            DBCExecutionContext executionContext = DBUtils.getDefaultContext(dataSource, true);
+            if (assistant == null || executionContext == null) {
+                return;
+            }
+            DBSObjectType[] objectTypes = assistant.getAutoCompleteObjectTypes();
+            DBSStructureAssistant.ObjectsSearchParams params = new DBSStructureAssistant.ObjectsSearchParams(objectTypes, "%");
+            params.setGlobalSearch(true);
+            params.setMaxResults(MAX_INDEX_SIZE);
+
+            synchronized (this) {
+                rebuildChanges = new ArrayList<>();
+            }
+            try {
+                List<DBSObjectReference> references = assistant.findObjectsByMask(monitor, executionContext, params);
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                List<SQLObjectNameIndex.Entry> entries = new ArrayList<>(references.size());
+                for (DBSObjectReference reference : references) {
+                    if (reference.getObjectType() != null) {
+                        entries.add(makeEntry(reference));
+                    }
+                }
+                synchronized (this) {
+                    index.setEntries(entries);
+                    // Server results may not include changes made during the search
+                    for (Consumer<SQLObjectNameIndex> change : rebuildChanges) {
+                        change.accept(index);
+                    }
+                    rebuildTime = System.currentTimeMillis();
+                    loaded = true;
+                }
+            } finally {
+                synchronized (this) {
+                    rebuildChanges = null;
+                }
+            }
+            saveIndex();
+        }
+    }
+
+    private static class IndexRefreshJob extends AbstractJob {
+        private final IndexInfo info;
+
+        IndexRefreshJob(@NotNull IndexInfo info) {
+            super("Build object name index of '" + info.container.getName() + "'");
+            this.info = info;
+            setSystem(true);
+            setUser(false);
+        }
+
+        @Override
+        protected IStatus run(DBRProgressMonitor monitor) {
+            try {
+                if (!info.loaded) {
+                    info.loadIndex();
+                }
+                if (info.needsRefresh() && info.container.isConnected()) {
+                    // Failed rebuilds are retried after reconnect or when index expires
+                    info.refreshed = true;
+                    info.refreshStartTime = System.currentTimeMillis();
+                    info.rebuildIndex(monitor);
+                }
+            } catch (Exception e) {
+                log.debug("Error building object name index of '" + info.container.getName() + "'", e);
+            } finally {
+                info.refreshFinished();
+            }
+            return Status.OK_STATUS;
+        }
+    }
+
+    /**
+     * Reference to the indexed object. Container is resolved on demand.
+     */
+    private static class IndexedObjectReference implements DBSObjectReference {
+        private final DBRProgressMonitor monitor;
+        private final DBPDataSource dataSource;
+        private final SQLObjectNameIndex.Entry entry;
+        private final DBSObjectType type;
+        private DBSObject container;
+        private boolean containerResolved;
+
+        IndexedObjectReference(@NotNull DBRProgressMonitor monitor, @NotNull DBPDataSource dataSource, @NotNull SQLObjectNameIndex.Entry entry, @NotNull DBSObjectType type) {
+            this.monitor = monitor;
+            this.dataSource = dataSource;
+            this.entry = entry;
+            this.type = type;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return entry.getName();
+        }
+
+        @Override
+        public DBSObject getContainer() {
+            if (!containerResolved) {
+                containerResolved = true;
+                DBSObject object = dataSource;
+                try {
+                    for (String pathItem : entry.getContainerPath()) {
+                        object = object instanceof DBSObjectContainer ? ((DBSObjectContainer) object).getChild(monitor, pathItem) : null;
+                        if (object == null) {
+                            break;
+                        }
+                    }
+                } catch (DBException e) {
+                    log.debug("Error resolving container of '" + entry + "'", e);
+                    object = null;
+                }
+                container = object;
+            }
+            return container;
+        }
+
+        @Override
+        public Class<?> getObjectClass() {
+            return type.getTypeClass();
+        }
+
+        @Override
+        public DBSObjectType getObjectType() {
+            return type;
+        }
+
+        @Override
+        public String getObjectDescription() {
+            return entry.getDescription();
+        }
+
+        @Override
+        public DBSObject resolveObject(DBRProgressMonitor monitor) throws DBException {
+            DBSObject objectContainer = getContainer();
+            DBSObject object = null;
+            if (objectContainer instanceof DBSProcedureContainer && DBSProcedure.class.isAssignableFrom(type.getTypeClass())) {
+                object = ((DBSProcedureContainer) objectContainer).getProcedure(monitor, entry.getName());
+            } else if (objectContainer instanceof DBSObjectContainer) {
+                object = ((DBSObjectContainer) objectContainer).getChild(monitor, entry.getName());
+            }
+            if (object == null) {
+                throw new DBException(type.getTypeName() + " '" + entry + "' not found");
+            }
+            return object;
+        }
+
+        @NotNull
+        @Override
+        public String getFullyQualifiedName(DBPEvaluationContext context) {
+            DBSObject objectContainer = getContainer();
+            if (objectContainer == dataSource) {
+                return DBUtils.getQuotedIdentifier(dataSource, entry.getName());
+            } else if (objectContainer != null) {
+                return DBUtils.getFullQualifiedName(dataSource, objectContainer, this);
+            }
+            String[] path = entry.getContainerPath();
+            StringBuilder fqName = new StringBuilder();
+            if (path.length > 0) {
+                fqName.append(DBUtils.getQuotedIdentifier(dataSource, path[path.length - 1]))
+                    .append(dataSource.getSQLDialect().getStructSeparator());
+            }
+            return fqName.append(DBUtils.getQuotedIdentifier(dataSource, entry.getName())).toString();
+        }
+
+        @Override
+        public String toString() {
+            return entry.toString();
+        }
+    }
+
+}
@@ -386,6 +386,16 @@ public class SQLScriptParser {
     }
 
     public static SQLScriptElement extractQueryAtPos(SQLParserContext context, int currentPos) {
+        return extractQueryAtPos(context, currentPos, 0);
+    }
+
+    /**
+     * Extracts query at the specified position.
+     *
+     * @param minStartPos known statement start before the current position (e.g. from cached script structure).
+     *                    Parsing won't start before it. 0 means no hint.
+     */
+    public static SQLScriptElement extractQueryAtPos(SQLParserContext context, int currentPos, int minStartPos) {
         IDocument document = context.getDocument();
         if (document.getLength() == 0) {
             return null;
@@ -504,6 +514,10 @@ public class SQLScriptParser {
         } catch (BadLocationException e) {
             log.warn(e);
         }
+        if (!lineFeedIsDelimiter && startPos < minStartPos && minStartPos <= currentPos) {
+            // Statements before the known boundary do not affect the current one
+            startPos = minStartPos;
+        }
         return parseQuery(context,
             startPos, document.getLength(), currentPos, false, false);
     }
@@ -571,6 +585,11 @@ public class SQLScriptParser {
 
     @Nullable
     public static SQLScriptElement extractActiveQuery(@NotNull SQLParserContext context, @NotNull IRegion[] regions) {
+        return extractActiveQuery(context, regions, 0);
+    }
+
+    @Nullable
+    public static SQLScriptElement extractActiveQuery(@NotNull SQLParserContext context, @NotNull IRegion[] regions, int minStartPos) {
         String selText = null;
 
         try {
@@ -607,7 +626,7 @@ public class SQLScriptParser {
                 element = new SQLQuery(context.getDataSource(), selText, region.getOffset(), region.getLength());
             }
         } else if (region.getOffset() >= 0) {
-            element = extractQueryAtPos(context, region.getOffset());
+            element = extractQueryAtPos(context, region.getOffset(), minStartPos);
         } else {
             element = null;
         }
@@ -0,0 +1,111 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.data;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+
+/**
+ * Row fetch plan.
+ * Resolves attributes, value handlers and positions of result set columns once, before the fetch,
+ * so reading of each row is a plain loop over arrays.
+ * <p>
+ * Plan must be rebuilt if bindings were changed (e.g. after late binding or attribute transformation).
+ */
+public class DBDFetchPlan {
+
+    /**
+     * Handles errors of particular cells.
+     */
+    public interface ErrorHandler {
+        /**
+         * Returns value which is put in row instead of the failed one.
+         */
+        @Nullable
+        Object handleFetchError(int index, @NotNull Throwable error);
+    }
+
+    private final int columnCount;
+    private final DBSAttributeBase[] attributes;
+    private final DBDValueHandler[] valueHandlers;
+    private final int[] positions;
+
+    private DBDFetchPlan(@NotNull DBDAttributeBinding[] bindings, boolean metaAttributes) {
+        this.columnCount = bindings.length;
+        this.attributes = new DBSAttributeBase[columnCount];
+        this.valueHandlers = new DBDValueHandler[columnCount];
+        this.positions = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            DBDAttributeBinding binding = bindings[i];
+            attributes[i] = metaAttributes ? binding.getMetaAttribute() : binding.getAttribute();
+            valueHandlers[i] = binding.getValueHandler();
+            positions[i] = binding.getOrdinalPosition();
+        }
+    }
+
+    /**
+     * Plan which reads values using the most valuable attribute of each binding (see {@link DBDAttributeBinding#getAttribute()})
+     */
+    @NotNull
+    public static DBDFetchPlan forAttributes(@NotNull DBDAttributeBinding[] bindings) {
+        return new DBDFetchPlan(bindings, false);
+    }
+
+    /**
+     * Plan which reads values using result set meta attributes
+     */
+    @NotNull
+    public static DBDFetchPlan forMetaAttributes(@NotNull DBDAttributeBinding[] bindings) {
+        return new DBDFetchPlan(bindings, true);
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @NotNull
+    public Object[] fetchRow(@NotNull DBCSession session, @NotNull DBCResultSet resultSet, @NotNull ErrorHandler errorHandler) {
+        Object[] row = new Object[columnCount];
+        fetchRow(session, resultSet, row, errorHandler);
+        return row;
+    }
+
+    /**
+     * Reads current row of result set into the specified array.
+     * Columns without attribute are left untouched.
+     */
+    public void fetchRow(@NotNull DBCSession session, @NotNull DBCResultSet resultSet, @NotNull Object[] row, @NotNull ErrorHandler errorHandler) {
+        final DBSAttributeBase[] attributes = this.attributes;
+        final DBDValueHandler[] valueHandlers = this.valueHandlers;
+        final int[] positions = this.positions;
+        for (int i = 0; i < columnCount; i++) {
+            DBSAttributeBase attribute = attributes[i];
+            if (attribute == null) {
+                continue;
+            }
+            try {
+                row[i] = valueHandlers[i].fetchValueObject(session, resultSet, attribute, positions[i]);
+            } catch (Throwable e) {
+                row[i] = errorHandler.handleFetchError(i, e);
+            }
+        }
+    }
+
+}
@@ -20,18 +20,29 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * FunctionCountDistinct
+ * FunctionCountDistinct.
+ * In approximate mode distinct values are estimated with HyperLogLog instead of being kept in memory.
  */
 public class FunctionCountDistinct implements IAggregateFunction {
 
     private int count = 0;
     private Set<Object> cache = new HashSet<>();
+    private HyperLogLog estimator;
+
+    @Override
+    public void setApproximate(boolean approximate) {
+        estimator = approximate ? new HyperLogLog() : null;
+        cache = approximate ? null : new HashSet<>();
+    }
 
     @Override
     public boolean accumulate(Object value, boolean aggregateAsStrings) {
-        if (!cache.contains(value)) {
+        if (estimator != null) {
+            estimator.offer(value);
+            return true;
+        }
+        if (cache.add(value)) {
             count++;
-            cache.add(value);
             return true;
         }
         return false;
@@ -39,6 +50,9 @@ public class FunctionCountDistinct implements IAggregateFunction {
 
     @Override
     public Object getResult(int valueCount) {
+        if (estimator != null) {
+            return (int) Math.min(estimator.cardinality(), Integer.MAX_VALUE);
+        }
         return count;
     }
 }
@@ -19,50 +19,116 @@ package org.jkiss.dbeaver.model.data.aggregate;
 import org.jkiss.dbeaver.Log;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
- * Median
+ * Median.
+ * The median is found with quickselect instead of sorting all values.
+ * In approximate mode at most {@link #MAX_SAMPLE_SIZE} values are kept, bigger inputs are reservoir-sampled.
  */
 public class FunctionMedian implements IAggregateFunction {
 
     private static final Log log = Log.getLog(FunctionMedian.class);
 
-    private List<Comparable> cache = new ArrayList<>();
+    public static final int MAX_SAMPLE_SIZE = 1000000;
+
+    private final List<Comparable> cache = new ArrayList<>();
+    private boolean approximate;
+    private long totalCount;
+    private Random random;
+
+    @Override
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
 
     @Override
     public boolean accumulate(Object value, boolean aggregateAsStrings) {
         value = FunctionNumeric.getComparable(value, aggregateAsStrings);
-        if (value != null) {
+        if (value == null) {
+            return false;
+        }
+        totalCount++;
+        if (!approximate || cache.size() < MAX_SAMPLE_SIZE) {
             cache.add((Comparable) value);
-            return true;
+        } else {
+            // Reservoir sampling
+            if (random == null) {
+                random = new Random();
+            }
+            long position = (long) (random.nextDouble() * totalCount);
+            if (position < MAX_SAMPLE_SIZE) {
+                cache.set((int) position, (Comparable) value);
+            }
         }
-        return false;
+        return true;
     }
 
     @Override
     public Object getResult(int valueCount) {
+        int size = cache.size();
+        if (size == 0) {
+            return null;
+        }
+        int middle = size / 2;
+        Comparable val2;
         try {
-            Collections.sort(cache);
+            val2 = select(cache, middle);
         } catch (Exception e) {
             log.debug("Can't sort value collection", e);
             return null;
         }
-
-        int size = cache.size();
-        int middle = size / 2;
         if (size % 2 == 1) {
-            return cache.get(middle);
-        } else {
-            Comparable val1 = cache.get(middle - 1);
-            Comparable val2 = cache.get(middle);
-            if (val1 instanceof Number && val2 instanceof Number) {
-                return (((Number) val1).doubleValue() + ((Number) val2).doubleValue()) / 2.0;
+            return val2;
+        }
+        // After selection all values left of the middle are less or equal to it
+        Comparable val1 = cache.get(0);
+        for (int i = 1; i < middle; i++) {
+            if (cache.get(i).compareTo(val1) > 0) {
+                val1 = cache.get(i);
+            }
+        }
+        if (val1 instanceof Number && val2 instanceof Number) {
+            return (((Number) val1).doubleValue() + ((Number) val2).doubleValue()) / 2.0;
+        }
+        // Not true median - but we can't evaluate it for non-numeric values
+        // So just get first one
+        return val1;
+    }
+
+    /**
+     * Hoare's quickselect. Returns k-th smallest value and partially orders the list around it.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable select(List<Comparable> values, int k) {
+        int left = 0, right = values.size() - 1;
+        while (left < right) {
+            Comparable pivot = values.get((left + right) >>> 1);
+            int i = left, j = right;
+            while (i <= j) {
+                while (values.get(i).compareTo(pivot) < 0) {
+                    i++;
+                }
+                while (values.get(j).compareTo(pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    Comparable tmp = values.get(i);
+                    values.set(i, values.get(j));
+                    values.set(j, tmp);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
             }
-            // Not true median - but we can't evaluate it for non-numeric values
-            // So just get first one
-            return val1;
         }
+        return values.get(k);
     }
 }
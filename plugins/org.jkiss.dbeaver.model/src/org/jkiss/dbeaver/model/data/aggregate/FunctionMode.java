@@ -16,15 +16,28 @@
  */
 package org.jkiss.dbeaver.model.data.aggregate;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * Mode
+ * Mode.
+ * In approximate mode uses Misra-Gries frequent items summary with {@link #MAX_COUNTERS} counters:
+ * the result is exact while the number of distinct values doesn't exceed the counters limit,
+ * otherwise it is the most frequent value among heavy hitters.
  */
 public class FunctionMode implements IAggregateFunction {
 
-    private List<Object> cache = new ArrayList<>();
+    public static final int MAX_COUNTERS = 10000;
+
+    // Insertion order is kept to return the first value among equally frequent ones
+    private final Map<Object, int[]> counters = new LinkedHashMap<>();
+    private boolean approximate;
+
+    @Override
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
 
     @Override
     public boolean accumulate(Object value, boolean aggregateAsStrings) {
@@ -32,33 +45,35 @@ public class FunctionMode implements IAggregateFunction {
         if (num != null) {
             value = num;
         }
-        if (value != null) {
-            cache.add(value);
-            return true;
+        if (value == null) {
+            return false;
+        }
+        int[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0]++;
+        } else if (!approximate || counters.size() < MAX_COUNTERS) {
+            counters.put(value, new int[] { 1 });
+        } else {
+            // Decrement all counters, drop zero ones
+            for (Iterator<int[]> iter = counters.values().iterator(); iter.hasNext(); ) {
+                if (--iter.next()[0] == 0) {
+                    iter.remove();
+                }
+            }
         }
-        return false;
+        return true;
     }
 
     @Override
     public Object getResult(int valueCount) {
         Object maxValue = null;
         int maxCount = 0;
-
-        for (int i = 0; i < cache.size(); ++i) {
-            int count = 0;
-            for (int j = 0; j < cache.size(); ++j) {
-                if (cache.get(j).equals(cache.get(i))) {
-                    count++;
-                }
-            }
-            if (count > maxCount) {
-                maxCount = count;
-                maxValue = cache.get(i);
+        for (Map.Entry<Object, int[]> entry : counters.entrySet()) {
+            if (entry.getValue()[0] > maxCount) {
+                maxCount = entry.getValue()[0];
+                maxValue = entry.getKey();
             }
         }
-//        if (maxCount <= 1) {
-//            return null;
-//        }
         return maxValue;
     }
 }
@@ -25,4 +25,11 @@ public interface IAggregateFunction {
 
     Object getResult(int valueCount);
 
+    /**
+     * Enables approximate evaluation with bounded memory. Must be called before values are accumulated.
+     * Functions which are always exact ignore it.
+     */
+    default void setApproximate(boolean approximate) {
+    }
+
 }
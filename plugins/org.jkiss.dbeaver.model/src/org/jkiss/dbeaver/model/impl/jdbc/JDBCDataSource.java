@@ -85,6 +85,8 @@ public abstract class JDBCDataSource
     private int databaseMajorVersion = 0;
     private int databaseMinorVersion = 0;
 
+    private volatile JDBCMetadataSnapshot metadataSnapshot;
+
     private final transient List<Connection> closingConnections = new ArrayList<>();
 
     protected JDBCDataSource(@NotNull DBRProgressMonitor monitor, @NotNull DBPDataSourceContainer container, @NotNull SQLDialect dialect)
@@ -408,6 +410,12 @@ public abstract class JDBCDataSource
     @Override
     public void shutdown(DBRProgressMonitor monitor)
     {
+        JDBCMetadataSnapshot snapshot = metadataSnapshot;
+        if (snapshot != null) {
+            metadataSnapshot = null;
+            monitor.subTask("Save metadata snapshot");
+            snapshot.saveSnapshot(container);
+        }
         for (JDBCRemoteInstance instance : getAvailableInstances()) {
             Object exclusiveLock = instance.getExclusiveLock().acquireExclusiveLock();
             try {
@@ -452,6 +460,43 @@ public abstract class JDBCDataSource
                 dataSourceInfo = new JDBCDataSourceInfo(container);
             }
         }
+
+        if (container.getPreferenceStore().getBoolean(ModelPreferences.META_SNAPSHOT_ENABLED)) {
+            initializeMetadataSnapshot(monitor);
+        }
+    }
+
+    private void initializeMetadataSnapshot(@NotNull DBRProgressMonitor monitor) {
+        String metadataVersion;
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, this, "Read metadata version")) {
+            metadataVersion = readMetadataVersion(session);
+        } catch (Throwable e) {
+            log.debug("Error reading metadata version", e);
+            return;
+        }
+        if (metadataVersion == null) {
+            log.debug("Metadata snapshot is not supported by " + container.getDriver().getName());
+            return;
+        }
+        metadataSnapshot = JDBCMetadataSnapshot.loadSnapshot(container, GeneralUtils.getProductVersion().toString(), metadataVersion);
+    }
+
+    /**
+     * Reads version of database metadata (e.g. last DDL time).
+     * Version must change after any DDL so it can be used to validate saved metadata snapshot.
+     * Returns null if database doesn't support metadata change detection. Metadata snapshot is disabled in this case.
+     */
+    @Nullable
+    protected String readMetadataVersion(@NotNull JDBCSession session) throws SQLException, DBException {
+        return null;
+    }
+
+    /**
+     * Metadata snapshot used by object caches or null if snapshot is disabled
+     */
+    @Nullable
+    public JDBCMetadataSnapshot getMetadataSnapshot() {
+        return metadataSnapshot;
     }
 
     protected void readDatabaseServerVersion(DatabaseMetaData metaData) {
@@ -520,6 +565,10 @@ public abstract class JDBCDataSource
     @Override
     public DBSObject refreshObject(@NotNull DBRProgressMonitor monitor) throws DBException {
         this.dataSourceInfo = new JDBCDataSourceInfo(container);
+        JDBCMetadataSnapshot snapshot = metadataSnapshot;
+        if (snapshot != null) {
+            snapshot.resetReplay();
+        }
         return this;
     }
 
@@ -0,0 +1,954 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.impl.jdbc;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.app.DBPProject;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.impl.jdbc.exec.JDBCPreparedStatementImpl;
+import org.jkiss.dbeaver.model.impl.jdbc.exec.JDBCResultSetImpl;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent snapshot of metadata queries results.
+ * <p>
+ * Object caches read metadata with {@link #executeStatement}. If snapshot is enabled for the data source then
+ * rows read from database are recorded (in compact compressed form) and saved on disconnect.
+ * On the next connect recorded rows are replayed instead of query execution, so caches are filled without
+ * reading metadata from server again.
+ * <p>
+ * Snapshot is valid while metadata version (see {@link JDBCDataSource#readMetadataVersion}) and product version
+ * remain the same. Each recorded result is replayed only once, after that (e.g. on cache refresh) query is
+ * executed as usual.
+ */
+public class JDBCMetadataSnapshot {
+
+    private static final Log log = Log.getLog(JDBCMetadataSnapshot.class);
+
+    private static final String SNAPSHOT_FOLDER = "metadata-snapshot";
+    private static final String SNAPSHOT_FILE_EXT = ".dat";
+
+    private static final int SNAPSHOT_MAGIC = 0x44424D53;
+    private static final int SNAPSHOT_FORMAT_VERSION = 2;
+
+    // Results bigger than this (compressed) are not recorded
+    private static final int MAX_ENTRY_SIZE = 64 * 1024 * 1024;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_SHORT = 4;
+    private static final byte VALUE_BYTE = 5;
+    private static final byte VALUE_FLOAT = 6;
+    private static final byte VALUE_DOUBLE = 7;
+    private static final byte VALUE_DECIMAL = 8;
+    private static final byte VALUE_BOOLEAN = 9;
+    private static final byte VALUE_TIMESTAMP = 10;
+    private static final byte VALUE_DATE = 11;
+    private static final byte VALUE_TIME = 12;
+    private static final byte VALUE_BYTES = 13;
+
+    private final String productVersion;
+    private final String metadataVersion;
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final Set<String> replayKeys = ConcurrentHashMap.newKeySet();
+    private volatile boolean modified;
+
+    public JDBCMetadataSnapshot(@NotNull String productVersion, @NotNull String metadataVersion) {
+        this.productVersion = productVersion;
+        this.metadataVersion = metadataVersion;
+    }
+
+    @NotNull
+    public String getMetadataVersion() {
+        return metadataVersion;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Disables replay of all loaded results. Next metadata reads will go to the database.
+     */
+    public void resetReplay() {
+        replayKeys.clear();
+    }
+
+    @Nullable
+    public byte[] takeEntry(@NotNull String key) {
+        if (replayKeys.remove(key)) {
+            return entries.get(key);
+        }
+        return null;
+    }
+
+    public void putEntry(@NotNull String key, @NotNull byte[] data) {
+        replayKeys.remove(key);
+        entries.put(key, data);
+        modified = true;
+    }
+
+    /**
+     * Executes metadata statement of the specified cache.
+     * Replays results from snapshot if possible, otherwise executes statement and records its results.
+     */
+    @Nullable
+    public static JDBCResultSet executeStatement(
+        @NotNull JDBCSession session,
+        @NotNull JDBCStatement dbStat,
+        @NotNull Object cache,
+        @NotNull DBSObject owner,
+        @Nullable DBSObject forObject)
+        throws SQLException
+    {
+        JDBCMetadataSnapshot snapshot = session.getDataSource().getMetadataSnapshot();
+        if (snapshot == null) {
+            dbStat.executeStatement();
+            return dbStat.getResultSet();
+        }
+        String key = makeKey(
+            cache,
+            owner,
+            forObject,
+            dbStat.getQueryString(),
+            dbStat instanceof JDBCPreparedStatementImpl ? ((JDBCPreparedStatementImpl) dbStat).getBoundParameters() : null);
+        byte[] data = snapshot.takeEntry(key);
+        if (data != null) {
+            try {
+                return JDBCResultSetImpl.makeResultSet(session, dbStat, SnapshotResultSet.openReplay(key, data), null, true);
+            } catch (IOException e) {
+                log.debug("Error reading metadata snapshot entry '" + key + "'", e);
+            }
+        }
+        dbStat.executeStatement();
+        JDBCResultSet dbResult = dbStat.getResultSet();
+        if (dbResult == null) {
+            return null;
+        }
+        ResultSet recorder = SnapshotResultSet.openRecord(snapshot, key, dbResult);
+        if (recorder == null) {
+            return dbResult;
+        }
+        return JDBCResultSetImpl.makeResultSet(session, dbStat, recorder, null, true);
+    }
+
+    /**
+     * Makes key of the statement results.
+     * Query text and parameter values (e.g. object filter masks) are identified by their SHA-256 digest.
+     */
+    @NotNull
+    public static String makeKey(
+        @NotNull Object cache,
+        @NotNull DBSObject owner,
+        @Nullable DBSObject forObject,
+        @Nullable String query,
+        @Nullable Map<Object, Object> parameters)
+    {
+        StringBuilder key = new StringBuilder();
+        key.append(cache.getClass().getName()).append('|').append(DBUtils.getObjectFullId(owner));
+        if (forObject != null) {
+            key.append('|').append(forObject.getName());
+        }
+        if (query != null || parameters != null) {
+            StringBuilder statement = new StringBuilder(CommonUtils.notEmpty(query));
+            if (parameters != null) {
+                for (Map.Entry<Object, Object> param : parameters.entrySet()) {
+                    Object value = param.getValue();
+                    statement.append('\n').append(param.getKey()).append('=');
+                    if (value == null) {
+                        statement.append("NULL");
+                    } else if (value instanceof byte[]) {
+                        statement.append(CommonUtils.toHexString((byte[]) value));
+                    } else {
+                        statement.append(value.getClass().getSimpleName()).append(':').append(value);
+                    }
+                }
+            }
+            key.append('|').append(makeDigest(statement.toString()));
+        }
+        return key.toString();
+    }
+
+    @NotNull
+    private static String makeDigest(@NotNull String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return CommonUtils.toHexString(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by all Java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    // Persistence
+
+    @Nullable
+    private static Path getSnapshotFile(@NotNull DBPDataSourceContainer container, boolean create) {
+        DBPProject project = container.getProject();
+        if (project == null) {
+            return null;
+        }
+        Path metadataFolder = project.getMetadataFolder(create);
+        if (metadataFolder == null) {
+            return null;
+        }
+        return metadataFolder.resolve(SNAPSHOT_FOLDER).resolve(CommonUtils.escapeFileName(container.getId()) + SNAPSHOT_FILE_EXT);
+    }
+
+    /**
+     * Loads snapshot of the specified data source.
+     * Returns empty snapshot if there is no saved snapshot or it was made for different metadata version.
+     */
+    @NotNull
+    public static JDBCMetadataSnapshot loadSnapshot(@NotNull DBPDataSourceContainer container, @NotNull String productVersion, @NotNull String metadataVersion) {
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot(productVersion, metadataVersion);
+        Path snapshotFile = getSnapshotFile(container, false);
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(snapshotFile))) {
+                if (snapshot.readSnapshot(is)) {
+                    log.debug("Metadata snapshot of '" + container.getName() + "' loaded (" + snapshot.getEntryCount() + " entries)");
+                } else {
+                    log.debug("Metadata snapshot of '" + container.getName() + "' is outdated");
+                }
+            } catch (IOException e) {
+                log.debug("Error reading metadata snapshot of '" + container.getName() + "'", e);
+                snapshot.entries.clear();
+                snapshot.replayKeys.clear();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Saves snapshot of the specified data source. Does nothing if nothing was recorded.
+     */
+    public void saveSnapshot(@NotNull DBPDataSourceContainer container) {
+        if (!modified) {
+            return;
+        }
+        Path snapshotFile = getSnapshotFile(container, true);
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                writeSnapshot(os);
+            }
+            Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } catch (IOException e) {
+            log.debug("Error saving metadata snapshot of '" + container.getName() + "'", e);
+        }
+    }
+
+    public void writeSnapshot(@NotNull OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_FORMAT_VERSION);
+        out.writeUTF(productVersion);
+        out.writeUTF(metadataVersion);
+        Map<String, byte[]> entriesCopy = new HashMap<>(entries);
+        out.writeInt(entriesCopy.size());
+        CRC32 crc = new CRC32();
+        for (Map.Entry<String, byte[]> entry : entriesCopy.entrySet()) {
+            byte[] data = entry.getValue();
+            crc.reset();
+            crc.update(data);
+            out.writeUTF(entry.getKey());
+            out.writeInt(data.length);
+            out.writeLong(crc.getValue());
+            out.write(data);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads snapshot entries. Returns false if snapshot was made for different product or metadata version.
+     */
+    public boolean readSnapshot(@NotNull InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT_VERSION) {
+            return false;
+        }
+        if (!productVersion.equals(in.readUTF()) || !metadataVersion.equals(in.readUTF())) {
+            return false;
+        }
+        int entryCount = in.readInt();
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < entryCount; i++) {
+            String key = in.readUTF();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_ENTRY_SIZE) {
+                throw new IOException("Bad snapshot entry size: " + length);
+            }
+            long checksum = in.readLong();
+            byte[] data = new byte[length];
+            in.readFully(data);
+            crc.reset();
+            crc.update(data);
+            if (crc.getValue() != checksum) {
+                log.debug("Corrupted metadata snapshot entry '" + key + "'");
+                continue;
+            }
+            entries.put(key, data);
+            replayKeys.add(key);
+        }
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    // Values
+
+    private static boolean isSupportedType(int type) {
+        switch (type) {
+            case Types.ARRAY:
+            case Types.STRUCT:
+            case Types.REF:
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.SQLXML:
+            case Types.JAVA_OBJECT:
+            case Types.DISTINCT:
+            case Types.DATALINK:
+            case Types.REF_CURSOR:
+            case Types.OTHER:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    @Nullable
+    private static Object readResultValue(@NotNull ResultSet resultSet, int index, int type) throws SQLException {
+        Object value = resultSet.getObject(index);
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Integer ||
+            value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof Float ||
+            value instanceof Double || value instanceof BigDecimal || value instanceof Timestamp ||
+            value instanceof Date || value instanceof Time || value instanceof byte[])
+        {
+            return value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        }
+        switch (type) {
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return resultSet.getTimestamp(index);
+            default:
+                return resultSet.getString(index);
+        }
+    }
+
+    private static void writeValue(@NotNull DataOutputStream out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(VALUE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(VALUE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(VALUE_DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(VALUE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(VALUE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(VALUE_TIME);
+            out.writeLong(((Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(VALUE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else {
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    @Nullable
+    private static Object readValue(@NotNull DataInputStream in) throws IOException {
+        byte valueType = in.readByte();
+        switch (valueType) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case VALUE_INT:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_SHORT:
+                return in.readShort();
+            case VALUE_BYTE:
+                return in.readByte();
+            case VALUE_FLOAT:
+                return in.readFloat();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case VALUE_DATE:
+                return new Date(in.readLong());
+            case VALUE_TIME:
+                return new Time(in.readLong());
+            case VALUE_BYTES:
+                return readBytes(in);
+            default:
+                throw new IOException("Bad value type: " + valueType);
+        }
+    }
+
+    private static void writeBytes(@NotNull DataOutputStream out, @NotNull byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NotNull
+    private static byte[] readBytes(@NotNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_ENTRY_SIZE) {
+            throw new IOException("Bad value length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    // Result set
+
+    /**
+     * Result set over snapshot rows.
+     * In record mode it reads rows from the original result set and writes them to the snapshot entry.
+     * Only simple getters used by metadata readers are supported.
+     */
+    public static class SnapshotResultSet implements InvocationHandler {
+
+        private final String key;
+        private final String[] labels;
+        private final int[] types;
+        private final Map<String, Integer> labelIndex = new HashMap<>();
+
+        // Replay mode
+        private DataInputStream input;
+
+        // Record mode
+        private JDBCMetadataSnapshot snapshot;
+        private ResultSet original;
+        private ByteArrayOutputStream buffer;
+        private DataOutputStream output;
+        private boolean completed;
+        private boolean overflow;
+
+        private Object[] currentRow;
+        private boolean lastNull;
+        private boolean closed;
+
+        private SnapshotResultSet(@NotNull String key, @NotNull String[] labels, @NotNull int[] types) {
+            this.key = key;
+            this.labels = labels;
+            this.types = types;
+            for (int i = 0; i < labels.length; i++) {
+                labelIndex.putIfAbsent(labels[i].toUpperCase(Locale.ENGLISH), i + 1);
+            }
+        }
+
+        @NotNull
+        public static ResultSet openReplay(@NotNull String key, @NotNull byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+            int columnCount = in.readInt();
+            String[] labels = new String[columnCount];
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                labels[i] = in.readUTF();
+                types[i] = in.readInt();
+            }
+            SnapshotResultSet handler = new SnapshotResultSet(key, labels, types);
+            handler.input = in;
+            return handler.makeProxy();
+        }
+
+        /**
+         * Returns recording result set or null if original result set contains values which can't be recorded.
+         */
+        @Nullable
+        public static ResultSet openRecord(@NotNull JDBCMetadataSnapshot snapshot, @NotNull String key, @NotNull ResultSet original) throws SQLException {
+            ResultSetMetaData metaData = original.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            String[] labels = new String[columnCount];
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                labels[i] = CommonUtils.notEmpty(metaData.getColumnLabel(i + 1));
+                types[i] = metaData.getColumnType(i + 1);
+                if (!isSupportedType(types[i])) {
+                    return null;
+                }
+            }
+            SnapshotResultSet handler = new SnapshotResultSet(key, labels, types);
+            handler.snapshot = snapshot;
+            handler.original = original;
+            handler.buffer = new ByteArrayOutputStream();
+            handler.output = new DataOutputStream(new DeflaterOutputStream(handler.buffer));
+            try {
+                handler.output.writeInt(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    handler.output.writeUTF(labels[i]);
+                    handler.output.writeInt(types[i]);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Error writing snapshot entry header", e);
+            }
+            return handler.makeProxy();
+        }
+
+        private ResultSet makeProxy() {
+            return (ResultSet) Proxy.newProxyInstance(
+                JDBCMetadataSnapshot.class.getClassLoader(),
+                new Class[] { ResultSet.class },
+                this);
+        }
+
+        private boolean next() throws SQLException {
+            if (closed) {
+                throw new SQLException("Result set is closed");
+            }
+            try {
+                if (original == null) {
+                    if (input == null) {
+                        return false;
+                    }
+                    if (input.readByte() == 0) {
+                        currentRow = null;
+                        input = null;
+                        return false;
+                    }
+                    Object[] row = new Object[labels.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = readValue(input);
+                    }
+                    currentRow = row;
+                    return true;
+                }
+                if (!original.next()) {
+                    currentRow = null;
+                    completed = true;
+                    return false;
+                }
+                Object[] row = new Object[labels.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = readResultValue(original, i + 1, types[i]);
+                }
+                currentRow = row;
+                if (!overflow) {
+                    output.writeByte(1);
+                    for (Object value : row) {
+                        writeValue(output, value);
+                    }
+                    if (buffer.size() > MAX_ENTRY_SIZE) {
+                        overflow = true;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new SQLException("Error processing metadata snapshot entry '" + key + "'", e);
+            }
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            currentRow = null;
+            input = null;
+            if (original != null) {
+                try {
+                    original.close();
+                } finally {
+                    if (completed && !overflow) {
+                        try {
+                            output.writeByte(0);
+                            output.close();
+                            snapshot.putEntry(key, buffer.toByteArray());
+                        } catch (IOException e) {
+                            log.debug("Error writing metadata snapshot entry '" + key + "'", e);
+                        }
+                    }
+                    buffer = null;
+                    output = null;
+                }
+            }
+        }
+
+        private int findColumn(@NotNull String label) throws SQLException {
+            Integer index = labelIndex.get(label.toUpperCase(Locale.ENGLISH));
+            if (index == null) {
+                throw new SQLException("Column '" + label + "' not found");
+            }
+            return index;
+        }
+
+        private int getColumnIndex(@NotNull Object column) throws SQLException {
+            int index = column instanceof Number ? ((Number) column).intValue() : findColumn(column.toString());
+            if (index < 1 || index > labels.length) {
+                throw new SQLException("Column index out of range: " + index);
+            }
+            return index;
+        }
+
+        @Nullable
+        private Object getValue(@NotNull Object column) throws SQLException {
+            if (currentRow == null) {
+                throw new SQLException("No current row");
+            }
+            Object value = currentRow[getColumnIndex(column) - 1];
+            lastNull = value == null;
+            return value;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    return next();
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "wasNull":
+                    return lastNull;
+                case "findColumn":
+                    return findColumn((String) args[0]);
+                case "getMetaData":
+                    return makeMetaData();
+                case "getObject": {
+                    Object value = getValue(args[0]);
+                    if (args.length > 1 && args[1] instanceof Class) {
+                        return convertValue(value, types[getColumnIndex(args[0]) - 1], (Class<?>) args[1]);
+                    }
+                    return value;
+                }
+                case "getString":
+                case "getNString":
+                    return toString(getValue(args[0]), types[getColumnIndex(args[0]) - 1]);
+                case "getBoolean":
+                    return toBoolean(getValue(args[0]));
+                case "getByte": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? (byte) 0 : number.byteValue();
+                }
+                case "getShort": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? (short) 0 : number.shortValue();
+                }
+                case "getInt": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? 0 : number.intValue();
+                }
+                case "getLong": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? 0L : number.longValue();
+                }
+                case "getFloat": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? 0f : number.floatValue();
+                }
+                case "getDouble": {
+                    Number number = toNumber(getValue(args[0]));
+                    return number == null ? 0d : number.doubleValue();
+                }
+                case "getBigDecimal":
+                    return toBigDecimal(getValue(args[0]));
+                case "getBytes": {
+                    Object value = getValue(args[0]);
+                    if (value == null || value instanceof byte[]) {
+                        return value;
+                    }
+                    throw new SQLException("Value is not binary");
+                }
+                case "getTimestamp": {
+                    return toTimestamp(getValue(args[0]));
+                }
+                case "getDate": {
+                    Timestamp timestamp = toTimestamp(getValue(args[0]));
+                    return timestamp == null ? null : new Date(timestamp.getTime());
+                }
+                case "getTime": {
+                    Timestamp timestamp = toTimestamp(getValue(args[0]));
+                    return timestamp == null ? null : new Time(timestamp.getTime());
+                }
+                case "getWarnings":
+                case "getStatement":
+                    return null;
+                case "clearWarnings":
+                case "setFetchSize":
+                case "setFetchDirection":
+                    return null;
+                case "getFetchSize":
+                    return 0;
+                case "getFetchDirection":
+                    return ResultSet.FETCH_FORWARD;
+                case "getType":
+                    return ResultSet.TYPE_FORWARD_ONLY;
+                case "getConcurrency":
+                    return ResultSet.CONCUR_READ_ONLY;
+                case "getHoldability":
+                    return ResultSet.CLOSE_CURSORS_AT_COMMIT;
+                case "isWrapperFor":
+                    return false;
+                case "toString":
+                    return "Metadata snapshot result set [" + key + "]";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new SQLFeatureNotSupportedException("Method '" + method.getName() + "' is not supported by metadata snapshot");
+            }
+        }
+
+        private ResultSetMetaData makeMetaData() {
+            return (ResultSetMetaData) Proxy.newProxyInstance(
+                JDBCMetadataSnapshot.class.getClassLoader(),
+                new Class[] { ResultSetMetaData.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return labels.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return labels[(Integer) args[0] - 1];
+                        case "getColumnType":
+                            return types[(Integer) args[0] - 1];
+                        case "getColumnTypeName":
+                            try {
+                                return JDBCType.valueOf(types[(Integer) args[0] - 1]).getName();
+                            } catch (IllegalArgumentException e) {
+                                return JDBCType.OTHER.getName();
+                            }
+                        case "isWrapperFor":
+                            return false;
+                        case "toString":
+                            return "Metadata snapshot result set metadata [" + key + "]";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new SQLFeatureNotSupportedException("Method '" + method.getName() + "' is not supported by metadata snapshot");
+                    }
+                });
+        }
+
+        /**
+         * Converts value to the class requested by {@code getObject(column, type)}.
+         * Conversion doesn't depend on the mode, so recorded and replayed results return the same values.
+         */
+        @Nullable
+        private static Object convertValue(@Nullable Object value, int columnType, @NotNull Class<?> valueType) throws SQLException {
+            if (value == null || valueType.isInstance(value)) {
+                return value;
+            }
+            if (valueType == String.class) {
+                return toString(value, columnType);
+            } else if (valueType == Integer.class) {
+                return toNumber(value).intValue();
+            } else if (valueType == Long.class) {
+                return toNumber(value).longValue();
+            } else if (valueType == Short.class) {
+                return toNumber(value).shortValue();
+            } else if (valueType == Byte.class) {
+                return toNumber(value).byteValue();
+            } else if (valueType == Float.class) {
+                return toNumber(value).floatValue();
+            } else if (valueType == Double.class) {
+                return toNumber(value).doubleValue();
+            } else if (valueType == BigDecimal.class) {
+                return toBigDecimal(value);
+            } else if (valueType == BigInteger.class) {
+                return toBigDecimal(value).toBigInteger();
+            } else if (valueType == Boolean.class) {
+                return toBoolean(value);
+            } else if (valueType == Timestamp.class) {
+                return toTimestamp(value);
+            } else if (valueType == Date.class) {
+                return new Date(toTimestamp(value).getTime());
+            } else if (valueType == Time.class) {
+                return new Time(toTimestamp(value).getTime());
+            }
+            throw new SQLException("Can't convert " + value.getClass().getName() + " to " + valueType.getName());
+        }
+
+        /**
+         * Converts value to string the same way JDBC drivers do: decimals without exponent,
+         * timestamps without empty fraction, dates and times by the column type.
+         */
+        @Nullable
+        private static String toString(@Nullable Object value, int columnType) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).toPlainString();
+            }
+            if (value instanceof byte[]) {
+                return CommonUtils.toHexString((byte[]) value);
+            }
+            if (value instanceof Timestamp) {
+                Timestamp timestamp = (Timestamp) value;
+                switch (columnType) {
+                    case Types.DATE:
+                        return new Date(timestamp.getTime()).toString();
+                    case Types.TIME:
+                        return new Time(timestamp.getTime()).toString();
+                    default: {
+                        String str = timestamp.toString();
+                        // Timestamp appends ".0" if there are no fractional seconds
+                        return timestamp.getNanos() == 0 && str.endsWith(".0") ? str.substring(0, str.length() - 2) : str;
+                    }
+                }
+            }
+            return value.toString();
+        }
+
+        @Nullable
+        private static BigDecimal toBigDecimal(@Nullable Object value) throws SQLException {
+            Number number = toNumber(value);
+            return number == null || number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+        }
+
+        @Nullable
+        private static Number toNumber(@Nullable Object value) throws SQLException {
+            if (value == null || value instanceof Number) {
+                return (Number) value;
+            }
+            if (value instanceof Boolean) {
+                return (Boolean) value ? 1 : 0;
+            }
+            try {
+                return new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new SQLException("Bad numeric value '" + value + "'", e);
+            }
+        }
+
+        private static boolean toBoolean(@Nullable Object value) {
+            if (value == null) {
+                return false;
+            } else if (value instanceof Boolean) {
+                return (Boolean) value;
+            } else if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            } else {
+                String str = value.toString().trim();
+                return str.equals("1") || str.equalsIgnoreCase("true");
+            }
+        }
+
+        @Nullable
+        private static Timestamp toTimestamp(@Nullable Object value) throws SQLException {
+            if (value == null || value instanceof Timestamp) {
+                return (Timestamp) value;
+            }
+            if (value instanceof java.util.Date) {
+                return new Timestamp(((java.util.Date) value).getTime());
+            }
+            try {
+                return Timestamp.valueOf(value.toString().trim());
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Bad timestamp value '" + value + "'", e);
+            }
+        }
+    }
+
+}
@@ -26,6 +26,7 @@ import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCMetadataSnapshot;
 import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSObject;
@@ -45,6 +46,8 @@ import java.util.*;
  * Each row object name is unique within main object.
  *
  * Examples: table index, constraint.
+ *
+ * Per-parent object map and lists are copy-on-write snapshots, so lookups never lock.
  */
 public abstract class JDBCCompositeCache<
     OWNER extends DBSObject,
@@ -62,7 +65,9 @@ public abstract class JDBCCompositeCache<
     private final Object parentColumnName;
     private final Object objectColumnName;
 
-    private final Map<PARENT, List<OBJECT>> objectCache = new IdentityHashMap<>();
+    // Immutable snapshot, replaced under objectCacheSync
+    private volatile Map<PARENT, List<OBJECT>> objectCache = new IdentityHashMap<>();
+    private final Object objectCacheSync = new Object();
 
     protected JDBCCompositeCache(
         JDBCStructCache<OWNER,?,?> parentCache,
@@ -142,9 +147,7 @@ public abstract class JDBCCompositeCache<
         if (forParent == null) {
             return getCachedObjects();
         } else {
-            synchronized (objectCache) {
-                return objectCache.get(forParent);
-            }
+            return objectCache.get(forParent);
         }
     }
 
@@ -164,9 +167,7 @@ public abstract class JDBCCompositeCache<
         if (forParent == null) {
             return getCachedObject(objectName);
         } else {
-            synchronized (objectCache) {
-                return DBUtils.findObject(objectCache.get(forParent), objectName);
-            }
+            return DBUtils.findObject(objectCache.get(forParent), objectName);
         }
     }
 
@@ -174,14 +175,14 @@ public abstract class JDBCCompositeCache<
     public void cacheObject(@NotNull OBJECT object)
     {
         super.cacheObject(object);
-        synchronized (objectCache) {
+        synchronized (objectCacheSync) {
             PARENT parent = getParent(object);
-            List<OBJECT> objects = objectCache.get(parent);
-            if (objects == null) {
-                objects = new ArrayList<>();
-                objectCache.put(parent, objects);
-            }
+            List<OBJECT> oldObjects = objectCache.get(parent);
+            List<OBJECT> objects = oldObjects == null ? new ArrayList<>() : new ArrayList<>(oldObjects);
             objects.add(object);
+            Map<PARENT, List<OBJECT>> newCache = new IdentityHashMap<>(objectCache);
+            newCache.put(parent, objects);
+            objectCache = newCache;
         }
     }
 
@@ -189,15 +190,21 @@ public abstract class JDBCCompositeCache<
     public void removeObject(@NotNull OBJECT object, boolean resetFullCache)
     {
         super.removeObject(object, resetFullCache);
-        synchronized (objectCache) {
+        synchronized (objectCacheSync) {
             PARENT parent = getParent(object);
+            List<OBJECT> subCache = objectCache.get(parent);
             if (resetFullCache) {
-                objectCache.remove(parent);
-            } else {
-                List<OBJECT> subCache = objectCache.get(parent);
-                if (subCache != null) {
-                    subCache.remove(object);
+                if (objectCache.containsKey(parent)) {
+                    Map<PARENT, List<OBJECT>> newCache = new IdentityHashMap<>(objectCache);
+                    newCache.remove(parent);
+                    objectCache = newCache;
                 }
+            } else if (subCache != null && subCache.contains(object)) {
+                List<OBJECT> objects = new ArrayList<>(subCache);
+                objects.remove(object);
+                Map<PARENT, List<OBJECT>> newCache = new IdentityHashMap<>(objectCache);
+                newCache.put(parent, objects);
+                objectCache = newCache;
             }
         }
     }
@@ -207,9 +214,19 @@ public abstract class JDBCCompositeCache<
     {
         if (forParent == null) {
             super.clearCache();
-            objectCache.clear();
+            synchronized (objectCacheSync) {
+                objectCache = new IdentityHashMap<>();
+            }
         } else {
-            List<OBJECT> removedObjects = objectCache.remove(forParent);
+            List<OBJECT> removedObjects;
+            synchronized (objectCacheSync) {
+                removedObjects = objectCache.get(forParent);
+                if (removedObjects != null) {
+                    Map<PARENT, List<OBJECT>> newCache = new IdentityHashMap<>(objectCache);
+                    newCache.remove(forParent);
+                    objectCache = newCache;
+                }
+            }
             if (removedObjects != null) {
                 for (OBJECT obj : removedObjects) {
                     super.removeObject(obj, false);
@@ -225,8 +242,8 @@ public abstract class JDBCCompositeCache<
     @Override
     public void clearCache()
     {
-        synchronized (objectCache) {
-            this.objectCache.clear();
+        synchronized (objectCacheSync) {
+            this.objectCache = new IdentityHashMap<>();
         }
         super.clearCache();
     }
@@ -234,17 +251,12 @@ public abstract class JDBCCompositeCache<
     @Override
     public void setCache(List<OBJECT> objects) {
         super.setCache(objects);
-        synchronized (objectCache) {
-            objectCache.clear();
-            for (OBJECT object : objects) {
-                PARENT parent = getParent(object);
-                List<OBJECT> parentObjects = objectCache.get(parent);
-                if (parentObjects == null) {
-                    parentObjects = new ArrayList<>();
-                    objectCache.put(parent, parentObjects);
-                }
-                parentObjects.add(object);
-            }
+        Map<PARENT, List<OBJECT>> newCache = new IdentityHashMap<>();
+        for (OBJECT object : objects) {
+            newCache.computeIfAbsent(getParent(object), p -> new ArrayList<>()).add(object);
+        }
+        synchronized (objectCacheSync) {
+            objectCache = newCache;
         }
     }
 
@@ -263,12 +275,10 @@ public abstract class JDBCCompositeCache<
     protected void loadObjects(DBRProgressMonitor monitor, OWNER owner, PARENT forParent)
         throws DBException
     {
-        synchronized (objectCache) {
-            if ((forParent == null && isFullyCached()) ||
-                (forParent != null && (!forParent.isPersisted() || objectCache.containsKey(forParent))))
-            {
-                return;
-            }
+        if ((forParent == null && isFullyCached()) ||
+            (forParent != null && (!forParent.isPersisted() || objectCache.containsKey(forParent))))
+        {
+            return;
         }
 
         // Load tables and columns first
@@ -288,8 +298,7 @@ public abstract class JDBCCompositeCache<
             JDBCStatement dbStat = prepareObjectsStatement(session, owner, forParent);
             dbStat.setFetchSize(DBConstants.METADATA_FETCH_SIZE);
             try {
-                dbStat.executeStatement();
-                JDBCResultSet dbResult = dbStat.getResultSet();
+                JDBCResultSet dbResult = JDBCMetadataSnapshot.executeStatement(session, dbStat, this, owner, forParent);
                 if (dbResult != null) try {
                     while (dbResult.next()) {
                         if (monitor.isCanceled()) {
@@ -323,11 +332,9 @@ public abstract class JDBCCompositeCache<
                                 continue;
                             }
                         }
-                        synchronized (objectCache) {
-                            if (objectCache.containsKey(parent)) {
-                                // Already cached
-                                continue;
-                            }
+                        if (objectCache.containsKey(parent)) {
+                            // Already cached
+                            continue;
                         }
                         // Add to map
                         Map<String, ObjectInfo> objectMap = parentObjectMap.get(parent);
@@ -389,7 +396,9 @@ public abstract class JDBCCompositeCache<
 
         // Fill global cache
         synchronized (this) {
-            synchronized (objectCache) {
+            synchronized (objectCacheSync) {
+                // Fill a copy and publish it at once
+                Map<PARENT, List<OBJECT>> objectCache = new IdentityHashMap<>(this.objectCache);
                 if (forParent != null || !parentObjectMap.isEmpty()) {
                     if (forParent == null) {
                         // Cache global object list
@@ -440,6 +449,7 @@ public abstract class JDBCCompositeCache<
                 } else if (!parentObjectMap.containsKey(forParent) && !objectCache.containsKey(forParent)) {
                     objectCache.put(forParent, new ArrayList<OBJECT>());
                 }
+                this.objectCache = objectCache;
             }
             // Cache children lists (we do it in the end because children caching may operate with other model objects)
             for (Map.Entry<PARENT, Map<String, ObjectInfo>> colEntry : parentObjectMap.entrySet()) {
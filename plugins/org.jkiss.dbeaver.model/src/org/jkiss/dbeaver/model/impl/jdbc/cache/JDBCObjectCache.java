@@ -26,6 +26,7 @@ import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCMetadataSnapshot;
 import org.jkiss.dbeaver.model.messages.ModelMessages;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSObject;
@@ -106,8 +107,7 @@ public abstract class JDBCObjectCache<OWNER extends DBSObject, OBJECT extends DB
                     try (JDBCStatement dbStat = prepareObjectsStatement(session, owner)) {
                         monitor.subTask("Load " + getCacheName());
                         dbStat.setFetchSize(DBConstants.METADATA_FETCH_SIZE);
-                        dbStat.executeStatement();
-                        JDBCResultSet dbResult = dbStat.getResultSet();
+                        JDBCResultSet dbResult = JDBCMetadataSnapshot.executeStatement(session, dbStat, this, owner, null);
                         if (dbResult != null) {
                             try {
                                 while (dbResult.next()) {
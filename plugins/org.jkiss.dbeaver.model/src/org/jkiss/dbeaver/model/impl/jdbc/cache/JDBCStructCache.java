@@ -26,6 +26,7 @@ import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCMetadataSnapshot;
 import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 import org.jkiss.dbeaver.model.messages.ModelMessages;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
@@ -95,8 +96,7 @@ public abstract class JDBCStructCache<OWNER extends DBSObject, OBJECT extends DB
             // Load columns
             try (JDBCStatement dbStat = prepareChildrenStatement(session, owner, forObject)) {
                 dbStat.setFetchSize(DBConstants.METADATA_FETCH_SIZE);
-                dbStat.executeStatement();
-                JDBCResultSet dbResult = dbStat.getResultSet();
+                JDBCResultSet dbResult = JDBCMetadataSnapshot.executeStatement(session, dbStat, this, owner, forObject);
                 if (dbResult != null) {
                     try {
                         while (dbResult.next()) {
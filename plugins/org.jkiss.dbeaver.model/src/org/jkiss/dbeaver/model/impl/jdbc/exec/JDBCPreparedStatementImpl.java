@@ -26,6 +26,7 @@ import org.jkiss.dbeaver.model.data.DBDDataFormatter;
 import org.jkiss.dbeaver.model.data.DBDDataFormatterProfile;
 import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
 import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
@@ -53,6 +54,8 @@ public class JDBCPreparedStatementImpl extends JDBCStatementImpl<PreparedStateme
     private static final Object NULL_VALUE = new Object();
 
     private Map<Object, Object> paramMap;
+    // Raw parameter values of metadata statements
+    private Map<Object, Object> boundParameters;
 
     protected static class ContentParameter {
         String displayString;
@@ -95,9 +98,19 @@ public class JDBCPreparedStatementImpl extends JDBCStatementImpl<PreparedStateme
             paramMap.clear();
             paramMap = null;
         }
+        boundParameters = null;
         super.close();
     }
 
+    /**
+     * Returns values bound to statement parameters (in bind order).
+     * Values are kept only for metadata statements, returns null for other statements.
+     */
+    @Nullable
+    public Map<Object, Object> getBoundParameters() {
+        return boundParameters;
+    }
+
     public String getFormattedQuery() {
         if (paramMap == null) {
             return getQueryString();
@@ -175,6 +188,12 @@ public class JDBCPreparedStatementImpl extends JDBCStatementImpl<PreparedStateme
 
     protected void handleStatementBind(Object parameter, @Nullable Object o)
     {
+        if (getSession().getPurpose() == DBCExecutionPurpose.META) {
+            if (boundParameters == null) {
+                boundParameters = new LinkedHashMap<>();
+            }
+            boundParameters.put(parameter, o);
+        }
         if (isQMLoggingEnabled()) {
             // Save parameters
             if (o == null) {
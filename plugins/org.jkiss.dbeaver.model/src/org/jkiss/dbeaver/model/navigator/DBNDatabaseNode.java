@@ -223,23 +223,42 @@ public abstract class DBNDatabaseNode extends DBNNode implements DBNLazyNode, DB
         }
         if (needsLoad) {
             if (this.initializeNode(monitor, null)) {
-                final List<DBNDatabaseNode> tmpList = new ArrayList<>();
-                loadChildren(monitor, getMeta(), null, tmpList, this, true);
+                final List<DBNDatabaseNode> tmpList = readChildNodes(monitor);
                 if (!monitor.isCanceled()) {
+                    boolean loadedConcurrently;
                     synchronized (this) {
-                        if (tmpList.isEmpty()) {
-                            this.childNodes = EMPTY_NODES;
-                        } else {
-                            this.childNodes = tmpList.toArray(new DBNDatabaseNode[0]);
+                        // Children may be loaded by another thread (e.g. by background prefetch) meanwhile
+                        loadedConcurrently = this.childNodes != null;
+                        if (!loadedConcurrently) {
+                            if (tmpList.isEmpty()) {
+                                this.childNodes = EMPTY_NODES;
+                            } else {
+                                this.childNodes = tmpList.toArray(new DBNDatabaseNode[0]);
+                            }
                         }
                     }
-                    this.afterChildRead();
+                    if (loadedConcurrently) {
+                        for (DBNDatabaseNode node : tmpList) {
+                            node.dispose(false);
+                        }
+                    } else {
+                        this.afterChildRead();
+                    }
                 }
             }
         }
         return childNodes;
     }
 
+    /**
+     * Reads child nodes. Read nodes are not set as children of this node yet.
+     */
+    protected List<DBNDatabaseNode> readChildNodes(DBRProgressMonitor monitor) throws DBException {
+        final List<DBNDatabaseNode> tmpList = new ArrayList<>();
+        loadChildren(monitor, getMeta(), null, tmpList, this, true);
+        return tmpList;
+    }
+
     protected void afterChildRead() {
         // Do nothing
     }
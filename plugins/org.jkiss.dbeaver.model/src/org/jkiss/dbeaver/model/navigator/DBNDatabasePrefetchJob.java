@@ -0,0 +1,173 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.navigator;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ModelPreferences;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceStore;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.jkiss.dbeaver.model.struct.DBSObjectContainer;
+
+import java.util.*;
+
+/**
+ * Loads navigator nodes of a connected data source in background.
+ * <p>
+ * Tree is walked breadth-first, so top levels are loaded first. Containers of entities are cached
+ * with {@link DBSObjectContainer#cacheStructure} which reads entities and their attributes with
+ * a few bulk queries instead of one query per node.
+ * Number of loaded nodes is limited by preferences (0 means no limit).
+ * <p>
+ * Nodes are loaded one at a time. Navigator nodes read metadata through the single meta context
+ * of the data source, so parallel loads would only wait for each other on the same connection.
+ */
+public class DBNDatabasePrefetchJob extends AbstractJob {
+
+    private static final Log log = Log.getLog(DBNDatabasePrefetchJob.class);
+
+    private static final Map<DBPDataSourceContainer, DBNDatabasePrefetchJob> activeJobs = new HashMap<>();
+
+    private final DBNDataSource rootNode;
+    private final int maxNodes;
+
+    private final Deque<DBNDatabaseNode> queue = new ArrayDeque<>();
+    private final Set<DBSObject> cachedContainers = new HashSet<>();
+    private int loadedNodes;
+
+    private DBNDatabasePrefetchJob(@NotNull DBNDataSource rootNode, int maxNodes) {
+        super("Prefetch metadata of '" + rootNode.getDataSourceContainer().getName() + "'");
+        this.rootNode = rootNode;
+        this.maxNodes = maxNodes;
+        setUser(false);
+        setSystem(true);
+    }
+
+    /**
+     * Starts prefetch of the specified data source if it is enabled in preferences.
+     *
+     * @return started job or null if prefetch is disabled or already running
+     */
+    @Nullable
+    public static DBNDatabasePrefetchJob startPrefetch(@NotNull DBNDataSource dataSourceNode) {
+        DBPDataSourceContainer container = dataSourceNode.getDataSourceContainer();
+        DBPPreferenceStore store = container.getPreferenceStore();
+        if (!store.getBoolean(ModelPreferences.NAVIGATOR_PREFETCH_ENABLED)) {
+            return null;
+        }
+        DBNDatabasePrefetchJob job;
+        synchronized (activeJobs) {
+            if (activeJobs.containsKey(container)) {
+                return null;
+            }
+            job = new DBNDatabasePrefetchJob(
+                dataSourceNode,
+                store.getInt(ModelPreferences.NAVIGATOR_PREFETCH_MAX_NODES));
+            activeJobs.put(container, job);
+        }
+        job.schedule();
+        return job;
+    }
+
+    /**
+     * Cancels prefetch of the specified data source (e.g. on disconnect)
+     */
+    public static void stopPrefetch(@NotNull DBPDataSourceContainer container) {
+        DBNDatabasePrefetchJob job;
+        synchronized (activeJobs) {
+            job = activeJobs.get(container);
+        }
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        long startTime = System.currentTimeMillis();
+        try {
+            queue.add(rootNode);
+            while (!isStopped(monitor)) {
+                DBNDatabaseNode node = queue.poll();
+                if (node == null) {
+                    break;
+                }
+                try {
+                    DBNDatabaseNode[] children = prefetchNode(monitor, node);
+                    if (children != null) {
+                        for (DBNDatabaseNode child : children) {
+                            if (child.allowsChildren() && !child.isDisposed()) {
+                                queue.add(child);
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    log.debug("Error prefetching children of '" + node.getNodeName() + "'", e);
+                }
+            }
+            log.debug("Prefetched " + loadedNodes + " navigator node(s) of '" + rootNode.getDataSourceContainer().getName() +
+                "' in " + (System.currentTimeMillis() - startTime) + "ms");
+        } finally {
+            synchronized (activeJobs) {
+                activeJobs.remove(rootNode.getDataSourceContainer());
+            }
+        }
+        return Status.OK_STATUS;
+    }
+
+    private DBNDatabaseNode[] prefetchNode(@NotNull DBRProgressMonitor monitor, @NotNull DBNDatabaseNode node) throws Exception {
+        if (node.isDisposed()) {
+            return null;
+        }
+        DBNDatabaseNode[] children = node.getChildNodes();
+        if (children != null) {
+            // Already loaded (e.g. expanded by user)
+            return children;
+        }
+        loadedNodes++;
+        DBSObject object = node.getObject();
+        if (object instanceof DBSObjectContainer && isEntityContainer(monitor, (DBSObjectContainer) object) && cachedContainers.add(object)) {
+            // Read all entities and their attributes at once
+            ((DBSObjectContainer) object).cacheStructure(
+                monitor,
+                DBSObjectContainer.STRUCT_ENTITIES | DBSObjectContainer.STRUCT_ATTRIBUTES);
+        }
+        return node.getChildren(monitor);
+    }
+
+    private static boolean isEntityContainer(@NotNull DBRProgressMonitor monitor, @NotNull DBSObjectContainer container) {
+        try {
+            Class<? extends DBSObject> childType = container.getPrimaryChildType(monitor);
+            return childType != null && DBSEntity.class.isAssignableFrom(childType);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isStopped(@NotNull DBRProgressMonitor monitor) {
+        return monitor.isCanceled() || (maxNodes > 0 && loadedNodes >= maxNodes) ||
+            !rootNode.getDataSourceContainer().isConnected() || rootNode.isDisposed();
+    }
+
+}
@@ -395,8 +395,14 @@ public class DBNProjectDatabases extends DBNNode implements DBNContainer, DBPEve
                         if (enabled != null) {
                             if (enabled) {
                                 nodeChange = DBNEvent.NodeChange.LOAD;
+                                if (dbmNode instanceof DBNDataSource) {
+                                    DBNDatabasePrefetchJob.startPrefetch((DBNDataSource) dbmNode);
+                                }
                             } else {
                                 nodeChange = DBNEvent.NodeChange.UNLOAD;
+                                if (event.getObject() instanceof DBPDataSourceContainer) {
+                                    DBNDatabasePrefetchJob.stopPrefetch((DBPDataSourceContainer) event.getObject());
+                                }
                             }
                         } else {
                             nodeChange = DBNEvent.NodeChange.REFRESH;
@@ -53,6 +53,8 @@ public class QMEventCriteria {
     private QMSortField sortField = QMSortField.DATE;
     @Nullable
     private QMDateRange startDateRange;
+    @Nullable
+    private Long minDuration;
     private boolean desc = true;
     private int fetchingSize = 200;
 
@@ -193,6 +195,18 @@ public class QMEventCriteria {
         this.startDateRange = startDateRange;
     }
 
+    /**
+     * Minimal execution duration (in milliseconds)
+     */
+    @Nullable
+    public Long getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(@Nullable Long minDuration) {
+        this.minDuration = minDuration;
+    }
+
     @Nullable
     public Long getLastEventId() {
         return lastEventId;
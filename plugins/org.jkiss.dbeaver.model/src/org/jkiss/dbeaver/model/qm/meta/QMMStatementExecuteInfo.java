@@ -73,6 +73,11 @@ public class QMMStatementExecuteInfo extends QMMObject {
         this.transactional = transactional;
     }
 
+    public QMMStatementExecuteInfo(long openTime, long closeTime, QMMStatementInfo stmt, String queryString, long fetchRowCount, long updateRowCount, int errorCode, String errorMessage, long fetchBeginTime, long fetchEndTime, boolean transactional) {
+        this(openTime, closeTime, stmt, queryString, fetchRowCount, errorCode, errorMessage, fetchBeginTime, fetchEndTime, transactional);
+        this.updateRowCount = updateRowCount;
+    }
+
     void close(long rowCount, Throwable error)
     {
         if (error != null) {
@@ -44,6 +44,9 @@ import org.jkiss.utils.Pair;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Types;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -1235,6 +1238,141 @@ public final class SQLUtils {
         }
     }
 
+    /**
+     * Checks whether attribute may be a part of keyset (seek) pagination key.
+     * Key attributes must be mandatory and must be integral numbers or strings: key values are
+     * inlined as SQL literals, and date/time or floating point literals may lose precision.
+     */
+    public static boolean isKeysetAttribute(@NotNull DBSAttributeBase attribute) {
+        if (!attribute.isRequired()) {
+            return false;
+        }
+        switch (attribute.getDataKind()) {
+            case NUMERIC:
+                switch (attribute.getTypeID()) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                        return true;
+                    case Types.NUMERIC:
+                    case Types.DECIMAL:
+                        Integer scale = attribute.getScale();
+                        return scale != null && scale == 0;
+                    default:
+                        return false;
+                }
+            case STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether key value can be inlined in keyset condition without loss of precision.
+     */
+    public static boolean isKeysetValue(@Nullable Object value) {
+        if (value instanceof String || value instanceof Long || value instanceof Integer ||
+            value instanceof Short || value instanceof Byte || value instanceof BigInteger)
+        {
+            return true;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).scale() <= 0 || ((BigDecimal) value).stripTrailingZeros().scale() <= 0;
+        }
+        return false;
+    }
+
+    /**
+     * Makes keyset (seek) condition which matches rows following the specified key values
+     * in ascending key order: (k1 > v1) OR (k1 = v1 AND k2 > v2) ...
+     */
+    @NotNull
+    public static String getKeysetCondition(
+        @NotNull DBPDataSource dataSource,
+        @NotNull List<? extends DBSAttributeBase> keyAttributes,
+        @NotNull Object[] keyValues)
+    {
+        StringBuilder condition = new StringBuilder();
+        condition.append('(');
+        for (int i = 0; i < keyAttributes.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append('(');
+            for (int k = 0; k < i; k++) {
+                DBSAttributeBase prevAttr = keyAttributes.get(k);
+                condition.append(DBUtils.getQuotedIdentifier(dataSource, prevAttr.getName()))
+                    .append('=').append(convertValueToSQL(dataSource, prevAttr, keyValues[k])).append(" AND ");
+            }
+            DBSAttributeBase keyAttr = keyAttributes.get(i);
+            condition.append(DBUtils.getQuotedIdentifier(dataSource, keyAttr.getName()))
+                .append('>').append(convertValueToSQL(dataSource, keyAttr, keyValues[i]));
+            condition.append(')');
+        }
+        condition.append(')');
+        return condition.toString();
+    }
+
+    /**
+     * Makes a copy of data filter which reads rows following the specified key values (or the first rows if values are not specified)
+     * in ascending key order.
+     * Returns null if the filter can't be combined with keyset condition (e.g. it has different ordering).
+     */
+    @Nullable
+    public static DBDDataFilter makeKeysetFilter(
+        @NotNull DBPDataSource dataSource,
+        @Nullable DBDDataFilter dataFilter,
+        @NotNull List<? extends DBSAttributeBase> keyAttributes,
+        @Nullable Object[] keyValues)
+    {
+        if (keyAttributes.isEmpty()) {
+            return null;
+        }
+        DBDDataFilter keysetFilter = dataFilter == null ? new DBDDataFilter() : new DBDDataFilter(dataFilter);
+        if (keysetFilter.hasOrdering()) {
+            // Existing ordering must match the key exactly
+            List<DBDAttributeConstraint> orderConstraints = keysetFilter.getOrderConstraints();
+            if (!CommonUtils.isEmpty(keysetFilter.getOrder()) || orderConstraints.size() != keyAttributes.size()) {
+                return null;
+            }
+            for (int i = 0; i < orderConstraints.size(); i++) {
+                DBDAttributeConstraint co = orderConstraints.get(i);
+                DBSAttributeBase keyAttr = keyAttributes.get(i);
+                if (co.isOrderDescending() || !(co.matches(keyAttr, true) || compareAliases(co.getAttributeName(), keyAttr.getName()))) {
+                    return null;
+                }
+            }
+        } else {
+            StringBuilder order = new StringBuilder();
+            for (DBSAttributeBase keyAttr : keyAttributes) {
+                if (order.length() > 0) order.append(',');
+                order.append(DBUtils.getQuotedIdentifier(dataSource, keyAttr.getName()));
+            }
+            keysetFilter.setOrder(order.toString());
+        }
+        if (keyValues != null) {
+            if (keysetFilter.isAnyConstraint() && keysetFilter.hasConditions()) {
+                // Keyset condition can't be OR'ed with other criteria
+                return null;
+            }
+            for (Object value : keyValues) {
+                if (!isKeysetValue(value)) {
+                    // Null, error or inexact value
+                    return null;
+                }
+            }
+            String condition = getKeysetCondition(dataSource, keyAttributes, keyValues);
+            if (CommonUtils.isEmpty(keysetFilter.getWhere())) {
+                keysetFilter.setWhere(condition);
+            } else {
+                keysetFilter.setWhere("(" + keysetFilter.getWhere() + ") AND " + condition);
+            }
+        }
+        return keysetFilter;
+    }
+
     public static boolean isExecQuery(@NotNull SQLDialect dialect, String query) {
         // Check for EXEC query
         final String[] executeKeywords = dialect.getExecuteKeywords();
@@ -33,15 +33,17 @@ import java.lang.reflect.Modifier;
 import java.util.*;
 
 /**
- * Various objects cache
+ * Various objects cache.
+ * Object list and name map are copy-on-write snapshots: readers never lock, writers
+ * replace snapshots under the cache monitor. Published lists are never modified by the cache itself.
  */
 public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extends DBSObject>
     implements DBSObjectCache<OWNER, OBJECT>
 {
     private static final Log log = Log.getLog(AbstractObjectCache.class);
 
-    private List<OBJECT> objectList;
-    private Map<String, OBJECT> objectMap;
+    private volatile List<OBJECT> objectList;
+    private volatile Map<String, OBJECT> objectMap;
     protected volatile boolean fullCache = false;
     protected volatile boolean caseSensitive = true;
 
@@ -75,9 +77,8 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
     @Override
     public List<OBJECT> getCachedObjects()
     {
-        synchronized (cacheSync) {
-            return objectList == null ? Collections.<OBJECT>emptyList() : objectList;
-        }
+        final List<OBJECT> objects = objectList;
+        return objects == null ? Collections.<OBJECT>emptyList() : objects;
     }
 
     public <SUB_TYPE> List<SUB_TYPE> getTypedObjects(DBRProgressMonitor monitor, OWNER owner, Class<SUB_TYPE> type)
@@ -96,31 +97,39 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
     @Override
     public OBJECT getCachedObject(@NotNull String name)
     {
-        synchronized (cacheSync) {
-            return objectList == null || name == null ? null : getObjectMap().get(caseSensitive ? name : name.toUpperCase());
+        if (name == null) {
+            return null;
+        }
+        Map<String, OBJECT> map = objectMap;
+        if (map == null) {
+            if (objectList == null) {
+                return null;
+            }
+            map = getObjectMap();
         }
+        return map.get(caseSensitive ? name : name.toUpperCase());
     }
 
     public int getCacheSize() {
-        synchronized (cacheSync) {
-            return objectList == null ? 0 : objectList.size();
-        }
+        final List<OBJECT> objects = objectList;
+        return objects == null ? 0 : objects.size();
     }
 
     @Override
     public void cacheObject(@NotNull OBJECT object)
     {
         synchronized (cacheSync) {
-            if (this.objectList == null) {
-                this.objectList = new ArrayList<>();
-            }
             detectCaseSensitivity(object);
-            this.objectList.add(object);
+            List<OBJECT> newList = this.objectList == null ? new ArrayList<>() : new ArrayList<>(this.objectList);
+            newList.add(object);
             if (this.objectMap != null) {
+                Map<String, OBJECT> newMap = new HashMap<>(this.objectMap);
                 String name = getObjectName(object);
-                checkDuplicateName(name, object);
-                this.objectMap.put(name, object);
+                checkDuplicateName(newMap, name, object);
+                newMap.put(name, object);
+                this.objectMap = newMap;
             }
+            this.objectList = newList;
         }
     }
 
@@ -130,10 +139,7 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
         synchronized (cacheSync) {
             if (this.objectList != null) {
                 detectCaseSensitivity(object);
-                this.objectList.remove(object);
-                if (this.objectMap != null) {
-                    this.objectMap.remove(getObjectName(object));
-                }
+                removeCachedObject(object);
             }
             if (resetFullCache) {
                 fullCache = false;
@@ -149,8 +155,11 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
                     oldName = oldName.toUpperCase(Locale.ENGLISH);
                     newName = newName.toUpperCase(Locale.ENGLISH);
                 }
-                if (this.objectMap.remove(oldName) == object) {
-                    this.objectMap.put(newName, object);
+                if (this.objectMap.get(oldName) == object) {
+                    Map<String, OBJECT> newMap = new HashMap<>(this.objectMap);
+                    newMap.remove(oldName);
+                    newMap.put(newName, object);
+                    this.objectMap = newMap;
                 }
             }
         }
@@ -180,8 +189,8 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
     public void clearCache()
     {
         synchronized (cacheSync) {
-            this.objectList = null;
             this.objectMap = null;
+            this.objectList = null;
             this.fullCache = false;
         }
     }
@@ -189,8 +198,8 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
     public void setCache(List<OBJECT> objects)
     {
         synchronized (cacheSync) {
-            this.objectList = objects;
             this.objectMap = null;
+            this.objectList = objects;
             this.fullCache = true;
         }
     }
@@ -236,23 +245,41 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
     {
         synchronized (cacheSync) {
             if (this.objectMap == null) {
-                this.objectMap = new HashMap<>();
-                if (objectList.size() > 0) {
-                    detectCaseSensitivity(objectList.get(0));
+                final List<OBJECT> objects = this.objectList == null ? Collections.emptyList() : this.objectList;
+                Map<String, OBJECT> newMap = new HashMap<>();
+                if (objects.size() > 0) {
+                    detectCaseSensitivity(objects.get(0));
                 }
 
-                for (OBJECT object : objectList) {
+                for (OBJECT object : objects) {
                     String name = getObjectName(object);
-                    checkDuplicateName(name, object);
-                    this.objectMap.put(name, object);
+                    checkDuplicateName(newMap, name, object);
+                    newMap.put(name, object);
                 }
+                this.objectMap = newMap;
             }
             return this.objectMap;
         }
     }
 
-    private void checkDuplicateName(String name, OBJECT object) {
-        if (this.objectMap.containsKey(name)) {
+    /**
+     * Removes object from list and map snapshots. Must be called under cache monitor.
+     */
+    private void removeCachedObject(OBJECT object) {
+        List<OBJECT> newList = new ArrayList<>(this.objectList);
+        if (!newList.remove(object)) {
+            return;
+        }
+        if (this.objectMap != null) {
+            Map<String, OBJECT> newMap = new HashMap<>(this.objectMap);
+            newMap.remove(getObjectName(object));
+            this.objectMap = newMap;
+        }
+        this.objectList = newList;
+    }
+
+    private void checkDuplicateName(Map<String, OBJECT> objectMap, String name, OBJECT object) {
+        if (objectMap.containsKey(name)) {
             log.debug("Duplicate object name '" + name + "' in cache " + this.getClass().getSimpleName() + ". Last value: " + DBUtils.getObjectFullName(object, DBPEvaluationContext.DDL));
         }
     }
@@ -281,18 +308,22 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
             if (objectList == null) {
                 return;
             }
-            for (int i = 0; i < objectList.size(); ) {
-                OBJECT object = objectList.get(i);
+            List<OBJECT> newList = new ArrayList<>(objectList.size());
+            Map<String, OBJECT> newMap = objectMap == null ? null : new HashMap<>(objectMap);
+            for (OBJECT object : objectList) {
                 if (object.getParentObject() == parent) {
-                    this.objectList.remove(object);
-                    if (this.objectMap != null) {
-                        this.objectMap.remove(getObjectName(object));
+                    if (newMap != null) {
+                        newMap.remove(getObjectName(object));
                     }
                     fullCache = false;
                 } else {
-                    i++;
+                    newList.add(object);
                 }
             }
+            if (newList.size() != objectList.size()) {
+                this.objectMap = newMap;
+                this.objectList = newList;
+            }
         }
     }
 
@@ -362,8 +393,11 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
         }
     }
 
+    /**
+     * Iterates over current objects snapshot. Removal updates the cache.
+     */
     protected class CacheIterator implements Iterator<OBJECT> {
-        private Iterator<OBJECT> listIterator = objectList.iterator();
+        private Iterator<OBJECT> listIterator = getCachedObjects().iterator();
         private OBJECT curObject;
         public CacheIterator()
         {
@@ -384,9 +418,10 @@ public abstract class AbstractObjectCache<OWNER extends DBSObject, OBJECT extend
         @Override
         public void remove()
         {
-            listIterator.remove();
-            if (objectMap != null) {
-                objectMap.remove(getObjectName(curObject));
+            synchronized (cacheSync) {
+                if (objectList != null) {
+                    removeCachedObject(curObject);
+                }
             }
         }
     }
@@ -20,6 +20,9 @@ import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ModelPreferences;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceListener;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceStore;
 import org.jkiss.dbeaver.model.qm.*;
 import org.jkiss.dbeaver.model.qm.filters.QMEventCriteria;
 import org.jkiss.dbeaver.model.qm.meta.*;
@@ -28,11 +31,13 @@ import org.jkiss.dbeaver.utils.GeneralUtils;
 import org.jkiss.utils.ArrayUtils;
 import org.jkiss.utils.CommonUtils;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -49,6 +54,12 @@ public class QMControllerImpl implements QMController {
     private final List<QMExecutionHandler> handlers = new ArrayList<>();
     private QMEventBrowser eventBrowser;
     private DefaultEventBrowser defaultEventBrowser = new DefaultEventBrowser();
+    private QMHistoryStore historyStore;
+    private final DBPPreferenceListener historyPreferenceListener = event -> {
+        if (QMConstants.PROP_QUERY_TYPES.equals(event.getProperty())) {
+            updateHistoryQueryTypes();
+        }
+    };
 
     public QMControllerImpl() {
         defaultHandler = (QMExecutionHandler) Proxy.newProxyInstance(
@@ -58,10 +69,32 @@ public class QMControllerImpl implements QMController {
 
         metaHandler = new QMMCollectorImpl();
         registerHandler(metaHandler);
+
+        DBPPreferenceStore preferences = ModelPreferences.getPreferences();
+        if (preferences.getBoolean(QMConstants.PROP_STORE_HISTORY)) {
+            try {
+                historyStore = new QMHistoryStore(
+                    GeneralUtils.getMetadataFolder().resolve(QMHistoryStore.HISTORY_FOLDER),
+                    preferences.getInt(QMConstants.PROP_HISTORY_DAYS));
+                updateHistoryQueryTypes();
+                preferences.addPropertyChangeListener(historyPreferenceListener);
+                metaHandler.addListener(historyStore);
+            } catch (IOException e) {
+                log.error("Can't open query history store", e);
+            }
+        }
     }
 
     public void dispose()
     {
+        if (historyStore != null) {
+            ModelPreferences.getPreferences().removePropertyChangeListener(historyPreferenceListener);
+            if (metaHandler != null) {
+                metaHandler.removeListener(historyStore);
+            }
+            historyStore.close();
+            historyStore = null;
+        }
         if (metaHandler != null) {
             unregisterHandler(metaHandler);
             metaHandler.dispose();
@@ -77,6 +110,15 @@ public class QMControllerImpl implements QMController {
       	defaultHandler = null;
     }
 
+    private void updateHistoryQueryTypes() {
+        QMHistoryStore store = historyStore;
+        if (store != null) {
+            // Store only query types shown in query manager
+            QMEventCriteria criteria = QMUtils.createDefaultCriteria(ModelPreferences.getPreferences());
+            store.setQueryTypes(Arrays.asList(criteria.getQueryTypes()));
+        }
+    }
+
     @Override
     public QMMCollector getMetaCollector()
     {
@@ -96,8 +138,8 @@ public class QMControllerImpl implements QMController {
         if (eventBrowser == null) {
             eventBrowser = GeneralUtils.adapt(this, QMEventBrowser.class);
             if (eventBrowser == null) {
-                // Default browser
-                this.eventBrowser = defaultEventBrowser;
+                // Persistent history or default browser
+                this.eventBrowser = historyStore != null ? historyStore : defaultEventBrowser;
             }
         }
 
@@ -0,0 +1,954 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.runtime.qm;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.qm.*;
+import org.jkiss.dbeaver.model.qm.filters.QMDateRange;
+import org.jkiss.dbeaver.model.qm.filters.QMEventCriteria;
+import org.jkiss.dbeaver.model.qm.filters.QMEventStatus;
+import org.jkiss.dbeaver.model.qm.meta.QMMConnectionInfo;
+import org.jkiss.dbeaver.model.qm.meta.QMMStatementExecuteInfo;
+import org.jkiss.dbeaver.model.qm.meta.QMMStatementInfo;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Persistent query history store.
+ *
+ * Finished query executions are appended to segment files. Each segment consists of a data file
+ * and of an index file with fixed-width entries (id, start time, data source, driver, query type, duration, status).
+ * Most of criteria are evaluated against the index only, query texts are read for text search and for
+ * the requested page of events.
+ * Segments are rotated by size and by day, expired segments are deleted according to history retention period.
+ * Cursors scan index entries lazily, so only the events which are actually read are decoded.
+ */
+public class QMHistoryStore implements QMMetaListener, QMEventBrowser {
+
+    private static final Log log = Log.getLog(QMHistoryStore.class);
+
+    public static final String HISTORY_FOLDER = "qm-history";
+
+    private static final String DATA_FILE_EXT = ".qmd";
+    private static final String INDEX_FILE_EXT = ".qmi";
+    private static final String DICTIONARY_FILE = "dictionary.qms";
+
+    private static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    // Index entry: id(8) + openTime(8) + dataOffset(8) + duration(4) + container(4) + driver(4) + purpose(1) + status(1) + reserved(2)
+    private static final int INDEX_ENTRY_SIZE = 40;
+    // Number of index entries read at once by cursors
+    private static final int INDEX_BLOCK_SIZE = 1024;
+    private static final int IE_ID = 0;
+    private static final int IE_OPEN_TIME = 8;
+    private static final int IE_OFFSET = 16;
+    private static final int IE_DURATION = 24;
+    private static final int IE_CONTAINER = 28;
+    private static final int IE_DRIVER = 32;
+    private static final int IE_PURPOSE = 36;
+    private static final int IE_STATUS = 37;
+
+    private static final byte STATUS_SUCCESS = 0;
+    private static final byte STATUS_FAILED = 1;
+
+    private static final int SEGMENT_BITS = 40;
+    private static final long OFFSET_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final Path folder;
+    private final int historyDays;
+    private final long maxSegmentSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+    // Data source and driver ids dictionary
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+    private OutputStream dictionaryOut;
+
+    private Segment writeSegment;
+    private OutputStream dataOut;
+    private OutputStream indexOut;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(1000);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    private long nextEventId = 1;
+    private boolean closed;
+    // Query types to store (null means all)
+    @Nullable
+    private boolean[] queryTypes;
+
+    public QMHistoryStore(@NotNull Path folder, int historyDays) throws IOException {
+        this(folder, historyDays, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public QMHistoryStore(@NotNull Path folder, int historyDays, long maxSegmentSize) throws IOException {
+        this.folder = folder;
+        this.historyDays = historyDays;
+        this.maxSegmentSize = maxSegmentSize;
+
+        Files.createDirectories(folder);
+        loadDictionary();
+        loadSegments();
+        purgeExpiredSegments(System.currentTimeMillis());
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeWriteSegment();
+        if (dictionaryOut != null) {
+            try {
+                dictionaryOut.close();
+            } catch (IOException e) {
+                log.debug("Error closing history dictionary", e);
+            }
+            dictionaryOut = null;
+        }
+    }
+
+    /**
+     * Sets query types to store. Executions of other types are skipped.
+     * @param queryTypes query types or null to store all executions
+     */
+    public synchronized void setQueryTypes(@Nullable Collection<DBCExecutionPurpose> queryTypes) {
+        if (queryTypes == null) {
+            this.queryTypes = null;
+        } else {
+            this.queryTypes = new boolean[DBCExecutionPurpose.values().length];
+            for (DBCExecutionPurpose purpose : queryTypes) {
+                this.queryTypes[purpose.ordinal()] = true;
+            }
+        }
+    }
+
+    public synchronized long getEventCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.entryCount;
+        }
+        return count;
+    }
+
+    ////////////////////////////////////////////////////////////
+    // Write
+
+    @Override
+    public synchronized void metaInfoChanged(DBRProgressMonitor monitor, @NotNull List<QMMetaEvent> events) {
+        if (closed) {
+            return;
+        }
+        try {
+            boolean written = false;
+            // Events come in reversed order (fresh first)
+            for (int i = events.size(); i-- > 0; ) {
+                QMMetaEvent event = events.get(i);
+                if (event.getAction() == QMEventAction.END && event.getObject() instanceof QMMStatementExecuteInfo) {
+                    QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) event.getObject();
+                    if (isStoredQueryType(execution.getStatement().getPurpose())) {
+                        appendExecution(execution);
+                        written = true;
+                    }
+                }
+            }
+            if (written) {
+                flush();
+            }
+        } catch (IOException e) {
+            log.error("Error writing query history. History store disabled.", e);
+            close();
+        }
+    }
+
+    private boolean isStoredQueryType(@Nullable DBCExecutionPurpose purpose) {
+        return queryTypes == null || (purpose != null && queryTypes[purpose.ordinal()]);
+    }
+
+    private void appendExecution(@NotNull QMMStatementExecuteInfo execution) throws IOException {
+        QMMStatementInfo statement = execution.getStatement();
+        QMMConnectionInfo connection = statement.getConnection();
+        long openTime = execution.getOpenTime();
+        long duration = Math.max(0, execution.getDuration());
+        DBCExecutionPurpose purpose = statement.getPurpose();
+
+        Segment segment = getWriteSegment(openTime);
+        long eventId = nextEventId++;
+
+        recordBuffer.reset();
+        recordOut.writeLong(eventId);
+        recordOut.writeLong(openTime);
+        recordOut.writeLong(execution.getCloseTime());
+        writeString(recordOut, connection.getContainerId());
+        writeString(recordOut, connection.getContainerName());
+        writeString(recordOut, connection.getDriverId());
+        writeString(recordOut, connection.getInstanceId());
+        writeString(recordOut, connection.getContextName());
+        recordOut.writeByte(purpose == null ? -1 : purpose.ordinal());
+        writeString(recordOut, execution.getQueryString());
+        recordOut.writeLong(execution.getFetchRowCount());
+        recordOut.writeLong(execution.getUpdateRowCount());
+        recordOut.writeInt(execution.getErrorCode());
+        writeString(recordOut, execution.getErrorMessage());
+        recordOut.writeLong(execution.getFetchBeginTime());
+        recordOut.writeLong(execution.getFetchEndTime());
+        recordOut.writeBoolean(execution.isTransactional());
+        recordOut.flush();
+
+        long dataOffset = segment.dataSize;
+        int recordLength = recordBuffer.size();
+        dataOut.write(recordLength >>> 24);
+        dataOut.write(recordLength >>> 16);
+        dataOut.write(recordLength >>> 8);
+        dataOut.write(recordLength);
+        recordBuffer.writeTo(dataOut);
+
+        indexEntry.clear();
+        indexEntry.putLong(IE_ID, eventId);
+        indexEntry.putLong(IE_OPEN_TIME, openTime);
+        indexEntry.putLong(IE_OFFSET, dataOffset);
+        indexEntry.putInt(IE_DURATION, (int) Math.min(duration, Integer.MAX_VALUE));
+        indexEntry.putInt(IE_CONTAINER, getDictionaryId(connection.getContainerId()));
+        indexEntry.putInt(IE_DRIVER, getDictionaryId(connection.getDriverId()));
+        indexEntry.put(IE_PURPOSE, (byte) (purpose == null ? -1 : purpose.ordinal()));
+        indexEntry.put(IE_STATUS, execution.hasError() ? STATUS_FAILED : STATUS_SUCCESS);
+        indexOut.write(indexEntry.array());
+
+        segment.dataSize += 4 + recordLength;
+        segment.entryCount++;
+        segment.addTime(openTime);
+    }
+
+    private void flush() throws IOException {
+        if (dictionaryOut != null) {
+            dictionaryOut.flush();
+        }
+        if (dataOut != null) {
+            // Data first, so index never points beyond the data file
+            dataOut.flush();
+            indexOut.flush();
+        }
+    }
+
+    private Segment getWriteSegment(long openTime) throws IOException {
+        long day = openTime / MILLIS_PER_DAY;
+        if (writeSegment == null && !segments.isEmpty()) {
+            // Continue last segment
+            Segment lastSegment = segments.get(segments.size() - 1);
+            if (lastSegment.dataSize < maxSegmentSize && (lastSegment.entryCount == 0 || lastSegment.maxTime / MILLIS_PER_DAY == day)) {
+                openWriteSegment(lastSegment);
+            }
+        }
+        if (writeSegment != null &&
+            (writeSegment.dataSize >= maxSegmentSize || (writeSegment.entryCount > 0 && writeSegment.maxTime / MILLIS_PER_DAY != day)))
+        {
+            closeWriteSegment();
+            purgeExpiredSegments(openTime);
+        }
+        if (writeSegment == null) {
+            long number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+            Segment segment = new Segment(folder, number);
+            segments.add(segment);
+            openWriteSegment(segment);
+        }
+        return writeSegment;
+    }
+
+    private void openWriteSegment(Segment segment) throws IOException {
+        dataOut = new BufferedOutputStream(Files.newOutputStream(segment.dataFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        indexOut = new BufferedOutputStream(Files.newOutputStream(segment.indexFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        writeSegment = segment;
+    }
+
+    private void closeWriteSegment() {
+        if (writeSegment == null) {
+            return;
+        }
+        try {
+            flush();
+            dataOut.close();
+            indexOut.close();
+        } catch (IOException e) {
+            log.debug("Error closing history segment " + writeSegment.number, e);
+        }
+        dataOut = null;
+        indexOut = null;
+        writeSegment = null;
+    }
+
+    private void purgeExpiredSegments(long currentTime) {
+        if (historyDays <= 0) {
+            return;
+        }
+        long minTime = currentTime - historyDays * MILLIS_PER_DAY;
+        for (Iterator<Segment> iter = segments.iterator(); iter.hasNext(); ) {
+            Segment segment = iter.next();
+            if (segment == writeSegment || segment.entryCount == 0 || segment.maxTime >= minTime) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(segment.indexFile);
+                Files.deleteIfExists(segment.dataFile);
+                iter.remove();
+            } catch (IOException e) {
+                log.debug("Can't delete expired history segment " + segment.number, e);
+            }
+        }
+    }
+
+    private int getDictionaryId(@Nullable String value) throws IOException {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = dictionaryIndex.get(value);
+        if (id == null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                return -1;
+            }
+            if (dictionaryOut == null) {
+                dictionaryOut = new BufferedOutputStream(
+                    Files.newOutputStream(folder.resolve(DICTIONARY_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            }
+            dictionaryOut.write(bytes.length >>> 8);
+            dictionaryOut.write(bytes.length);
+            dictionaryOut.write(bytes);
+            id = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndex.put(value, id);
+        }
+        return id;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    ////////////////////////////////////////////////////////////
+    // Load
+
+    private void loadDictionary() throws IOException {
+        Path dictFile = folder.resolve(DICTIONARY_FILE);
+        if (!Files.exists(dictFile)) {
+            return;
+        }
+        long validSize = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dictFile)))) {
+            for (;;) {
+                int length;
+                try {
+                    length = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                String value = new String(bytes, StandardCharsets.UTF_8);
+                dictionaryIndex.put(value, dictionary.size());
+                dictionary.add(value);
+                validSize += 2 + length;
+            }
+        }
+        truncateFile(dictFile, validSize);
+    }
+
+    private void loadSegments() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + INDEX_FILE_EXT)) {
+            for (Path indexFile : stream) {
+                String fileName = indexFile.getFileName().toString();
+                long number;
+                try {
+                    number = Long.parseLong(fileName.substring(0, fileName.length() - INDEX_FILE_EXT.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                segments.add(new Segment(folder, number));
+            }
+        }
+        segments.sort(Comparator.comparingLong(s -> s.number));
+        for (Segment segment : segments) {
+            loadSegment(segment);
+        }
+        if (!segments.isEmpty()) {
+            Segment lastSegment = segments.get(segments.size() - 1);
+            if (lastSegment.entryCount > 0) {
+                ByteBuffer index = readIndex(lastSegment, lastSegment.entryCount - 1, 1);
+                nextEventId = index.getLong(IE_ID) + 1;
+            }
+        }
+    }
+
+    private void loadSegment(Segment segment) throws IOException {
+        segment.dataSize = Files.exists(segment.dataFile) ? Files.size(segment.dataFile) : 0;
+        int entryCount = (int) (Files.size(segment.indexFile) / INDEX_ENTRY_SIZE);
+        ByteBuffer index = readIndex(segment, 0, entryCount);
+        // Drop index entries which point to incomplete records (e.g. after crash)
+        if (entryCount > 0) {
+            try (FileChannel dataChannel = FileChannel.open(segment.dataFile, StandardOpenOption.READ)) {
+                ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+                while (entryCount > 0) {
+                    long offset = index.getLong((entryCount - 1) * INDEX_ENTRY_SIZE + IE_OFFSET);
+                    lengthBuffer.clear();
+                    if (offset >= 0 && offset + 4 <= segment.dataSize && dataChannel.read(lengthBuffer, offset) == 4 &&
+                        offset + 4 + lengthBuffer.getInt(0) <= segment.dataSize)
+                    {
+                        break;
+                    }
+                    entryCount--;
+                }
+            } catch (NoSuchFileException e) {
+                entryCount = 0;
+            }
+        }
+        truncateFile(segment.indexFile, (long) entryCount * INDEX_ENTRY_SIZE);
+        segment.entryCount = entryCount;
+        for (int i = 0; i < entryCount; i++) {
+            segment.addTime(index.getLong(i * INDEX_ENTRY_SIZE + IE_OPEN_TIME));
+        }
+    }
+
+    private static ByteBuffer readIndex(Segment segment, int firstEntry, int entryCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.indexFile, StandardOpenOption.READ)) {
+            return readIndex(channel, firstEntry, entryCount);
+        }
+    }
+
+    private static ByteBuffer readIndex(FileChannel channel, int firstEntry, int entryCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entryCount * INDEX_ENTRY_SIZE);
+        long offset = (long) firstEntry * INDEX_ENTRY_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void truncateFile(Path file, long size) throws IOException {
+        if (Files.size(file) > size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////
+    // Read
+
+    /**
+     * Returns cursor over stored query executions.
+     * Events are always ordered by time (sort fields other than date are ignored).
+     */
+    @Override
+    public QMEventCursor getQueryHistoryCursor(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull QMEventCriteria criteria,
+        @Nullable QMEventFilter filter)
+        throws DBException
+    {
+        if (criteria.hasObjectTypes() && !criteria.hasObjectType(QMObjectType.query)) {
+            // Only queries are stored
+            return new QMUtils.EmptyCursorImpl();
+        }
+        final List<Segment> segmentsSnapshot = new ArrayList<>();
+        final IndexFilter indexFilter;
+        synchronized (this) {
+            if (closed) {
+                throw new DBException("Query history store is closed");
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new DBException("Error flushing query history", e);
+            }
+            for (Segment segment : segments) {
+                segmentsSnapshot.add(segment.copy());
+            }
+            indexFilter = createIndexFilter(criteria);
+        }
+        if (indexFilter == null) {
+            return new QMUtils.EmptyCursorImpl();
+        }
+
+        final String searchString = CommonUtils.isEmpty(criteria.getSearchString()) ? null : criteria.getSearchString().toLowerCase();
+        return new HistoryCursor(segmentsSnapshot, indexFilter, criteria.isDesc(), searchString, criteria.isSkipEmptyQueries(), filter);
+    }
+
+    @Nullable
+    private IndexFilter createIndexFilter(@NotNull QMEventCriteria criteria) {
+        IndexFilter indexFilter = new IndexFilter();
+        if (!CommonUtils.isEmpty(criteria.getContainerId())) {
+            Integer containerId = dictionaryIndex.get(criteria.getContainerId());
+            if (containerId == null) {
+                return null;
+            }
+            indexFilter.containerId = containerId;
+        }
+        if (criteria.hasDriverIds()) {
+            indexFilter.driverIds = new HashSet<>();
+            for (String driverId : criteria.getDriverIds()) {
+                Integer id = dictionaryIndex.get(driverId);
+                if (id != null) {
+                    indexFilter.driverIds.add(id);
+                }
+            }
+            if (indexFilter.driverIds.isEmpty()) {
+                return null;
+            }
+        }
+        if (criteria.hasQueryTypes()) {
+            indexFilter.purposes = new boolean[DBCExecutionPurpose.values().length];
+            for (DBCExecutionPurpose purpose : criteria.getQueryTypes()) {
+                indexFilter.purposes[purpose.ordinal()] = true;
+            }
+        }
+        if (criteria.hasEventStatuses()) {
+            indexFilter.status = criteria.getEventStatuses().contains(QMEventStatus.FAILED) ? STATUS_FAILED : STATUS_SUCCESS;
+        }
+        QMDateRange dateRange = criteria.getStartDateRange();
+        if (dateRange != null) {
+            if (dateRange.getFrom() != null) {
+                indexFilter.fromTime = toMillis(dateRange.getFrom());
+            }
+            if (dateRange.getTo() != null) {
+                indexFilter.toTime = toMillis(dateRange.getTo());
+            }
+        }
+        if (criteria.getMinDuration() != null) {
+            indexFilter.minDuration = criteria.getMinDuration();
+        }
+        if (criteria.hasLastEventId()) {
+            indexFilter.lastEventId = criteria.getLastEventId();
+        }
+        return indexFilter;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static class Segment {
+        final long number;
+        final Path dataFile;
+        final Path indexFile;
+        long dataSize;
+        int entryCount;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+
+        Segment(Path folder, long number) {
+            this.number = number;
+            String baseName = String.format("%08d", number);
+            this.dataFile = folder.resolve(baseName + DATA_FILE_EXT);
+            this.indexFile = folder.resolve(baseName + INDEX_FILE_EXT);
+        }
+
+        private Segment(Segment source) {
+            this.number = source.number;
+            this.dataFile = source.dataFile;
+            this.indexFile = source.indexFile;
+            this.dataSize = source.dataSize;
+            this.entryCount = source.entryCount;
+            this.minTime = source.minTime;
+            this.maxTime = source.maxTime;
+        }
+
+        void addTime(long time) {
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+        }
+
+        Segment copy() {
+            return new Segment(this);
+        }
+    }
+
+    private static class IndexFilter {
+        int containerId = -1;
+        Set<Integer> driverIds;
+        boolean[] purposes;
+        byte status = -1;
+        long fromTime = Long.MIN_VALUE;
+        long toTime = Long.MAX_VALUE;
+        long minDuration = 0;
+        Long lastEventId;
+
+        boolean matches(ByteBuffer index, int pos, boolean desc) {
+            if (lastEventId != null) {
+                long id = index.getLong(pos + IE_ID);
+                if (desc ? id >= lastEventId : id <= lastEventId) {
+                    return false;
+                }
+            }
+            long openTime = index.getLong(pos + IE_OPEN_TIME);
+            if (openTime < fromTime || openTime > toTime) {
+                return false;
+            }
+            if (minDuration > 0 && index.getInt(pos + IE_DURATION) < minDuration) {
+                return false;
+            }
+            if (containerId >= 0 && index.getInt(pos + IE_CONTAINER) != containerId) {
+                return false;
+            }
+            if (driverIds != null && !driverIds.contains(index.getInt(pos + IE_DRIVER))) {
+                return false;
+            }
+            if (purposes != null) {
+                int purpose = index.get(pos + IE_PURPOSE);
+                if (purpose < 0 || purpose >= purposes.length || !purposes[purpose]) {
+                    return false;
+                }
+            }
+            return status < 0 || index.get(pos + IE_STATUS) == status;
+        }
+    }
+
+    /**
+     * Iterates over index entries matching index filter, in the cursor order.
+     * Index is read by blocks, data records are not read.
+     */
+    private static class IndexScanner {
+        private final List<Segment> segments;
+        private final IndexFilter indexFilter;
+        private final boolean desc;
+
+        private int segmentStep = -1;
+        private Segment segment;
+        private FileChannel indexChannel;
+        private ByteBuffer indexBlock;
+        private int blockFirstEntry;
+        private int entryStep;
+
+        IndexScanner(List<Segment> segments, IndexFilter indexFilter, boolean desc) {
+            this.segments = segments;
+            this.indexFilter = indexFilter;
+            this.desc = desc;
+        }
+
+        /**
+         * Returns next matching event reference (segment index in high bits and record offset in low bits) or -1
+         */
+        long next() throws IOException {
+            for (;;) {
+                if (segment == null || entryStep >= segment.entryCount) {
+                    if (!nextSegment()) {
+                        return -1;
+                    }
+                    continue;
+                }
+                int entry = desc ? segment.entryCount - 1 - entryStep : entryStep;
+                entryStep++;
+                if (indexBlock == null || entry < blockFirstEntry || entry >= blockFirstEntry + indexBlock.limit() / INDEX_ENTRY_SIZE) {
+                    blockFirstEntry = desc ? Math.max(0, entry - INDEX_BLOCK_SIZE + 1) : entry;
+                    int blockSize = Math.min(INDEX_BLOCK_SIZE, segment.entryCount - blockFirstEntry);
+                    indexBlock = readIndex(indexChannel, blockFirstEntry, blockSize);
+                    if (entry >= blockFirstEntry + indexBlock.limit() / INDEX_ENTRY_SIZE) {
+                        // Index was truncated or deleted
+                        segment = null;
+                        continue;
+                    }
+                }
+                int entryPos = (entry - blockFirstEntry) * INDEX_ENTRY_SIZE;
+                if (indexFilter.matches(indexBlock, entryPos, desc)) {
+                    int segmentIndex = desc ? segments.size() - 1 - segmentStep : segmentStep;
+                    return ((long) segmentIndex << SEGMENT_BITS) | indexBlock.getLong(entryPos + IE_OFFSET);
+                }
+            }
+        }
+
+        private boolean nextSegment() throws IOException {
+            closeIndex();
+            segment = null;
+            while (++segmentStep < segments.size()) {
+                Segment nextSegment = segments.get(desc ? segments.size() - 1 - segmentStep : segmentStep);
+                if (nextSegment.entryCount == 0 || nextSegment.maxTime < indexFilter.fromTime || nextSegment.minTime > indexFilter.toTime) {
+                    continue;
+                }
+                try {
+                    indexChannel = FileChannel.open(nextSegment.indexFile, StandardOpenOption.READ);
+                } catch (NoSuchFileException e) {
+                    // Expired and deleted
+                    continue;
+                }
+                segment = nextSegment;
+                entryStep = 0;
+                return true;
+            }
+            return false;
+        }
+
+        private void closeIndex() {
+            indexBlock = null;
+            if (indexChannel != null) {
+                try {
+                    indexChannel.close();
+                } catch (IOException e) {
+                    log.debug("Error closing history index", e);
+                }
+                indexChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Lazy history cursor. Matching events are searched in index on demand and only returned events are decoded
+     * (and events which must be checked by text search or by custom filter).
+     */
+    private static class HistoryCursor implements QMEventCursor {
+
+        private final List<Segment> segments;
+        private final IndexFilter indexFilter;
+        private final boolean desc;
+        @Nullable
+        private final String searchString;
+        private final boolean skipEmptyQueries;
+        @Nullable
+        private final QMEventFilter filter;
+
+        private final FileChannel[] channels;
+        private final Map<String, QMMConnectionInfo> connections = new HashMap<>();
+        private IndexScanner scanner;
+        private long totalSize = -1;
+        // Next matching event (-1 if there are no more events)
+        private long nextEventRef;
+        @Nullable
+        private QMMetaEventEntity nextEvent;
+        private boolean nextEventFound;
+
+        HistoryCursor(
+            List<Segment> segments,
+            IndexFilter indexFilter,
+            boolean desc,
+            @Nullable String searchString,
+            boolean skipEmptyQueries,
+            @Nullable QMEventFilter filter)
+        {
+            this.segments = segments;
+            this.indexFilter = indexFilter;
+            this.desc = desc;
+            this.searchString = searchString;
+            this.skipEmptyQueries = skipEmptyQueries;
+            this.filter = filter;
+            this.channels = new FileChannel[segments.size()];
+            this.scanner = new IndexScanner(segments, indexFilter, desc);
+        }
+
+        private boolean isCheckRecords() {
+            return searchString != null || skipEmptyQueries || filter != null;
+        }
+
+        /**
+         * Total number of matching events. Scans the whole index (and all records if text search or filter is set).
+         */
+        @Override
+        public long getTotalSize() {
+            if (totalSize < 0) {
+                IndexScanner countScanner = new IndexScanner(segments, indexFilter, desc);
+                long count = 0;
+                try {
+                    for (long ref = countScanner.next(); ref >= 0; ref = countScanner.next()) {
+                        if (!isCheckRecords() || acceptEvent(readEvent(ref))) {
+                            count++;
+                        }
+                    }
+                } catch (IOException e) {
+                    log.debug("Error reading query history", e);
+                } finally {
+                    countScanner.closeIndex();
+                }
+                totalSize = count;
+            }
+            return totalSize;
+        }
+
+        @Override
+        public void scroll(int position, DBRProgressMonitor monitor) throws DBException {
+            if (position < 0) {
+                throw new DBException("Negative position: " + position);
+            }
+            scanner.closeIndex();
+            scanner = new IndexScanner(segments, indexFilter, desc);
+            nextEventFound = false;
+            for (int i = 0; i < position; i++) {
+                if (!hasNextEvent(monitor)) {
+                    throw new DBException("Position is out of range (" + i + ")");
+                }
+                nextEventFound = false;
+            }
+        }
+
+        @Override
+        public boolean hasNextEvent(DBRProgressMonitor monitor) throws DBException {
+            if (!nextEventFound) {
+                try {
+                    findNextEvent(monitor);
+                } catch (IOException e) {
+                    throw new DBException("Error reading query history", e);
+                }
+            }
+            return nextEventRef >= 0;
+        }
+
+        @Override
+        public QMMetaEventEntity nextEvent(DBRProgressMonitor monitor) throws DBException {
+            if (!hasNextEvent(monitor)) {
+                throw new DBException("No more events");
+            }
+            nextEventFound = false;
+            try {
+                return nextEvent != null ? nextEvent : readEvent(nextEventRef);
+            } catch (IOException e) {
+                throw new DBException("Error reading query history", e);
+            } finally {
+                nextEvent = null;
+            }
+        }
+
+        private void findNextEvent(DBRProgressMonitor monitor) throws IOException {
+            nextEvent = null;
+            for (;;) {
+                nextEventRef = monitor.isCanceled() ? -1 : scanner.next();
+                if (nextEventRef < 0 || !isCheckRecords()) {
+                    break;
+                }
+                QMMetaEventEntity event = readEvent(nextEventRef);
+                if (acceptEvent(event)) {
+                    nextEvent = event;
+                    break;
+                }
+            }
+            nextEventFound = true;
+        }
+
+        private boolean acceptEvent(QMMetaEventEntity event) {
+            String queryString = ((QMMStatementExecuteInfo) event.getObject()).getQueryString();
+            if (skipEmptyQueries && CommonUtils.isEmptyTrimmed(queryString)) {
+                return false;
+            }
+            if (searchString != null && (queryString == null || !queryString.toLowerCase().contains(searchString))) {
+                return false;
+            }
+            return filter == null || filter.accept(event);
+        }
+
+        private QMMetaEventEntity readEvent(long eventRef) throws IOException {
+            int segmentIndex = (int) (eventRef >>> SEGMENT_BITS);
+            long offset = eventRef & OFFSET_MASK;
+            FileChannel channel = channels[segmentIndex];
+            if (channel == null) {
+                channel = FileChannel.open(segments.get(segmentIndex).dataFile, StandardOpenOption.READ);
+                channels[segmentIndex] = channel;
+            }
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            readFully(channel, lengthBuffer, offset);
+            ByteBuffer record = ByteBuffer.allocate(lengthBuffer.getInt(0));
+            readFully(channel, record, offset + 4);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+            long eventId = in.readLong();
+            long openTime = in.readLong();
+            long closeTime = in.readLong();
+            String containerId = readString(in);
+            String containerName = readString(in);
+            String driverId = readString(in);
+            String instanceId = readString(in);
+            String contextName = readString(in);
+            int purposeIndex = in.readByte();
+            String queryString = readString(in);
+            long fetchRowCount = in.readLong();
+            long updateRowCount = in.readLong();
+            int errorCode = in.readInt();
+            String errorMessage = readString(in);
+            long fetchBeginTime = in.readLong();
+            long fetchEndTime = in.readLong();
+            boolean transactional = in.readBoolean();
+
+            String connectionKey = containerId + "/" + instanceId + "/" + contextName;
+            QMMConnectionInfo connection = connections.get(connectionKey);
+            if (connection == null) {
+                connection = new QMMConnectionInfo(0, 0, containerId, containerName, driverId, null, instanceId, contextName, transactional);
+                connections.put(connectionKey, connection);
+            }
+            DBCExecutionPurpose[] purposes = DBCExecutionPurpose.values();
+            DBCExecutionPurpose purpose = purposeIndex >= 0 && purposeIndex < purposes.length ? purposes[purposeIndex] : null;
+            QMMStatementInfo statement = new QMMStatementInfo(openTime, closeTime, connection, purpose);
+            QMMStatementExecuteInfo execution = new QMMStatementExecuteInfo(
+                openTime, closeTime, statement, queryString, fetchRowCount, updateRowCount,
+                errorCode, errorMessage, fetchBeginTime, fetchEndTime, transactional);
+            return new QMMetaEventEntity(execution, QMEventAction.END, eventId, null, null);
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of history segment");
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            scanner.closeIndex();
+            for (int i = 0; i < channels.length; i++) {
+                if (channels[i] != null) {
+                    try {
+                        channels[i].close();
+                    } catch (IOException e) {
+                        log.debug("Error closing history segment", e);
+                    }
+                    channels[i] = null;
+                }
+            }
+        }
+    }
+
+}
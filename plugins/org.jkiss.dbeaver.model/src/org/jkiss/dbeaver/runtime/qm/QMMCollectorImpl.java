@@ -38,11 +38,16 @@ import org.jkiss.dbeaver.model.qm.meta.*;
 import org.jkiss.dbeaver.model.runtime.AbstractJob;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.runtime.LoggingProgressMonitor;
-import org.jkiss.utils.LongKeyMap;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Query manager execution handler implementation
@@ -53,28 +58,34 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
 
     private static final long EVENT_DISPATCH_PERIOD = 250;
     private static final int MAX_HISTORY_EVENTS = 10000;
+    // Max number of events waiting for dispatch. Extra events are dropped.
+    private static final int MAX_QUEUED_EVENTS = 100000;
 
     // Session map
-    private LongKeyMap<QMMConnectionInfo> connectionMap = new LongKeyMap<>();
-    private List<Long> closedConnections = new ArrayList<>();
+    private final Map<Long, QMMConnectionInfo> connectionMap = new ConcurrentHashMap<>();
+    private final Queue<Long> closedConnections = new ConcurrentLinkedQueue<>();
 
     // External listeners
     private final List<QMMetaListener> listeners = new ArrayList<>();
 
-    // Temporary event pool
-    private List<QMMetaEvent> eventPool = new ArrayList<>();
+    // Temporary event pool. Filled by execution threads, drained by event dispatcher
+    private final Queue<QMMetaEvent> eventPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger eventPoolSize = new AtomicInteger();
+    // Event statistics
+    private final AtomicLong queuedEventCount = new AtomicLong();
+    private final AtomicLong droppedEventCount = new AtomicLong();
     // Sync object
     private final Object historySync = new Object();
     // History (may be purged when limit reached)
     private List<QMMetaEvent> pastEvents = new ArrayList<>();
-    private boolean running = true;
+    private volatile boolean running = true;
 
     public QMMCollectorImpl()
     {
         new EventDispatcher().schedule(EVENT_DISPATCH_PERIOD);
     }
 
-    public synchronized void dispose()
+    public void dispose()
     {
         if (!connectionMap.isEmpty()) {
             List<QMMConnectionInfo> openSessions = new ArrayList<>();
@@ -137,33 +148,65 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
         }
     }
 
-    private synchronized void tryFireMetaEvent(final QMMObject object, final QMEventAction action, DBCExecutionContext context) {
-        try {
-            DBRProgressMonitor monitor = new LoggingProgressMonitor();
-            DBPProject project = context.getDataSource().getContainer().getProject();
-            SMSession session = project.getSessionContext().getSpaceSession(monitor, project, false);
-            if (session == null) {
-                DBPWorkspace workspace = project.getWorkspace();
-                session = workspace.getAuthContext().getSpaceSession(monitor, workspace, false);
-            }
-            SMSessionPersistent sessionPersistent = DBUtils.getAdapter(SMSessionPersistent.class, session);
-            if (sessionPersistent == null) {
-                log.warn("Session persistent not found");
-                return;
-            }
+    /**
+     * Total number of events accepted for dispatch
+     */
+    public long getQueuedEventCount() {
+        return queuedEventCount.get();
+    }
 
-            eventPool.add(new QMMetaEvent(object, action, sessionPersistent));
+    /**
+     * Number of events dropped because dispatch queue was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    private void tryFireMetaEvent(final QMMObject object, final QMEventAction action, DBCExecutionContext context) {
+        // Session is resolved for each event (without opening) because user may re-login at any moment
+        SMSessionPersistent sessionPersistent;
+        try {
+            sessionPersistent = resolveSessionPersistent(context);
         } catch (DBException e) {
             log.error("Failed to fire qm meta event", e);
+            return;
+        }
+        if (sessionPersistent == null) {
+            log.warn("Session persistent not found");
+            return;
         }
+
+        if (eventPoolSize.incrementAndGet() > MAX_QUEUED_EVENTS) {
+            eventPoolSize.decrementAndGet();
+            if (droppedEventCount.getAndIncrement() == 0) {
+                log.warn("QM meta event queue is full (" + MAX_QUEUED_EVENTS + "), events will be dropped");
+            }
+            return;
+        }
+        eventPool.add(new QMMetaEvent(object, action, sessionPersistent));
+        queuedEventCount.incrementAndGet();
     }
 
-    private synchronized List<QMMetaEvent> obtainEvents() {
+    private static SMSessionPersistent resolveSessionPersistent(DBCExecutionContext context) throws DBException {
+        DBRProgressMonitor monitor = new LoggingProgressMonitor();
+        DBPProject project = context.getDataSource().getContainer().getProject();
+        SMSession session = project.getSessionContext().getSpaceSession(monitor, project, false);
+        if (session == null) {
+            DBPWorkspace workspace = project.getWorkspace();
+            session = workspace.getAuthContext().getSpaceSession(monitor, workspace, false);
+        }
+        return DBUtils.getAdapter(SMSessionPersistent.class, session);
+    }
+
+    private List<QMMetaEvent> obtainEvents() {
         if (eventPool.isEmpty()) {
             return Collections.emptyList();
         }
-        List<QMMetaEvent> events = eventPool;
-        eventPool = new ArrayList<>();
+        List<QMMetaEvent> events = new ArrayList<>();
+        for (QMMetaEvent event = eventPool.poll(); event != null; event = eventPool.poll()) {
+            events.add(event);
+        }
+        eventPoolSize.addAndGet(-events.size());
         return events;
     }
 
@@ -182,18 +225,26 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleContextOpen(@NotNull DBCExecutionContext context, boolean transactional) {
+    public void handleContextOpen(@NotNull DBCExecutionContext context, boolean transactional) {
         final long contextId = context.getContextId();
         QMMConnectionInfo connection = connectionMap.get(contextId);
         if (connection == null) {
             connection = new QMMConnectionInfo(
                 context,
                 transactional);
-            connectionMap.put(contextId, connection);
+            QMMConnectionInfo prevConnection = connectionMap.putIfAbsent(contextId, connection);
+            if (prevConnection != null) {
+                connection = prevConnection;
+                synchronized (connection) {
+                    connection.reopen(context);
+                }
+            }
         } else {
             // This session may already be in cache in case of reconnect/invalidate
             // (when context closed and reopened without new context object creation)
-            connection.reopen(context);
+            synchronized (connection) {
+                connection.reopen(context);
+            }
         }
 
         // Remove from closed sessions (in case of re-opened connection)
@@ -203,22 +254,27 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleContextClose(@NotNull DBCExecutionContext context)
+    public void handleContextClose(@NotNull DBCExecutionContext context)
     {
         QMMConnectionInfo session = getConnectionInfo(context);
         if (session != null) {
-            session.close();
+            synchronized (session) {
+                session.close();
+            }
             tryFireMetaEvent(session, QMEventAction.END, context);
         }
         closedConnections.add(context.getContextId());
     }
 
     @Override
-    public synchronized void handleTransactionAutocommit(@NotNull DBCExecutionContext context, boolean autoCommit)
+    public void handleTransactionAutocommit(@NotNull DBCExecutionContext context, boolean autoCommit)
     {
         QMMConnectionInfo sessionInfo = getConnectionInfo(context);
         if (sessionInfo != null) {
-            QMMTransactionInfo oldTxn = sessionInfo.changeTransactional(!autoCommit);
+            final QMMTransactionInfo oldTxn;
+            synchronized (sessionInfo) {
+                oldTxn = sessionInfo.changeTransactional(!autoCommit);
+            }
             if (oldTxn != null) {
                 tryFireMetaEvent(oldTxn, QMEventAction.END, context);
             }
@@ -227,11 +283,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleTransactionCommit(@NotNull DBCExecutionContext context)
+    public void handleTransactionCommit(@NotNull DBCExecutionContext context)
     {
         QMMConnectionInfo sessionInfo = getConnectionInfo(context);
         if (sessionInfo != null) {
-            QMMTransactionInfo oldTxn = sessionInfo.commit();
+            final QMMTransactionInfo oldTxn;
+            synchronized (sessionInfo) {
+                oldTxn = sessionInfo.commit();
+            }
             if (oldTxn != null) {
                 tryFireMetaEvent(oldTxn, QMEventAction.END, context);
             }
@@ -239,11 +298,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleTransactionRollback(@NotNull DBCExecutionContext context, DBCSavepoint savepoint)
+    public void handleTransactionRollback(@NotNull DBCExecutionContext context, DBCSavepoint savepoint)
     {
         QMMConnectionInfo sessionInfo = getConnectionInfo(context);
         if (sessionInfo != null) {
-            QMMObject oldTxn = sessionInfo.rollback(savepoint);
+            final QMMObject oldTxn;
+            synchronized (sessionInfo) {
+                oldTxn = sessionInfo.rollback(savepoint);
+            }
             if (oldTxn != null) {
                 tryFireMetaEvent(oldTxn, QMEventAction.END, context);
             }
@@ -251,21 +313,27 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleStatementOpen(@NotNull DBCStatement statement)
+    public void handleStatementOpen(@NotNull DBCStatement statement)
     {
         QMMConnectionInfo session = getConnectionInfo(statement.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementInfo stat = session.openStatement(statement);
+            final QMMStatementInfo stat;
+            synchronized (session) {
+                stat = session.openStatement(statement);
+            }
             tryFireMetaEvent(stat, QMEventAction.BEGIN, statement.getSession().getExecutionContext());
         }
     }
 
     @Override
-    public synchronized void handleStatementClose(@NotNull DBCStatement statement, long rows)
+    public void handleStatementClose(@NotNull DBCStatement statement, long rows)
     {
         QMMConnectionInfo session = getConnectionInfo(statement.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementInfo stat = session.closeStatement(statement, rows);
+            final QMMStatementInfo stat;
+            synchronized (session) {
+                stat = session.closeStatement(statement, rows);
+            }
             if (stat == null) {
                 log.warn("Can't properly handle statement close");
             } else {
@@ -275,11 +343,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleStatementExecuteBegin(@NotNull DBCStatement statement)
+    public void handleStatementExecuteBegin(@NotNull DBCStatement statement)
     {
         QMMConnectionInfo session = getConnectionInfo(statement.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementExecuteInfo exec = session.beginExecution(statement);
+            final QMMStatementExecuteInfo exec;
+            synchronized (session) {
+                exec = session.beginExecution(statement);
+            }
             if (exec != null) {
                 tryFireMetaEvent(exec, QMEventAction.BEGIN, statement.getSession().getExecutionContext());
             }
@@ -287,11 +358,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleStatementExecuteEnd(@NotNull DBCStatement statement, long rows, Throwable error)
+    public void handleStatementExecuteEnd(@NotNull DBCStatement statement, long rows, Throwable error)
     {
         QMMConnectionInfo session = getConnectionInfo(statement.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementExecuteInfo exec = session.endExecution(statement, rows, error);
+            final QMMStatementExecuteInfo exec;
+            synchronized (session) {
+                exec = session.endExecution(statement, rows, error);
+            }
             if (exec != null) {
                 tryFireMetaEvent(exec, QMEventAction.END, statement.getSession().getExecutionContext());
             }
@@ -299,11 +373,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleResultSetOpen(@NotNull DBCResultSet resultSet)
+    public void handleResultSetOpen(@NotNull DBCResultSet resultSet)
     {
         QMMConnectionInfo session = getConnectionInfo(resultSet.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementExecuteInfo exec = session.beginFetch(resultSet);
+            final QMMStatementExecuteInfo exec;
+            synchronized (session) {
+                exec = session.beginFetch(resultSet);
+            }
             if (exec != null) {
                 tryFireMetaEvent(exec, QMEventAction.UPDATE, resultSet.getSession().getExecutionContext());
             }
@@ -311,11 +388,14 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
     }
 
     @Override
-    public synchronized void handleResultSetClose(@NotNull DBCResultSet resultSet, long rowCount)
+    public void handleResultSetClose(@NotNull DBCResultSet resultSet, long rowCount)
     {
         QMMConnectionInfo session = getConnectionInfo(resultSet.getSession().getExecutionContext());
         if (session != null) {
-            QMMStatementExecuteInfo exec = session.endFetch(resultSet, rowCount);
+            final QMMStatementExecuteInfo exec;
+            synchronized (session) {
+                exec = session.endFetch(resultSet, rowCount);
+            }
             if (exec != null) {
                 tryFireMetaEvent(exec, QMEventAction.UPDATE, resultSet.getSession().getExecutionContext());
             }
@@ -334,12 +414,10 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
         @Override
         protected IStatus run(DBRProgressMonitor monitor)
         {
-            final List<QMMetaEvent> events;
-            List<Long> sessionsToClose;
-            synchronized (QMMCollectorImpl.this) {
-                events = obtainEvents();
-                sessionsToClose = closedConnections;
-                closedConnections.clear();
+            final List<QMMetaEvent> events = obtainEvents();
+            final List<Long> sessionsToClose = new ArrayList<>();
+            for (Long sessionId = closedConnections.poll(); sessionId != null; sessionId = closedConnections.poll()) {
+                sessionsToClose.add(sessionId);
             }
             if (!events.isEmpty()) {
                 final List<QMMetaListener> listeners = getListeners();
@@ -366,14 +444,12 @@ public class QMMCollectorImpl extends DefaultExecutionHandler implements QMMColl
                 }
             }
             // Cleanup closed sessions
-            synchronized (QMMCollectorImpl.this) {
-                for (Long sessionId : sessionsToClose) {
-                    final QMMConnectionInfo session = connectionMap.get(sessionId);
-                    if (session != null && !session.isClosed()) {
-                        // It is possible (rarely) that session was reopened before event dispatcher run
-                        // In that case just ignore it
-                        connectionMap.remove(sessionId);
-                    }
+            for (Long sessionId : sessionsToClose) {
+                final QMMConnectionInfo session = connectionMap.get(sessionId);
+                if (session != null && !session.isClosed()) {
+                    // It is possible (rarely) that session was reopened before event dispatcher run
+                    // In that case just ignore it
+                    connectionMap.remove(sessionId, session);
                 }
             }
             if (isRunning()) {
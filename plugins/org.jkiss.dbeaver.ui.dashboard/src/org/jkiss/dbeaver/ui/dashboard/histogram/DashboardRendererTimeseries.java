@@ -36,6 +36,7 @@ import org.jkiss.dbeaver.ui.dashboard.control.DashboardRendererBase;
 import org.jkiss.dbeaver.ui.dashboard.model.*;
 import org.jkiss.dbeaver.ui.dashboard.model.data.DashboardDataset;
 import org.jkiss.dbeaver.ui.dashboard.model.data.DashboardDatasetRow;
+import org.jkiss.dbeaver.ui.dashboard.model.data.DashboardSeriesBuffer;
 
 import java.awt.*;
 import java.text.SimpleDateFormat;
@@ -53,8 +54,7 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
     @Override
     public DashboardChartComposite createDashboard(Composite composite, DashboardContainer container, DashboardViewContainer viewContainer, Point preferredSize) {
 
-        TimeSeriesCollection dataset = new TimeSeriesCollection();
-        //generateSampleSeries(container, dataset);
+        DashboardTimeSeriesDataset dataset = new DashboardTimeSeriesDataset();
 
         DashboardItemViewConfiguration viewConfig = viewContainer.getViewConfiguration().getDashboardConfig(container.getDashboardId());
 
@@ -195,7 +195,7 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
         }
         JFreeChart chart = chartComposite.getChart();
         XYPlot plot = (XYPlot) chart.getPlot();
-        TimeSeriesCollection chartDataset = (TimeSeriesCollection) plot.getDataset();
+        DashboardTimeSeriesDataset chartDataset = (DashboardTimeSeriesDataset) plot.getDataset();
 
         if (container.getDashboardFetchType() == DashboardFetchType.stats) {
             // Clean previous data before stats update
@@ -216,11 +216,9 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
         for (int i = 0; i < srcSeries.length; i++) {
             String seriesName = srcSeries[i];
 
-            TimeSeries series = chartDataset.getSeries(seriesName);
+            DashboardSeriesBuffer series = chartDataset.getSeries(seriesName);
             if (series == null) {
-                series = new TimeSeries(seriesName);
-                series.setMaximumItemCount(container.getDashboardMaxItems());
-                series.setMaximumItemAge(container.getDashboardMaxAge());
+                series = new DashboardSeriesBuffer(seriesName, container.getDashboardMaxItems(), container.getDashboardMaxAge());
                 chartDataset.addSeries(series);
                 plot.getRenderer().setSeriesStroke(chartDataset.getSeriesCount() - 1, plot.getRenderer().getBaseStroke());
             }
@@ -244,13 +242,14 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
                         }
                         Object value = row.getValues()[i];
                         if (value instanceof Number) {
-                            series.addOrUpdate(makeDataItem(container, row), (Number) value);
+                            series.addOrUpdate(makeTimestamp(container, row), ((Number) value).doubleValue());
                         }
                     }
                     break;
                 }
                 case delta: {
                     if (lastUpdateTime == null) {
+                        chartDataset.seriesChanged();
                         return;
                     }
                     //System.out.println("LAST=" + lastUpdateTime + "; CUR=" + new Date());
@@ -265,7 +264,7 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
                                     deltaValue = Math.round(deltaValue);
                                 }
                                 series.addOrUpdate(
-                                    makeDataItem(container, row),
+                                    makeTimestamp(container, row),
                                     deltaValue);
                             }
                         }
@@ -275,11 +274,21 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
             }
         }
 
+        chartDataset.seriesChanged();
+
         if (!rows.isEmpty()) {
             chartComposite.setData("last_row", rows.get(rows.size() - 1));
         }
     }
 
+    private long makeTimestamp(DashboardContainer container, DashboardDatasetRow row) {
+        if (container.getDashboardInterval() == DashboardInterval.second || container.getDashboardInterval() == DashboardInterval.millisecond) {
+            return row.getTimestamp().getTime();
+        }
+        // Align timestamp to the interval start
+        return makeDataItem(container, row).getFirstMillisecond();
+    }
+
     private RegularTimePeriod makeDataItem(DashboardContainer container, DashboardDatasetRow row) {
         switch (container.getDashboardInterval()) {
             case second: return new FixedMillisecond(row.getTimestamp().getTime());
@@ -298,7 +307,7 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
     public void resetDashboardData(DashboardContainer container, Date lastUpdateTime) {
         XYPlot plot = getDashboardPlot(container);
         if (plot != null) {
-            TimeSeriesCollection chartDataset = (TimeSeriesCollection) plot.getDataset();
+            DashboardTimeSeriesDataset chartDataset = (DashboardTimeSeriesDataset) plot.getDataset();
             chartDataset.removeAllSeries();
         }
     }
@@ -319,12 +328,13 @@ public class DashboardRendererTimeseries extends DashboardRendererBase {
 
                 chartComposite.getChart().getLegend().setVisible(dashboardConfig.isLegendVisible());
 
-                TimeSeriesCollection chartDataset = (TimeSeriesCollection) plot.getDataset();
+                DashboardTimeSeriesDataset chartDataset = (DashboardTimeSeriesDataset) plot.getDataset();
                 for (int i = 0; i < chartDataset.getSeriesCount(); i++) {
-                    TimeSeries series = chartDataset.getSeries(i);
-                    series.setMaximumItemCount(dashboardConfig.getMaxItems());
-                    series.setMaximumItemAge(dashboardConfig.getMaxAge());
+                    DashboardSeriesBuffer series = chartDataset.getSeries(i);
+                    series.setCapacity(dashboardConfig.getMaxItems());
+                    series.setMaxAge(dashboardConfig.getMaxAge());
                 }
+                chartDataset.seriesChanged();
             }
         }
         dashboardItem.getParent().layout(true, true);
@@ -0,0 +1,153 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.dashboard.histogram;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jkiss.dbeaver.ui.dashboard.model.data.DashboardSeriesBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chart dataset backed by ring buffer series.
+ * Series longer than MAX_RENDER_POINTS are downsampled for rendering.
+ */
+public class DashboardTimeSeriesDataset extends AbstractXYDataset {
+
+    static final int MAX_RENDER_POINTS = 1000;
+
+    private final List<SeriesView> series = new ArrayList<>();
+
+    public DashboardSeriesBuffer getSeries(String name) {
+        for (SeriesView view : series) {
+            if (view.buffer.getName().equals(name)) {
+                return view.buffer;
+            }
+        }
+        return null;
+    }
+
+    public DashboardSeriesBuffer getSeries(int index) {
+        return series.get(index).buffer;
+    }
+
+    public void addSeries(DashboardSeriesBuffer buffer) {
+        series.add(new SeriesView(buffer));
+        fireDatasetChanged();
+    }
+
+    public void removeAllSeries() {
+        if (!series.isEmpty()) {
+            series.clear();
+            fireDatasetChanged();
+        }
+    }
+
+    /**
+     * Must be called after series data modification
+     */
+    public void seriesChanged() {
+        for (SeriesView view : series) {
+            view.invalidate();
+        }
+        fireDatasetChanged();
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    @Override
+    public Comparable getSeriesKey(int seriesIndex) {
+        return series.get(seriesIndex).buffer.getName();
+    }
+
+    @Override
+    public DomainOrder getDomainOrder() {
+        return DomainOrder.ASCENDING;
+    }
+
+    @Override
+    public int getItemCount(int seriesIndex) {
+        return series.get(seriesIndex).getItemCount();
+    }
+
+    @Override
+    public double getXValue(int seriesIndex, int item) {
+        return series.get(seriesIndex).getTimestamp(item);
+    }
+
+    @Override
+    public double getYValue(int seriesIndex, int item) {
+        return series.get(seriesIndex).getValue(item);
+    }
+
+    @Override
+    public Number getX(int seriesIndex, int item) {
+        return getXValue(seriesIndex, item);
+    }
+
+    @Override
+    public Number getY(int seriesIndex, int item) {
+        return getYValue(seriesIndex, item);
+    }
+
+    private static class SeriesView {
+        private final DashboardSeriesBuffer buffer;
+        // Downsampled points (used only for long series)
+        private long[] timestamps;
+        private double[] values;
+        private int count = -1;
+
+        SeriesView(DashboardSeriesBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void invalidate() {
+            count = -1;
+        }
+
+        private boolean isDownsampled() {
+            if (buffer.size() <= MAX_RENDER_POINTS) {
+                return false;
+            }
+            if (count < 0) {
+                if (timestamps == null) {
+                    timestamps = new long[MAX_RENDER_POINTS];
+                    values = new double[MAX_RENDER_POINTS];
+                }
+                count = buffer.downsample(MAX_RENDER_POINTS, timestamps, values);
+            }
+            return true;
+        }
+
+        int getItemCount() {
+            return isDownsampled() ? count : buffer.size();
+        }
+
+        long getTimestamp(int item) {
+            return isDownsampled() ? timestamps[item] : buffer.getTimestamp(item);
+        }
+
+        double getValue(int item) {
+            return isDownsampled() ? values[item] : buffer.getValue(item);
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.dashboard.model.data;
+
+/**
+ * Fixed-memory time series storage.
+ * Points are kept in a ring buffer of primitive timestamps and values.
+ * Oldest points are evicted when capacity or maximum age is exceeded.
+ */
+public class DashboardSeriesBuffer {
+
+    private final String name;
+    private long[] timestamps;
+    private double[] values;
+    // Index of the oldest point
+    private int head;
+    private int size;
+    private long maxAge;
+
+    public DashboardSeriesBuffer(String name, int capacity, long maxAge) {
+        this.name = name;
+        this.timestamps = new long[Math.max(1, capacity)];
+        this.values = new double[timestamps.length];
+        this.maxAge = maxAge;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return timestamps.length;
+    }
+
+    public void setCapacity(int capacity) {
+        capacity = Math.max(1, capacity);
+        if (capacity == timestamps.length) {
+            return;
+        }
+        // Keep the most recent points
+        int newSize = Math.min(size, capacity);
+        long[] newTimestamps = new long[capacity];
+        double[] newValues = new double[capacity];
+        for (int i = 0; i < newSize; i++) {
+            int index = physicalIndex(size - newSize + i);
+            newTimestamps[i] = timestamps[index];
+            newValues[i] = values[index];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+        size = newSize;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+        if (size > 0) {
+            evictExpired(getTimestamp(size - 1));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[physicalIndex(index)];
+    }
+
+    public double getValue(int index) {
+        return values[physicalIndex(index)];
+    }
+
+    /**
+     * Adds new point or updates existing point with the same timestamp.
+     * Out-of-order points are inserted in timestamp order (the same way time series did).
+     * If buffer is full then the oldest point is evicted, so a point older than all kept points is ignored.
+     */
+    public void addOrUpdate(long timestamp, double value) {
+        int index = search(timestamp);
+        if (index >= 0) {
+            values[physicalIndex(index)] = value;
+            return;
+        }
+        index = -(index + 1);
+        if (size == timestamps.length) {
+            if (index == 0) {
+                return;
+            }
+            head = (head + 1) % timestamps.length;
+            size--;
+            index--;
+        }
+        for (int i = size; i > index; i--) {
+            int to = physicalIndex(i);
+            int from = physicalIndex(i - 1);
+            timestamps[to] = timestamps[from];
+            values[to] = values[from];
+        }
+        int physical = physicalIndex(index);
+        timestamps[physical] = timestamp;
+        values[physical] = value;
+        size++;
+        evictExpired(getTimestamp(size - 1));
+    }
+
+    /**
+     * Binary search of the point with specified timestamp.
+     * Returns logical point index or -1.
+     */
+    public int indexOf(long timestamp) {
+        int index = search(timestamp);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns logical point index or (-(insertion point) - 1) if there is no such point.
+     */
+    private int search(long timestamp) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midTimestamp = getTimestamp(mid);
+            if (midTimestamp < timestamp) {
+                low = mid + 1;
+            } else if (midTimestamp > timestamp) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Averages series points into at most maxPoints buckets (of equal point count).
+     * Used to render long windows without drawing every single point.
+     * Returns number of points written into output arrays.
+     */
+    public int downsample(int maxPoints, long[] outTimestamps, double[] outValues) {
+        if (size <= maxPoints) {
+            for (int i = 0; i < size; i++) {
+                outTimestamps[i] = getTimestamp(i);
+                outValues[i] = getValue(i);
+            }
+            return size;
+        }
+        int bucketStart = 0;
+        for (int bucket = 0; bucket < maxPoints; bucket++) {
+            int bucketEnd = (int) ((long) size * (bucket + 1) / maxPoints);
+            long timestampSum = 0;
+            double valueSum = 0;
+            long baseTimestamp = getTimestamp(bucketStart);
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                timestampSum += getTimestamp(i) - baseTimestamp;
+                valueSum += getValue(i);
+            }
+            int count = bucketEnd - bucketStart;
+            outTimestamps[bucket] = baseTimestamp + timestampSum / count;
+            outValues[bucket] = valueSum / count;
+            bucketStart = bucketEnd;
+        }
+        return maxPoints;
+    }
+
+    private void evictExpired(long lastTimestamp) {
+        if (maxAge <= 0) {
+            return;
+        }
+        long minTimestamp = lastTimestamp - maxAge;
+        while (size > 1 && timestamps[head] < minTimestamp) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    private int physicalIndex(int index) {
+        int physical = head + index;
+        return physical >= timestamps.length ? physical - timestamps.length : physical;
+    }
+
+}
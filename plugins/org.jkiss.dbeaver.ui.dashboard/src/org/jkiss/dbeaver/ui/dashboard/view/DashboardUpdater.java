@@ -17,13 +17,18 @@
 package org.jkiss.dbeaver.ui.dashboard.view;
 
 import org.apache.commons.jexl3.JexlContext;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.*;
+import org.jkiss.code.NotNull;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBPDataSource;
 import org.jkiss.dbeaver.model.DBPDataSourceContainer;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.runtime.DBWorkbench;
 import org.jkiss.dbeaver.ui.dashboard.control.DashboardListViewer;
@@ -36,10 +41,20 @@ import org.jkiss.utils.CommonUtils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DashboardUpdater {
 
     private static final Log log = Log.getLog(DashboardUpdater.class);
+
+    // Datasource update is canceled if it takes longer than this number of dashboard update periods
+    private static final int UPDATE_TIMEOUT_PERIODS = 10;
+    // Min time of a single datasource update before it is canceled
+    private static final long MIN_UPDATE_TIMEOUT = 10000;
+
+    // Update jobs which are still running (one per datasource)
+    private static final Map<DBPDataSourceContainer, DataSourceUpdateJob> runningJobs = new ConcurrentHashMap<>();
+
     private Map<DBPDataSourceContainer, List<MapQueryInfo>> mapQueries = new HashMap<>();
 
     private static class MapQueryInfo {
@@ -59,11 +74,55 @@ public class DashboardUpdater {
     public DashboardUpdater() {
     }
 
+    /**
+     * Schedules update of dashboards which need it.
+     * Dashboards are updated in separate jobs, one per datasource, so slow servers do not delay other dashboards.
+     * Datasources which are still being updated since previous run are skipped.
+     */
     public void updateDashboards(DBRProgressMonitor monitor) {
-        List<DashboardContainer> dashboards = getDashboardsToUpdate();
+        scheduleUpdates(getDashboardsToUpdate(), System.currentTimeMillis());
+    }
 
-        updateDashboards(monitor, dashboards);
+    /**
+     * Schedules update jobs for the given dashboards.
+     * Update of a datasource which takes longer than {@link #getUpdateTimeout(List)} is canceled.
+     */
+    public void scheduleUpdates(@NotNull List<DashboardContainer> dashboards, long currentTime) {
+        Map<DBPDataSourceContainer, List<DashboardContainer>> dataSourceDashboards = new LinkedHashMap<>();
+        for (DashboardContainer dashboard : dashboards) {
+            dataSourceDashboards.computeIfAbsent(dashboard.getDataSourceContainer(), k -> new ArrayList<>()).add(dashboard);
+        }
+        for (Map.Entry<DBPDataSourceContainer, List<DashboardContainer>> entry : dataSourceDashboards.entrySet()) {
+            DBPDataSourceContainer dsContainer = entry.getKey();
+            DataSourceUpdateJob runningJob = runningJobs.get(dsContainer);
+            if (runningJob != null && runningJob.getState() != Job.NONE) {
+                if (currentTime - runningJob.startTime > runningJob.updateTimeout && !runningJob.isCanceled()) {
+                    log.debug("Datasource '" + dsContainer.getName() + "' dashboards update timed out. Cancel it.");
+                    runningJob.cancel();
+                }
+                continue;
+            }
+            DataSourceUpdateJob updateJob = createUpdateJob(dsContainer, entry.getValue());
+            runningJobs.put(dsContainer, updateJob);
+            updateJob.schedule();
+        }
+    }
 
+    @NotNull
+    protected DataSourceUpdateJob createUpdateJob(@NotNull DBPDataSourceContainer dataSourceContainer, @NotNull List<DashboardContainer> dashboards) {
+        return new DataSourceUpdateJob(dataSourceContainer, dashboards);
+    }
+
+    /**
+     * Returns max update time of datasource dashboards.
+     * It is proportional to the longest update period, so dashboards which are updated rarely may run longer queries.
+     */
+    public static long getUpdateTimeout(@NotNull List<DashboardContainer> dashboards) {
+        long maxUpdatePeriod = 0;
+        for (DashboardContainer dashboard : dashboards) {
+            maxUpdatePeriod = Math.max(maxUpdatePeriod, dashboard.getUpdatePeriod());
+        }
+        return Math.max(MIN_UPDATE_TIMEOUT, maxUpdatePeriod * UPDATE_TIMEOUT_PERIODS);
     }
 
     private void updateDashboards(DBRProgressMonitor monitor, List<DashboardContainer> dashboards) {
@@ -77,7 +136,7 @@ public class DashboardUpdater {
                     dashboard.getDataSourceContainer(), k -> new ArrayList<>());
                 boolean found = false;
                 for (MapQueryInfo mqi : queryList) {
-                    if (mqi.mapQuery == mapQuery) {
+                    if (isSameMapQuery(mqi.mapQuery, mapQuery)) {
                         found = true;
                         break;
                     }
@@ -121,6 +180,9 @@ public class DashboardUpdater {
         }
 
         for (DashboardContainer dashboard : dashboards) {
+            if (monitor.isCanceled()) {
+                break;
+            }
             if (!dashboard.isAutoUpdateEnabled()) {
                 continue;
             }
@@ -414,7 +476,7 @@ public class DashboardUpdater {
         List<MapQueryInfo> mapQueryInfos = mapQueries.get(dashboard.getDataSourceContainer());
         if (mapQueryInfos != null) {
             for (MapQueryInfo mqi : mapQueryInfos) {
-                if (mqi.mapQuery == dashboard.getMapQuery()) {
+                if (isSameMapQuery(mqi.mapQuery, dashboard.getMapQuery())) {
                     return mqi;
                 }
             }
@@ -422,4 +484,45 @@ public class DashboardUpdater {
         return null;
     }
 
+    /**
+     * Map queries with the same text are read only once for all views of the same datasource.
+     */
+    private static boolean isSameMapQuery(DashboardMapQuery query1, DashboardMapQuery query2) {
+        return query1 == query2 || CommonUtils.equalObjects(query1.getQueryText(), query2.getQueryText());
+    }
+
+    protected static class DataSourceUpdateJob extends AbstractJob {
+        private final DBPDataSourceContainer dataSourceContainer;
+        private final List<DashboardContainer> dashboards;
+        private final long updateTimeout;
+        private volatile long startTime;
+
+        protected DataSourceUpdateJob(DBPDataSourceContainer dataSourceContainer, List<DashboardContainer> dashboards) {
+            super("Update '" + dataSourceContainer.getName() + "' dashboards");
+            this.dataSourceContainer = dataSourceContainer;
+            this.dashboards = dashboards;
+            this.updateTimeout = getUpdateTimeout(dashboards);
+            this.startTime = System.currentTimeMillis();
+            setUser(false);
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(DBRProgressMonitor monitor) {
+            startTime = System.currentTimeMillis();
+            try {
+                updateDashboards(monitor, dashboards);
+            } catch (Exception e) {
+                log.error("Error updating '" + dataSourceContainer.getName() + "' dashboards", e);
+            } finally {
+                runningJobs.remove(dataSourceContainer, this);
+            }
+            return Status.OK_STATUS;
+        }
+
+        protected void updateDashboards(DBRProgressMonitor monitor, List<DashboardContainer> dashboards) {
+            new DashboardUpdater().updateDashboards(monitor, dashboards);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,591 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.controls.resultset;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.DBUtils;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Columnar storage of result set rows.
+ * Numeric, boolean and temporal values are kept in primitive arrays, strings are dictionary-encoded,
+ * nulls are kept in bitmaps. Any other value is kept as is.
+ * Each column picks its storage by the first non-null value and falls back to plain object storage
+ * as soon as it gets a value of a different class.
+ * <p>
+ * Values are boxed on read, so each read of a temporal value returns a new instance.
+ * Store is not thread-safe, it is filled and read by the result set model.
+ */
+public class ResultSetColumnStore implements ResultSetRowStorage {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // Strings dictionary is dropped when it grows larger than this or than half of rows
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    private static final int DICTIONARY_CHECK_ROWS = 4096;
+
+    @NotNull
+    private final Column[] columns;
+    private int rowCount;
+    private int capacity;
+
+    public ResultSetColumnStore(int columnCount) {
+        this.columns = new Column[columnCount];
+        this.capacity = INITIAL_CAPACITY;
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = new EmptyColumn();
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Appends row values to the store.
+     * @return index of the new row or -1 if values can't be stored (column count mismatch)
+     */
+    public int addRow(@NotNull Object[] values) {
+        if (values.length != columns.length) {
+            return -1;
+        }
+        if (rowCount >= capacity) {
+            int newCapacity = capacity + (capacity >> 1);
+            for (Column column : columns) {
+                column.grow(newCapacity);
+            }
+            capacity = newCapacity;
+        }
+        int row = rowCount++;
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            Column column = columns[i];
+            if (!column.accepts(value)) {
+                column = inflateColumn(column, value, row);
+                columns[i] = column;
+            }
+            column.set(row, value);
+        }
+        return row;
+    }
+
+    @Nullable
+    @Override
+    public Object getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    @NotNull
+    @Override
+    public Object[] getValues(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+        return values;
+    }
+
+    @NotNull
+    @Override
+    public Object[] detachRow(int row) {
+        Object[] values = getValues(row);
+        for (Column column : columns) {
+            column.clear(row);
+        }
+        return values;
+    }
+
+    @Override
+    public void releaseRow(int row) {
+        for (Column column : columns) {
+            if (column instanceof ObjectColumn) {
+                DBUtils.releaseValue(column.get(row));
+                column.clear(row);
+            }
+        }
+    }
+
+    /**
+     * Compares values of two rows in the same column. Order is the same as in {@link DBUtils#compareDataValues(Object, Object)}.
+     */
+    public int compareValues(int column, int row1, int row2) {
+        return columns[column].compare(row1, row2);
+    }
+
+    /**
+     * Returns storage kind of the column (for diagnostics)
+     */
+    @NotNull
+    public String getColumnKind(int column) {
+        return columns[column].getClass().getSimpleName();
+    }
+
+    @NotNull
+    private Column inflateColumn(@NotNull Column column, @NotNull Object value, int filledRows) {
+        Column newColumn = null;
+        if (column instanceof EmptyColumn) {
+            newColumn = createColumn(value.getClass(), capacity);
+        }
+        if (newColumn == null) {
+            newColumn = new ObjectColumn(capacity);
+        }
+        for (int i = 0; i < filledRows; i++) {
+            newColumn.set(i, column.get(i));
+        }
+        return newColumn;
+    }
+
+    @Nullable
+    private static Column createColumn(@NotNull Class<?> valueClass, int capacity) {
+        if (valueClass == Long.class || valueClass == Integer.class || valueClass == Short.class || valueClass == Byte.class) {
+            return new LongColumn(valueClass, capacity);
+        } else if (valueClass == Double.class || valueClass == Float.class) {
+            return new DoubleColumn(valueClass, capacity);
+        } else if (valueClass == Boolean.class) {
+            return new BooleanColumn(capacity);
+        } else if (valueClass == java.util.Date.class || valueClass == java.sql.Date.class || valueClass == Time.class || valueClass == Timestamp.class) {
+            return new DateColumn(valueClass, capacity);
+        } else if (valueClass == String.class) {
+            return new StringColumn(capacity);
+        }
+        return null;
+    }
+
+    private static long[] growBits(long[] bits, int capacity) {
+        int length = (capacity + 63) >> 6;
+        return bits.length >= length ? bits : Arrays.copyOf(bits, length);
+    }
+
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >> 6] |= 1L << index;
+        } else {
+            bits[index >> 6] &= ~(1L << index);
+        }
+    }
+
+    private abstract static class Column {
+
+        abstract boolean accepts(@Nullable Object value);
+
+        abstract void grow(int capacity);
+
+        abstract void set(int row, @Nullable Object value);
+
+        @Nullable
+        abstract Object get(int row);
+
+        void clear(int row) {
+            // Primitive values do not hold any resources
+        }
+
+        int compare(int row1, int row2) {
+            return DBUtils.compareDataValues(get(row1), get(row2));
+        }
+    }
+
+    /**
+     * Column which had only nulls so far
+     */
+    private static class EmptyColumn extends Column {
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null;
+        }
+
+        @Override
+        void grow(int capacity) {
+        }
+
+        @Override
+        void set(int row, @Nullable Object value) {
+        }
+
+        @Override
+        Object get(int row) {
+            return null;
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            return 0;
+        }
+    }
+
+    private abstract static class NullableColumn extends Column {
+        long[] nulls;
+
+        NullableColumn(int capacity) {
+            this.nulls = growBits(new long[0], capacity);
+        }
+
+        @Override
+        void grow(int capacity) {
+            nulls = growBits(nulls, capacity);
+        }
+
+        @Override
+        void set(int row, @Nullable Object value) {
+            setBit(nulls, row, value == null);
+            if (value != null) {
+                setValue(row, value);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return getBit(nulls, row) ? null : getValue(row);
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            boolean null1 = getBit(nulls, row1), null2 = getBit(nulls, row2);
+            if (null1 || null2) {
+                // Nulls go last
+                return null1 == null2 ? 0 : (null1 ? 1 : -1);
+            }
+            return compareValues(row1, row2);
+        }
+
+        abstract void setValue(int row, @NotNull Object value);
+
+        @NotNull
+        abstract Object getValue(int row);
+
+        abstract int compareValues(int row1, int row2);
+    }
+
+    private static class LongColumn extends NullableColumn {
+        private final Class<?> valueClass;
+        private long[] values;
+
+        LongColumn(Class<?> valueClass, int capacity) {
+            super(capacity);
+            this.valueClass = valueClass;
+            this.values = new long[capacity];
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null || value.getClass() == valueClass;
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void setValue(int row, @NotNull Object value) {
+            values[row] = ((Number) value).longValue();
+        }
+
+        @NotNull
+        @Override
+        Object getValue(int row) {
+            long value = values[row];
+            if (valueClass == Long.class) {
+                return value;
+            } else if (valueClass == Integer.class) {
+                return (int) value;
+            } else if (valueClass == Short.class) {
+                return (short) value;
+            } else {
+                return (byte) value;
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Long.compare(values[row1], values[row2]);
+        }
+    }
+
+    private static class DoubleColumn extends NullableColumn {
+        private final boolean isFloat;
+        private double[] values;
+
+        DoubleColumn(Class<?> valueClass, int capacity) {
+            super(capacity);
+            this.isFloat = valueClass == Float.class;
+            this.values = new double[capacity];
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null || value.getClass() == (isFloat ? Float.class : Double.class);
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void setValue(int row, @NotNull Object value) {
+            values[row] = ((Number) value).doubleValue();
+        }
+
+        @NotNull
+        @Override
+        Object getValue(int row) {
+            return isFloat ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            // Same as CommonUtils.compareNumbers
+            double diff = values[row1] - values[row2];
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+
+    private static class BooleanColumn extends NullableColumn {
+        private long[] values;
+
+        BooleanColumn(int capacity) {
+            super(capacity);
+            this.values = growBits(new long[0], capacity);
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null || value instanceof Boolean;
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = growBits(values, capacity);
+        }
+
+        @Override
+        void setValue(int row, @NotNull Object value) {
+            setBit(values, row, (Boolean) value);
+        }
+
+        @NotNull
+        @Override
+        Object getValue(int row) {
+            return getBit(values, row);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Boolean.compare(getBit(values, row1), getBit(values, row2));
+        }
+    }
+
+    private static class DateColumn extends NullableColumn {
+        private final Class<?> valueClass;
+        private long[] millis;
+        // Nanos are stored for timestamps only
+        private int[] nanos;
+
+        DateColumn(Class<?> valueClass, int capacity) {
+            super(capacity);
+            this.valueClass = valueClass;
+            this.millis = new long[capacity];
+            if (valueClass == Timestamp.class) {
+                this.nanos = new int[capacity];
+            }
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null || value.getClass() == valueClass;
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            millis = Arrays.copyOf(millis, capacity);
+            if (nanos != null) {
+                nanos = Arrays.copyOf(nanos, capacity);
+            }
+        }
+
+        @Override
+        void setValue(int row, @NotNull Object value) {
+            millis[row] = ((java.util.Date) value).getTime();
+            if (nanos != null) {
+                nanos[row] = ((Timestamp) value).getNanos();
+            }
+        }
+
+        @NotNull
+        @Override
+        Object getValue(int row) {
+            long time = millis[row];
+            if (valueClass == Timestamp.class) {
+                Timestamp timestamp = new Timestamp(time);
+                timestamp.setNanos(nanos[row]);
+                return timestamp;
+            } else if (valueClass == java.sql.Date.class) {
+                return new java.sql.Date(time);
+            } else if (valueClass == Time.class) {
+                return new Time(time);
+            } else {
+                return new java.util.Date(time);
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            int result = Long.compare(millis[row1], millis[row2]);
+            if (result == 0 && nanos != null) {
+                result = Integer.compare(nanos[row1], nanos[row2]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Dictionary-encoded strings. Switches to plain array if there are too many distinct values.
+     */
+    private static class StringColumn extends Column {
+        private int[] codes;
+        private Map<String, Integer> dictionary = new HashMap<>();
+        private List<String> dictionaryValues = new ArrayList<>();
+        private String[] values;
+        private int capacity;
+
+        StringColumn(int capacity) {
+            this.capacity = capacity;
+            this.codes = new int[capacity];
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return value == null || value instanceof String;
+        }
+
+        @Override
+        void grow(int capacity) {
+            this.capacity = capacity;
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            } else {
+                codes = Arrays.copyOf(codes, capacity);
+            }
+        }
+
+        @Override
+        void set(int row, @Nullable Object value) {
+            if (values != null) {
+                values[row] = (String) value;
+                return;
+            }
+            if (value == null) {
+                // Zero code is reserved for nulls
+                codes[row] = 0;
+                return;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                dictionaryValues.add((String) value);
+                code = dictionaryValues.size();
+                dictionary.put((String) value, code);
+            }
+            codes[row] = code;
+            int dictionarySize = dictionaryValues.size();
+            if (dictionarySize > MAX_DICTIONARY_SIZE || (row >= DICTIONARY_CHECK_ROWS && dictionarySize > row / 2)) {
+                dropDictionary(row + 1);
+            }
+        }
+
+        private void dropDictionary(int filledRows) {
+            String[] plainValues = new String[capacity];
+            for (int i = 0; i < filledRows; i++) {
+                plainValues[i] = (String) get(i);
+            }
+            values = plainValues;
+            codes = null;
+            dictionary = null;
+            dictionaryValues = null;
+        }
+
+        @Override
+        Object get(int row) {
+            if (values != null) {
+                return values[row];
+            }
+            int code = codes[row];
+            return code == 0 ? null : dictionaryValues.get(code - 1);
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            if (values == null && codes[row1] == codes[row2]) {
+                return 0;
+            }
+            String str1 = (String) get(row1), str2 = (String) get(row2);
+            if (str1 == null || str2 == null) {
+                return str1 == str2 ? 0 : (str1 == null ? 1 : -1);
+            }
+            return str1.compareTo(str2);
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(int capacity) {
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        boolean accepts(@Nullable Object value) {
+            return true;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void set(int row, @Nullable Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void clear(int row) {
+            values[row] = null;
+        }
+    }
+
+}
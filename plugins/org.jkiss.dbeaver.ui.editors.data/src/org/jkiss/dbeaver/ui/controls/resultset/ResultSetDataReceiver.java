@@ -16,20 +16,26 @@
  */
 package org.jkiss.dbeaver.ui.controls.resultset;
 
+import org.eclipse.osgi.util.NLS;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ModelPreferences;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
 import org.jkiss.dbeaver.model.data.DBDDataReceiver;
 import org.jkiss.dbeaver.model.data.DBDDataReceiverInteractive;
+import org.jkiss.dbeaver.model.data.DBDFetchPlan;
 import org.jkiss.dbeaver.model.exec.*;
 import org.jkiss.dbeaver.model.impl.data.DBDValueError;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceStore;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
-import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
 import org.jkiss.dbeaver.model.struct.DBSDataContainer;
 import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.runtime.DBWorkbench;
 import org.jkiss.dbeaver.ui.UIUtils;
+import org.jkiss.dbeaver.ui.controls.resultset.internal.ResultSetMessages;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,14 +48,34 @@ class ResultSetDataReceiver implements DBDDataReceiver, DBDDataReceiverInteracti
 
     private static final Log log = Log.getLog(ResultSetDataReceiver.class);
 
+    private static final String SPILL_FOLDER = "resultset"; //$NON-NLS-1$
+
+    // Progressive fetch: rows are pushed to the viewer by batches while fetch continues
+    private static final long FIRST_PUBLISH_DELAY = 200;
+    private static final long PUBLISH_INTERVAL = 1000;
+    private static final int PUBLISH_BATCH_SIZE = 50000;
+
     private ResultSetViewer resultSetViewer;
     private int columnsCount;
     private DBDAttributeBinding[] metaColumns;
+    private DBDFetchPlan fetchPlan;
+    private final DBDFetchPlan.ErrorHandler fetchErrorHandler = this::handleFetchError;
     private List<Object[]> rows = new ArrayList<>();
     private boolean hasMoreData;
     private boolean nextSegmentRead;
     private long offset;
     private long maxRows;
+    // Rows beyond this number are written to the spill buffer. -1 means no spilling
+    private int memoryRowsLimit = -1;
+    private ResultSetSpillBuffer spillBuffer;
+
+    private boolean progressiveFetch;
+    private long fetchStartTime;
+    private long lastPublishTime;
+    // Number of rows of the current fetch which were already pushed to the viewer
+    private int publishedCount;
+    // Size of the first pushed batch
+    private int firstBatchSize;
 
     private boolean paused;
 
@@ -95,6 +121,19 @@ class ResultSetDataReceiver implements DBDDataReceiver, DBDDataReceiverInteracti
         this.rows.clear();
         this.offset = offset;
         this.maxRows = maxRows;
+        this.memoryRowsLimit = -1;
+        this.publishedCount = 0;
+        this.firstBatchSize = 0;
+        this.fetchStartTime = this.lastPublishTime = System.currentTimeMillis();
+        DBPPreferenceStore preferenceStore = getDataContainer().getDataSource().getContainer().getPreferenceStore();
+        this.progressiveFetch = preferenceStore.getBoolean(ResultSetPreferences.RESULT_SET_PROGRESSIVE_FETCH);
+        if (nextSegmentRead) {
+            // First segment is always kept in memory because it is used for attributes binding
+            int spillThreshold = preferenceStore.getInt(ResultSetPreferences.RESULT_SET_SPILL_THRESHOLD);
+            if (spillThreshold > 0) {
+                memoryRowsLimit = Math.max(0, spillThreshold - resultSetViewer.getModel().getRowCount());
+            }
+        }
 
         if (!nextSegmentRead) {
             // Get columns metadata
@@ -111,66 +150,171 @@ class ResultSetDataReceiver implements DBDDataReceiver, DBDDataReceiverInteracti
 
             resultSetViewer.setMetaData(resultSet, metaColumns);
         }
+        fetchPlan = DBDFetchPlan.forAttributes(metaColumns);
     }
 
     @Override
     public void fetchRow(DBCSession session, DBCResultSet resultSet) {
         Object[] row = new Object[columnsCount];
-        for (int i = 0; i < columnsCount; i++) {
-            try {
-                DBSAttributeBase metaAttribute = metaColumns[i].getAttribute();
-                if (metaAttribute == null) {
-                    continue;
-                }
-                row[i] = metaColumns[i].getValueHandler().fetchValueObject(
-                    session,
-                    resultSet,
-                    metaAttribute,
-                    metaColumns[i].getOrdinalPosition());
-            } catch (Throwable e) {
-                // Do not reports the same error multiple times
-                // There are a lot of error could occur during result set fetch
-                // We report certain error only once
-
-                row[i] = new DBDValueError(e);
-
-                List<String> attrErrors = this.attrErrors.computeIfAbsent(
-                    metaColumns[i].getMetaAttribute(),
-                    k -> new ArrayList<>());
-                String errMessage = e.getClass().getName();
-                if (!errMessage.startsWith("java.lang.")) {
-                    errMessage += ":" + e.getMessage();
-                }
-                if (!attrErrors.contains(errMessage)) {
-                    log.warn("Can't read column '" + metaColumns[i].getName() + "' value", e);
-                    attrErrors.add(errMessage);
-                    errorList.add(e);
-                }
+        fetchPlan.fetchRow(session, resultSet, row, fetchErrorHandler);
+        if (memoryRowsLimit >= 0 && publishedCount + rows.size() >= memoryRowsLimit) {
+            if (spillBuffer == null) {
+                spillBuffer = createSpillBuffer(session.getProgressMonitor());
+            }
+            if (spillBuffer != null) {
+                spillBuffer.addRow(row);
+                return;
             }
         }
         rows.add(row);
+        if (progressiveFetch) {
+            long time = System.currentTimeMillis();
+            if (publishedCount == 0 && rows.size() == 1) {
+                // First batch delay starts with the first row. Otherwise a slow query would publish
+                // (and bind attributes by) just a few rows.
+                fetchStartTime = lastPublishTime = time;
+            }
+            if (rows.size() >= PUBLISH_BATCH_SIZE ||
+                time - lastPublishTime >= (publishedCount == 0 ? FIRST_PUBLISH_DELAY : PUBLISH_INTERVAL))
+            {
+                publishRows(session, resultSet, time);
+            }
+        }
+    }
+
+    /**
+     * Pushes rows fetched so far to the viewer. Model is updated in UI thread, so batches are applied in order.
+     * Attributes of the first segment are bound by the first batch, all later batches are appended.
+     */
+    private void publishRows(DBCSession session, DBCResultSet resultSet, long time) {
+        final List<Object[]> batch = rows;
+        rows = new ArrayList<>();
+        lastPublishTime = time;
+        final boolean firstBatch = publishedCount == 0;
+        final boolean setData = firstBatch && !nextSegmentRead;
+        final boolean resetOldRows = firstBatch && nextSegmentRead && isResetOldRows();
+        if (setData) {
+            bindAttributes(session, resultSet, batch);
+        }
+        if (firstBatch) {
+            firstBatchSize = batch.size();
+        }
+        publishedCount += batch.size();
+        final int fetchedCount = publishedCount;
+        final long fetchRate = fetchedCount * 1000L / Math.max(1, time - fetchStartTime);
+
+        UIUtils.asyncExec(() -> {
+            if (setData) {
+                resultSetViewer.setData(batch, focusRow);
+                boolean metadataChanged = resultSetViewer.getModel().isMetadataChanged();
+                resultSetViewer.updatePresentation(resultSet, metadataChanged);
+                resultSetViewer.getActivePresentation().refreshData(true, false, !metadataChanged);
+            } else {
+                resultSetViewer.appendData(batch, resetOldRows);
+                resultSetViewer.getActivePresentation().refreshData(false, true, true);
+            }
+            // Append posts its own status, show the fetch progress after it
+            UIUtils.asyncExec(() -> resultSetViewer.setStatus(
+                NLS.bind(ResultSetMessages.controls_resultset_viewer_status_rows_fetching, fetchedCount, fetchRate)));
+        });
+    }
+
+    private void bindAttributes(DBCSession session, DBCResultSet resultSet, List<Object[]> rows) {
+        try {
+            // Read locators' metadata
+            DBSEntity entity = null;
+            DBSDataContainer dataContainer = getDataContainer();
+            if (dataContainer instanceof DBSEntity) {
+                entity = (DBSEntity) dataContainer;
+            }
+            DBExecUtils.bindAttributes(session, entity, resultSet, metaColumns, rows);
+        } catch (Throwable e) {
+            errorList.add(e);
+        }
+        // Binding may resolve entity attributes and change value handlers
+        fetchPlan = DBDFetchPlan.forAttributes(metaColumns);
+    }
+
+    private boolean isResetOldRows() {
+        return getDataContainer().getDataSource().getContainer().getPreferenceStore().getBoolean(ModelPreferences.RESULT_SET_REREAD_ON_SCROLLING);
+    }
+
+    private Object handleFetchError(int index, Throwable e) {
+        // Do not reports the same error multiple times
+        // There are a lot of error could occur during result set fetch
+        // We report certain error only once
+        List<String> attrErrors = this.attrErrors.computeIfAbsent(
+            metaColumns[index].getMetaAttribute(),
+            k -> new ArrayList<>());
+        String errMessage = e.getClass().getName();
+        if (!errMessage.startsWith("java.lang.")) {
+            errMessage += ":" + e.getMessage();
+        }
+        if (!attrErrors.contains(errMessage)) {
+            log.warn("Can't read column '" + metaColumns[index].getName() + "' value", e);
+            attrErrors.add(errMessage);
+            errorList.add(e);
+        }
+        return new DBDValueError(e);
+    }
+
+    private ResultSetSpillBuffer createSpillBuffer(DBRProgressMonitor monitor) {
+        try {
+            File folder = DBWorkbench.getPlatform().getTempFolder(monitor, SPILL_FOLDER);
+            File file = File.createTempFile("rows", ".data", folder);
+            return new ResultSetSpillBuffer(file, columnsCount);
+        } catch (IOException e) {
+            log.warn("Can't create temporary rows buffer, all rows will be kept in memory", e);
+            memoryRowsLimit = -1;
+            return null;
+        }
     }
 
     @Override
     public void fetchEnd(DBCSession session, final DBCResultSet resultSet) {
-        if (!nextSegmentRead) {
-            try {
-                // Read locators' metadata
-                DBSEntity entity = null;
-                DBSDataContainer dataContainer = getDataContainer();
-                if (dataContainer instanceof DBSEntity) {
-                    entity = (DBSEntity) dataContainer;
-                }
-                DBExecUtils.bindAttributes(session, entity, resultSet, metaColumns, rows);
-            } catch (Throwable e) {
-                errorList.add(e);
-            }
+        final boolean published = publishedCount > 0;
+        if (!nextSegmentRead && !published) {
+            bindAttributes(session, resultSet, rows);
         }
 
         final List<Object[]> tmpRows = rows;
+        final ResultSetSpillBuffer spilledRows = spillBuffer;
+        spillBuffer = null;
+        final int fetchedCount = publishedCount + tmpRows.size() + (spilledRows == null ? 0 : spilledRows.getRowCount());
 
         final boolean nextSegmentRead = this.nextSegmentRead;
 
+        // Check for more data
+        hasMoreData = maxRows > 0 && fetchedCount >= maxRows;
+
+        if (published) {
+            // Previous batches were pushed in UI thread. Push the rest after them.
+            final int focusRow = this.focusRow;
+            final boolean restoreFocus = !nextSegmentRead && focusRow >= firstBatchSize;
+            UIUtils.asyncExec(() -> {
+                resultSetViewer.appendData(tmpRows, spilledRows, false);
+                if (!nextSegmentRead) {
+                    ResultSetModel model = resultSetViewer.getModel();
+                    // Focused row wasn't in the first batch
+                    boolean focusChanged = restoreFocus && focusRow < model.getRowCount();
+                    if (focusChanged) {
+                        resultSetViewer.setCurrentRow(model.getRow(focusRow));
+                    }
+                    // Presentation was chosen by the first batch. Metadata change was handled there as well.
+                    resultSetViewer.updatePresentation(resultSet, false);
+                    resultSetViewer.getActivePresentation().refreshData(true, false, true);
+                    if (focusChanged) {
+                        resultSetViewer.getActivePresentation().scrollToRow(IResultSetPresentation.RowPosition.CURRENT);
+                    }
+                    // After the status posted by append
+                    UIUtils.asyncExec(resultSetViewer::updateStatusMessage);
+                } else {
+                    resultSetViewer.getActivePresentation().refreshData(false, true, true);
+                }
+            });
+            return;
+        }
+
         // Push data into viewer
         DBRProgressMonitor monitor = session.getProgressMonitor();
         monitor.beginTask("Populate data", 1);
@@ -179,11 +323,8 @@ class ResultSetDataReceiver implements DBDDataReceiver, DBDDataReceiverInteracti
             resultSetViewer.setData(tmpRows, focusRow);
         } else {
             monitor.subTask("Append data");
-            boolean resetOldRows = getDataContainer().getDataSource().getContainer().getPreferenceStore().getBoolean(ModelPreferences.RESULT_SET_REREAD_ON_SCROLLING);
-            resultSetViewer.appendData(tmpRows, resetOldRows);
+            resultSetViewer.appendData(tmpRows, spilledRows, isResetOldRows());
         }
-        // Check for more data
-        hasMoreData = maxRows > 0 && tmpRows.size() >= maxRows;
         monitor.done();
 
         UIUtils.asyncExec(() -> {
@@ -209,6 +350,11 @@ class ResultSetDataReceiver implements DBDDataReceiver, DBDDataReceiverInteracti
 
         attrErrors.clear();
         rows = new ArrayList<>();
+        if (spillBuffer != null) {
+            // Fetch wasn't finished
+            spillBuffer.close();
+            spillBuffer = null;
+        }
     }
 
     @Override
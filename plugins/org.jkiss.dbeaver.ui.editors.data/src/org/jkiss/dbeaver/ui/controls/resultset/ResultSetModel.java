@@ -24,15 +24,18 @@ import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ModelPreferences;
 import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBPDataSource;
 import org.jkiss.dbeaver.model.DBPDataSourceContainer;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.data.*;
 import org.jkiss.dbeaver.model.exec.*;
 import org.jkiss.dbeaver.model.exec.trace.DBCTrace;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceStore;
 import org.jkiss.dbeaver.model.struct.*;
 import org.jkiss.dbeaver.model.virtual.DBVColorOverride;
 import org.jkiss.dbeaver.model.virtual.DBVEntity;
 import org.jkiss.dbeaver.model.virtual.DBVUtils;
+import org.jkiss.dbeaver.runtime.DBWorkbench;
 import org.jkiss.dbeaver.runtime.jobs.DataSourceJob;
 import org.jkiss.dbeaver.ui.UIUtils;
 import org.jkiss.dbeaver.utils.RuntimeUtils;
@@ -48,6 +51,9 @@ public class ResultSetModel {
 
     private static final Log log = Log.getLog(ResultSetModel.class);
 
+    // Rows are moved to columnar store once model has at least this number of rows
+    private static final int COLUMNAR_STORE_MIN_ROWS = 1000;
+
     // Attributes
     private DBDAttributeBinding[] attributes = new DBDAttributeBinding[0];
     private List<DBDAttributeBinding> visibleAttributes = new ArrayList<>();
@@ -58,6 +64,9 @@ public class ResultSetModel {
 
     // Data
     private List<ResultSetRow> curRows = new ArrayList<>();
+    @Nullable
+    private ResultSetColumnStore columnStore;
+    private List<ResultSetSpillBuffer> spillBuffers = new ArrayList<>();
     private Long totalRowCount = null;
     private int changesCount = 0;
     private volatile boolean hasData = false;
@@ -357,9 +366,12 @@ public class ResultSetModel {
         return curRows;
     }
 
+    /**
+     * Returns row values for read-only access. See {@link ResultSetRow#readValues()}.
+     */
     @NotNull
     public Object[] getRowData(int index) {
-        return curRows.get(index).values;
+        return curRows.get(index).readValues();
     }
 
     @NotNull
@@ -377,7 +389,15 @@ public class ResultSetModel {
 
     @Nullable
     public Object getCellValue(@NotNull DBDAttributeBinding attribute, @NotNull ResultSetRow row) {
-        return DBUtils.getAttributeValue(attribute, attributes, row.values);
+        if (attribute.getLevel() == 0 && !attribute.isCustom()) {
+            final int index = attribute.getOrdinalPosition();
+            if (index >= row.getValueCount()) {
+                log.debug("Bad attribute '" + attribute.getName() + "' index: " + index + " is out of row values' bounds (" + row.getValueCount() + ")");
+                return null;
+            }
+            return row.getValue(index);
+        }
+        return DBUtils.getAttributeValue(attribute, attributes, row.readValues());
     }
 
     /**
@@ -400,7 +420,7 @@ public class ResultSetModel {
         } else {
             rootIndex = attr.getTopParent().getOrdinalPosition();
         }
-        Object rootValue = row.values[rootIndex];
+        Object rootValue = row.getValue(rootIndex);
         Object ownerValue = depth > 0 ? rootValue : null;
         {
             // Obtain owner value and create all intermediate values
@@ -506,7 +526,7 @@ public class ResultSetModel {
                     e.printStackTrace();
                 }
             } else {
-                row.values[rootIndex] = value;
+                row.setValue(rootIndex, value);
             }
             return true;
         }
@@ -801,15 +821,39 @@ public class ResultSetModel {
     }
 
     void appendData(@NotNull List<Object[]> rows, boolean resetOldRows) {
+        appendData(rows, null, resetOldRows);
+    }
+
+    /**
+     * Appends rows. Spilled rows (if any) go after in-memory rows and are read from the buffer on demand.
+     * Model closes the buffer when data is cleared.
+     */
+    void appendData(@NotNull List<Object[]> rows, @Nullable ResultSetSpillBuffer spilledRows, boolean resetOldRows) {
         if (resetOldRows) {
             curRows.clear();
+            columnStore = null;
+            closeSpillBuffers();
         }
         int rowCount = rows.size();
         int firstRowNum = curRows.size();
+        if (columnStore == null && firstRowNum + rowCount >= COLUMNAR_STORE_MIN_ROWS && attributes.length > 0 && isColumnarStorageEnabled()) {
+            columnStore = new ResultSetColumnStore(attributes.length);
+        }
         List<ResultSetRow> newRows = new ArrayList<>(rowCount);
         for (int i = 0; i < rowCount; i++) {
-            newRows.add(
-                new ResultSetRow(firstRowNum + i, rows.get(i)));
+            Object[] values = rows.get(i);
+            int storeIndex = columnStore == null ? -1 : columnStore.addRow(values);
+            newRows.add(storeIndex < 0 ?
+                new ResultSetRow(firstRowNum + i, values) :
+                new ResultSetRow(firstRowNum + i, columnStore, storeIndex));
+        }
+        if (spilledRows != null) {
+            spillBuffers.add(spilledRows);
+            int spilledCount = spilledRows.getRowCount();
+            // Row objects are created for all spilled rows, their number is limited by ResultSetViewer
+            for (int i = 0; i < spilledCount; i++) {
+                newRows.add(new ResultSetRow(firstRowNum + rowCount + i, spilledRows, i));
+            }
         }
         curRows.addAll(newRows);
 
@@ -819,6 +863,9 @@ public class ResultSetModel {
     void clearData() {
         // Refresh all rows
         this.curRows = new ArrayList<>();
+        this.columnStore = null;
+        // Rows on disk are not needed anymore. In-memory rows of buffers are still released by releaseAllData
+        this.closeSpillBuffers();
         this.totalRowCount = null;
         this.singleSourceEntity = null;
 
@@ -1059,9 +1106,15 @@ public class ResultSetModel {
                     if (binding == null) {
                         continue;
                     }
-                    Object cell1 = getCellValue(binding, row1);
-                    Object cell2 = getCellValue(binding, row2);
-                    result = DBUtils.compareDataValues(cell1, cell2);
+                    final ResultSetRowStorage store = row1.getStore();
+                    if (store instanceof ResultSetColumnStore && store == row2.getStore() && binding.getLevel() == 0 && !binding.isCustom()) {
+                        // Compare stored values directly, without boxing
+                        result = ((ResultSetColumnStore) store).compareValues(binding.getOrdinalPosition(), row1.getStoreIndex(), row2.getStoreIndex());
+                    } else {
+                        Object cell1 = getCellValue(binding, row1);
+                        Object cell2 = getCellValue(binding, row2);
+                        result = DBUtils.compareDataValues(cell1, cell2);
+                    }
                     if (co.isOrderDescending()) {
                         result = -result;
                     }
@@ -1077,6 +1130,21 @@ public class ResultSetModel {
         }
     }
 
+    private void closeSpillBuffers() {
+        for (ResultSetSpillBuffer buffer : spillBuffers) {
+            buffer.close();
+        }
+        spillBuffers = new ArrayList<>();
+    }
+
+    private boolean isColumnarStorageEnabled() {
+        DBPDataSource dataSource = attributes[0].getDataSource();
+        DBPPreferenceStore preferenceStore = dataSource == null ?
+            DBWorkbench.getPlatform().getPreferenceStore() :
+            dataSource.getContainer().getPreferenceStore();
+        return preferenceStore.getBoolean(ResultSetPreferences.RESULT_SET_COLUMNAR_STORAGE);
+    }
+
     private void fillVisibleAttributes() {
         this.visibleAttributes.clear();
 
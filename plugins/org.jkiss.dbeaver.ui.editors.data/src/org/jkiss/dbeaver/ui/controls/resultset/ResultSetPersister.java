@@ -521,8 +521,8 @@ class ResultSetPersister {
         if (!stat.updatedCells.isEmpty()) {
             for (Map.Entry<Integer, Object> entry : stat.updatedCells.entrySet()) {
                 ResultSetRow row = stat.row;
-                DBUtils.releaseValue(row.values[entry.getKey()]);
-                row.values[entry.getKey()] = entry.getValue();
+                DBUtils.releaseValue(row.getValue(entry.getKey()));
+                row.setValue(entry.getKey(), entry.getValue());
             }
         }
     }
@@ -1078,7 +1078,7 @@ class ResultSetPersister {
                     if (!viewer.getControl().isDisposed() && viewer.getModel().getAttributes() == curAttributes) {
                         for (int i = 0; i < rows.size(); i++) {
                             if (refreshValues[i] != null) {
-                                rows.get(i).values = refreshValues[i];
+                                rows.get(i).setValues(refreshValues[i]);
                             }
                         }
                         viewer.redrawData(false, true);
@@ -39,6 +39,9 @@ public final class ResultSetPreferences {
 
     public static final String RESULT_SET_AUTO_FETCH_NEXT_SEGMENT = "resultset.autofetch.next.segment"; //$NON-NLS-1$
     public static final String RESULT_SET_CANCEL_TIMEOUT = "resultset.cancel.timeout"; //$NON-NLS-1$
+    public static final String RESULT_SET_COLUMNAR_STORAGE = "resultset.storage.columnar"; //$NON-NLS-1$
+    public static final String RESULT_SET_SPILL_THRESHOLD = "resultset.spill.threshold"; //$NON-NLS-1$
+    public static final String RESULT_SET_PROGRESSIVE_FETCH = "resultset.fetch.progressive"; //$NON-NLS-1$
     public static final String RESULT_SET_BINARY_EDITOR_TYPE = "resultset.binary.editor"; //$NON-NLS-1$
     public static final String RESULT_SET_ORDERING_MODE = "resultset.order.mode"; //$NON-NLS-1$
     public static final String RESULT_SET_SHOW_ODD_ROWS = "resultset.show.oddRows"; //$NON-NLS-1$
@@ -52,9 +52,12 @@ public class ResultSetRow {
     private int rowNumber;
     // Row number in grid
     private int visualNumber;
-    // Column values
-    @NotNull
-    public Object[] values;
+    // Column values. Null if values are kept in shared storage
+    @Nullable
+    private Object[] values;
+    @Nullable
+    private ResultSetRowStorage store;
+    private int storeIndex;
     @Nullable
     public Map<DBDAttributeBinding, Object> changes;
     // Row state
@@ -71,11 +74,86 @@ public class ResultSetRow {
         this.state = STATE_NORMAL;
     }
 
+    public ResultSetRow(int rowNumber, @NotNull ResultSetRowStorage store, int storeIndex) {
+        this.rowNumber = rowNumber;
+        this.visualNumber = rowNumber;
+        this.store = store;
+        this.storeIndex = storeIndex;
+        this.state = STATE_NORMAL;
+    }
+
+    /**
+     * Returns row values array. Changes of the array elements are changes of the row values.
+     * Row kept in shared storage is moved out of it.
+     *
+     * @deprecated use {@link #getValue(int)} or {@link #readValues()} for read-only access
+     */
+    @Deprecated
     @NotNull
     public Object[] getValues() {
+        if (values == null) {
+            materialize();
+        }
         return values;
     }
 
+    void setValues(@NotNull Object[] values) {
+        this.values = values;
+        this.store = null;
+    }
+
+    @Nullable
+    public Object getValue(int index) {
+        if (values != null) {
+            return values[index];
+        }
+        assert store != null;
+        return store.getValue(storeIndex, index);
+    }
+
+    void setValue(int index, @Nullable Object value) {
+        if (values == null) {
+            materialize();
+        }
+        values[index] = value;
+    }
+
+    public int getValueCount() {
+        if (values != null) {
+            return values.length;
+        }
+        assert store != null;
+        return store.getColumnCount();
+    }
+
+    /**
+     * Returns values for read-only access. Row kept in shared storage stays there,
+     * returned array is a copy in this case.
+     */
+    @NotNull
+    public Object[] readValues() {
+        if (values != null) {
+            return values;
+        }
+        assert store != null;
+        return store.getValues(storeIndex);
+    }
+
+    @Nullable
+    ResultSetRowStorage getStore() {
+        return values == null ? store : null;
+    }
+
+    int getStoreIndex() {
+        return storeIndex;
+    }
+
+    private void materialize() {
+        assert store != null;
+        values = store.detachRow(storeIndex);
+        store = null;
+    }
+
     public boolean isChanged() {
         return changes != null && !changes.isEmpty();
     }
@@ -132,8 +210,12 @@ public class ResultSetRow {
     }
 
     void release() {
-        for (Object value : values) {
-            DBUtils.releaseValue(value);
+        if (values != null) {
+            for (Object value : values) {
+                DBUtils.releaseValue(value);
+            }
+        } else if (store != null) {
+            store.releaseRow(storeIndex);
         }
         if (changes != null) {
             for (Object oldValue : changes.values()) {
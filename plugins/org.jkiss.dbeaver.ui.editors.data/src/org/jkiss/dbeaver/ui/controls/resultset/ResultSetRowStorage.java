@@ -0,0 +1,50 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.controls.resultset;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+/**
+ * Shared storage of row values.
+ * Rows kept in storage do not have own values array, they read values by row index.
+ */
+public interface ResultSetRowStorage {
+
+    int getColumnCount();
+
+    @Nullable
+    Object getValue(int row, int column);
+
+    /**
+     * Reads all row values. Values still belong to the storage.
+     */
+    @NotNull
+    Object[] getValues(int row);
+
+    /**
+     * Reads all row values and transfers ownership of them to the caller.
+     */
+    @NotNull
+    Object[] detachRow(int row);
+
+    /**
+     * Releases values of the specified row
+     */
+    void releaseRow(int row);
+
+}
@@ -0,0 +1,376 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.controls.resultset;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Rows storage backed by a memory-mapped temporary file.
+ * Rows are appended by the data receiver and read back on demand by the model.
+ * File is mapped by fixed-size chunks, record never crosses a chunk boundary.
+ * <p>
+ * Only simple values (numbers, strings, booleans, dates) are serialized.
+ * Rows with other values (LOBs, complex types) stay in memory.
+ */
+public class ResultSetSpillBuffer implements ResultSetRowStorage {
+
+    private static final Log log = Log.getLog(ResultSetSpillBuffer.class);
+
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    // Number of recently read rows kept decoded
+    private static final int READ_CACHE_SIZE = 256;
+    private static final long IN_MEMORY = -1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_SHORT = 3;
+    private static final byte TYPE_BYTE = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_FLOAT = 6;
+    private static final byte TYPE_TRUE = 7;
+    private static final byte TYPE_FALSE = 8;
+    private static final byte TYPE_STRING = 9;
+    private static final byte TYPE_BIG_DECIMAL = 10;
+    private static final byte TYPE_BIG_INTEGER = 11;
+    private static final byte TYPE_DATE = 12;
+    private static final byte TYPE_SQL_DATE = 13;
+    private static final byte TYPE_TIME = 14;
+    private static final byte TYPE_TIMESTAMP = 15;
+
+    private final File file;
+    private final int columnCount;
+    private final int chunkSize;
+    private RandomAccessFile raFile;
+    private FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private long writePosition;
+
+    private long[] offsets = new long[1024];
+    private int rowCount;
+    private final Map<Integer, Object[]> memoryRows = new HashMap<>();
+
+    private final RecordOutputStream recordBytes = new RecordOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final Map<Integer, Object[]> readCache = new LinkedHashMap<Integer, Object[]>(READ_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > READ_CACHE_SIZE;
+        }
+    };
+    private boolean closed;
+
+    public ResultSetSpillBuffer(@NotNull File file, int columnCount) throws IOException {
+        this(file, columnCount, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ResultSetSpillBuffer(@NotNull File file, int columnCount, int chunkSize) throws IOException {
+        this.file = file;
+        this.columnCount = columnCount;
+        this.chunkSize = chunkSize;
+        this.raFile = new RandomAccessFile(file, "rw");
+        this.channel = raFile.getChannel();
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Number of rows which were kept in memory
+     */
+    public synchronized int getMemoryRowCount() {
+        return memoryRows.size();
+    }
+
+    public synchronized long getFileSize() {
+        return writePosition;
+    }
+
+    /**
+     * Appends row. Row is written to disk if all its values can be serialized, otherwise it is kept in memory.
+     */
+    public synchronized void addRow(@NotNull Object[] values) {
+        if (rowCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+        }
+        int row = rowCount++;
+        long offset = IN_MEMORY;
+        if (!closed && values.length == columnCount) {
+            try {
+                offset = writeRecord(values);
+            } catch (IOException e) {
+                log.debug("Error writing rows buffer, keep row in memory", e);
+            }
+        }
+        offsets[row] = offset;
+        if (offset == IN_MEMORY) {
+            memoryRows.put(row, values);
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Nullable
+    @Override
+    public Object getValue(int row, int column) {
+        Object[] values = getValues(row);
+        return column < values.length ? values[column] : null;
+    }
+
+    @NotNull
+    @Override
+    public synchronized Object[] getValues(int row) {
+        long offset = offsets[row];
+        if (offset == IN_MEMORY) {
+            Object[] values = memoryRows.get(row);
+            return values == null ? new Object[columnCount] : values;
+        }
+        Object[] values = readCache.get(row);
+        if (values == null) {
+            values = closed ? new Object[columnCount] : readRecord(offset);
+            readCache.put(row, values);
+        }
+        return values;
+    }
+
+    @NotNull
+    @Override
+    public synchronized Object[] detachRow(int row) {
+        Object[] values = getValues(row);
+        memoryRows.remove(row);
+        readCache.remove(row);
+        return values;
+    }
+
+    @Override
+    public synchronized void releaseRow(int row) {
+        Object[] values = memoryRows.remove(row);
+        if (values != null) {
+            for (Object value : values) {
+                DBUtils.releaseValue(value);
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the file. Rows which were on disk are read as nulls after this.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks.clear();
+        readCache.clear();
+        try {
+            channel.close();
+            raFile.close();
+        } catch (IOException e) {
+            log.debug("Error closing rows buffer", e);
+        }
+        if (!file.delete()) {
+            // Mapped file can't be deleted on some platforms until the mapping is garbage collected
+            file.deleteOnExit();
+        }
+    }
+
+    private long writeRecord(@NotNull Object[] values) throws IOException {
+        recordBytes.reset();
+        for (Object value : values) {
+            if (!writeValue(value)) {
+                return IN_MEMORY;
+            }
+        }
+        int length = recordBytes.size();
+        if (length > chunkSize) {
+            return IN_MEMORY;
+        }
+        int chunkIndex = (int) (writePosition / chunkSize);
+        int chunkOffset = (int) (writePosition % chunkSize);
+        if (chunkOffset + length > chunkSize) {
+            // Start record in the next chunk
+            chunkIndex++;
+            chunkOffset = 0;
+        }
+        while (chunks.size() <= chunkIndex) {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) chunks.size() * chunkSize, chunkSize));
+        }
+        ByteBuffer chunk = chunks.get(chunkIndex).duplicate();
+        chunk.position(chunkOffset);
+        chunk.put(recordBytes.getBuffer(), 0, length);
+        long offset = (long) chunkIndex * chunkSize + chunkOffset;
+        writePosition = offset + length;
+        return offset;
+    }
+
+    private boolean writeValue(@Nullable Object value) throws IOException {
+        DataOutputStream out = recordOut;
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+            return true;
+        }
+        Class<?> valueClass = value.getClass();
+        if (valueClass == Long.class) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (valueClass == Integer.class) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (valueClass == Short.class) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (valueClass == Byte.class) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (valueClass == Double.class) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (valueClass == Float.class) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (valueClass == Boolean.class) {
+            out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (valueClass == String.class) {
+            out.writeByte(TYPE_STRING);
+            writeString((String) value);
+        } else if (valueClass == BigDecimal.class) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            writeString(value.toString());
+        } else if (valueClass == BigInteger.class) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeString(value.toString());
+        } else if (valueClass == java.util.Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (valueClass == java.sql.Date.class) {
+            out.writeByte(TYPE_SQL_DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (valueClass == Time.class) {
+            out.writeByte(TYPE_TIME);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (valueClass == Timestamp.class) {
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void writeString(@NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordOut.writeInt(bytes.length);
+        recordOut.write(bytes);
+    }
+
+    @NotNull
+    private Object[] readRecord(long offset) {
+        ByteBuffer buffer = chunks.get((int) (offset / chunkSize)).duplicate();
+        buffer.position((int) (offset % chunkSize));
+        Object[] values = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = readValue(buffer);
+        }
+        return values;
+    }
+
+    @Nullable
+    private static Object readValue(@NotNull ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return buffer.getLong();
+            case TYPE_INTEGER:
+                return buffer.getInt();
+            case TYPE_SHORT:
+                return buffer.getShort();
+            case TYPE_BYTE:
+                return buffer.get();
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_STRING:
+                return readString(buffer);
+            case TYPE_BIG_DECIMAL:
+                return new BigDecimal(readString(buffer));
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readString(buffer));
+            case TYPE_DATE:
+                return new java.util.Date(buffer.getLong());
+            case TYPE_SQL_DATE:
+                return new java.sql.Date(buffer.getLong());
+            case TYPE_TIME:
+                return new Time(buffer.getLong());
+            case TYPE_TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            }
+            default:
+                throw new IllegalStateException("Bad value type " + type + " in rows buffer");
+        }
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class RecordOutputStream extends ByteArrayOutputStream {
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+}
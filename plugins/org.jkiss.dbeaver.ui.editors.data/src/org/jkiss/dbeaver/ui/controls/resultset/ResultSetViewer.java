@@ -144,6 +144,9 @@ public class ResultSetViewer extends Viewer
     private static final DecimalFormat ROW_COUNT_FORMAT = new DecimalFormat("###,###,###,###,###,##0");
     private static final DateTimeFormatter EXECUTION_TIME_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, HH:mm:ss");
     private static final IResultSetListener[] EMPTY_LISTENERS = new IResultSetListener[0];
+    // Max number of rows spilled to disk. Values of spilled rows are on disk, but each row still has
+    // a ResultSetRow object in the model (about 50 bytes), so the limit keeps them within ~250MB of heap.
+    private static final int MAX_SPILLED_ROWS = 5_000_000;
 
     private IResultSetFilterManager filterManager;
     @NotNull
@@ -2283,10 +2286,15 @@ public class ResultSetViewer extends Viewer
     }
 
     void appendData(List<Object[]> rows, boolean resetOldRows) {
-        model.appendData(rows, resetOldRows);
+        appendData(rows, null, resetOldRows);
+    }
+
+    void appendData(List<Object[]> rows, @Nullable ResultSetSpillBuffer spilledRows, boolean resetOldRows) {
+        model.appendData(rows, spilledRows, resetOldRows);
+        final int appendedCount = rows.size() + (spilledRows == null ? 0 : spilledRows.getRowCount());
 
         UIUtils.asyncExec(() -> {
-            setStatus(NLS.bind(ResultSetMessages.controls_resultset_viewer_status_rows_size, model.getRowCount(), rows.size()) + getExecutionTimeMessage());
+            setStatus(NLS.bind(ResultSetMessages.controls_resultset_viewer_status_rows_size, model.getRowCount(), appendedCount) + getExecutionTimeMessage());
 
             updateEditControls();
         });
@@ -3699,11 +3707,19 @@ public class ResultSetViewer extends Viewer
         if (newAttributes.length > curAttributes.length) {
             // Bind custom attributes
             try (DBCSession session = DBUtils.openMetaSession(new VoidProgressMonitor(), dataContainer, "Bind custom attributes")) {
+                // Rows are read on demand, so values kept in the column store are not copied all at once
                 int rowCount = model.getRowCount();
-                List<Object[]> rows = new ArrayList<>(rowCount);
-                for (int i = 0; i < rowCount; i++) {
-                    rows.add(model.getRowData(i));
-                }
+                List<Object[]> rows = new AbstractList<Object[]>() {
+                    @Override
+                    public Object[] get(int index) {
+                        return model.getRowData(index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return rowCount;
+                    }
+                };
                 for (DBDAttributeBinding attr : newAttributes) {
                     if (attr instanceof DBDAttributeBindingCustom) {
                         attr.lateBinding(session, rows);
@@ -3733,6 +3749,9 @@ public class ResultSetViewer extends Viewer
         if (nextSegmentReadingBlocked && isDirty()) {
             return;
         }
+        if (isSpillLimitReached()) {
+            return;
+        }
         nextSegmentReadingBlocked = true;
         UIUtils.asyncExec(() -> {
             if (!checkForChanges()) {
@@ -3744,11 +3763,14 @@ public class ResultSetViewer extends Viewer
                     dataReceiver.setHasMoreData(false);
                     dataReceiver.setNextSegmentRead(true);
 
+                    // Seek by the last row key if possible. Otherwise skip already read rows with offset
+                    DBDDataFilter keysetFilter = makeKeysetSegmentFilter(dataContainer);
+
                     runDataPump(
                         dataContainer,
-                        model.getDataFilter(),
-                        model.getRowCount(),
-                        getSegmentMaxRows(),
+                        keysetFilter != null ? keysetFilter : model.getDataFilter(),
+                        keysetFilter != null ? 0 : model.getRowCount(),
+                        limitSpilledRows(getSegmentMaxRows()),
                         -1,//curRow == null ? -1 : curRow.getRowNumber(), // Do not reposition cursor after next segment read!
                         false,
                         true,
@@ -3761,6 +3783,39 @@ public class ResultSetViewer extends Viewer
         });
     }
 
+    /**
+     * Makes filter which reads the next segment of table rows after unique key values of the last row (keyset pagination).
+     * Works only if rows are ordered by the unique key, otherwise returns null.
+     */
+    @Nullable
+    private DBDDataFilter makeKeysetSegmentFilter(@NotNull DBSDataContainer dataContainer) {
+        DBPDataSource dataSource = dataContainer.getDataSource();
+        if (!(dataContainer instanceof DBSEntity) || dataSource == null || model.getRowCount() == 0) {
+            return null;
+        }
+        if (dataSource.getContainer().getPreferenceStore().getBoolean(ModelPreferences.RESULT_SET_REREAD_ON_SCROLLING)) {
+            // All rows are re-read anyway
+            return null;
+        }
+        DBDDataFilter dataFilter = model.getDataFilter();
+        DBDRowIdentifier rowIdentifier = model.getDefaultRowIdentifier();
+        if (!dataFilter.hasOrdering() || rowIdentifier == null || !rowIdentifier.isValidIdentifier() || rowIdentifier.getAttributes().isEmpty()) {
+            return null;
+        }
+        ResultSetRow lastRow = model.getRow(model.getRowCount() - 1);
+        List<DBSEntityAttribute> keyAttributes = new ArrayList<>();
+        Object[] keyValues = new Object[rowIdentifier.getAttributes().size()];
+        for (DBDAttributeBinding binding : rowIdentifier.getAttributes()) {
+            DBSEntityAttribute entityAttribute = binding.getEntityAttribute();
+            if (entityAttribute == null || !SQLUtils.isKeysetAttribute(entityAttribute)) {
+                return null;
+            }
+            keyValues[keyAttributes.size()] = model.getCellValue(binding, lastRow);
+            keyAttributes.add(entityAttribute);
+        }
+        return SQLUtils.makeKeysetFilter(dataSource, dataFilter, keyAttributes, keyValues);
+    }
+
     private boolean verifyQuerySafety() {
         if (container.getDataContainer() == null || !container.getDataContainer().isFeatureSupported(DBSDataContainer.FEATURE_DATA_MODIFIED_ON_REFRESH) ) {
             return true;
@@ -3776,6 +3831,9 @@ public class ResultSetViewer extends Viewer
         if (!dataReceiver.isHasMoreData()) {
             return;
         }
+        if (isSpillLimitReached()) {
+            return;
+        }
         if (ConfirmationDialog.showConfirmDialogEx(
             ResourceBundle.getBundle(ResultSetMessages.BUNDLE_NAME),
             viewerPanel.getShell(),
@@ -3798,7 +3856,7 @@ public class ResultSetViewer extends Viewer
                 dataContainer,
                 model.getDataFilter(),
                 model.getRowCount(),
-                -1,
+                limitSpilledRows(-1),
                 curRow == null ? -1 : curRow.getRowNumber(),
                 false,
                 true,
@@ -3851,6 +3909,37 @@ public class ResultSetViewer extends Viewer
         return result[0];
     }
 
+    /**
+     * Returns number of rows which can be read before the model reaches {@link #MAX_SPILLED_ROWS} spilled rows.
+     * Returns -1 if spilling is disabled.
+     */
+    private long getRowsLeftToSpillLimit() {
+        int spillThreshold = getPreferenceStore().getInt(ResultSetPreferences.RESULT_SET_SPILL_THRESHOLD);
+        if (spillThreshold <= 0) {
+            return -1;
+        }
+        return Math.max(0, (long) spillThreshold + MAX_SPILLED_ROWS - model.getRowCount());
+    }
+
+    private boolean isSpillLimitReached() {
+        if (getRowsLeftToSpillLimit() != 0) {
+            return false;
+        }
+        setStatus(NLS.bind(ResultSetMessages.controls_resultset_viewer_status_rows_limit, ROW_COUNT_FORMAT.format(model.getRowCount())), DBPMessageType.WARNING);
+        return true;
+    }
+
+    /**
+     * Limits number of rows to read (zero or negative value means all rows) with the spilled rows limit.
+     */
+    private int limitSpilledRows(int maxRows) {
+        long rowsLeft = getRowsLeftToSpillLimit();
+        if (rowsLeft <= 0 || (maxRows > 0 && maxRows <= rowsLeft)) {
+            return maxRows;
+        }
+        return (int) Math.min(rowsLeft, Integer.MAX_VALUE);
+    }
+
     public int getSegmentMaxRows()
     {
         if (getDataContainer() == null) {
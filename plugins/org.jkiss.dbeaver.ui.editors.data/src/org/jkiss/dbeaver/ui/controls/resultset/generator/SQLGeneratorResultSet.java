@@ -62,7 +62,7 @@ public abstract class SQLGeneratorResultSet extends SQLGeneratorBase<IResultSetC
     }
 
     void appendKeyConditions(@NotNull StringBuilder sql, Collection<DBDAttributeBinding> keyAttributes, ResultSetRow firstRow) {
-        Object[] values = firstRow.getValues();
+        Object[] values = firstRow.readValues();
         if (!ArrayUtils.isEmpty(values)) {
             Object firstCellValue = values[0];
             if (firstCellValue instanceof DBDDocument) {
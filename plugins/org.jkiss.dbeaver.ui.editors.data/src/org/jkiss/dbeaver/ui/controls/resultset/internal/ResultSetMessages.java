@@ -98,8 +98,10 @@ public class ResultSetMessages extends NLS {
     public static String controls_resultset_viewer_status_no_data;
     public static String controls_resultset_viewer_status_row;
     public static String controls_resultset_viewer_status_rows_fetched;
+    public static String controls_resultset_viewer_status_rows_fetching;
     public static String controls_resultset_viewer_status_rows_updated;
     public static String controls_resultset_viewer_status_rows_size;
+    public static String controls_resultset_viewer_status_rows_limit;
     public static String controls_resultset_viewer_status_rows_time;
     public static String controls_resultset_viewer_status_rows_time_fetch;
     public static String controls_resultset_viewer_value;
@@ -416,6 +418,8 @@ public class ResultSetMessages extends NLS {
     public static String aggregate_columns_value_text;
     public static String aggreagate_columns_group_by_column_text;
     public static String aggreagate_columns_toggle_aggregation_text;
+    public static String aggregate_columns_approximate_text;
+    public static String aggregate_columns_approximate_tip;
     public static String aggregate_columns_add_function_text;
     public static String aggregate_columns_remove_function_text;
     public static String aggregate_columns_reset_text;
@@ -58,6 +58,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
     public static final String SETTINGS_SECTION_AGGREGATE = "panel-" + PANEL_ID;
     public static final String PARAM_GROUP_BY_COLUMNS = "groupByColumns";
     public static final String PARAM_GROUP_AS_STRINGS = "groupAsStrings";
+    public static final String PARAM_APPROXIMATE = "approximate";
 
     private static final DecimalFormat DOUBLE_FORMAT = new DecimalFormat("###,###,###,###,###,##0.###");
     private static final DecimalFormat INTEGER_FORMAT = new DecimalFormat("###,###,###,###,###,##0");
@@ -67,6 +68,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
 
     private boolean groupByColumns;
     private boolean aggregateAsStrings;
+    private boolean approximate;
     //private boolean runServerQueries;
 
     private IDialogSettings panelSettings;
@@ -127,6 +129,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
     private void loadSettings() {
         aggregateAsStrings = panelSettings.getBoolean(PARAM_GROUP_AS_STRINGS);
         groupByColumns = panelSettings.getBoolean(PARAM_GROUP_BY_COLUMNS);
+        approximate = panelSettings.getBoolean(PARAM_APPROXIMATE);
         IDialogSettings functionsSection = panelSettings.getSection("functions");
         if (functionsSection != null) {
             final Map<AggregateFunctionDescriptor, Integer> funcIndexes = new HashMap<>();
@@ -164,6 +167,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
     private void saveSettings() {
         panelSettings.put(PARAM_GROUP_BY_COLUMNS, groupByColumns);
         panelSettings.put(PARAM_GROUP_AS_STRINGS, aggregateAsStrings);
+        panelSettings.put(PARAM_APPROXIMATE, approximate);
         IDialogSettings functionsSection = UIUtils.getSettingsSection(panelSettings, "functions");
 
         for (AggregateFunctionDescriptor func : FunctionsRegistry.getInstance().getAggregateFunctions()) {
@@ -262,6 +266,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
             }
             try {
                 IAggregateFunction func = funcDesc.createFunction();
+                func.setApproximate(approximate);
                 funcMap.put(func, funcItem);
             } catch (DBException e) {
                 log.error(e);
@@ -313,6 +318,7 @@ public class AggregateColumnsPanel implements IResultSetPanel {
         contributionManager.add(new Separator());
         contributionManager.add(new GroupByColumnsAction());
         contributionManager.add(new ValueTypeToggleAction());
+        contributionManager.add(new ApproximateToggleAction());
     }
 
     private class GroupByColumnsAction extends Action {
@@ -347,6 +353,22 @@ public class AggregateColumnsPanel implements IResultSetPanel {
         }
     }
 
+    private class ApproximateToggleAction extends Action {
+        public ApproximateToggleAction() {
+            super(ResultSetMessages.aggregate_columns_approximate_text, IAction.AS_CHECK_BOX);
+            setToolTipText(ResultSetMessages.aggregate_columns_approximate_tip);
+            setImageDescriptor(DBeaverIcons.getImageDescriptor(UIIcon.CHART_CURVE));
+            setChecked(approximate);
+        }
+
+        @Override
+        public void run() {
+            approximate = !approximate;
+            setChecked(approximate);
+            refresh(false);
+        }
+    }
+
     private class AddFunctionAction extends Action {
         public AddFunctionAction() {
             super(ResultSetMessages.aggregate_columns_add_function_text, DBeaverIcons.getImageDescriptor(UIIcon.OBJ_ADD));
@@ -53,6 +53,9 @@ public class DataEditorsPreferencesInitializer extends AbstractPreferenceInitial
         // ResultSet
         PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_AUTO_FETCH_NEXT_SEGMENT, true);
         PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_CANCEL_TIMEOUT, 5000);
+        PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_COLUMNAR_STORAGE, false);
+        PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_SPILL_THRESHOLD, 1000000);
+        PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_PROGRESSIVE_FETCH, true);
         PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_BINARY_EDITOR_TYPE, IValueController.EditType.EDITOR);
         PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_ORDERING_MODE, ResultSetUtils.OrderingMode.SMART);
         PrefUtils.setDefaultPreferenceValue(store, ResultSetPreferences.RESULT_SET_SHOW_ODD_ROWS, true);
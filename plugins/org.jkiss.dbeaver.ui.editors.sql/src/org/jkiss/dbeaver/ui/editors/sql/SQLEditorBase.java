@@ -111,6 +111,8 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
     private final SQLRuleScanner ruleScanner;
     @Nullable
     private SQLParserContext parserContext;
+    @NotNull
+    private final SQLScriptStructureModel scriptStructure;
     private ProjectionSupport projectionSupport;
 
     //private Map<Annotation, Position> curAnnotations;
@@ -132,6 +134,8 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
         super();
         syntaxManager = new SQLSyntaxManager();
         ruleScanner = new SQLRuleScanner();
+        scriptStructure = new SQLScriptStructureModel(
+            (offset, length) -> extractScriptQueries(offset, length, false, true, false));
         themeListener = new IPropertyChangeListener() {
             long lastUpdateTime = 0;
 
@@ -522,6 +526,7 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
         if (viewerConfiguration != null) {
             viewerConfiguration.saveFoldingState();
         }
+        scriptStructure.dispose();
 
         super.dispose();
     }
@@ -622,6 +627,7 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
         ruleManager.loadRules(getDataSource(), SQLEditorBase.isBigScript(getEditorInput()));
         ruleScanner.refreshRules(getDataSource(), ruleManager);
         parserContext = new SQLParserContext(getDataSource(), syntaxManager, ruleManager, document != null ? document : new Document());
+        scriptStructure.setDocument(document);
 
         if (document instanceof IDocumentExtension3) {
             IDocumentPartitioner partitioner = new FastPartitioner(
@@ -704,12 +710,17 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
         if (selection instanceof IBlockTextSelection) {
             return SQLScriptParser.extractActiveQuery(parserContext, ((IBlockTextSelection) selection).getRegions());
         } else {
-            return SQLScriptParser.extractActiveQuery(parserContext, selection.getOffset(), selection.getLength());
+            // Cached script structure is needed only if there is no selected text
+            int minStartPos = selection.getLength() > 0 ? 0 : scriptStructure.getStatementStart(selection.getOffset());
+            return SQLScriptParser.extractActiveQuery(
+                parserContext,
+                new IRegion[]{new Region(selection.getOffset(), selection.getLength())},
+                minStartPos);
         }
     }
 
     public SQLScriptElement extractQueryAtPos(int currentPos) {
-        return parserContext == null ? null : SQLScriptParser.extractQueryAtPos(parserContext, currentPos);
+        return parserContext == null ? null : SQLScriptParser.extractQueryAtPos(parserContext, currentPos, scriptStructure.getStatementStart(currentPos));
     }
 
     public SQLScriptElement extractNextQuery(boolean next) {
@@ -728,6 +739,14 @@ public abstract class SQLEditorBase extends BaseTextEditor implements DBPContext
         return SQLScriptParser.extractScriptQueries(parserContext, startOffset, length, scriptMode, keepDelimiters, parseParameters);
     }
 
+    /**
+     * Statement structure of the current document, maintained incrementally on edits
+     */
+    @NotNull
+    public SQLScriptStructureModel getScriptStructure() {
+        return scriptStructure;
+    }
+
     public SQLCompletionContext getCompletionContext() {
         return completionContext;
     }
@@ -58,6 +58,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
     private Button csMatchContains;
     private Button csUseGlobalSearch;
+    private Button csUseLocalIndex;
     private Button csShowColumnProcedures;
     private Button csHippieActivation;
 
@@ -86,6 +87,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
             store.contains(SQLPreferenceConstants.PROPOSALS_MATCH_CONTAINS) ||
             store.contains(SQLPreferenceConstants.USE_GLOBAL_ASSISTANT) ||
+            store.contains(SQLPreferenceConstants.USE_LOCAL_INDEX) ||
             store.contains(SQLPreferenceConstants.SHOW_COLUMN_PROCEDURES) ||
             store.contains(SQLPreferenceConstants.SHOW_SERVER_HELP_TOPICS)
         ;
@@ -157,6 +159,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
             csMatchContains = UIUtils.createCheckbox(assistGroup, SQLEditorMessages.pref_page_sql_completion_label_match_contains, SQLEditorMessages.pref_page_sql_completion_label_match_contains_tip, false, 2);
             csUseGlobalSearch = UIUtils.createCheckbox(assistGroup, SQLEditorMessages.pref_page_sql_completion_label_use_global_search, SQLEditorMessages.pref_page_sql_completion_label_use_global_search_tip, false, 2);
+            csUseLocalIndex = UIUtils.createCheckbox(assistGroup, SQLEditorMessages.pref_page_sql_completion_label_use_local_index, SQLEditorMessages.pref_page_sql_completion_label_use_local_index_tip, false, 2);
             csShowColumnProcedures = UIUtils.createCheckbox(assistGroup, SQLEditorMessages.pref_page_sql_completion_label_show_column_procedures, SQLEditorMessages.pref_page_sql_completion_label_show_column_procedures_tip, false, 2);
         }
 
@@ -185,6 +188,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
             csMatchContains.setSelection(store.getBoolean(SQLPreferenceConstants.PROPOSALS_MATCH_CONTAINS));
             csUseGlobalSearch.setSelection(store.getBoolean(SQLPreferenceConstants.USE_GLOBAL_ASSISTANT));
+            csUseLocalIndex.setSelection(store.getBoolean(SQLPreferenceConstants.USE_LOCAL_INDEX));
             csShowColumnProcedures.setSelection(store.getBoolean(SQLPreferenceConstants.SHOW_COLUMN_PROCEDURES));
 
         } catch (Exception e) {
@@ -213,6 +217,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
             store.setValue(SQLPreferenceConstants.PROPOSALS_MATCH_CONTAINS, csMatchContains.getSelection());
             store.setValue(SQLPreferenceConstants.USE_GLOBAL_ASSISTANT, csUseGlobalSearch.getSelection());
+            store.setValue(SQLPreferenceConstants.USE_LOCAL_INDEX, csUseLocalIndex.getSelection());
             store.setValue(SQLPreferenceConstants.SHOW_COLUMN_PROCEDURES, csShowColumnProcedures.getSelection());
         } catch (Exception e) {
             log.warn(e);
@@ -241,6 +246,7 @@ public class PrefPageSQLCompletion extends TargetPrefPage
 
         store.setToDefault(SQLPreferenceConstants.PROPOSALS_MATCH_CONTAINS);
         store.setToDefault(SQLPreferenceConstants.USE_GLOBAL_ASSISTANT);
+        store.setToDefault(SQLPreferenceConstants.USE_LOCAL_INDEX);
         store.setToDefault(SQLPreferenceConstants.SHOW_COLUMN_PROCEDURES);
     }
 
@@ -116,6 +116,11 @@ public class SQLEditorCompletionContext implements SQLCompletionContext
         return getActivePreferenceStore().getBoolean(SQLPreferenceConstants.HIDE_DUPLICATE_PROPOSALS);
     }
 
+    @Override
+    public boolean isUseLocalIndex() {
+        return getActivePreferenceStore().getBoolean(SQLPreferenceConstants.USE_LOCAL_INDEX);
+    }
+
     @Override
     public SQLCompletionProposalBase createProposal(
         @NotNull SQLCompletionRequest request,
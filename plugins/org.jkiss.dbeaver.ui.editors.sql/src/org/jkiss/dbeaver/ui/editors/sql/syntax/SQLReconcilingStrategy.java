@@ -184,15 +184,16 @@ public class SQLReconcilingStrategy implements IReconcilingStrategy, IReconcilin
             damagedRegionLength = rightBound.getOffset() + rightBound.getLength() - damagedRegionOffset;
         }
 
-        List<SQLScriptElement> parsedQueries = extractQueries(damagedRegionOffset, damagedRegionLength);
+        List<IRegion> parsedQueries = extractQueries(damagedRegionOffset, damagedRegionLength);
         if (parsedQueries == null) {
             return;
         }
 
         if (rightBound != null && !parsedQueries.isEmpty()) {
-            SQLScriptElement rightmostParsedQuery = parsedQueries.get(parsedQueries.size() - 1);
+            IRegion rightmostParsedQuery = parsedQueries.get(parsedQueries.size() - 1);
             if (!rightBound.equals(getExpandedScriptElement(rightmostParsedQuery))) {
-                parsedQueries = extractQueries(damagedRegionOffset, document.getLength());
+                // Statements structure is cached, so this doesn't re-parse the rest of the script
+                parsedQueries = extractQueries(damagedRegionOffset, document.getLength() - damagedRegionOffset);
                 if (parsedQueries == null) {
                     return;
                 }
@@ -239,11 +240,11 @@ public class SQLReconcilingStrategy implements IReconcilingStrategy, IReconcilin
     }
 
     @Nullable
-    private List<SQLScriptElement> extractQueries(int offset, int length) {
-        return editor.extractScriptQueries(offset, length, false, true, false);
+    private List<IRegion> extractQueries(int offset, int length) {
+        return editor.getScriptStructure().getStatementRegions(offset, length);
     }
 
-    private boolean deservesFolding(SQLScriptElement element) {
+    private boolean deservesFolding(IRegion element) {
         int numberOfLines = getNumberOfLines(element);
         if (numberOfLines == 1) {
             return false;
@@ -254,7 +255,7 @@ public class SQLReconcilingStrategy implements IReconcilingStrategy, IReconcilin
         return true;
     }
 
-    private int getNumberOfLines(SQLScriptElement element) {
+    private int getNumberOfLines(IRegion element) {
         try {
             return document.getLineOfOffset(element.getOffset() + element.getLength()) - document.getLineOfOffset(element.getOffset()) + 1;
         } catch (BadLocationException e) {
@@ -263,7 +264,7 @@ public class SQLReconcilingStrategy implements IReconcilingStrategy, IReconcilin
     }
 
     //expands query to the end of the line if there are only whitespaces after it. Returns desired length.
-    private int expandQueryLength(SQLScriptElement element) { //todo simplify
+    private int expandQueryLength(IRegion element) { //todo simplify
         int position = element.getOffset() + element.getLength();
         while (position < document.getLength()) {
             char c = unsafeGetChar(position);
@@ -283,7 +284,7 @@ public class SQLReconcilingStrategy implements IReconcilingStrategy, IReconcilin
     }
 
     @NotNull
-    private SQLScriptElementImpl getExpandedScriptElement(@NotNull SQLScriptElement element) {
+    private SQLScriptElementImpl getExpandedScriptElement(@NotNull IRegion element) {
         return new SQLScriptElementImpl(element.getOffset(), expandQueryLength(element));
     }
 
@@ -0,0 +1,397 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.editors.sql.syntax;
+
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.sql.SQLScriptElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Incrementally maintained statement structure of the SQL editor document.
+ *
+ * Keeps boundaries of parsed script elements. Document edits invalidate only statements they touch
+ * (and the statement right before them); these regions are re-parsed lazily when somebody asks for them.
+ * After re-parsing of a dirty region the parser is re-synchronized with the following cached statement,
+ * so an edit doesn't cause re-parse of the whole script tail.
+ *
+ * Model is used from the reconciler thread and from UI thread.
+ * Document listener only records edits, they are applied under the model lock on the next request.
+ * Results parsed while the document was modified concurrently are discarded.
+ */
+public class SQLScriptStructureModel implements IDocumentListener {
+
+    // Number of following statements we try to re-synchronize with before parsing the rest of the script
+    private static final int MAX_RESYNC_ATTEMPTS = 4;
+
+    /**
+     * Extracts script elements from the document region. Returns null if document can't be parsed right now.
+     */
+    public interface ScriptParser {
+        @Nullable
+        List<SQLScriptElement> extractScriptQueries(int offset, int length);
+    }
+
+    private final ScriptParser parser;
+    private IDocument document;
+
+    // Sorted by offset, do not overlap
+    private final List<Statement> statements = new ArrayList<>();
+    // Sorted by offset, do not overlap
+    private final List<Range> dirtyRanges = new ArrayList<>();
+    private int documentLength;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Edit> pendingEdits = new ArrayList<>();
+    private volatile int modificationCount;
+
+    public SQLScriptStructureModel(@NotNull ScriptParser parser) {
+        this.parser = parser;
+    }
+
+    public void setDocument(@Nullable IDocument document) {
+        lock.lock();
+        try {
+            if (this.document != null) {
+                this.document.removeDocumentListener(this);
+            }
+            this.document = document;
+            if (document != null) {
+                document.addDocumentListener(this);
+            }
+            reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all cached statements. Must be called when syntax rules change.
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            synchronized (pendingEdits) {
+                pendingEdits.clear();
+                modificationCount++;
+            }
+            statements.clear();
+            dirtyRanges.clear();
+            documentLength = document == null ? 0 : document.getLength();
+            if (documentLength > 0) {
+                dirtyRanges.add(new Range(0, documentLength));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void dispose() {
+        setDocument(null);
+    }
+
+    /**
+     * Returns regions of statements which start within the specified range.
+     * Returns null if structure can't be evaluated right now (no parser or document modified during parse).
+     */
+    @Nullable
+    public List<IRegion> getStatementRegions(int offset, int length) {
+        lock.lock();
+        try {
+            if (!validate(offset + length)) {
+                return null;
+            }
+            List<IRegion> result = new ArrayList<>();
+            int end = offset + length;
+            for (int i = findFirstStartingAt(offset); i < statements.size(); i++) {
+                Statement statement = statements.get(i);
+                if (statement.offset >= end) {
+                    break;
+                }
+                result.add(new Region(statement.offset, statement.length));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns offset of the closest known statement start at or before specified position.
+     * Parsing from this offset gives the same statements as parsing from the script start.
+     * Never parses anything itself: only statements before the first dirty region are considered.
+     * Returns 0 if there is no such statement (script prefix isn't parsed yet) or if the model is busy
+     * (e.g. parsed by reconciler), callers shouldn't wait for it.
+     */
+    public int getStatementStart(int position) {
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (document == null) {
+                return 0;
+            }
+            applyPendingEdits();
+            int limit = position;
+            if (!dirtyRanges.isEmpty()) {
+                // Statements after the dirty region start may be changed by its parsing
+                limit = Math.min(limit, dirtyRanges.get(0).start - 1);
+            }
+            int index = findFirstStartingAt(limit + 1);
+            return index > 0 ? statements.get(index - 1).offset : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+        // nothing
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+        String text = event.getText();
+        synchronized (pendingEdits) {
+            pendingEdits.add(new Edit(event.getOffset(), event.getLength(), text == null ? 0 : text.length()));
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Parses dirty regions up to the specified offset.
+     * All regions before it are parsed, as any of them may change statement boundaries after it.
+     * @return false if regions can't be parsed right now
+     */
+    private boolean validate(int end) {
+        if (document == null) {
+            return false;
+        }
+        // Take stamp before applying edits, so results are discarded if anything changes after that
+        int stamp = modificationCount;
+        applyPendingEdits();
+        while (!dirtyRanges.isEmpty()) {
+            Range range = dirtyRanges.get(0);
+            if (range.start > end) {
+                break;
+            }
+            if (!parseRange(range, stamp)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean parseRange(Range range, int stamp) {
+        int nextIndex = findFirstStartingAt(range.end);
+        for (int attempt = 0; ; attempt++) {
+            Statement next = nextIndex < statements.size() ? statements.get(nextIndex) : null;
+            if (next == null || attempt >= MAX_RESYNC_ATTEMPTS) {
+                // Parse till the end of the script
+                List<SQLScriptElement> parsed = parse(range.start, documentLength, stamp);
+                if (parsed == null) {
+                    return false;
+                }
+                removeFrom(range.start);
+                insertStatements(statements.size(), parsed);
+                return true;
+            }
+            List<SQLScriptElement> parsed = parse(range.start, next.offset + next.length, stamp);
+            if (parsed == null) {
+                return false;
+            }
+            SQLScriptElement last = parsed.isEmpty() ? null : parsed.get(parsed.size() - 1);
+            if (last != null && last.getOffset() == next.offset && last.getLength() == next.length) {
+                // Parser is in sync with cached statements again
+                parsed.remove(parsed.size() - 1);
+                dirtyRanges.remove(range);
+                insertStatements(nextIndex, parsed);
+                return true;
+            }
+            // Statement boundaries changed after the edit. Include the next statement in the dirty range.
+            statements.remove(nextIndex);
+            range.end = next.offset + next.length;
+            mergeDirtyRanges();
+        }
+    }
+
+    @Nullable
+    private List<SQLScriptElement> parse(int start, int end, int stamp) {
+        if (end <= start) {
+            return new ArrayList<>();
+        }
+        List<SQLScriptElement> elements = parser.extractScriptQueries(start, end - start);
+        if (elements == null || stamp != modificationCount) {
+            return null;
+        }
+        return elements;
+    }
+
+    private void insertStatements(int index, List<SQLScriptElement> elements) {
+        List<Statement> added = new ArrayList<>(elements.size());
+        for (SQLScriptElement element : elements) {
+            added.add(new Statement(element.getOffset(), element.getLength()));
+        }
+        statements.addAll(index, added);
+    }
+
+    private void removeFrom(int offset) {
+        int index = findFirstStartingAt(offset);
+        statements.subList(index, statements.size()).clear();
+        dirtyRanges.removeIf(r -> r.end >= offset);
+    }
+
+    private void applyPendingEdits() {
+        List<Edit> edits;
+        synchronized (pendingEdits) {
+            if (pendingEdits.isEmpty()) {
+                return;
+            }
+            edits = new ArrayList<>(pendingEdits);
+            pendingEdits.clear();
+        }
+        for (Edit edit : edits) {
+            applyEdit(edit);
+        }
+    }
+
+    private void applyEdit(Edit edit) {
+        int editEnd = edit.offset + edit.oldLength;
+        int delta = edit.newLength - edit.oldLength;
+        documentLength += delta;
+
+        // Statements touching the edit are invalid. Previous statement may be extended by the edit as well.
+        int firstIndex = findFirstEndingAfter(edit.offset);
+        if (firstIndex > 0) {
+            firstIndex--;
+        }
+        int lastIndex = firstIndex;
+        while (lastIndex < statements.size() && statements.get(lastIndex).offset <= editEnd) {
+            lastIndex++;
+        }
+        int dirtyStart = firstIndex > 0 ? statements.get(firstIndex - 1).getEnd() : 0;
+        statements.subList(firstIndex, lastIndex).clear();
+        for (int i = firstIndex; i < statements.size(); i++) {
+            statements.get(i).offset += delta;
+        }
+        int dirtyEnd = firstIndex < statements.size() ? statements.get(firstIndex).offset : documentLength;
+
+        for (Range range : dirtyRanges) {
+            if (range.start >= editEnd) {
+                range.start += delta;
+                range.end += delta;
+            } else if (range.end >= edit.offset) {
+                range.start = Math.min(range.start, edit.offset);
+                range.end = Math.max(range.start, range.end + delta);
+            }
+        }
+        // Empty range is still added - the following statement has to be re-checked
+        dirtyRanges.add(new Range(dirtyStart, Math.max(dirtyStart, dirtyEnd)));
+        mergeDirtyRanges();
+    }
+
+    private void mergeDirtyRanges() {
+        dirtyRanges.sort((r1, r2) -> Integer.compare(r1.start, r2.start));
+        for (int i = 1; i < dirtyRanges.size(); ) {
+            Range prev = dirtyRanges.get(i - 1);
+            Range range = dirtyRanges.get(i);
+            if (range.start <= prev.end) {
+                prev.end = Math.max(prev.end, range.end);
+                dirtyRanges.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Binary search for the first statement which ends at or after the specified offset
+     */
+    private int findFirstEndingAfter(int offset) {
+        int low = 0, high = statements.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (statements.get(mid).getEnd() < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search for the first statement which starts at or after the specified offset
+     */
+    private int findFirstStartingAt(int offset) {
+        int low = 0, high = statements.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (statements.get(mid).offset < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class Statement {
+        int offset;
+        final int length;
+
+        Statement(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        int getEnd() {
+            return offset + length;
+        }
+    }
+
+    private static class Range {
+        int start;
+        int end;
+
+        Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class Edit {
+        final int offset;
+        final int oldLength;
+        final int newLength;
+
+        Edit(int offset, int oldLength, int newLength) {
+            this.offset = offset;
+            this.oldLength = oldLength;
+            this.newLength = newLength;
+        }
+    }
+
+}
@@ -71,6 +71,8 @@ public class PrefPageDatabaseNavigator extends AbstractPrefPage implements IWork
     private Button showResourceFolderPlaceholdersCheck;
     private Button groupByDriverCheck;
     private Text longListFetchSizeText;
+    private Button prefetchMetadataCheck;
+    private Text prefetchMaxNodesText;
     private Combo dsDoubleClickBehavior;
     private Combo objDoubleClickBehavior;
     private Combo defaultEditorPageCombo;
@@ -144,6 +146,11 @@ public class PrefPageDatabaseNavigator extends AbstractPrefPage implements IWork
             restoreStateDepthText = UIUtils.createLabelText(miscGroup, UINavigatorMessages.pref_page_database_general_label_restore_state_depth, "", SWT.BORDER);
             restoreStateDepthText.setToolTipText(UINavigatorMessages.pref_page_database_general_label_restore_state_depth_tip);
             restoreStateDepthText.addVerifyListener(UIUtils.getIntegerVerifyListener(Locale.getDefault()));
+
+            prefetchMetadataCheck = UIUtils.createCheckbox(miscGroup, UINavigatorMessages.pref_page_database_general_label_prefetch_metadata, UINavigatorMessages.pref_page_database_general_label_prefetch_metadata_tip, false, 2);
+            prefetchMaxNodesText = UIUtils.createLabelText(miscGroup, UINavigatorMessages.pref_page_database_general_label_prefetch_max_nodes, "", SWT.BORDER);
+            prefetchMaxNodesText.setToolTipText(UINavigatorMessages.pref_page_database_general_label_prefetch_max_nodes_tip);
+            prefetchMaxNodesText.addVerifyListener(UIUtils.getIntegerVerifyListener(Locale.getDefault()));
         }
 
         performDefaults();
@@ -172,6 +179,8 @@ public class PrefPageDatabaseNavigator extends AbstractPrefPage implements IWork
         showResourceFolderPlaceholdersCheck.setSelection(store.getBoolean(ModelPreferences.NAVIGATOR_SHOW_FOLDER_PLACEHOLDERS));
         groupByDriverCheck.setSelection(store.getBoolean(NavigatorPreferences.NAVIGATOR_GROUP_BY_DRIVER));
         longListFetchSizeText.setText(store.getString(NavigatorPreferences.NAVIGATOR_LONG_LIST_FETCH_SIZE));
+        prefetchMetadataCheck.setSelection(store.getBoolean(ModelPreferences.NAVIGATOR_PREFETCH_ENABLED));
+        prefetchMaxNodesText.setText(store.getString(ModelPreferences.NAVIGATOR_PREFETCH_MAX_NODES));
         NavigatorPreferences.DoubleClickBehavior objDCB = CommonUtils.valueOf(NavigatorPreferences.DoubleClickBehavior.class, store.getString(NavigatorPreferences.NAVIGATOR_OBJECT_DOUBLE_CLICK));
         objDoubleClickBehavior.select(objDCB == NavigatorPreferences.DoubleClickBehavior.EXPAND ? 1 : 0);
         dsDoubleClickBehavior.select(
@@ -215,6 +224,8 @@ public class PrefPageDatabaseNavigator extends AbstractPrefPage implements IWork
         store.setValue(ModelPreferences.NAVIGATOR_SHOW_FOLDER_PLACEHOLDERS, showResourceFolderPlaceholdersCheck.getSelection());
         store.setValue(NavigatorPreferences.NAVIGATOR_GROUP_BY_DRIVER, groupByDriverCheck.getSelection());
         store.setValue(NavigatorPreferences.NAVIGATOR_LONG_LIST_FETCH_SIZE, longListFetchSizeText.getText());
+        store.setValue(ModelPreferences.NAVIGATOR_PREFETCH_ENABLED, prefetchMetadataCheck.getSelection());
+        store.setValue(ModelPreferences.NAVIGATOR_PREFETCH_MAX_NODES, prefetchMaxNodesText.getText());
         NavigatorPreferences.DoubleClickBehavior objDCB = NavigatorPreferences.DoubleClickBehavior.EXPAND;
         if (objDoubleClickBehavior.getSelectionIndex() == 0) {
             objDCB = NavigatorPreferences.DoubleClickBehavior.EDIT;
@@ -0,0 +1,379 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.search.data;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.BlockCanceler;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.DBSInstance;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches data in a list of tables using a bounded set of worker jobs.
+ * <p>
+ * Each worker reads tables through its own isolated contexts. Tables of data sources which can't open extra connections
+ * are searched one by one by a single worker using the default utility context (as well as all tables if parallel search
+ * is disabled). Metadata reads needed to prepare search are serialized per data source.
+ * Search in a table is canceled when it exceeds the table timeout, when enough matched tables were found
+ * or when the whole search is canceled.
+ */
+public class SearchDataExecutor {
+
+    private static final Log log = Log.getLog(SearchDataExecutor.class);
+
+    private static final long WATCHDOG_PERIOD = 250;
+
+    /**
+     * Provides isolated execution contexts of a worker
+     */
+    public interface ContextProvider {
+        DBCExecutionContext getExecutionContext(DBRProgressMonitor monitor, DBSDataContainer dataContainer) throws DBException;
+    }
+
+    /**
+     * Search in a single table
+     *
+     * @param <T> search prepared for a table
+     */
+    public interface TableSearcher<T> {
+
+        /**
+         * Prepares search in the table. Called under data source metadata lock.
+         *
+         * @return prepared search or null if table must be skipped
+         */
+        @Nullable
+        T prepareSearch(@NotNull DBRProgressMonitor monitor, @NotNull DBSDataContainer dataContainer) throws DBException;
+
+        /**
+         * Searches in the table.
+         *
+         * @param contextProvider provider of isolated contexts or null if the default utility context must be used
+         * @return number of matched rows
+         */
+        int searchTable(
+            @NotNull DBRProgressMonitor monitor,
+            @NotNull DBSDataContainer dataContainer,
+            @NotNull T search,
+            @Nullable ContextProvider contextProvider) throws DBException;
+
+        /**
+         * Adds matched table to results. Called only for tables within the matched tables limit.
+         */
+        void addResult(@NotNull DBSDataContainer dataContainer, @NotNull T search, int rowCount);
+    }
+
+    private final int maxThreads;
+    private final long tableTimeout;
+    private final int maxMatchedTables;
+
+    // Metadata caches aren't designed for concurrent reads. Metadata of each data source is read by one worker at a time.
+    private final Map<DBPDataSourceContainer, Object> metadataLocks = new IdentityHashMap<>();
+    private final AtomicInteger matchedTables = new AtomicInteger();
+    private volatile boolean stopped;
+
+    /**
+     * @param maxThreads       maximum number of parallel workers. Values less than 2 disable parallel search
+     * @param tableTimeout     search timeout of a single table in milliseconds or 0 for no timeout
+     * @param maxMatchedTables search stops when this number of tables matched, 0 means no limit
+     */
+    public SearchDataExecutor(int maxThreads, long tableTimeout, int maxMatchedTables) {
+        this.maxThreads = maxThreads;
+        this.tableTimeout = tableTimeout;
+        this.maxMatchedTables = maxMatchedTables;
+    }
+
+    /**
+     * Searches data in tables. Returns when all workers are finished.
+     *
+     * @return number of matched tables
+     */
+    public <T> int searchData(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull Collection<? extends DBSDataContainer> tables,
+        @NotNull TableSearcher<T> searcher)
+    {
+        matchedTables.set(0);
+        stopped = false;
+
+        Deque<DBSDataContainer> isolatedQueue = new ArrayDeque<>();
+        Deque<DBSDataContainer> sharedQueue = new ArrayDeque<>();
+        for (DBSDataContainer dataContainer : tables) {
+            if (maxThreads <= 1 || dataContainer.getDataSource().getContainer().getDriver().isEmbedded()) {
+                sharedQueue.add(dataContainer);
+            } else {
+                isolatedQueue.add(dataContainer);
+            }
+        }
+        List<SearchWorkerJob<T>> workers = new ArrayList<>();
+        int workerCount = Math.min(maxThreads, isolatedQueue.size());
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new SearchWorkerJob<>(monitor, searcher, isolatedQueue, true, i + 1));
+        }
+        if (!sharedQueue.isEmpty()) {
+            workers.add(new SearchWorkerJob<>(monitor, searcher, sharedQueue, false, workers.size() + 1));
+        }
+        CountDownLatch finished = new CountDownLatch(workers.size());
+        for (SearchWorkerJob<T> worker : workers) {
+            worker.addJobChangeListener(new JobChangeAdapter() {
+                @Override
+                public void done(IJobChangeEvent event) {
+                    finished.countDown();
+                }
+            });
+            worker.schedule();
+        }
+        // Watch for timeouts and cancellation. Running queries are canceled by their blocking objects.
+        boolean workersCanceled = false;
+        try {
+            while (!finished.await(WATCHDOG_PERIOD, TimeUnit.MILLISECONDS)) {
+                if (monitor.isCanceled()) {
+                    stopped = true;
+                }
+                if (stopped) {
+                    if (!workersCanceled) {
+                        cancelWorkers(workers);
+                        workersCanceled = true;
+                    }
+                } else {
+                    for (SearchWorkerJob<T> worker : workers) {
+                        worker.checkTimeout();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            stopped = true;
+            if (!workersCanceled) {
+                cancelWorkers(workers);
+            }
+        }
+        int matched = matchedTables.get();
+        return maxMatchedTables > 0 ? Math.min(matched, maxMatchedTables) : matched;
+    }
+
+    private static void cancelWorkers(@NotNull List<? extends AbstractJob> workers) {
+        for (AbstractJob worker : workers) {
+            worker.cancel();
+        }
+    }
+
+    private <T> void searchTable(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull TableSearcher<T> searcher,
+        @NotNull DBSDataContainer dataContainer,
+        @Nullable ContextProvider contextProvider)
+    {
+        T search;
+        try {
+            // Prepare search before opening session. Tables without searchable columns are skipped without querying.
+            synchronized (getMetadataLock(dataContainer)) {
+                search = searcher.prepareSearch(monitor, dataContainer);
+            }
+        } catch (DBException e) {
+            log.debug("Can't prepare search in '" + dataContainer.getName() + "'", e);
+            return;
+        }
+        if (search == null || monitor.isCanceled()) {
+            return;
+        }
+        int rowCount;
+        try {
+            rowCount = searcher.searchTable(monitor, dataContainer, search, contextProvider);
+        } catch (DBException e) {
+            log.error("Error searching data in '" + dataContainer.getName() + "'", e);
+            return;
+        }
+        if (rowCount > 0) {
+            int matched = matchedTables.incrementAndGet();
+            if (maxMatchedTables > 0 && matched > maxMatchedTables) {
+                return;
+            }
+            searcher.addResult(dataContainer, search, rowCount);
+            if (maxMatchedTables > 0 && matched >= maxMatchedTables) {
+                // Enough results
+                stopped = true;
+            }
+        }
+    }
+
+    private Object getMetadataLock(@NotNull DBSDataContainer dataContainer) {
+        synchronized (metadataLocks) {
+            return metadataLocks.computeIfAbsent(dataContainer.getDataSource().getContainer(), c -> new Object());
+        }
+    }
+
+    private class SearchWorkerJob<T> extends AbstractJob {
+        private final DBRProgressMonitor baseMonitor;
+        private final TableSearcher<T> searcher;
+        private final Deque<DBSDataContainer> queue;
+        private final boolean isolated;
+        private final Map<DBSInstance, DBCExecutionContext> contexts = new HashMap<>();
+        private volatile SearchTableMonitor tableMonitor;
+        private volatile long tableStartTime;
+
+        SearchWorkerJob(
+            @NotNull DBRProgressMonitor baseMonitor,
+            @NotNull TableSearcher<T> searcher,
+            @NotNull Deque<DBSDataContainer> queue,
+            boolean isolated,
+            int index)
+        {
+            super("Data search (" + index + ")");
+            setUser(false);
+            setSystem(false);
+            this.baseMonitor = baseMonitor;
+            this.searcher = searcher;
+            this.queue = queue;
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected IStatus run(DBRProgressMonitor monitor) {
+            try {
+                for (;;) {
+                    DBSDataContainer dataContainer;
+                    synchronized (queue) {
+                        dataContainer = queue.poll();
+                    }
+                    if (dataContainer == null) {
+                        break;
+                    }
+                    SearchTableMonitor searchMonitor = new SearchTableMonitor(baseMonitor, monitor);
+                    if (searchMonitor.isCanceled()) {
+                        break;
+                    }
+                    monitor.subTask("Search in '" + dataContainer.getName() + "'");
+                    synchronized (baseMonitor) {
+                        baseMonitor.subTask("Search in '" + dataContainer.getName() + "'");
+                    }
+                    tableStartTime = System.currentTimeMillis();
+                    tableMonitor = searchMonitor;
+                    try {
+                        searchTable(searchMonitor, searcher, dataContainer, isolated ? this::getExecutionContext : null);
+                    } catch (Throwable e) {
+                        log.error("Error searching data in '" + dataContainer.getName() + "'", e);
+                    } finally {
+                        tableMonitor = null;
+                    }
+                    synchronized (baseMonitor) {
+                        baseMonitor.worked(1);
+                    }
+                }
+            } finally {
+                for (DBCExecutionContext context : contexts.values()) {
+                    context.close();
+                }
+            }
+            return Status.OK_STATUS;
+        }
+
+        @Override
+        protected void canceling() {
+            super.canceling();
+            SearchTableMonitor searchMonitor = tableMonitor;
+            if (searchMonitor != null) {
+                searchMonitor.cancelSearch(getActiveThread());
+            }
+        }
+
+        private DBCExecutionContext getExecutionContext(DBRProgressMonitor monitor, DBSDataContainer dataContainer) throws DBException {
+            DBSInstance instance = DBUtils.getObjectOwnerInstance(dataContainer);
+            DBCExecutionContext context = contexts.get(instance);
+            if (context == null) {
+                context = instance.openIsolatedContext(monitor, "Data search", null);
+                contexts.put(instance, context);
+            }
+            return context;
+        }
+
+        void checkTimeout() {
+            SearchTableMonitor searchMonitor = tableMonitor;
+            if (searchMonitor != null && !searchMonitor.canceled &&
+                (searchMonitor.isCanceled() || (tableTimeout > 0 && System.currentTimeMillis() - tableStartTime > tableTimeout)))
+            {
+                searchMonitor.cancelSearch(getActiveThread());
+            }
+        }
+    }
+
+    /**
+     * Monitor of a single table search. Progress is not reported, only cancel state and active blocks are used.
+     */
+    private class SearchTableMonitor extends VoidProgressMonitor {
+        private final DBRProgressMonitor baseMonitor;
+        private final DBRProgressMonitor jobMonitor;
+        private final List<DBRBlockingObject> blocks = new ArrayList<>();
+        private volatile boolean canceled;
+
+        SearchTableMonitor(@NotNull DBRProgressMonitor baseMonitor, @NotNull DBRProgressMonitor jobMonitor) {
+            this.baseMonitor = baseMonitor;
+            this.jobMonitor = jobMonitor;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled || stopped || jobMonitor.isCanceled() || baseMonitor.isCanceled();
+        }
+
+        @Override
+        public synchronized void startBlock(DBRBlockingObject object, String taskName) {
+            blocks.add(object);
+        }
+
+        @Override
+        public synchronized void endBlock() {
+            if (!blocks.isEmpty()) {
+                blocks.remove(blocks.size() - 1);
+            }
+        }
+
+        @Override
+        public synchronized List<DBRBlockingObject> getActiveBlocks() {
+            return new ArrayList<>(blocks);
+        }
+
+        void cancelSearch(@Nullable Thread workerThread) {
+            canceled = true;
+            for (DBRBlockingObject block : getActiveBlocks()) {
+                try {
+                    BlockCanceler.cancelBlock(this, block, workerThread);
+                } catch (DBException e) {
+                    log.debug("Error canceling search query", e);
+                }
+            }
+        }
+    }
+
+}
@@ -55,6 +55,9 @@ public class SearchDataPage extends AbstractSearchPage {
     private static final String PROP_SEARCH_NUMBERS = "search.data.search-numbers"; //$NON-NLS-1$
     private static final String PROP_SEARCH_LOBS = "search.data.search-lobs"; //$NON-NLS-1$
     private static final String PROP_SEARCH_FOREIGN = "search.data.search-foreign"; //$NON-NLS-1$
+    private static final String PROP_MAX_THREADS = "search.data.max-threads"; //$NON-NLS-1$
+    private static final String PROP_TABLE_TIMEOUT = "search.data.table-timeout"; //$NON-NLS-1$
+    private static final String PROP_MAX_MATCHED_TABLES = "search.data.max-matched-tables"; //$NON-NLS-1$
     private static final String PROP_HISTORY = "search.data.history"; //$NON-NLS-1$
 
     private Combo searchText;
@@ -127,11 +130,26 @@ public class SearchDataPage extends AbstractSearchPage {
             if (params.maxResults <= 0) {
                 params.maxResults = 10;
             }
+            if (params.maxThreads <= 0) {
+                params.maxThreads = 1;
+            }
 
             final Spinner maxResultsSpinner = UIUtils.createLabelSpinner(optionsGroup2, "Sample rows", "Maximum number of rows to search. Don't set to a big number, this might greatly reduce search performance.", params.maxResults, 1, Integer.MAX_VALUE);
             maxResultsSpinner.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_BEGINNING));
             maxResultsSpinner.addModifyListener(e -> params.maxResults = maxResultsSpinner.getSelection());
 
+            final Spinner maxThreadsSpinner = UIUtils.createLabelSpinner(optionsGroup2, "Parallel threads", "Number of tables searched simultaneously. Each thread opens a separate connection.", params.maxThreads, 1, 32);
+            maxThreadsSpinner.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_BEGINNING));
+            maxThreadsSpinner.addModifyListener(e -> params.maxThreads = maxThreadsSpinner.getSelection());
+
+            final Spinner tableTimeoutSpinner = UIUtils.createLabelSpinner(optionsGroup2, "Table timeout (sec)", "Maximum time of search in a single table. 0 means no limit.", params.tableTimeout, 0, Integer.MAX_VALUE);
+            tableTimeoutSpinner.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_BEGINNING));
+            tableTimeoutSpinner.addModifyListener(e -> params.tableTimeout = tableTimeoutSpinner.getSelection());
+
+            final Spinner maxMatchedTablesSpinner = UIUtils.createLabelSpinner(optionsGroup2, "Max matched tables", "Stop search after this number of tables with matches found. 0 means no limit.", params.maxMatchedTables, 0, Integer.MAX_VALUE);
+            maxMatchedTablesSpinner.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_BEGINNING));
+            maxMatchedTablesSpinner.addModifyListener(e -> params.maxMatchedTables = maxMatchedTablesSpinner.getSelection());
+
             final Button caseCheckbox = UIUtils.createCheckbox(optionsGroup2, UISearchMessages.dialog_search_objects_case_sensitive, "Case sensitive search", params.caseSensitive, 2);
             caseCheckbox.addSelectionListener(new SelectionAdapter() {
                 @Override
@@ -205,6 +223,9 @@ public class SearchDataPage extends AbstractSearchPage {
         params.searchLOBs = store.getBoolean(PROP_SEARCH_LOBS);
         params.searchForeignObjects = store.getBoolean(PROP_SEARCH_FOREIGN);
         params.maxResults = store.getInt(PROP_SAMPLE_ROWS);
+        params.maxThreads = store.getInt(PROP_MAX_THREADS);
+        params.tableTimeout = store.getInt(PROP_TABLE_TIMEOUT);
+        params.maxMatchedTables = store.getInt(PROP_MAX_MATCHED_TABLES);
         for (int i = 0; ; i++) {
             String history = store.getString(PROP_HISTORY + "." + i); //$NON-NLS-1$
             if (CommonUtils.isEmpty(history)) {
@@ -233,6 +254,9 @@ public class SearchDataPage extends AbstractSearchPage {
         store.setValue(PROP_SEARCH_NUMBERS, params.searchNumbers);
         store.setValue(PROP_SEARCH_LOBS, params.searchLOBs);
         store.setValue(PROP_SEARCH_FOREIGN, params.searchForeignObjects);
+        store.setValue(PROP_MAX_THREADS, params.maxThreads);
+        store.setValue(PROP_TABLE_TIMEOUT, params.tableTimeout);
+        store.setValue(PROP_MAX_MATCHED_TABLES, params.maxMatchedTables);
         saveTreeState();
 
         {
@@ -35,6 +35,9 @@ public class SearchDataParams {
     boolean searchLOBs;
     boolean searchForeignObjects;
     int maxResults;
+    int maxThreads;
+    int tableTimeout; // Seconds
+    int maxMatchedTables;
     List<DBNNode> selectedNodes = new ArrayList<>();
 
     public SearchDataParams()
@@ -105,6 +108,30 @@ public class SearchDataParams {
         this.maxResults = maxResults;
     }
 
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getTableTimeout() {
+        return tableTimeout;
+    }
+
+    public void setTableTimeout(int tableTimeout) {
+        this.tableTimeout = tableTimeout;
+    }
+
+    public int getMaxMatchedTables() {
+        return maxMatchedTables;
+    }
+
+    public void setMaxMatchedTables(int maxMatchedTables) {
+        this.maxMatchedTables = maxMatchedTables;
+    }
+
     public List<DBNNode> getSelectedNodes() {
         return selectedNodes;
     }
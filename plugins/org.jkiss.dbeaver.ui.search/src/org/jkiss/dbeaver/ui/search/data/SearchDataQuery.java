@@ -38,7 +38,6 @@ import org.jkiss.dbeaver.model.navigator.DBNDatabaseNode;
 import org.jkiss.dbeaver.model.navigator.DBNModel;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.runtime.DefaultProgressMonitor;
-import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSDataContainer;
 import org.jkiss.dbeaver.model.struct.DBSEntity;
 import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
@@ -62,6 +61,7 @@ public class SearchDataQuery implements ISearchQuery {
 
     private final SearchDataParams params;
     private SearchDataResult searchResult;
+    private SearchValues searchValues;
 
     private SearchDataQuery(SearchDataParams params)
     {
@@ -108,21 +108,16 @@ public class SearchDataQuery implements ISearchQuery {
 
             DBRProgressMonitor monitor = new DefaultProgressMonitor(m);
 
-            int totalObjects = 0;
+            searchValues = new SearchValues(searchString);
 
             monitor.beginTask(
                 "Search \"" + searchString + "\" in " + params.sources.size() + " table(s) / " + dataSources.size() + " database(s)",
                 params.sources.size());
+            int totalObjects;
             try {
-                for (DBSDataContainer dataContainer : params.sources) {
-                    if (monitor.isCanceled()) {
-                        break;
-                    }
-                    if (searchDataInContainer(monitor, dbnModel, dataContainer)) {
-                        totalObjects++;
-                    }
-                    monitor.worked(1);
-                }
+                SearchDataExecutor executor = new SearchDataExecutor(
+                    params.maxThreads, params.tableTimeout * 1000L, params.maxMatchedTables);
+                totalObjects = executor.searchData(monitor, params.sources, new DataSearcher(dbnModel));
             } finally {
                 monitor.done();
             }
@@ -135,45 +130,88 @@ public class SearchDataQuery implements ISearchQuery {
         }
     }
 
-    private boolean searchDataInContainer(DBRProgressMonitor monitor, DBNModel dbnModel, DBSDataContainer dataContainer) {
-        if (!params.searchForeignObjects && dataContainer instanceof DBPForeignObject && ((DBPForeignObject) dataContainer).isForeignObject()) {
-            return false;
+    /**
+     * Search in a single table. Filter is prepared under metadata lock, data is read in a worker context.
+     */
+    private class DataSearcher implements SearchDataExecutor.TableSearcher<TableSearch> {
+        private final DBNModel dbnModel;
+
+        DataSearcher(@NotNull DBNModel dbnModel) {
+            this.dbnModel = dbnModel;
         }
 
-        String objectName = DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
-        DBNDatabaseNode node = dbnModel.findNode(dataContainer);
-        if (node == null) {
-            log.warn("Can't find tree node for object \"" + objectName + "\"");
-            return false;
+        @Nullable
+        @Override
+        public TableSearch prepareSearch(@NotNull DBRProgressMonitor monitor, @NotNull DBSDataContainer dataContainer) throws DBException {
+            if (!params.searchForeignObjects && dataContainer instanceof DBPForeignObject && ((DBPForeignObject) dataContainer).isForeignObject()) {
+                return null;
+            }
+            String objectName = DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
+            DBNDatabaseNode node = dbnModel.findNode(dataContainer);
+            if (node == null) {
+                log.warn("Can't find tree node for object \"" + objectName + "\"");
+                return null;
+            }
+            DBDDataFilter dataFilter = makeSearchFilter(monitor, dataContainer);
+            return dataFilter == null ? null : new TableSearch(objectName, node, dataFilter);
         }
-        monitor.subTask("Search in '" + objectName + "'");
-        log.debug("Search in '" + objectName + "'");
-        SearchTableMonitor searchMonitor = new SearchTableMonitor(monitor);
-        try (DBCSession session = DBUtils.openUtilSession(searchMonitor, dataContainer, "Search rows in " + objectName)) {
-            TestDataReceiver dataReceiver = new TestDataReceiver(searchMonitor);
-            try {
-                findRows(session, dataContainer, dataReceiver);
-            } catch (DBCException e) {
-                // Search failed in some container - just write an error in log.
-                // We don't want to break whole search because of one single table.
-                log.debug("Fulltext search failed in '" + dataContainer.getName() + "'", e);
+
+        @Override
+        public int searchTable(
+            @NotNull DBRProgressMonitor monitor,
+            @NotNull DBSDataContainer dataContainer,
+            @NotNull TableSearch search,
+            @Nullable SearchDataExecutor.ContextProvider contextProvider) throws DBException
+        {
+            log.debug("Search in '" + search.objectName + "'");
+            TestDataReceiver dataReceiver = new TestDataReceiver();
+            String sessionTitle = "Search rows in " + search.objectName;
+            try (DBCSession session = contextProvider == null ?
+                DBUtils.openUtilSession(monitor, dataContainer, sessionTitle) :
+                contextProvider.getExecutionContext(monitor, dataContainer).openSession(monitor, DBCExecutionPurpose.UTIL, sessionTitle))
+            {
+                try {
+                    DBCExecutionSource searchSource = new AbstractExecutionSource(dataContainer, session.getExecutionContext(), SearchDataQuery.this);
+                    dataContainer.readData(searchSource, session, dataReceiver, search.dataFilter, -1, params.maxResults, 0, 0);
+                } catch (DBCException e) {
+                    // Search failed in some container (or timed out) - just write an error in log.
+                    // We don't want to break whole search because of one single table.
+                    log.debug("Fulltext search failed in '" + dataContainer.getName() + "'", e);
+                }
             }
+            return dataReceiver.rowCount;
+        }
 
-            if (dataReceiver.rowCount > 0) {
-                SearchDataObject object = new SearchDataObject(node, dataReceiver.rowCount, dataReceiver.filter);
+        @Override
+        public void addResult(@NotNull DBSDataContainer dataContainer, @NotNull TableSearch search, int rowCount) {
+            SearchDataObject object = new SearchDataObject(search.node, rowCount, search.dataFilter);
+            synchronized (searchResult) {
                 searchResult.addObjects(Collections.singletonList(object));
-                return true;
             }
-        } catch (DBCException e) {
-            log.error("Error searching data in container", e);
         }
-        return false;
     }
 
-    private DBCStatistics findRows(
-        @NotNull DBCSession session,
-        @NotNull DBSDataContainer dataContainer,
-        @NotNull TestDataReceiver dataReceiver) throws DBCException
+    private static class TableSearch {
+        private final String objectName;
+        private final DBNDatabaseNode node;
+        private final DBDDataFilter dataFilter;
+
+        TableSearch(String objectName, DBNDatabaseNode node, DBDDataFilter dataFilter) {
+            this.objectName = objectName;
+            this.node = node;
+            this.dataFilter = dataFilter;
+        }
+    }
+
+    /**
+     * Makes filter with conditions for all columns compatible with the search string.
+     *
+     * @return filter or null if table has no columns to search in
+     */
+    @Nullable
+    private DBDDataFilter makeSearchFilter(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSDataContainer dataContainer) throws DBException
     {
         DBSEntity entity;
         if (dataContainer instanceof DBSEntity) {
@@ -182,122 +220,104 @@ public class SearchDataQuery implements ISearchQuery {
             log.warn("Data container " + dataContainer + " isn't entity");
             return null;
         }
-        try {
 
-            List<DBDAttributeConstraint> constraints = new ArrayList<>();
-            DBDDataFilter dataFilter = searchDataFilterForContainer(dataContainer, session.getProgressMonitor());
-            for (DBSEntityAttribute attribute : CommonUtils.safeCollection(entity.getAttributes(session.getProgressMonitor()))) {
-                if (params.fastSearch) {
-                    if (DBUtils.findAttributeIndex(session.getProgressMonitor(), attribute) == null) {
-                        continue;
-                    }
-                }
-                if (DBUtils.isPseudoAttribute(attribute) || DBUtils.isHiddenObject(attribute)) {
+        List<DBDAttributeConstraint> constraints = new ArrayList<>();
+        DBDDataFilter dataFilter = searchDataFilterForContainer(dataContainer, monitor);
+        for (DBSEntityAttribute attribute : CommonUtils.safeCollection(entity.getAttributes(monitor))) {
+            if (DBUtils.isPseudoAttribute(attribute) || DBUtils.isHiddenObject(attribute)) {
+                continue;
+            }
+            if (!isSearchableAttribute(attribute)) {
+                // Check type compatibility first. It doesn't need extra metadata reads.
+                continue;
+            }
+            if (params.fastSearch) {
+                if (DBUtils.findAttributeIndex(monitor, attribute) == null) {
                     continue;
                 }
-                DBCLogicalOperator[] supportedOperators = DBUtils.getAttributeOperators(attribute);
-                DBCLogicalOperator operator;
-                Object value;
-                switch (attribute.getDataKind()) {
-                    case BOOLEAN:
+            }
+            DBCLogicalOperator[] supportedOperators = DBUtils.getAttributeOperators(attribute);
+            DBCLogicalOperator operator;
+            Object value;
+            switch (attribute.getDataKind()) {
+                case NUMERIC:
+                    if (!ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
                         continue;
-                    case NUMERIC:
-                        if (!params.searchNumbers) {
-                            continue;
-                        }
-                        if (!ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
-                            continue;
-                        }
+                    }
+                    operator = DBCLogicalOperator.EQUALS;
+                    value = searchValues.numberValue;
+                    break;
+                case CONTENT:
+                case BINARY:
+                case STRING:
+                    // Do not check value length. Some columns may be compressed/compacted/have special data type and thus have length < than value length.
+//                    if (attribute.getMaxLength() > 0 && attribute.getMaxLength() < params.searchString.length()) {
+//                        continue;
+//                    }
+
+                    if (!params.isCaseSensitive() && ArrayUtils.contains(supportedOperators, DBCLogicalOperator.ILIKE)) {
+                        operator = DBCLogicalOperator.ILIKE;
+                        value = "%" + params.searchString + "%";
+                    } else if (ArrayUtils.contains(supportedOperators, DBCLogicalOperator.LIKE)) {
+                        operator = DBCLogicalOperator.LIKE;
+                        value = "%" + params.searchString + "%";
+                    } else if (ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
                         operator = DBCLogicalOperator.EQUALS;
-                        try {
-                            value = Integer.valueOf(params.searchString);
-                        } catch (NumberFormatException e) {
-                            try {
-                                value = Long.valueOf(params.searchString);
-                            } catch (NumberFormatException e1) {
-                                try {
-                                    value = Double.valueOf(params.searchString);
-                                } catch (NumberFormatException e2) {
-                                    try {
-                                        value = new BigDecimal(params.searchString);
-                                    } catch (Exception e3) {
-                                        // Not a number
-                                        continue;
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    case CONTENT:
-                    case BINARY:
-                        if (!params.searchLOBs) {
-                            continue;
-                        }
-                    case STRING:
-                        // Do not check value length. Some columns may be compressed/compacted/have special data type and thus have length < than value length.
-//                        if (attribute.getMaxLength() > 0 && attribute.getMaxLength() < params.searchString.length()) {
-//                            continue;
-//                        }
-
-                        if (!params.isCaseSensitive() && ArrayUtils.contains(supportedOperators, DBCLogicalOperator.ILIKE)) {
-                            operator = DBCLogicalOperator.ILIKE;
-                            value = "%" + params.searchString + "%";
-                        } else if (ArrayUtils.contains(supportedOperators, DBCLogicalOperator.LIKE)) {
-                            operator = DBCLogicalOperator.LIKE;
-                            value = "%" + params.searchString + "%";
-                        } else if (ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
-                            operator = DBCLogicalOperator.EQUALS;
-                            value = params.searchString;
-                        } else {
-                            continue;
-                        }
-                        break;
-                    default: {
-                        // Try to convert string to attribute type
-                        // On success search by exact match
-                        if (!ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
-                            continue;
-                        }
-                        String typeName = attribute.getTypeName();
-                        if (typeName.equals(DBConstants.TYPE_NAME_UUID) || typeName.equals(DBConstants.TYPE_NAME_UUID2)) {
-                            try {
-                                UUID uuid = UUID.fromString(params.searchString);
-                                operator = DBCLogicalOperator.EQUALS;
-                                value = uuid.toString();
-                            } catch (Exception e) {
-                                // No a UUID
-                                continue;
-                            }
-                        } else {
-                            continue;
-                        }
+                        value = params.searchString;
+                    } else {
+                        continue;
                     }
+                    break;
+                default: {
+                    // UUID - search by exact match
+                    if (!ArrayUtils.contains(supportedOperators, DBCLogicalOperator.EQUALS)) {
+                        continue;
+                    }
+                    operator = DBCLogicalOperator.EQUALS;
+                    value = searchValues.uuidValue;
                 }
-                DBDAttributeConstraint constraint = null;
-                if (dataFilter != null) {
-                    constraint = dataFilter.getConstraint(attribute, true);
-                }
-                if (constraint == null) {
-                    constraint = new DBDAttributeConstraint(attribute, constraints.size());
-                    constraint.setVisible(true);
-                }
-                constraint.setOperator(operator);
-                constraint.setValue(value);
-                constraints.add(constraint);
-            }
-            if (constraints.isEmpty()) {
-                return null;
             }
+            DBDAttributeConstraint constraint = null;
             if (dataFilter != null) {
-                dataReceiver.filter = dataFilter;
-            } else {
-                dataReceiver.filter = new DBDDataFilter(constraints);
+                constraint = dataFilter.getConstraint(attribute, true);
+            }
+            if (constraint == null) {
+                constraint = new DBDAttributeConstraint(attribute, constraints.size());
+                constraint.setVisible(true);
+            }
+            constraint.setOperator(operator);
+            constraint.setValue(value);
+            constraints.add(constraint);
+        }
+        if (constraints.isEmpty()) {
+            return null;
+        }
+        if (dataFilter == null) {
+            dataFilter = new DBDDataFilter(constraints);
+        }
+        dataFilter.setAnyConstraint(true);
+        return dataFilter;
+    }
+
+    /**
+     * Checks whether search string may be a value of the attribute
+     */
+    private boolean isSearchableAttribute(@NotNull DBSEntityAttribute attribute) {
+        switch (attribute.getDataKind()) {
+            case BOOLEAN:
+                return false;
+            case NUMERIC:
+                return params.searchNumbers && searchValues.numberValue != null;
+            case CONTENT:
+            case BINARY:
+                return params.searchLOBs;
+            case STRING:
+                return true;
+            default: {
+                String typeName = attribute.getTypeName();
+                return searchValues.uuidValue != null &&
+                    (DBConstants.TYPE_NAME_UUID.equals(typeName) || DBConstants.TYPE_NAME_UUID2.equals(typeName));
             }
-            dataReceiver.filter.setAnyConstraint(true);
-            DBCExecutionSource searchSource = new AbstractExecutionSource(dataContainer, session.getExecutionContext(), this);
-            return dataContainer.readData(searchSource, session, dataReceiver, dataReceiver.filter, -1, -1, 0, 0);
-        } catch (DBException e) {
-            throw new DBCException("Error finding rows", e);
         }
     }
 
@@ -331,30 +351,50 @@ public class SearchDataQuery implements ISearchQuery {
         return dataFilter;
     }
 
-    private class SearchTableMonitor extends VoidProgressMonitor {
-
-        private DBRProgressMonitor baseMonitor;
-        private volatile boolean canceled;
+    /**
+     * Search string converted to column types. Conversion is done once per search.
+     */
+    private static class SearchValues {
+        private final Object numberValue;
+        private final String uuidValue;
 
-        private SearchTableMonitor(DBRProgressMonitor monitor) {
-            this.baseMonitor = monitor;
+        SearchValues(String searchString) {
+            this.numberValue = parseNumber(searchString);
+            String uuid = null;
+            try {
+                uuid = UUID.fromString(searchString).toString();
+            } catch (Exception e) {
+                // No a UUID
+            }
+            this.uuidValue = uuid;
         }
 
-        @Override
-        public boolean isCanceled() {
-            return canceled || baseMonitor.isCanceled();
+        @Nullable
+        private static Object parseNumber(String searchString) {
+            try {
+                return Integer.valueOf(searchString);
+            } catch (NumberFormatException e) {
+                try {
+                    return Long.valueOf(searchString);
+                } catch (NumberFormatException e1) {
+                    try {
+                        return Double.valueOf(searchString);
+                    } catch (NumberFormatException e2) {
+                        try {
+                            return new BigDecimal(searchString);
+                        } catch (Exception e3) {
+                            // Not a number
+                            return null;
+                        }
+                    }
+                }
+            }
         }
     }
 
-    private class TestDataReceiver implements DBDDataReceiver {
+    private static class TestDataReceiver implements DBDDataReceiver {
 
-        private SearchTableMonitor searchMonitor;
         private int rowCount = 0;
-        private DBDDataFilter filter;
-
-        TestDataReceiver(SearchTableMonitor searchMonitor) {
-            this.searchMonitor = searchMonitor;
-        }
 
         @Override
         public void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) throws DBCException {
@@ -364,9 +404,6 @@ public class SearchDataQuery implements ISearchQuery {
         @Override
         public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
             rowCount++;
-            if (rowCount >= params.maxResults) {
-                searchMonitor.canceled = true;
-            }
         }
 
         @Override
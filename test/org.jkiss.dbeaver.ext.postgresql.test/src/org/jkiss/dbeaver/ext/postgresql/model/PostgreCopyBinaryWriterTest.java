@@ -0,0 +1,142 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.postgresql.model;
+
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.impl.jdbc.data.JDBCContentBytes;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.sql.Timestamp;
+
+public class PostgreCopyBinaryWriterTest {
+
+    private final DBRProgressMonitor monitor = new VoidProgressMonitor();
+
+    @Test
+    public void testEncodeNumeric() {
+        // ndigits, weight, sign, dscale, digits...
+        Assert.assertArrayEquals(new short[]{0, 0, 0, 0}, PostgreCopyBinaryWriter.encodeNumeric(BigDecimal.ZERO));
+        Assert.assertArrayEquals(new short[]{1, 0, 0, 0, 12}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("12")));
+        Assert.assertArrayEquals(new short[]{2, 1, 0, 0, 1, 2345}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("12345")));
+        Assert.assertArrayEquals(new short[]{1, -1, 0, 1, 5000}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("0.5")));
+        Assert.assertArrayEquals(new short[]{2, 0, 0x4000, 2, 123, 4500}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("-123.45")));
+        Assert.assertArrayEquals(new short[]{1, 1, 0, 0, 1}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("10000.00").setScale(0)));
+        Assert.assertArrayEquals(new short[]{1, -2, 0, 5, 1000}, PostgreCopyBinaryWriter.encodeNumeric(new BigDecimal("0.00001")));
+    }
+
+    @Test
+    public void testWriteRow() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PostgreCopyBinaryWriter writer = new PostgreCopyBinaryWriter(
+            Channels.newChannel(out),
+            new PostgreCopyBinaryWriter.FieldType[] {
+                PostgreCopyBinaryWriter.FieldType.INT4,
+                PostgreCopyBinaryWriter.FieldType.TEXT,
+                PostgreCopyBinaryWriter.FieldType.TIMESTAMP
+            },
+            24);
+        writer.writeHeader();
+        writer.writeRow(monitor, new Object[] { 7, "abcdefghijklmnopqrstuvwxyz", Timestamp.valueOf("2000-01-02 00:00:00") });
+        writer.writeRow(monitor, new Object[] { null, null, null });
+        writer.writeTrailer();
+        writer.flush();
+
+        ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+        Assert.assertEquals(11 + 8 + (2 + 8 + 30 + 12) + (2 + 12) + 2, data.remaining());
+        data.position(19);
+        Assert.assertEquals(3, data.getShort());
+        Assert.assertEquals(4, data.getInt());
+        Assert.assertEquals(7, data.getInt());
+        Assert.assertEquals(26, data.getInt());
+        data.position(data.position() + 26);
+        Assert.assertEquals(8, data.getInt());
+        Assert.assertEquals(86400L * 1000000L, data.getLong());
+        Assert.assertEquals(3, data.getShort());
+        Assert.assertEquals(-1, data.getInt());
+        Assert.assertEquals(-1, data.getInt());
+        Assert.assertEquals(-1, data.getInt());
+        Assert.assertEquals(-1, data.getShort());
+    }
+
+    @Test
+    public void testWriteContent() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PostgreCopyBinaryWriter writer = new PostgreCopyBinaryWriter(
+            Channels.newChannel(out),
+            new PostgreCopyBinaryWriter.FieldType[] { PostgreCopyBinaryWriter.FieldType.BYTEA },
+            64);
+        byte[] bytes = new byte[] { 0, 1, (byte) 0xFF, '\\', 'x' };
+        writer.writeRow(monitor, new Object[] { new JDBCContentBytes(null, bytes) });
+        writer.flush();
+
+        ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+        Assert.assertEquals(1, data.getShort());
+        Assert.assertEquals(bytes.length, data.getInt());
+        byte[] written = new byte[bytes.length];
+        data.get(written);
+        Assert.assertArrayEquals(bytes, written);
+        Assert.assertFalse(data.hasRemaining());
+    }
+
+    @Test
+    public void testIntegerRange() throws Exception {
+        PostgreCopyBinaryWriter.FieldType[] types = {
+            PostgreCopyBinaryWriter.FieldType.INT2,
+            PostgreCopyBinaryWriter.FieldType.INT4
+        };
+        PostgreCopyBinaryWriter writer = new PostgreCopyBinaryWriter(Channels.newChannel(new ByteArrayOutputStream()), types, 64);
+        writer.writeRow(monitor, new Object[] { 32767L, new BigDecimal("-2147483648") });
+        assertRowRejected(writer, new Object[] { 32768, 0 });
+        assertRowRejected(writer, new Object[] { 0, 2147483648L });
+        assertRowRejected(writer, new Object[] { 0, new BigDecimal("1.5") });
+        assertRowRejected(writer, new Object[] { 0, 1e10 });
+    }
+
+    @Test
+    public void testUnsupportedValue() throws Exception {
+        PostgreCopyBinaryWriter writer = new PostgreCopyBinaryWriter(
+            Channels.newChannel(new ByteArrayOutputStream()),
+            new PostgreCopyBinaryWriter.FieldType[] { PostgreCopyBinaryWriter.FieldType.BYTEA },
+            64);
+        assertRowRejected(writer, new Object[] { 123 });
+        assertRowRejected(writer, new Object[] { "\\x0102" });
+    }
+
+    private void assertRowRejected(PostgreCopyBinaryWriter writer, Object[] row) throws Exception {
+        try {
+            writer.writeRow(monitor, row);
+            Assert.fail("Row must be rejected");
+        } catch (DBCException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFieldTypes() {
+        Assert.assertEquals(PostgreCopyBinaryWriter.FieldType.INT4, PostgreCopyBinaryWriter.getFieldType("integer"));
+        Assert.assertEquals(PostgreCopyBinaryWriter.FieldType.TEXT, PostgreCopyBinaryWriter.getFieldType("character varying"));
+        Assert.assertEquals(PostgreCopyBinaryWriter.FieldType.TIMESTAMPTZ, PostgreCopyBinaryWriter.getFieldType("timestamptz"));
+        Assert.assertNull(PostgreCopyBinaryWriter.getFieldType("interval"));
+    }
+}
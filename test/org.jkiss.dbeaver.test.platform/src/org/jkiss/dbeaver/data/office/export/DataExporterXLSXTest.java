@@ -0,0 +1,174 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.data.office.export;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBPNamedObject;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSTypedObject;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporterSite;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class DataExporterXLSXTest {
+
+    private static final Date BASE_DATE = Timestamp.valueOf("2022-05-23 10:30:00");
+
+    @Test
+    public void testDirectWriter() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new Object[] {
+                (long) i,
+                i == 2 ? null : "name<" + i + ">",
+                new Date(BASE_DATE.getTime() + i * 86_400_000L),
+                i % 2 == 0
+            });
+        }
+        // Header takes a row of each sheet, so each sheet gets 2 data rows
+        try (XSSFWorkbook workbook = export(rows, 3)) {
+            Assert.assertEquals(3, workbook.getNumberOfSheets());
+            int rowIndex = 0;
+            for (int sheetIndex = 0; sheetIndex < 3; sheetIndex++) {
+                XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
+                assertHeader(sheet.getRow(0));
+                int sheetRows = sheetIndex < 2 ? 2 : 1;
+                Assert.assertEquals(sheetRows, sheet.getLastRowNum());
+                for (int i = 1; i <= sheetRows; i++, rowIndex++) {
+                    assertDataRow(sheet.getRow(i), rows.get(rowIndex));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDirectWriterEmptyExport() throws Exception {
+        try (XSSFWorkbook workbook = export(new ArrayList<>(), 100)) {
+            Assert.assertEquals(1, workbook.getNumberOfSheets());
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            assertHeader(sheet.getRow(0));
+            // Empty export still has one row of blank cells
+            Row row = sheet.getRow(1);
+            Assert.assertNotNull(row);
+            for (Cell cell : row) {
+                Assert.assertEquals(CellType.BLANK, cell.getCellType());
+            }
+            Assert.assertEquals(1, sheet.getLastRowNum());
+        }
+    }
+
+    private static void assertHeader(Row header) {
+        String[] names = { "id", "name", "created", "flag" };
+        for (int i = 0; i < names.length; i++) {
+            Cell cell = header.getCell(i);
+            Assert.assertEquals(names[i], cell.getStringCellValue());
+            XSSFCellStyle style = (XSSFCellStyle) cell.getCellStyle();
+            Assert.assertTrue(style.getFont().getBold());
+            Assert.assertEquals(BorderStyle.THIN, style.getBorderBottom());
+        }
+    }
+
+    private static void assertDataRow(Row row, Object[] values) {
+        Cell idCell = row.getCell(0);
+        Assert.assertEquals(CellType.NUMERIC, idCell.getCellType());
+        Assert.assertEquals(((Long) values[0]).doubleValue(), idCell.getNumericCellValue(), 0);
+        Assert.assertEquals(BorderStyle.THIN, idCell.getCellStyle().getBorderLeft());
+        Assert.assertFalse(((XSSFCellStyle) idCell.getCellStyle()).getFont().getBold());
+
+        Cell nameCell = row.getCell(1);
+        if (values[1] == null) {
+            Assert.assertEquals(CellType.BLANK, nameCell.getCellType());
+        } else {
+            Assert.assertEquals(values[1], nameCell.getStringCellValue());
+        }
+
+        Cell dateCell = row.getCell(2);
+        Assert.assertTrue(DateUtil.isCellDateFormatted(dateCell));
+        Assert.assertEquals(values[2], dateCell.getDateCellValue());
+
+        Cell flagCell = row.getCell(3);
+        Assert.assertEquals(CellType.BOOLEAN, flagCell.getCellType());
+        Assert.assertEquals(values[3], flagCell.getBooleanCellValue());
+    }
+
+    private static XSSFWorkbook export(List<Object[]> rows, int splitByRowCount) throws Exception {
+        Map<String, Object> properties = DataExporterXLSX.getDefaultProperties();
+        properties.put("directWriter", true);
+        properties.put("splitByRowCount", splitByRowCount);
+
+        DBDAttributeBinding[] columns = {
+            createColumn("id", DBPDataKind.NUMERIC),
+            createColumn("name", DBPDataKind.STRING),
+            createColumn("created", DBPDataKind.DATETIME),
+            createColumn("flag", DBPDataKind.BOOLEAN),
+        };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IStreamDataExporterSite site = Mockito.mock(IStreamDataExporterSite.class);
+        Mockito.when(site.getProperties()).thenReturn(properties);
+        Mockito.when(site.getAttributes()).thenReturn(columns);
+        Mockito.when(site.getOutputStream()).thenReturn(output);
+        Mockito.when(site.getSource()).thenReturn(Mockito.mock(DBPNamedObject.class));
+        Mockito.when(site.getExportFormat()).thenReturn(DBDDisplayFormat.EDIT);
+        DBCSession session = Mockito.mock(DBCSession.class, Mockito.RETURNS_DEEP_STUBS);
+
+        DataExporterXLSX exporter = new DataExporterXLSX();
+        exporter.init(site);
+        exporter.exportHeader(session);
+        for (Object[] row : rows) {
+            exporter.exportRow(session, null, row);
+        }
+        exporter.exportFooter(new VoidProgressMonitor());
+        exporter.dispose();
+
+        return new XSSFWorkbook(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static DBDAttributeBinding createColumn(String name, DBPDataKind dataKind) {
+        DBDAttributeBinding column = Mockito.mock(DBDAttributeBinding.class);
+        Mockito.when(column.getName()).thenReturn(name);
+        Mockito.when(column.getLabel()).thenReturn(name);
+        Mockito.when(column.getDataKind()).thenReturn(dataKind);
+        DBDValueHandler valueHandler = Mockito.mock(DBDValueHandler.class);
+        Mockito.when(valueHandler.getValueDisplayString(
+            Mockito.any(DBSTypedObject.class), Mockito.any(), Mockito.any(DBDDisplayFormat.class)))
+            .thenAnswer(invocation -> String.valueOf(invocation.getArguments()[1]));
+        Mockito.when(column.getValueHandler()).thenReturn(valueHandler);
+        return column;
+    }
+
+}
@@ -0,0 +1,401 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.data.transfer;
+
+import org.jkiss.dbeaver.tools.transfer.stream.exporter.ParquetWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+public class ParquetWriterTest {
+    @Test
+    public void testFileLayout() throws Exception {
+        ParquetWriter.Column[] columns = {
+            new ParquetWriter.Column("id", ParquetWriter.ColumnType.INT32),
+            new ParquetWriter.Column("name", ParquetWriter.ColumnType.STRING)
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParquetWriter writer = new ParquetWriter(out, columns, ParquetWriter.Codec.GZIP, true, 3, 1 << 20);
+        writer.start();
+        for (int i = 0; i < 10; i++) {
+            writer.writeRow(new Object[]{i, i % 2 == 0 ? null : "value" + (i % 3)});
+        }
+        writer.finish();
+
+        byte[] data = out.toByteArray();
+        byte[] magic = "PAR1".getBytes(StandardCharsets.US_ASCII);
+        Assert.assertArrayEquals(magic, Arrays.copyOfRange(data, 0, 4));
+        Assert.assertArrayEquals(magic, Arrays.copyOfRange(data, data.length - 4, data.length));
+
+        int footerLength = ByteBuffer.wrap(data, data.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        Assert.assertTrue(footerLength > 0 && footerLength < data.length - 12);
+        String footer = new String(data, data.length - 8 - footerLength, footerLength, StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(footer.contains("schema"));
+        Assert.assertTrue(footer.contains("name"));
+        Assert.assertTrue(footer.endsWith(ParquetWriter.CREATED_BY + "\0"));
+    }
+
+    @Test
+    public void testReadBackCompressed() throws Exception {
+        checkReadBack(ParquetWriter.Codec.GZIP, true);
+    }
+
+    @Test
+    public void testReadBackPlain() throws Exception {
+        checkReadBack(ParquetWriter.Codec.UNCOMPRESSED, false);
+    }
+
+    private void checkReadBack(ParquetWriter.Codec codec, boolean useDictionary) throws Exception {
+        ParquetWriter.Column[] columns = {
+            new ParquetWriter.Column("id", ParquetWriter.ColumnType.INT32),
+            new ParquetWriter.Column("name", ParquetWriter.ColumnType.STRING),
+            new ParquetWriter.Column("amount", ParquetWriter.ColumnType.DECIMAL, 10, 2),
+            new ParquetWriter.Column("flag", ParquetWriter.ColumnType.BOOLEAN),
+            new ParquetWriter.Column("created", ParquetWriter.ColumnType.TIMESTAMP),
+            new ParquetWriter.Column("ratio", ParquetWriter.ColumnType.DOUBLE),
+            new ParquetWriter.Column("data", ParquetWriter.ColumnType.BINARY)
+        };
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(new Object[] {
+                i,
+                i % 3 == 0 ? null : "name" + (i % 4),
+                i % 5 == 0 ? null : new BigDecimal(i * 100 - 950).movePointLeft(2),
+                i % 7 == 0 ? null : i % 2 == 0,
+                1600000000000L + i * 1000L,
+                i % 4 == 0 ? null : i / 3.0,
+                i % 6 == 0 ? null : new byte[] { (byte) i, (byte) 0xFF, 0 }
+            });
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParquetWriter writer = new ParquetWriter(out, columns, codec, useDictionary, 8, 1 << 20);
+        writer.start();
+        for (Object[] row : rows) {
+            writer.writeRow(row);
+        }
+        writer.finish();
+
+        List<Object[]> readRows = new ParquetTestReader(out.toByteArray()).readRows();
+        Assert.assertEquals(rows.size(), readRows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] expected = rows.get(i);
+            Object[] actual = readRows.get(i);
+            Assert.assertEquals(expected.length, actual.length);
+            for (int k = 0; k < expected.length; k++) {
+                String message = "Row " + i + ", column " + columns[k].getName();
+                if (expected[k] instanceof byte[]) {
+                    Assert.assertArrayEquals(message, (byte[]) expected[k], (byte[]) actual[k]);
+                } else if (expected[k] instanceof BigDecimal) {
+                    Assert.assertEquals(message, ((BigDecimal) expected[k]).setScale(2), actual[k]);
+                } else {
+                    Assert.assertEquals(message, expected[k], actual[k]);
+                }
+            }
+        }
+        // Decimals keep column scale
+        Assert.assertEquals(new BigDecimal("-8.50"), readRows.get(1)[2]);
+    }
+
+    /**
+     * Minimal reader of files produced by ParquetWriter: flat optional columns,
+     * PLAIN and dictionary encodings, GZIP or no compression.
+     */
+    private static class ParquetTestReader {
+        private static final int TYPE_BOOLEAN = 0;
+        private static final int TYPE_INT32 = 1;
+        private static final int TYPE_INT64 = 2;
+        private static final int TYPE_FLOAT = 4;
+        private static final int TYPE_DOUBLE = 5;
+        private static final int CONVERTED_UTF8 = 0;
+        private static final int CONVERTED_DECIMAL = 5;
+
+        private final byte[] data;
+
+        ParquetTestReader(byte[] data) {
+            this.data = data;
+        }
+
+        List<Object[]> readRows() throws IOException {
+            int footerLength = ByteBuffer.wrap(data, data.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            ThriftReader footerReader = new ThriftReader(data, data.length - 8 - footerLength);
+            Map<Integer, Object> meta = footerReader.readStruct();
+
+            List<?> schema = (List<?>) meta.get(2);
+            int columnCount = schema.size() - 1;
+            List<Object[]> rows = new ArrayList<>();
+            for (Object rowGroupObj : (List<?>) meta.get(4)) {
+                Map<?, ?> rowGroup = (Map<?, ?>) rowGroupObj;
+                int numRows = ((Long) rowGroup.get(3)).intValue();
+                Object[][] groupRows = new Object[numRows][columnCount];
+                List<?> chunks = (List<?>) rowGroup.get(1);
+                for (int c = 0; c < columnCount; c++) {
+                    Map<?, ?> element = (Map<?, ?>) schema.get(c + 1);
+                    Map<?, ?> chunkMeta = (Map<?, ?>) ((Map<?, ?>) chunks.get(c)).get(3);
+                    List<Object> values = readColumnChunk(element, chunkMeta);
+                    Assert.assertEquals(numRows, values.size());
+                    for (int r = 0; r < numRows; r++) {
+                        groupRows[r][c] = values.get(r);
+                    }
+                }
+                rows.addAll(Arrays.asList(groupRows));
+            }
+            Assert.assertEquals(((Long) meta.get(3)).intValue(), rows.size());
+            return rows;
+        }
+
+        private List<Object> readColumnChunk(Map<?, ?> element, Map<?, ?> chunkMeta) throws IOException {
+            boolean gzip = ((Long) chunkMeta.get(4)).intValue() == 2;
+            Long dictionaryOffset = (Long) chunkMeta.get(11);
+            List<Object> dictionary = null;
+            int position;
+            if (dictionaryOffset != null) {
+                ThriftReader reader = new ThriftReader(data, dictionaryOffset.intValue());
+                Map<Integer, Object> header = reader.readStruct();
+                Assert.assertEquals(2L, header.get(1));
+                int numValues = ((Long) ((Map<?, ?>) header.get(7)).get(1)).intValue();
+                ByteBuffer body = readPageBody(reader.getPosition(), header, gzip);
+                dictionary = decodePlain(element, body, numValues);
+                position = reader.getPosition() + ((Long) header.get(3)).intValue();
+                Assert.assertEquals(((Long) chunkMeta.get(9)).intValue(), position);
+            } else {
+                position = ((Long) chunkMeta.get(9)).intValue();
+            }
+            ThriftReader reader = new ThriftReader(data, position);
+            Map<Integer, Object> header = reader.readStruct();
+            Assert.assertEquals(0L, header.get(1));
+            Map<?, ?> dataHeader = (Map<?, ?>) header.get(5);
+            int numValues = ((Long) dataHeader.get(1)).intValue();
+            ByteBuffer body = readPageBody(reader.getPosition(), header, gzip);
+
+            int levelsLength = body.getInt();
+            ByteBuffer levelsBuffer = body.slice();
+            levelsBuffer.limit(levelsLength);
+            int[] levels = decodeHybrid(levelsBuffer, 1, numValues);
+            body.position(body.position() + levelsLength);
+            int definedCount = 0;
+            for (int level : levels) {
+                definedCount += level;
+            }
+            List<Object> defined;
+            if (((Long) dataHeader.get(2)).intValue() == 2) {
+                Assert.assertNotNull(dictionary);
+                int bitWidth = body.get();
+                defined = new ArrayList<>();
+                for (int index : decodeHybrid(body, bitWidth, definedCount)) {
+                    defined.add(dictionary.get(index));
+                }
+            } else {
+                defined = decodePlain(element, body, definedCount);
+            }
+            List<Object> values = new ArrayList<>(numValues);
+            Iterator<Object> definedIterator = defined.iterator();
+            for (int level : levels) {
+                values.add(level == 0 ? null : definedIterator.next());
+            }
+            return values;
+        }
+
+        private ByteBuffer readPageBody(int offset, Map<Integer, Object> header, boolean gzip) throws IOException {
+            int uncompressedSize = ((Long) header.get(2)).intValue();
+            int compressedSize = ((Long) header.get(3)).intValue();
+            byte[] body = Arrays.copyOfRange(data, offset, offset + compressedSize);
+            if (gzip) {
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    byte[] chunk = new byte[4096];
+                    for (int count; (count = in.read(chunk)) > 0; ) {
+                        buffer.write(chunk, 0, count);
+                    }
+                    body = buffer.toByteArray();
+                }
+            }
+            Assert.assertEquals(uncompressedSize, body.length);
+            return ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private static List<Object> decodePlain(Map<?, ?> element, ByteBuffer buffer, int count) {
+            int physicalType = ((Long) element.get(1)).intValue();
+            Long convertedType = (Long) element.get(6);
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                switch (physicalType) {
+                    case TYPE_BOOLEAN: {
+                        int bits = buffer.get(buffer.position() + i / 8);
+                        values.add(((bits >> (i % 8)) & 1) != 0);
+                        if (i == count - 1) {
+                            buffer.position(buffer.position() + (count + 7) / 8);
+                        }
+                        break;
+                    }
+                    case TYPE_INT32:
+                        values.add(buffer.getInt());
+                        break;
+                    case TYPE_INT64:
+                        values.add(buffer.getLong());
+                        break;
+                    case TYPE_FLOAT:
+                        values.add(buffer.getFloat());
+                        break;
+                    case TYPE_DOUBLE:
+                        values.add(buffer.getDouble());
+                        break;
+                    default: {
+                        byte[] bytes = new byte[buffer.getInt()];
+                        buffer.get(bytes);
+                        if (convertedType != null && convertedType == CONVERTED_UTF8) {
+                            values.add(new String(bytes, StandardCharsets.UTF_8));
+                        } else if (convertedType != null && convertedType == CONVERTED_DECIMAL) {
+                            values.add(new BigDecimal(new BigInteger(bytes), ((Long) element.get(7)).intValue()));
+                        } else {
+                            values.add(bytes);
+                        }
+                        break;
+                    }
+                }
+            }
+            return values;
+        }
+
+        /**
+         * RLE/bit-packing hybrid decoder
+         */
+        private static int[] decodeHybrid(ByteBuffer buffer, int bitWidth, int count) {
+            int[] values = new int[count];
+            int index = 0;
+            while (index < count) {
+                long header = readVarInt(buffer);
+                if ((header & 1) == 0) {
+                    int runLength = (int) (header >>> 1);
+                    int value = 0;
+                    for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                        value |= (buffer.get() & 0xFF) << (b * 8);
+                    }
+                    for (int i = 0; i < runLength && index < count; i++) {
+                        values[index++] = value;
+                    }
+                } else {
+                    int valueCount = (int) (header >>> 1) * 8;
+                    long bits = 0;
+                    int bitCount = 0;
+                    for (int i = 0; i < valueCount; i++) {
+                        while (bitCount < bitWidth) {
+                            bits |= ((long) (buffer.get() & 0xFF)) << bitCount;
+                            bitCount += 8;
+                        }
+                        int value = (int) (bits & ((1L << bitWidth) - 1));
+                        bits >>>= bitWidth;
+                        bitCount -= bitWidth;
+                        if (index < count) {
+                            values[index++] = value;
+                        }
+                    }
+                }
+            }
+            return values;
+        }
+
+        private static long readVarInt(ByteBuffer buffer) {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = buffer.get() & 0xFF;
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrift compact protocol reader. Structs are read as maps of field id to value.
+     */
+    private static class ThriftReader {
+        private final ByteBuffer buffer;
+
+        ThriftReader(byte[] data, int offset) {
+            this.buffer = ByteBuffer.wrap(data);
+            this.buffer.position(offset);
+        }
+
+        int getPosition() {
+            return buffer.position();
+        }
+
+        Map<Integer, Object> readStruct() {
+            Map<Integer, Object> fields = new HashMap<>();
+            int lastFieldId = 0;
+            for (;;) {
+                int header = buffer.get() & 0xFF;
+                if (header == 0) {
+                    return fields;
+                }
+                int type = header & 0x0F;
+                int delta = header >>> 4;
+                int fieldId = delta == 0 ? (int) zigZag(ParquetTestReader.readVarInt(buffer)) : lastFieldId + delta;
+                fields.put(fieldId, readValue(type));
+                lastFieldId = fieldId;
+            }
+        }
+
+        private Object readValue(int type) {
+            switch (type) {
+                case 1:
+                    return Boolean.TRUE;
+                case 2:
+                    return Boolean.FALSE;
+                case 5:
+                case 6:
+                    return zigZag(ParquetTestReader.readVarInt(buffer));
+                case 8: {
+                    byte[] bytes = new byte[(int) ParquetTestReader.readVarInt(buffer)];
+                    buffer.get(bytes);
+                    return bytes;
+                }
+                case 9: {
+                    int header = buffer.get() & 0xFF;
+                    int size = header >>> 4;
+                    if (size == 15) {
+                        size = (int) ParquetTestReader.readVarInt(buffer);
+                    }
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue(header & 0x0F));
+                    }
+                    return list;
+                }
+                case 12:
+                    return readStruct();
+                default:
+                    throw new IllegalStateException("Unsupported thrift type " + type);
+            }
+        }
+
+        private static long zigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.data.transfer;
+
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.tools.transfer.database.DatabaseTransferPartitionedReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PartitionedReaderTest {
+    @Test
+    public void testSplitRange() {
+        Assert.assertArrayEquals(new long[] {0, 25, 50, 75, 100}, DatabaseTransferPartitionedReader.splitRange(0, 100, 4));
+        Assert.assertArrayEquals(new long[] {1, 4, 7, 10}, DatabaseTransferPartitionedReader.splitRange(1, 10, 3));
+    }
+
+    @Test
+    public void testSplitSmallRange() {
+        Assert.assertArrayEquals(new long[] {5, 5}, DatabaseTransferPartitionedReader.splitRange(5, 5, 4));
+        Assert.assertArrayEquals(new long[] {1, 2, 3}, DatabaseTransferPartitionedReader.splitRange(1, 3, 8));
+    }
+
+    @Test
+    public void testSplitHugeRange() {
+        long[] bounds = DatabaseTransferPartitionedReader.splitRange(Long.MIN_VALUE, Long.MAX_VALUE, 2);
+        Assert.assertEquals(3, bounds.length);
+        Assert.assertEquals(Long.MIN_VALUE, bounds[0]);
+        Assert.assertEquals(-1, bounds[1]);
+        Assert.assertEquals(Long.MAX_VALUE, bounds[2]);
+    }
+
+    @Test
+    public void testReceiverLifecycle() throws Exception {
+        final int partitionCount = 4;
+        final int rowCount = 25;
+        DBDDataReceiver target = Mockito.mock(DBDDataReceiver.class);
+        Set<DBCSession> openSessions = ConcurrentHashMap.newKeySet();
+        List<Boolean> fetchEndSessionOpen = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> fetchEndSessionOpen.add(openSessions.contains(invocation.getArguments()[0])))
+            .when(target).fetchEnd(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+
+        DatabaseTransferPartitionedReader.PartitionReceiver receiver = new DatabaseTransferPartitionedReader.PartitionReceiver(target, partitionCount);
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            Thread reader = new Thread(() -> {
+                DBCSession session = Mockito.mock(DBCSession.class);
+                DBCResultSet resultSet = Mockito.mock(DBCResultSet.class);
+                openSessions.add(session);
+                try {
+                    // The same sequence as in data container readData
+                    receiver.fetchStart(session, resultSet, 0, -1);
+                    for (int row = 0; row < rowCount; row++) {
+                        receiver.fetchRow(session, resultSet);
+                    }
+                    receiver.fetchEnd(session, resultSet);
+                    receiver.close();
+                    receiver.partitionFinished(session);
+                } catch (DBCException e) {
+                    errors.add(e);
+                } finally {
+                    openSessions.remove(session);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        receiver.finish();
+
+        Assert.assertTrue(errors.isEmpty());
+        Mockito.verify(target, Mockito.times(1)).fetchStart(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class), Mockito.anyLong(), Mockito.anyLong());
+        Mockito.verify(target, Mockito.times(partitionCount * rowCount)).fetchRow(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+        Mockito.verify(target, Mockito.times(1)).fetchEnd(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+        Mockito.verify(target, Mockito.times(1)).close();
+        Assert.assertEquals(Collections.singletonList(Boolean.TRUE), fetchEndSessionOpen);
+    }
+
+    @Test
+    public void testReceiverFailedPartition() throws Exception {
+        DBDDataReceiver target = Mockito.mock(DBDDataReceiver.class);
+        DatabaseTransferPartitionedReader.PartitionReceiver receiver = new DatabaseTransferPartitionedReader.PartitionReceiver(target, 2);
+        DBCSession session = Mockito.mock(DBCSession.class);
+        DBCResultSet resultSet = Mockito.mock(DBCResultSet.class);
+        receiver.fetchStart(session, resultSet, 0, -1);
+        receiver.fetchEnd(session, resultSet);
+        receiver.partitionFinished(session);
+        // Second partition failed and never finished
+        receiver.finish();
+
+        Mockito.verify(target, Mockito.never()).fetchEnd(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+        Mockito.verify(target, Mockito.times(1)).close();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.mssql.model;
+
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.impl.jdbc.data.JDBCContentBytes;
+import org.jkiss.dbeaver.model.impl.jdbc.data.JDBCContentChars;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SQLServerBulkCopyLoaderTest {
+
+    private final DBRProgressMonitor monitor = new VoidProgressMonitor();
+
+    @Mock
+    private DBSAttributeBase attribute;
+
+    @Test
+    public void testBinaryContent() throws DBCException {
+        Mockito.when(attribute.getDataKind()).thenReturn(DBPDataKind.CONTENT);
+        byte[] data = new byte[] {0x01, (byte) 0xAB, 0x7F, 0x00};
+        Object value = SQLServerBulkCopyLoader.convertValue(monitor, attribute, null, new JDBCContentBytes(null, data));
+        Assert.assertTrue(value instanceof byte[]);
+        Assert.assertArrayEquals(data, (byte[]) value);
+    }
+
+    @Test
+    public void testTextContent() throws DBCException {
+        Mockito.when(attribute.getDataKind()).thenReturn(DBPDataKind.CONTENT);
+        Object value = SQLServerBulkCopyLoader.convertValue(monitor, attribute, null, new JDBCContentChars(null, "Text\nvalue"));
+        Assert.assertEquals("Text\nvalue", value);
+    }
+
+    @Test
+    public void testNullContent() throws DBCException {
+        Assert.assertNull(SQLServerBulkCopyLoader.convertValue(monitor, attribute, null, new JDBCContentBytes(null)));
+    }
+
+    @Test
+    public void testIdentityTableOptions() throws ReflectiveOperationException {
+        SQLServerTableColumn idColumn = Mockito.mock(SQLServerTableColumn.class);
+        Mockito.when(idColumn.isIdentity()).thenReturn(true);
+        BulkCopyOptions options = (BulkCopyOptions) SQLServerBulkCopyLoader.makeBulkCopyOptions(
+            BulkCopyOptions.class, new DBSAttributeBase[] {idColumn, attribute}, 500);
+        Assert.assertTrue(options.keepIdentity);
+        Assert.assertTrue(options.keepNulls);
+        Assert.assertEquals(500, options.batchSize);
+        Assert.assertEquals(0, options.bulkCopyTimeout);
+    }
+
+    @Test
+    public void testPlainTableOptions() throws ReflectiveOperationException {
+        SQLServerTableColumn column = Mockito.mock(SQLServerTableColumn.class);
+        BulkCopyOptions options = (BulkCopyOptions) SQLServerBulkCopyLoader.makeBulkCopyOptions(
+            BulkCopyOptions.class, new DBSAttributeBase[] {column, attribute}, 0);
+        Assert.assertFalse(options.keepIdentity);
+        Assert.assertTrue(options.keepNulls);
+        Assert.assertEquals(-1, options.batchSize);
+    }
+
+    /**
+     * Mirrors setters of SQLServerBulkCopyOptions used by the loader
+     */
+    public static class BulkCopyOptions {
+        private int batchSize = -1;
+        private int bulkCopyTimeout = -1;
+        private boolean keepIdentity;
+        private boolean keepNulls;
+
+        public BulkCopyOptions() {
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public void setBulkCopyTimeout(int bulkCopyTimeout) {
+            this.bulkCopyTimeout = bulkCopyTimeout;
+        }
+
+        public void setKeepIdentity(boolean keepIdentity) {
+            this.keepIdentity = keepIdentity;
+        }
+
+        public void setKeepNulls(boolean keepNulls) {
+            this.keepNulls = keepNulls;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.mysql.model;
+
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.impl.jdbc.data.JDBCContentBytes;
+import org.jkiss.dbeaver.model.impl.jdbc.data.JDBCContentChars;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Types;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MySQLLoadDataLoaderTest {
+
+    private final DBRProgressMonitor monitor = new VoidProgressMonitor();
+
+    @Mock
+    private DBSAttributeBase blobAttribute;
+    @Mock
+    private DBSAttributeBase textAttribute;
+
+    @Before
+    public void init() {
+        Mockito.when(blobAttribute.getName()).thenReturn("DATA");
+        Mockito.when(blobAttribute.getDataKind()).thenReturn(DBPDataKind.CONTENT);
+        Mockito.when(blobAttribute.getTypeID()).thenReturn(Types.LONGVARBINARY);
+        Mockito.when(textAttribute.getName()).thenReturn("NOTES");
+        Mockito.when(textAttribute.getDataKind()).thenReturn(DBPDataKind.CONTENT);
+        Mockito.when(textAttribute.getTypeID()).thenReturn(Types.LONGVARCHAR);
+    }
+
+    @Test
+    public void testBinaryContent() throws DBCException {
+        Assert.assertTrue(MySQLLoadDataLoader.isBinaryColumn(blobAttribute));
+        StringBuilder line = new StringBuilder();
+        JDBCContentBytes content = new JDBCContentBytes(null, new byte[] {0x01, (byte) 0xAB, 0x7F, 0x00});
+        MySQLLoadDataLoader.appendValue(monitor, line, blobAttribute, true, null, content);
+        Assert.assertEquals("01ab7f00", line.toString());
+    }
+
+    @Test
+    public void testTextContent() throws DBCException {
+        Assert.assertFalse(MySQLLoadDataLoader.isBinaryColumn(textAttribute));
+        StringBuilder line = new StringBuilder();
+        JDBCContentChars content = new JDBCContentChars(null, "a\tb\nc\\d");
+        MySQLLoadDataLoader.appendValue(monitor, line, textAttribute, false, null, content);
+        Assert.assertEquals("a\\tb\\nc\\\\d", line.toString());
+    }
+
+    @Test
+    public void testNullContent() throws DBCException {
+        StringBuilder line = new StringBuilder();
+        MySQLLoadDataLoader.appendValue(monitor, line, blobAttribute, true, null, new JDBCContentBytes(null));
+        Assert.assertEquals("\\N", line.toString());
+    }
+
+    @Test(expected = DBCException.class)
+    public void testBinaryContentInTextColumn() throws DBCException {
+        JDBCContentBytes content = new JDBCContentBytes(null, new byte[] {0x01});
+        MySQLLoadDataLoader.appendValue(monitor, new StringBuilder(), textAttribute, false, null, content);
+    }
+
+    @Test(expected = DBCException.class)
+    public void testUnsupportedBinaryValue() throws DBCException {
+        MySQLLoadDataLoader.appendValue(monitor, new StringBuilder(), blobAttribute, true, null, new Object());
+    }
+}
@@ -16,9 +16,26 @@
  */
 package org.jkiss.dbeaver.model;
 
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.data.DBDValueHandlerProvider;
+import org.jkiss.dbeaver.model.impl.sql.BasicSQLDialect;
 import org.jkiss.dbeaver.model.sql.SQLUtils;
+import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
+import org.jkiss.dbeaver.model.struct.DBSTypedObject;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class SQLUtilsTest {
     @Test
@@ -31,4 +48,109 @@ public class SQLUtilsTest {
         Assert.assertEquals("^A.C$", SQLUtils.makeRegexFromLike("A_C"));
         Assert.assertEquals("A.C", SQLUtils.makeRegexFromLike("%A_C%"));
     }
+
+    @Test
+    public void testKeysetAttributes() {
+        Assert.assertTrue(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.INTEGER, null, true)));
+        Assert.assertTrue(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.BIGINT, null, true)));
+        Assert.assertTrue(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.NUMERIC, 0, true)));
+        Assert.assertTrue(SQLUtils.isKeysetAttribute(makeAttribute("doc_code", DBPDataKind.STRING, Types.VARCHAR, null, true)));
+        // Nullable key
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.INTEGER, null, false)));
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("doc_code", DBPDataKind.STRING, Types.VARCHAR, null, false)));
+        // Inexact literals
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.NUMERIC, 2, true)));
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.NUMERIC, null, true)));
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.DOUBLE, null, true)));
+        Assert.assertFalse(SQLUtils.isKeysetAttribute(makeAttribute("ts", DBPDataKind.DATETIME, Types.TIMESTAMP, null, true)));
+    }
+
+    @Test
+    public void testKeysetValues() {
+        Assert.assertTrue(SQLUtils.isKeysetValue(5));
+        Assert.assertTrue(SQLUtils.isKeysetValue(5L));
+        Assert.assertTrue(SQLUtils.isKeysetValue(BigInteger.TEN));
+        Assert.assertTrue(SQLUtils.isKeysetValue(new BigDecimal("10")));
+        Assert.assertTrue(SQLUtils.isKeysetValue(new BigDecimal("10.00")));
+        Assert.assertTrue(SQLUtils.isKeysetValue("abc"));
+        Assert.assertFalse(SQLUtils.isKeysetValue(null));
+        Assert.assertFalse(SQLUtils.isKeysetValue(new BigDecimal("10.5")));
+        Assert.assertFalse(SQLUtils.isKeysetValue(10.0));
+        Assert.assertFalse(SQLUtils.isKeysetValue(new Timestamp(1000)));
+    }
+
+    @Test
+    public void testCompositeKeysetCondition() {
+        DBPDataSource dataSource = makeDataSource();
+        List<DBSAttributeBase> keys = Arrays.asList(
+            makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.INTEGER, null, true),
+            makeAttribute("doc_code", DBPDataKind.STRING, Types.VARCHAR, null, true));
+
+        Assert.assertEquals(
+            "((doc_id>5) OR (doc_id=5 AND doc_code>'abc'))",
+            SQLUtils.getKeysetCondition(dataSource, keys, new Object[] { 5L, "abc" }));
+
+        DBDDataFilter firstPage = SQLUtils.makeKeysetFilter(dataSource, null, keys, null);
+        Assert.assertNotNull(firstPage);
+        Assert.assertEquals("doc_id,doc_code", firstPage.getOrder());
+        Assert.assertNull(firstPage.getWhere());
+
+        DBDDataFilter dataFilter = new DBDDataFilter();
+        dataFilter.setWhere("status=1");
+        DBDDataFilter nextPage = SQLUtils.makeKeysetFilter(dataSource, dataFilter, keys, new Object[] { 5L, "abc" });
+        Assert.assertNotNull(nextPage);
+        Assert.assertEquals("(status=1) AND ((doc_id>5) OR (doc_id=5 AND doc_code>'abc'))", nextPage.getWhere());
+        // Source filter is not modified
+        Assert.assertEquals("status=1", dataFilter.getWhere());
+    }
+
+    @Test
+    public void testKeysetFilterFallback() {
+        DBPDataSource dataSource = makeDataSource();
+        List<DBSAttributeBase> keys = Arrays.asList(
+            makeAttribute("doc_id", DBPDataKind.NUMERIC, Types.INTEGER, null, true),
+            makeAttribute("doc_code", DBPDataKind.STRING, Types.VARCHAR, null, true));
+
+        // NULL or inexact key values make caller fall back to OFFSET paging
+        Assert.assertNull(SQLUtils.makeKeysetFilter(dataSource, null, keys, new Object[] { 5L, null }));
+        Assert.assertNull(SQLUtils.makeKeysetFilter(dataSource, null, keys, new Object[] { new BigDecimal("5.5"), "abc" }));
+        // Custom ordering
+        DBDDataFilter dataFilter = new DBDDataFilter();
+        dataFilter.setOrder("doc_code DESC");
+        Assert.assertNull(SQLUtils.makeKeysetFilter(dataSource, dataFilter, keys, new Object[] { 5L, "abc" }));
+        Assert.assertNull(SQLUtils.makeKeysetFilter(dataSource, null, Collections.emptyList(), null));
+    }
+
+    private static DBSAttributeBase makeAttribute(String name, DBPDataKind dataKind, int typeId, Integer scale, boolean required) {
+        DBSAttributeBase attribute = Mockito.mock(DBSAttributeBase.class);
+        Mockito.when(attribute.getName()).thenReturn(name);
+        Mockito.when(attribute.getDataKind()).thenReturn(dataKind);
+        Mockito.when(attribute.getTypeID()).thenReturn(typeId);
+        Mockito.when(attribute.getScale()).thenReturn(scale);
+        Mockito.when(attribute.isRequired()).thenReturn(required);
+        return attribute;
+    }
+
+    private static DBPDataSource makeDataSource() {
+        DBPDataSource dataSource = Mockito.mock(DBPDataSource.class, Mockito.withSettings().extraInterfaces(DBDValueHandlerProvider.class));
+        Mockito.when(dataSource.getSQLDialect()).thenReturn(new BasicSQLDialect() {
+            @NotNull
+            @Override
+            public String[][] getIdentifierQuoteStrings() {
+                return new String[][] { { "\"", "\"" } };
+            }
+
+            @NotNull
+            @Override
+            public DBPIdentifierCase storesUnquotedCase() {
+                return DBPIdentifierCase.LOWER;
+            }
+        });
+        DBDValueHandler valueHandler = Mockito.mock(DBDValueHandler.class);
+        Mockito.when(valueHandler.getValueDisplayString(Mockito.any(DBSTypedObject.class), Mockito.any(), Mockito.any(DBDDisplayFormat.class)))
+            .thenAnswer(invocation -> String.valueOf(invocation.getArguments()[1]));
+        Mockito.when(((DBDValueHandlerProvider) dataSource).getValueHandler(Mockito.any(), Mockito.any(), Mockito.any()))
+            .thenReturn(valueHandler);
+        return dataSource;
+    }
 }
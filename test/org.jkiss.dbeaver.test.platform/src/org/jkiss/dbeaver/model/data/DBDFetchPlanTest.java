@@ -0,0 +1,87 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.data;
+
+import org.jkiss.dbeaver.model.exec.DBCAttributeMetaData;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DBDFetchPlanTest {
+    @Mock
+    private DBCSession session;
+    @Mock
+    private DBCResultSet resultSet;
+    @Mock
+    private DBDValueHandler valueHandler;
+
+    @Test
+    public void testFetchRow() throws DBCException {
+        DBDAttributeBinding[] bindings = {
+            makeBinding(0, "id"),
+            makeBinding(2, "name"),
+            makeBinding(1, null)
+        };
+        Mockito.when(valueHandler.fetchValueObject(Mockito.eq(session), Mockito.eq(resultSet), Mockito.any(), Mockito.eq(0))).thenReturn(10L);
+        Mockito.when(valueHandler.fetchValueObject(Mockito.eq(session), Mockito.eq(resultSet), Mockito.any(), Mockito.eq(2))).thenReturn("abc");
+
+        DBDFetchPlan plan = DBDFetchPlan.forMetaAttributes(bindings);
+        Assert.assertEquals(3, plan.getColumnCount());
+        Object[] row = plan.fetchRow(session, resultSet, (index, error) -> {
+            throw new AssertionError("Unexpected error", error);
+        });
+        Assert.assertArrayEquals(new Object[]{10L, "abc", null}, row);
+        // Column without attribute is not read
+        Mockito.verify(valueHandler, Mockito.never()).fetchValueObject(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.eq(1));
+    }
+
+    @Test
+    public void testFetchErrors() throws DBCException {
+        DBDAttributeBinding[] bindings = {
+            makeBinding(0, "id"),
+            makeBinding(1, "broken")
+        };
+        Mockito.when(valueHandler.fetchValueObject(Mockito.eq(session), Mockito.eq(resultSet), Mockito.any(), Mockito.eq(0))).thenReturn(1);
+        Mockito.when(valueHandler.fetchValueObject(Mockito.eq(session), Mockito.eq(resultSet), Mockito.any(), Mockito.eq(1))).thenThrow(new DBCException("Bad value"));
+
+        Object[] row = DBDFetchPlan.forMetaAttributes(bindings).fetchRow(session, resultSet, (index, error) -> {
+            Assert.assertEquals(1, index);
+            return error.getMessage();
+        });
+        Assert.assertArrayEquals(new Object[]{1, "Bad value"}, row);
+    }
+
+    private DBDAttributeBinding makeBinding(int position, String name) {
+        DBDAttributeBinding binding = Mockito.mock(DBDAttributeBinding.class);
+        DBCAttributeMetaData metaAttribute = null;
+        if (name != null) {
+            metaAttribute = Mockito.mock(DBCAttributeMetaData.class);
+            Mockito.when(metaAttribute.getName()).thenReturn(name);
+        }
+        Mockito.when(binding.getMetaAttribute()).thenReturn(metaAttribute);
+        Mockito.when(binding.getValueHandler()).thenReturn(valueHandler);
+        Mockito.when(binding.getOrdinalPosition()).thenReturn(position);
+        return binding;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.data.aggregate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+public class AggregateFunctionsTest {
+
+    @Test
+    public void testMedian() {
+        Assert.assertEquals(3, aggregate(new FunctionMedian(), 5, 1, 3, 2, 4));
+        Assert.assertEquals(2.5, aggregate(new FunctionMedian(), 4, 1, 3, 2));
+        Assert.assertEquals(1.5, aggregate(new FunctionMedian(), 1.5, 0.5, 2.5));
+        Assert.assertEquals("b", aggregate(new FunctionMedian(), "c", "a", "b"));
+        // Exact values are returned as is
+        Assert.assertEquals(new BigDecimal("10.01"),
+            aggregate(new FunctionMedian(), new BigDecimal("10.03"), new BigDecimal("10.01"), new BigDecimal("9.99")));
+        Assert.assertEquals(Long.MAX_VALUE - 1, aggregate(new FunctionMedian(), Long.MAX_VALUE, Long.MAX_VALUE - 1, 0L));
+    }
+
+    @Test
+    public void testMedianRandom() {
+        Random random = new Random(1);
+        for (int size = 1; size < 50; size++) {
+            Integer[] values = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(10);
+            }
+            Integer[] sorted = values.clone();
+            Arrays.sort(sorted);
+            Object expected = size % 2 == 1 ?
+                (Object) sorted[size / 2] :
+                (Object) ((sorted[size / 2 - 1] + sorted[size / 2]) / 2.0);
+            Assert.assertEquals(expected, aggregate(new FunctionMedian(), (Object[]) values));
+        }
+    }
+
+    @Test
+    public void testMedianApproximate() {
+        FunctionMedian function = new FunctionMedian();
+        function.setApproximate(true);
+        int count = FunctionMedian.MAX_SAMPLE_SIZE * 2;
+        for (int i = 0; i < count; i++) {
+            function.accumulate(i, false);
+        }
+        double median = ((Number) function.getResult(count)).doubleValue();
+        Assert.assertTrue(Math.abs(median - count / 2.0) < count * 0.01);
+    }
+
+    @Test
+    public void testCountDistinct() {
+        Assert.assertEquals(3, aggregate(new FunctionCountDistinct(), 1, 2, 2, 3, 1));
+
+        FunctionCountDistinct exactFunction = new FunctionCountDistinct();
+        FunctionCountDistinct approximateFunction = new FunctionCountDistinct();
+        approximateFunction.setApproximate(true);
+        int distinctCount = 300000;
+        for (int i = 0; i < distinctCount; i++) {
+            exactFunction.accumulate("value" + i, false);
+            approximateFunction.accumulate("value" + i, false);
+        }
+        Assert.assertEquals(distinctCount, exactFunction.getResult(distinctCount));
+        int estimate = (Integer) approximateFunction.getResult(distinctCount);
+        Assert.assertTrue(Math.abs(estimate - distinctCount) < distinctCount * 0.03);
+    }
+
+    @Test
+    public void testMode() {
+        Assert.assertEquals(2, aggregate(new FunctionMode(), 1, 2, 3, 2, 1, 2));
+        Assert.assertEquals("a", aggregate(new FunctionMode(), "a", "b", "a", "b"));
+
+        // Frequent value among many unique ones
+        FunctionMode exactFunction = new FunctionMode();
+        FunctionMode approximateFunction = new FunctionMode();
+        approximateFunction.setApproximate(true);
+        for (int i = 0; i < FunctionMode.MAX_COUNTERS * 5; i++) {
+            exactFunction.accumulate("unique" + i, false);
+            approximateFunction.accumulate("unique" + i, false);
+            if (i % 3 == 0) {
+                exactFunction.accumulate("frequent", false);
+                approximateFunction.accumulate("frequent", false);
+            }
+        }
+        Assert.assertEquals("frequent", exactFunction.getResult(0));
+        Assert.assertEquals("frequent", approximateFunction.getResult(0));
+    }
+
+    private static Object aggregate(IAggregateFunction function, Object... values) {
+        int count = 0;
+        for (Object value : values) {
+            if (function.accumulate(value, false)) {
+                count++;
+            }
+        }
+        return function.getResult(count);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.impl.jdbc;
+
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JDBCMetadataSnapshotTest {
+
+    private static final String KEY = "TableCache|test/SCOTT";
+
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ResultSetMetaData metaData;
+
+    @Before
+    public void init() throws SQLException {
+        Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+        Mockito.when(metaData.getColumnCount()).thenReturn(3);
+        Mockito.when(metaData.getColumnLabel(1)).thenReturn("TABLE_NAME");
+        Mockito.when(metaData.getColumnLabel(2)).thenReturn("NUM_ROWS");
+        Mockito.when(metaData.getColumnLabel(3)).thenReturn("LAST_ANALYZED");
+        Mockito.when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        Mockito.when(metaData.getColumnType(2)).thenReturn(Types.NUMERIC);
+        Mockito.when(metaData.getColumnType(3)).thenReturn(Types.TIMESTAMP);
+        Mockito.when(resultSet.next()).thenReturn(true, true, false);
+        Mockito.when(resultSet.getObject(1)).thenReturn("EMP", "DEPT");
+        Mockito.when(resultSet.getObject(2)).thenReturn(new BigDecimal(14)).thenReturn(null);
+        Mockito.when(resultSet.getObject(3)).thenReturn(new Timestamp(1000)).thenReturn(null);
+    }
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        try (ResultSet recorder = JDBCMetadataSnapshot.SnapshotResultSet.openRecord(snapshot, KEY, resultSet)) {
+            Assert.assertNotNull(recorder);
+            assertRows(recorder);
+        }
+        Mockito.verify(resultSet).close();
+        Assert.assertTrue(snapshot.isModified());
+        Assert.assertEquals(1, snapshot.getEntryCount());
+
+        // Recorded entry is not replayed in the same session
+        Assert.assertNull(snapshot.takeEntry(KEY));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        snapshot.writeSnapshot(buffer);
+
+        JDBCMetadataSnapshot newSnapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        Assert.assertTrue(newSnapshot.readSnapshot(new ByteArrayInputStream(buffer.toByteArray())));
+        byte[] data = newSnapshot.takeEntry(KEY);
+        Assert.assertNotNull(data);
+        try (ResultSet replay = JDBCMetadataSnapshot.SnapshotResultSet.openReplay(KEY, data)) {
+            assertRows(replay);
+        }
+        // Each entry is replayed only once
+        Assert.assertNull(newSnapshot.takeEntry(KEY));
+    }
+
+    @Test
+    public void testOracleValuesConversion() throws Exception {
+        // Oracle returns NUMBER as BigDecimal (possibly with negative scale) and DATE as Timestamp
+        ResultSet oracleResult = Mockito.mock(ResultSet.class);
+        ResultSetMetaData oracleMetaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(oracleResult.getMetaData()).thenReturn(oracleMetaData);
+        Mockito.when(oracleMetaData.getColumnCount()).thenReturn(5);
+        Mockito.when(oracleMetaData.getColumnLabel(1)).thenReturn("OBJECT_NAME");
+        Mockito.when(oracleMetaData.getColumnLabel(2)).thenReturn("OBJECT_ID");
+        Mockito.when(oracleMetaData.getColumnLabel(3)).thenReturn("DATA_LENGTH");
+        Mockito.when(oracleMetaData.getColumnLabel(4)).thenReturn("CREATED");
+        Mockito.when(oracleMetaData.getColumnLabel(5)).thenReturn("LAST_DDL_TIME");
+        Mockito.when(oracleMetaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        Mockito.when(oracleMetaData.getColumnType(2)).thenReturn(Types.NUMERIC);
+        Mockito.when(oracleMetaData.getColumnType(3)).thenReturn(Types.NUMERIC);
+        Mockito.when(oracleMetaData.getColumnType(4)).thenReturn(Types.TIMESTAMP);
+        Mockito.when(oracleMetaData.getColumnType(5)).thenReturn(Types.TIMESTAMP);
+        Mockito.when(oracleResult.next()).thenReturn(true, false);
+        Mockito.when(oracleResult.getObject(1)).thenReturn("EMP");
+        Mockito.when(oracleResult.getObject(2)).thenReturn(new BigDecimal("1E+1"));
+        Mockito.when(oracleResult.getObject(3)).thenReturn(new BigDecimal("22"));
+        Mockito.when(oracleResult.getObject(4)).thenReturn(Timestamp.valueOf("2022-05-23 10:15:30"));
+        Mockito.when(oracleResult.getObject(5)).thenReturn(Timestamp.valueOf("2022-05-23 10:15:30.123"));
+
+        List<Object> expected = Arrays.asList(
+            "EMP", "10", "22", "2022-05-23 10:15:30", "2022-05-23 10:15:30.123",
+            10L, 22, "10", "2022-05-23 10:15:30", Timestamp.valueOf("2022-05-23 10:15:30"),
+            22, new BigDecimal("1E+1"));
+
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        try (ResultSet recorder = JDBCMetadataSnapshot.SnapshotResultSet.openRecord(snapshot, KEY, oracleResult)) {
+            Assert.assertNotNull(recorder);
+            Assert.assertEquals(expected, readOracleValues(recorder));
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        snapshot.writeSnapshot(buffer);
+        JDBCMetadataSnapshot newSnapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        Assert.assertTrue(newSnapshot.readSnapshot(new ByteArrayInputStream(buffer.toByteArray())));
+        try (ResultSet replay = JDBCMetadataSnapshot.SnapshotResultSet.openReplay(KEY, newSnapshot.takeEntry(KEY))) {
+            Assert.assertEquals(expected, readOracleValues(replay));
+        }
+    }
+
+    @Test
+    public void testMetadataVersionChange() throws Exception {
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        try (ResultSet recorder = JDBCMetadataSnapshot.SnapshotResultSet.openRecord(snapshot, KEY, resultSet)) {
+            while (recorder.next()) {
+                recorder.getString(1);
+            }
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        snapshot.writeSnapshot(buffer);
+
+        JDBCMetadataSnapshot newSnapshot = new JDBCMetadataSnapshot("1.0", "v2");
+        Assert.assertFalse(newSnapshot.readSnapshot(new ByteArrayInputStream(buffer.toByteArray())));
+        Assert.assertEquals(0, newSnapshot.getEntryCount());
+        Assert.assertNull(newSnapshot.takeEntry(KEY));
+    }
+
+    @Test
+    public void testIncompleteReadIsNotRecorded() throws Exception {
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        try (ResultSet recorder = JDBCMetadataSnapshot.SnapshotResultSet.openRecord(snapshot, KEY, resultSet)) {
+            Assert.assertTrue(recorder.next());
+        }
+        Assert.assertFalse(snapshot.isModified());
+        Assert.assertEquals(0, snapshot.getEntryCount());
+    }
+
+    @Test
+    public void testUnsupportedColumnType() throws Exception {
+        Mockito.when(metaData.getColumnType(3)).thenReturn(Types.ARRAY);
+        JDBCMetadataSnapshot snapshot = new JDBCMetadataSnapshot("1.0", "v1");
+        Assert.assertNull(JDBCMetadataSnapshot.SnapshotResultSet.openRecord(snapshot, KEY, resultSet));
+    }
+
+    @Test
+    public void testMakeKey() {
+        DBSObject owner = Mockito.mock(DBSObject.class);
+        Mockito.when(owner.getName()).thenReturn("SCOTT");
+        String query = "SELECT * FROM ALL_TABLES WHERE OWNER=? AND TABLE_NAME LIKE ?";
+
+        String key = JDBCMetadataSnapshot.makeKey(this, owner, null, query, makeParameters("SCOTT", "EMP%"));
+        Assert.assertEquals(key, JDBCMetadataSnapshot.makeKey(this, owner, null, query, makeParameters("SCOTT", "EMP%")));
+        Assert.assertTrue(key.startsWith(getClass().getName() + "|SCOTT|"));
+        // Different filter mask
+        Assert.assertNotEquals(key, JDBCMetadataSnapshot.makeKey(this, owner, null, query, makeParameters("SCOTT", "DEPT%")));
+        // Different query
+        Assert.assertNotEquals(key, JDBCMetadataSnapshot.makeKey(this, owner, null, query + " ORDER BY 1", makeParameters("SCOTT", "EMP%")));
+        Assert.assertNotEquals(key, JDBCMetadataSnapshot.makeKey(this, owner, null, query, null));
+    }
+
+    private static Map<Object, Object> makeParameters(Object... values) {
+        Map<Object, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            parameters.put(i + 1, values[i]);
+        }
+        return parameters;
+    }
+
+    private static List<Object> readOracleValues(ResultSet rs) throws SQLException {
+        Assert.assertTrue(rs.next());
+        List<Object> values = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            values.add(rs.getString(i));
+        }
+        values.add(rs.getObject(2, Long.class));
+        values.add(rs.getObject("DATA_LENGTH", Integer.class));
+        values.add(rs.getObject("OBJECT_ID", String.class));
+        values.add(rs.getObject(4, String.class));
+        values.add(rs.getObject(4, Timestamp.class));
+        values.add(rs.getInt(3));
+        values.add(rs.getBigDecimal(2));
+        Assert.assertFalse(rs.next());
+        return values;
+    }
+
+    private static void assertRows(ResultSet rs) throws SQLException {
+        Assert.assertTrue(rs.next());
+        Assert.assertEquals("EMP", rs.getString("TABLE_NAME"));
+        Assert.assertEquals(14, rs.getInt("num_rows"));
+        Assert.assertEquals(new Timestamp(1000), rs.getTimestamp(3));
+        Assert.assertTrue(rs.next());
+        Assert.assertEquals("DEPT", rs.getString(1));
+        Assert.assertEquals(0L, rs.getLong(2));
+        Assert.assertTrue(rs.wasNull());
+        Assert.assertNull(rs.getTimestamp("LAST_ANALYZED"));
+        Assert.assertFalse(rs.next());
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.navigator;
+
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ModelPreferences;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.navigator.meta.DBXTreeNode;
+import org.jkiss.dbeaver.model.preferences.DBPPreferenceStore;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.jkiss.dbeaver.model.struct.DBSObjectContainer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DBNDatabasePrefetchJobTest {
+
+    private final List<String> loadedNodes = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void testBreadthFirstWalk() throws Exception {
+        DBSObjectContainer schema = Mockito.mock(DBSObjectContainer.class);
+        Mockito.doReturn(DBSEntity.class).when(schema).getPrimaryChildType(Mockito.any(DBRProgressMonitor.class));
+        DBNDatabaseNode schemaNode = createNode("A", schema, createNode("A1", null), createNode("A2", null));
+        DBNDataSource root = createRoot(0, schemaNode, createNode("B", null, createNode("B1", null)));
+
+        runPrefetch(root);
+        Assert.assertEquals(Arrays.asList("root", "A", "B", "A1", "A2", "B1"), loadedNodes);
+        Mockito.verify(schema, Mockito.times(1)).cacheStructure(
+            Mockito.any(DBRProgressMonitor.class),
+            Mockito.eq(DBSObjectContainer.STRUCT_ENTITIES | DBSObjectContainer.STRUCT_ATTRIBUTES));
+    }
+
+    @Test
+    public void testNodeBudget() throws Exception {
+        List<DBNDatabaseNode> children = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            children.add(createNode("child" + i, null, createNode("leaf" + i, null)));
+        }
+        DBNDataSource root = createRoot(3, children.toArray(new DBNDatabaseNode[0]));
+
+        runPrefetch(root);
+        Assert.assertEquals(Arrays.asList("root", "child0", "child1"), loadedNodes);
+    }
+
+    @Test
+    public void testConcurrentChildrenLoad() throws Exception {
+        CountDownLatch firstReadStarted = new CountDownLatch(1);
+        CountDownLatch secondReadFinished = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        List<TestNode> readChildren = Collections.synchronizedList(new ArrayList<>());
+        TestNode parent = new TestNode(null) {
+            @Override
+            protected List<DBNDatabaseNode> readChildNodes(DBRProgressMonitor monitor) throws DBException {
+                TestNode child = new TestNode(this);
+                readChildren.add(child);
+                if (reads.incrementAndGet() == 1) {
+                    // First read finishes after the second one
+                    firstReadStarted.countDown();
+                    try {
+                        if (!secondReadFinished.await(10, TimeUnit.SECONDS)) {
+                            throw new DBException("Second read wasn't finished");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new DBException("Interrupted", e);
+                    }
+                }
+                return Collections.singletonList(child);
+            }
+        };
+
+        AtomicReference<DBNDatabaseNode[]> firstResult = new AtomicReference<>();
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        Thread firstReader = new Thread(() -> {
+            try {
+                firstResult.set(parent.getChildren(new VoidProgressMonitor()));
+            } catch (Throwable e) {
+                firstError.set(e);
+            }
+        });
+        firstReader.start();
+        Assert.assertTrue(firstReadStarted.await(10, TimeUnit.SECONDS));
+        DBNDatabaseNode[] secondResult = parent.getChildren(new VoidProgressMonitor());
+        secondReadFinished.countDown();
+        firstReader.join(10000);
+
+        Assert.assertNull(firstError.get());
+        Assert.assertEquals(2, readChildren.size());
+        // Children read first are stored, children of the concurrent read are disposed
+        Assert.assertArrayEquals(new DBNDatabaseNode[] { readChildren.get(1) }, secondResult);
+        Assert.assertSame(secondResult, firstResult.get());
+        Assert.assertFalse(readChildren.get(1).isDisposed());
+        Assert.assertTrue(readChildren.get(0).isDisposed());
+    }
+
+    private static void runPrefetch(DBNDataSource root) throws InterruptedException {
+        DBNDatabasePrefetchJob job = DBNDatabasePrefetchJob.startPrefetch(root);
+        Assert.assertNotNull(job);
+        job.join();
+    }
+
+    private DBNDataSource createRoot(int maxNodes, DBNDatabaseNode... children) throws DBException {
+        DBPPreferenceStore store = Mockito.mock(DBPPreferenceStore.class);
+        Mockito.when(store.getBoolean(ModelPreferences.NAVIGATOR_PREFETCH_ENABLED)).thenReturn(true);
+        Mockito.when(store.getInt(ModelPreferences.NAVIGATOR_PREFETCH_MAX_NODES)).thenReturn(maxNodes);
+        DBPDataSourceContainer container = Mockito.mock(DBPDataSourceContainer.class);
+        Mockito.when(container.getName()).thenReturn("test");
+        Mockito.when(container.getPreferenceStore()).thenReturn(store);
+        Mockito.when(container.isConnected()).thenReturn(true);
+
+        DBNDataSource root = Mockito.mock(DBNDataSource.class);
+        Mockito.when(root.getDataSourceContainer()).thenReturn(container);
+        setChildren(root, "root", children);
+        return root;
+    }
+
+    private DBNDatabaseNode createNode(String name, DBSObject object, DBNDatabaseNode... children) throws DBException {
+        DBNDatabaseNode node = Mockito.mock(DBNDatabaseNode.class);
+        Mockito.when(node.getObject()).thenReturn(object);
+        setChildren(node, name, children);
+        return node;
+    }
+
+    private void setChildren(DBNDatabaseNode node, String name, DBNDatabaseNode... children) throws DBException {
+        Mockito.when(node.getNodeName()).thenReturn(name);
+        Mockito.when(node.allowsChildren()).thenReturn(true);
+        Mockito.when(node.getChildren(Mockito.any(DBRProgressMonitor.class))).thenAnswer(invocation -> {
+            loadedNodes.add(name);
+            return children;
+        });
+    }
+
+    private static class TestNode extends DBNDatabaseNode {
+        private volatile boolean disposed;
+
+        TestNode(DBNNode parentNode) {
+            super(parentNode);
+        }
+
+        @Override
+        public boolean allowsChildren() {
+            return true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+
+        @Override
+        protected void dispose(boolean reflect) {
+            disposed = true;
+            super.dispose(reflect);
+        }
+
+        @Override
+        public Object getValueObject() {
+            return null;
+        }
+
+        @Override
+        public DBXTreeNode getMeta() {
+            return null;
+        }
+
+        @Override
+        protected boolean reloadObject(DBRProgressMonitor monitor, DBSObject object) {
+            return false;
+        }
+
+        @Override
+        public DBSObject getObject() {
+            return null;
+        }
+    }
+
+}
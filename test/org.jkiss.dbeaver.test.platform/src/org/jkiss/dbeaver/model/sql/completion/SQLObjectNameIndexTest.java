@@ -0,0 +1,133 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.sql.completion;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SQLObjectNameIndexTest {
+
+    private static final String[] SCHEMA_PUBLIC = {"db", "public"};
+    private static final String[] SCHEMA_SALES = {"db", "sales"};
+
+    private SQLObjectNameIndex index;
+
+    @Before
+    public void init() {
+        index = new SQLObjectNameIndex();
+        index.setEntries(Arrays.asList(
+            new SQLObjectNameIndex.Entry("Customer", SCHEMA_PUBLIC, "TABLE", "Customers"),
+            new SQLObjectNameIndex.Entry("customer_address", SCHEMA_PUBLIC, "TABLE", null),
+            new SQLObjectNameIndex.Entry("order_item", SCHEMA_SALES, "TABLE", null),
+            new SQLObjectNameIndex.Entry("orders", SCHEMA_SALES, "TABLE", null),
+            new SQLObjectNameIndex.Entry("get_customer", SCHEMA_SALES, "PROCEDURE", null)
+        ));
+    }
+
+    @Test
+    public void findByPrefix() {
+        Assert.assertEquals(Arrays.asList("Customer", "customer_address"), find("cust%", false, null, 100));
+        Assert.assertEquals(Collections.singletonList("Customer"), find("Cust%", true, null, 100));
+        Assert.assertEquals(Collections.singletonList("Customer"), find("cust%", false, null, 1));
+        Assert.assertEquals(Collections.emptyList(), find("xyz%", false, null, 100));
+    }
+
+    @Test
+    public void findByContainsMask() {
+        Assert.assertEquals(Arrays.asList("Customer", "customer_address", "get_customer"), find("%customer%", false, null, 100));
+        Assert.assertEquals(Arrays.asList("order_item", "orders"), find("%order%", false, SCHEMA_SALES, 100));
+        Assert.assertEquals(Collections.singletonList("orders"), find("order_", false, null, 100));
+        Assert.assertEquals(5, find("%", false, new String[] {"db"}, 100).size());
+        Assert.assertNull(index.findEntries("a\\_b%", false, null, null, 100));
+    }
+
+    @Test
+    public void findByType() {
+        List<SQLObjectNameIndex.Entry> entries = index.findEntries("%customer%", false, null, Collections.singleton("PROCEDURE"), 100);
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("get_customer", entries.get(0).getName());
+    }
+
+    @Test
+    public void findFuzzy() {
+        List<SQLObjectNameIndex.Entry> entries = index.findFuzzyEntries("%ordtm%", null, null, 100);
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("order_item", entries.get(0).getName());
+
+        entries = index.findFuzzyEntries("%cstadr%", SCHEMA_PUBLIC, null, 100);
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("customer_address", entries.get(0).getName());
+
+        // Names starting with the query come first
+        entries = index.findFuzzyEntries("%cust%", null, null, 100);
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(3, entries.size());
+        Assert.assertEquals("get_customer", entries.get(2).getName());
+
+        Assert.assertNull(index.findFuzzyEntries("cust%", null, null, 100));
+    }
+
+    @Test
+    public void modifyIndex() {
+        index.addEntry(new SQLObjectNameIndex.Entry("customer_phone", SCHEMA_PUBLIC, "TABLE", null));
+        Assert.assertEquals(Arrays.asList("Customer", "customer_address", "customer_phone"), find("cust%", false, null, 100));
+
+        index.removeEntry("customer_address", SCHEMA_PUBLIC);
+        Assert.assertEquals(Arrays.asList("Customer", "customer_phone"), find("cust%", false, null, 100));
+
+        index.removeContainer(SCHEMA_SALES);
+        Assert.assertEquals(Arrays.asList("Customer", "customer_phone"), find("%", false, null, 100));
+    }
+
+    @Test
+    public void saveAndLoadIndex() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        index.saveIndex(buffer);
+
+        SQLObjectNameIndex loaded = new SQLObjectNameIndex();
+        loaded.loadIndex(new ByteArrayInputStream(buffer.toByteArray()));
+        Assert.assertEquals(index.size(), loaded.size());
+
+        List<SQLObjectNameIndex.Entry> entries = loaded.findEntries("Customer", true, null, null, 100);
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertArrayEquals(SCHEMA_PUBLIC, entries.get(0).getContainerPath());
+        Assert.assertEquals("TABLE", entries.get(0).getTypeName());
+        Assert.assertEquals("Customers", entries.get(0).getDescription());
+    }
+
+    private List<String> find(String mask, boolean caseSensitive, String[] containerPath, int maxResults) {
+        List<SQLObjectNameIndex.Entry> entries = index.findEntries(mask, caseSensitive, containerPath, null, maxResults);
+        Assert.assertNotNull(entries);
+        return entries.stream().map(SQLObjectNameIndex.Entry::getName).collect(Collectors.toList());
+    }
+
+}
@@ -496,6 +496,22 @@ public class SQLScriptParserTest {
     	Assert.assertEquals("@set col1 = '1'", element.getText());
     }
    
+    @Test
+    public void extractQueryAtPosWithStatementStartHint() throws DBException {
+        String query = "SELECT 1 FROM dual;\n"
+            + "SELECT 2\n"
+            + "FROM dual;\n"
+            + "SELECT 3 FROM dual;";
+        SQLParserContext context = createParserContext(setDialect("oracle"), query);
+        int cursorPos = query.indexOf("FROM dual;\nSELECT 3");
+        SQLScriptElement expected = SQLScriptParser.extractQueryAtPos(context, cursorPos);
+        SQLScriptElement element = SQLScriptParser.extractQueryAtPos(context, cursorPos, query.indexOf("SELECT 2"));
+        Assert.assertTrue(expected.getText().startsWith("SELECT 2"));
+        Assert.assertEquals(expected.getText(), element.getText());
+        Assert.assertEquals(expected.getOffset(), element.getOffset());
+        Assert.assertEquals(expected.getLength(), element.getLength());
+    }
+
     private void assertParse(String dialectName, String[] expected) throws DBException {
     	String source = Arrays.stream(expected).filter(e -> e != null).collect(Collectors.joining());
     	List<String> expectedParts = new ArrayList<>(expected.length);
@@ -0,0 +1,83 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.model.struct.cache;
+
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ObjectCacheConcurrencyTest {
+
+    private static final int OBJECT_COUNT = 200;
+    private static final int READER_COUNT = 4;
+
+    @Test
+    public void testReadsDuringWrites() throws Exception {
+        final SimpleObjectCache<DBSObject, DBSObject> cache = new SimpleObjectCache<>();
+        final List<DBSObject> objects = new ArrayList<>();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            DBSObject object = Mockito.mock(DBSObject.class);
+            Mockito.when(object.getName()).thenReturn("object" + i);
+            objects.add(object);
+        }
+        cache.setCache(new ArrayList<>(objects));
+
+        final AtomicBoolean finished = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!finished.get()) {
+                        for (DBSObject object : cache.getCachedObjects()) {
+                            Assert.assertNotNull(object.getName());
+                        }
+                        // Objects with even indexes are never removed
+                        Assert.assertSame(objects.get(0), cache.getCachedObject("object0"));
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 1; i < OBJECT_COUNT; i += 2) {
+                cache.removeObject(objects.get(i), false);
+            }
+            for (int i = 1; i < OBJECT_COUNT; i += 2) {
+                cache.cacheObject(objects.get(i));
+            }
+        }
+        finished.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertNull(error.get());
+        Assert.assertEquals(OBJECT_COUNT, cache.getCacheSize());
+        Assert.assertSame(objects.get(1), cache.getCachedObject("object1"));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.runtime.qm;
+
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.qm.QMEventAction;
+import org.jkiss.dbeaver.model.qm.QMEventCursor;
+import org.jkiss.dbeaver.model.qm.QMMetaEvent;
+import org.jkiss.dbeaver.model.qm.QMMetaEventEntity;
+import org.jkiss.dbeaver.model.qm.filters.QMEventCriteria;
+import org.jkiss.dbeaver.model.qm.filters.QMEventStatus;
+import org.jkiss.dbeaver.model.qm.meta.QMMConnectionInfo;
+import org.jkiss.dbeaver.model.qm.meta.QMMStatementExecuteInfo;
+import org.jkiss.dbeaver.model.qm.meta.QMMStatementInfo;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class QMHistoryStoreTest {
+
+    private static final int EVENT_COUNT = 1000;
+
+    private Path folder;
+    private long baseTime;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("qm-history");
+        baseTime = System.currentTimeMillis() - EVENT_COUNT;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPersistAndFilter() throws Exception {
+        QMHistoryStore store = new QMHistoryStore(folder, 0, 4096);
+        writeEvents(store);
+        store.close();
+
+        // Reopen store, all events must be read back from segments
+        store = new QMHistoryStore(folder, 0, 4096);
+        Assert.assertEquals(EVENT_COUNT, store.getEventCount());
+
+        QMEventCriteria criteria = new QMEventCriteria();
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), criteria, null)) {
+            Assert.assertEquals(EVENT_COUNT, cursor.getTotalSize());
+            QMMetaEventEntity event = cursor.nextEvent(new VoidProgressMonitor());
+            QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) event.getObject();
+            // Fresh events first
+            Assert.assertEquals("select " + (EVENT_COUNT - 1), execution.getQueryString());
+            Assert.assertEquals("my-1", execution.getConnection().getContainerId());
+            Assert.assertEquals(DBCExecutionPurpose.META, execution.getStatement().getPurpose());
+        }
+
+        criteria.setContainerId("pg-1");
+        criteria.setQueryTypes(new DBCExecutionPurpose[] { DBCExecutionPurpose.USER });
+        criteria.setMinDuration(5L);
+        criteria.setDesc(false);
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), criteria, null)) {
+            // Even events with duration 6 or 8
+            Assert.assertEquals(EVENT_COUNT / 5, cursor.getTotalSize());
+            QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) cursor.nextEvent(new VoidProgressMonitor()).getObject();
+            Assert.assertEquals("select 6", execution.getQueryString());
+            Assert.assertEquals(6, execution.getDuration());
+        }
+
+        criteria = new QMEventCriteria();
+        criteria.setEventStatuses(Collections.singleton(QMEventStatus.FAILED));
+        criteria.setSearchString("SELECT 7");
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), criteria, null)) {
+            // 7, 70-79, 700-799 which are divisible by 7
+            long expected = 0;
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                if (i % 7 == 0 && String.valueOf(i).startsWith("7")) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(expected, cursor.getTotalSize());
+            while (cursor.hasNextEvent(new VoidProgressMonitor())) {
+                QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) cursor.nextEvent(new VoidProgressMonitor()).getObject();
+                Assert.assertTrue(execution.hasError());
+            }
+        }
+
+        // Paging
+        criteria = new QMEventCriteria();
+        criteria.setDesc(false);
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), criteria, null)) {
+            cursor.scroll(EVENT_COUNT - 10, new VoidProgressMonitor());
+            for (int i = EVENT_COUNT - 10; i < EVENT_COUNT; i++) {
+                Assert.assertTrue(cursor.hasNextEvent(new VoidProgressMonitor()));
+                QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) cursor.nextEvent(new VoidProgressMonitor()).getObject();
+                Assert.assertEquals("select " + i, execution.getQueryString());
+            }
+            Assert.assertFalse(cursor.hasNextEvent(new VoidProgressMonitor()));
+        }
+
+        criteria = new QMEventCriteria();
+        criteria.setContainerId("unknown");
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), criteria, null)) {
+            Assert.assertEquals(0, cursor.getTotalSize());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testQueryTypes() throws Exception {
+        QMHistoryStore store = new QMHistoryStore(folder, 0);
+        store.setQueryTypes(Collections.singleton(DBCExecutionPurpose.USER));
+        writeEvents(store);
+        Assert.assertEquals(EVENT_COUNT / 2, store.getEventCount());
+        try (QMEventCursor cursor = store.getQueryHistoryCursor(new VoidProgressMonitor(), new QMEventCriteria(), null)) {
+            while (cursor.hasNextEvent(new VoidProgressMonitor())) {
+                QMMStatementExecuteInfo execution = (QMMStatementExecuteInfo) cursor.nextEvent(new VoidProgressMonitor()).getObject();
+                Assert.assertEquals(DBCExecutionPurpose.USER, execution.getStatement().getPurpose());
+            }
+        }
+        store.close();
+    }
+
+    private void writeEvents(QMHistoryStore store) {
+        QMMConnectionInfo[] connections = {
+            new QMMConnectionInfo(0, 0, "pg-1", "PostgreSQL", "postgresql", null, "main", "Main", false),
+            new QMMConnectionInfo(0, 0, "my-1", "MySQL", "mysql", null, "main", "Main", false)
+        };
+        List<QMMetaEvent> events = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            DBCExecutionPurpose purpose = i % 2 == 0 ? DBCExecutionPurpose.USER : DBCExecutionPurpose.META;
+            QMMStatementInfo statement = new QMMStatementInfo(baseTime + i, baseTime + i, connections[i % 2], purpose);
+            long openTime = baseTime + i;
+            QMMStatementExecuteInfo execution = new QMMStatementExecuteInfo(
+                openTime, openTime + (i % 10), statement, "select " + i, i, -1,
+                0, i % 7 == 0 ? "error" : null, 0, 0, false);
+            events.add(new QMMetaEvent(execution, QMEventAction.END, null));
+        }
+        // Fresh events come first
+        Collections.reverse(events);
+        store.metaInfoChanged(new VoidProgressMonitor(), events);
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.runtime.qm;
+
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.app.DBPProject;
+import org.jkiss.dbeaver.model.auth.SMSession;
+import org.jkiss.dbeaver.model.auth.SMSessionContext;
+import org.jkiss.dbeaver.model.auth.SMSessionPersistent;
+import org.jkiss.dbeaver.model.connection.DBPConnectionConfiguration;
+import org.jkiss.dbeaver.model.connection.DBPDriver;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.exec.DBCStatement;
+import org.jkiss.dbeaver.model.qm.QMEventAction;
+import org.jkiss.dbeaver.model.qm.QMMetaEvent;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSInstance;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class QMMCollectorTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int STATEMENT_COUNT = 500;
+
+    private QMMCollectorImpl collector;
+    private SMSessionContext sessionContext;
+    private DBPProject project;
+    private final List<QMMetaEvent> events = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        collector = new QMMCollectorImpl();
+        collector.addListener((monitor, newEvents) -> {
+            synchronized (events) {
+                events.addAll(newEvents);
+                events.notifyAll();
+            }
+        });
+        project = Mockito.mock(DBPProject.class);
+        sessionContext = Mockito.mock(SMSessionContext.class);
+        Mockito.when(project.getSessionContext()).thenReturn(sessionContext);
+        setSession(createSession());
+    }
+
+    @After
+    public void tearDown() {
+        collector.dispose();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        DBCExecutionContext context = createContext(1);
+        collector.handleContextOpen(context, false);
+
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            DBCStatement statement = createStatement(context);
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                    for (int k = 0; k < STATEMENT_COUNT; k++) {
+                        collector.handleStatementOpen(statement);
+                        collector.handleStatementClose(statement, 0);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+
+        // Connection open + statement open/close
+        int expectedCount = 1 + THREAD_COUNT * STATEMENT_COUNT * 2;
+        Assert.assertEquals(expectedCount, collector.getQueuedEventCount());
+        Assert.assertEquals(0, collector.getDroppedEventCount());
+
+        List<QMMetaEvent> dispatched = waitForEvents(expectedCount);
+        int beginCount = 0, endCount = 0;
+        for (QMMetaEvent event : dispatched) {
+            if (event.getAction() == QMEventAction.BEGIN) {
+                beginCount++;
+            } else if (event.getAction() == QMEventAction.END) {
+                endCount++;
+            }
+        }
+        Assert.assertEquals(1 + THREAD_COUNT * STATEMENT_COUNT, beginCount);
+        Assert.assertEquals(THREAD_COUNT * STATEMENT_COUNT, endCount);
+    }
+
+    @Test
+    public void testSessionChange() throws Exception {
+        DBCExecutionContext context = createContext(2);
+        collector.handleContextOpen(context, true);
+        SMSession firstSession = createSession();
+        setSession(firstSession);
+        collector.handleTransactionCommit(context);
+
+        // Re-login: events must refer to the new session
+        SMSession secondSession = createSession();
+        setSession(secondSession);
+        collector.handleTransactionCommit(context);
+
+        int firstCount = 0, secondCount = 0;
+        for (QMMetaEvent event : waitForEvents(3)) {
+            if (event.getQmAppSessionPersistent() == firstSession) {
+                firstCount++;
+            } else if (event.getQmAppSessionPersistent() == secondSession) {
+                secondCount++;
+            }
+        }
+        Assert.assertEquals(1, firstCount);
+        Assert.assertEquals(1, secondCount);
+    }
+
+    private List<QMMetaEvent> waitForEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        synchronized (events) {
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                events.wait(100);
+            }
+            Assert.assertEquals(count, events.size());
+            return new ArrayList<>(events);
+        }
+    }
+
+    private void setSession(SMSession session) throws Exception {
+        Mockito.when(sessionContext.getSpaceSession(Mockito.any(DBRProgressMonitor.class), Mockito.eq(project), Mockito.eq(false)))
+            .thenReturn(session);
+    }
+
+    private static SMSession createSession() {
+        return Mockito.mock(SMSession.class, Mockito.withSettings().extraInterfaces(SMSessionPersistent.class));
+    }
+
+    private DBCExecutionContext createContext(long contextId) {
+        DBPDriver driver = Mockito.mock(DBPDriver.class);
+        Mockito.when(driver.getFullId()).thenReturn("test:driver");
+        DBPDataSourceContainer container = Mockito.mock(DBPDataSourceContainer.class);
+        Mockito.when(container.getProject()).thenReturn(project);
+        Mockito.when(container.getId()).thenReturn("test-" + contextId);
+        Mockito.when(container.getName()).thenReturn("Test " + contextId);
+        Mockito.when(container.getDriver()).thenReturn(driver);
+        Mockito.when(container.getConnectionConfiguration()).thenReturn(new DBPConnectionConfiguration());
+        DBPDataSource dataSource = Mockito.mock(DBPDataSource.class);
+        Mockito.when(dataSource.getContainer()).thenReturn(container);
+        DBSInstance instance = Mockito.mock(DBSInstance.class);
+        Mockito.when(instance.getName()).thenReturn("Main");
+
+        DBCExecutionContext context = Mockito.mock(DBCExecutionContext.class);
+        Mockito.when(context.getContextId()).thenReturn(contextId);
+        Mockito.when(context.getContextName()).thenReturn("Context " + contextId);
+        Mockito.when(context.getDataSource()).thenReturn(dataSource);
+        Mockito.when(context.getOwnerInstance()).thenReturn(instance);
+        return context;
+    }
+
+    private static DBCStatement createStatement(DBCExecutionContext context) {
+        DBCSession session = Mockito.mock(DBCSession.class);
+        Mockito.when(session.getExecutionContext()).thenReturn(context);
+        Mockito.when(session.getPurpose()).thenReturn(DBCExecutionPurpose.USER);
+        DBCStatement statement = Mockito.mock(DBCStatement.class);
+        Mockito.when(statement.getSession()).thenReturn(session);
+        return statement;
+    }
+}
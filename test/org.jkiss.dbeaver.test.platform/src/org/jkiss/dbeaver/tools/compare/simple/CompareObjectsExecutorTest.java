@@ -0,0 +1,191 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.compare.simple;
+
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.navigator.DBNDatabaseFolder;
+import org.jkiss.dbeaver.model.navigator.DBNDatabaseNode;
+import org.jkiss.dbeaver.model.navigator.meta.DBXTreeFolder;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CompareObjectsExecutorTest {
+
+    @Test
+    public void testReportOrder() throws Exception {
+        DBPDataSourceContainer container1 = Mockito.mock(DBPDataSourceContainer.class);
+        DBPDataSourceContainer container2 = Mockito.mock(DBPDataSourceContainer.class);
+        DBNDatabaseNode root1 = createNode("root", container1, null);
+        DBNDatabaseNode root2 = createNode("root", container2, null);
+        setChildren(root1,
+            createNode("A", container1, root1),
+            createNode("B", container1, root1),
+            setChildren(createNode("C", container1, root1), createNode("C1", container1, root1)));
+        setChildren(root2,
+            createNode("B", container2, root2),
+            setChildren(createNode("C", container2, root2), createNode("C1", container2, root2), createNode("C2", container2, root2)),
+            createNode("D", container2, root2));
+
+        List<CompareReportLine> lines = compare(new VoidProgressMonitor(), root1, root2).getReportLines();
+        Assert.assertEquals(
+            Arrays.asList("1:root", "2:A*", "2:B", "2:C", "3:C1", "3:C2*", "2:D*"),
+            describeLines(lines));
+        Assert.assertSame(root1, lines.get(0).getNodes()[0]);
+        Assert.assertSame(root2, lines.get(0).getNodes()[1]);
+        Assert.assertNull(lines.get(1).getNodes()[1]);
+    }
+
+    @Test
+    public void testMetadataReadPerDataSource() throws Exception {
+        DBPDataSourceContainer container = Mockito.mock(DBPDataSourceContainer.class);
+        AtomicInteger activeReads = new AtomicInteger();
+        AtomicInteger maxActiveReads = new AtomicInteger();
+        Answer<DBNDatabaseNode[]> slowRead = invocation -> {
+            int active = activeReads.incrementAndGet();
+            maxActiveReads.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(5);
+                return new DBNDatabaseNode[0];
+            } finally {
+                activeReads.decrementAndGet();
+            }
+        };
+
+        DBNDatabaseNode root1 = createNode("root", container, null);
+        DBNDatabaseNode root2 = createNode("root", container, null);
+        for (DBNDatabaseNode root : Arrays.asList(root1, root2)) {
+            List<DBNDatabaseNode> children = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                DBNDatabaseNode child = createNode("child" + i, container, root);
+                Mockito.when(child.getChildren(Mockito.any(DBRProgressMonitor.class))).thenAnswer(slowRead);
+                children.add(child);
+            }
+            setChildren(root, children.toArray(new DBNDatabaseNode[0]));
+        }
+
+        List<CompareReportLine> lines = compare(new VoidProgressMonitor(), root1, root2).getReportLines();
+        Assert.assertEquals(21, lines.size());
+        Assert.assertEquals(1, maxActiveReads.get());
+    }
+
+    @Test
+    public void testCancelBlocks() throws Exception {
+        DBPDataSourceContainer container1 = Mockito.mock(DBPDataSourceContainer.class);
+        DBPDataSourceContainer container2 = Mockito.mock(DBPDataSourceContainer.class);
+        TestMonitor monitor = new TestMonitor();
+        CountDownLatch blockCanceled = new CountDownLatch(1);
+        DBRBlockingObject block = Mockito.mock(DBRBlockingObject.class);
+        Mockito.doAnswer(invocation -> {
+            blockCanceled.countDown();
+            return null;
+        }).when(block).cancelBlock(Mockito.any(DBRProgressMonitor.class), Mockito.any(Thread.class));
+
+        DBNDatabaseNode root1 = createNode("root", container1, null);
+        DBNDatabaseNode root2 = createNode("root", container2, null);
+        setChildren(root2);
+        Mockito.when(root1.getChildren(Mockito.any(DBRProgressMonitor.class))).thenAnswer(invocation -> {
+            // Query which hangs until canceled
+            DBRProgressMonitor readMonitor = (DBRProgressMonitor) invocation.getArguments()[0];
+            readMonitor.startBlock(block, "Read children");
+            try {
+                monitor.canceled = true;
+                if (!blockCanceled.await(10, TimeUnit.SECONDS)) {
+                    throw new DBException("Query wasn't canceled");
+                }
+                return new DBNDatabaseNode[0];
+            } finally {
+                readMonitor.endBlock();
+            }
+        });
+
+        try {
+            compare(monitor, root1, root2);
+        } catch (InterruptedException e) {
+            // Expected
+        }
+        Assert.assertEquals(0, blockCanceled.getCount());
+        // Blocks are kept by task monitors
+        Assert.assertEquals(0, monitor.startedBlocks.get());
+    }
+
+    private static CompareReport compare(DBRProgressMonitor monitor, DBNDatabaseNode... roots) throws DBException, InterruptedException {
+        List<DBNDatabaseNode> nodes = Arrays.asList(roots);
+        CompareObjectsExecutor executor = new CompareObjectsExecutor(new CompareObjectsSettings(nodes));
+        try {
+            return executor.compareObjects(monitor, nodes);
+        } finally {
+            executor.dispose();
+        }
+    }
+
+    private static List<String> describeLines(List<CompareReportLine> lines) {
+        List<String> result = new ArrayList<>();
+        for (CompareReportLine line : lines) {
+            result.add(line.getDepth() + ":" + line.getStructure().getNodeName() + (line.hasDifference() ? "*" : ""));
+        }
+        return result;
+    }
+
+    private static DBNDatabaseNode createNode(String name, DBPDataSourceContainer container, DBNDatabaseNode root) throws DBException {
+        DBNDatabaseFolder node = Mockito.mock(DBNDatabaseFolder.class);
+        DBXTreeFolder meta = Mockito.mock(DBXTreeFolder.class);
+        Mockito.when(node.getNodeName()).thenReturn(name);
+        Mockito.when(node.getMeta()).thenReturn(meta);
+        Mockito.when(node.getObject()).thenReturn(Mockito.mock(DBSObject.class));
+        Mockito.when(node.getDataSourceContainer()).thenReturn(container);
+        if (root != null) {
+            Mockito.when(node.isChildOf(root)).thenReturn(true);
+        }
+        setChildren(node);
+        return node;
+    }
+
+    private static DBNDatabaseNode setChildren(DBNDatabaseNode node, DBNDatabaseNode... children) throws DBException {
+        Mockito.when(node.getChildren(Mockito.any(DBRProgressMonitor.class))).thenReturn(children);
+        return node;
+    }
+
+    private static class TestMonitor extends VoidProgressMonitor {
+        private final AtomicInteger startedBlocks = new AtomicInteger();
+        private volatile boolean canceled;
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public void startBlock(DBRBlockingObject object, String taskName) {
+            startedBlocks.incrementAndGet();
+        }
+    }
+
+}
@@ -22,6 +22,8 @@ import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataImporterSite;
 import org.jkiss.dbeaver.tools.transfer.stream.StreamDataImporterColumnInfo;
 import org.jkiss.dbeaver.tools.transfer.stream.StreamEntityMapping;
 import org.jkiss.dbeaver.tools.transfer.stream.importer.DataImporterCSV;
+import org.jkiss.dbeaver.tools.transfer.stream.importer.ParallelCSVReader;
+import org.jkiss.utils.csv.CSVReader;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +35,8 @@ import org.mockito.runners.MockitoJUnitRunner;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -118,6 +122,41 @@ public class CSVImporterTest {
         Assert.assertEquals(DBPDataKind.STRING, columnsInfo.get(1).getDataKind());
     }
 
+    @Test
+    public void parallelReadQuotedNewlines() throws IOException {
+        assertParallelReadMatches("id,text\n1,\"first\nsecond\"\n2,\"a,\n\n\"\n3,plain\n4,\"\n\"\n");
+    }
+
+    @Test
+    public void parallelReadEscapedQuotes() throws IOException {
+        assertParallelReadMatches("1,\"a\"\"b\"\n2,\"\"\"\n\"\"\"\n3,\"c\\\"d\"\n4,\"e\\\"\nf\\\\\"\n5,\"\"\n");
+    }
+
+    /**
+     * Splits data into chunks of every size up to the data length,
+     * so that each record boundary falls on a chunk boundary at least once.
+     */
+    private static void assertParallelReadMatches(String data) throws IOException {
+        List<String[]> expected = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new StringReader(data), ',', '"', '\\')) {
+            for (String[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                expected.add(row);
+            }
+        }
+        for (int chunkSize = 1; chunkSize <= data.length(); chunkSize++) {
+            List<String[]> actual = new ArrayList<>();
+            try (ParallelCSVReader reader = new ParallelCSVReader(new StringReader(data), ',', '"', '\\', 2, chunkSize)) {
+                for (String[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                    actual.add(row);
+                }
+            }
+            Assert.assertEquals("Chunk size " + chunkSize, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertArrayEquals("Chunk size " + chunkSize + ", row " + i, expected.get(i), actual.get(i));
+            }
+        }
+    }
+
     private List<StreamDataImporterColumnInfo> readColumnsInfo(String data, boolean isHeaderPresent) throws DBException, IOException {
         properties.put("header", isHeaderPresent ? DataImporterCSV.HeaderPosition.top : DataImporterCSV.HeaderPosition.none);
         try (ByteArrayInputStream is = new ByteArrayInputStream(data.getBytes())) {
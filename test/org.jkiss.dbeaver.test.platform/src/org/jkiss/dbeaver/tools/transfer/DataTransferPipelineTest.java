@@ -0,0 +1,189 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.tools.transfer;
+
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DataTransferPipelineTest {
+
+    private static final int ROW_COUNT = 50;
+
+    @Mock
+    private DBSDataContainer dataContainer;
+    @Mock
+    private IDataTransferConsumer<?, ?> consumer;
+    @Mock
+    private DBCSession session;
+    @Mock
+    private DBCResultSet resultSet;
+    @Mock
+    private DBCResultSetMetaData resultSetMeta;
+    @Mock
+    private DBCAttributeMetaData attributeMeta;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private int currentRow;
+
+    @Before
+    public void init() throws DBCException {
+        Mockito.when(session.getProgressMonitor()).thenReturn(new VoidProgressMonitor());
+        Mockito.when(attributeMeta.getName()).thenReturn("ID");
+        Mockito.when(attributeMeta.getDataKind()).thenReturn(DBPDataKind.STRING);
+        Mockito.when(resultSetMeta.getAttributes()).thenReturn(Collections.singletonList(attributeMeta));
+        Mockito.when(resultSet.getMeta()).thenReturn(resultSetMeta);
+        Mockito.when(resultSet.getAttributeValue(0)).thenAnswer(invocation -> "row" + currentRow);
+
+        Mockito.doAnswer(invocation -> events.add("fetchStart"))
+            .when(consumer).fetchStart(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class), Mockito.anyLong(), Mockito.anyLong());
+        Mockito.doAnswer(invocation -> events.add("fetchEnd"))
+            .when(consumer).fetchEnd(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+        Mockito.doAnswer(invocation -> events.add("close"))
+            .when(consumer).close();
+    }
+
+    @Test
+    public void flushRowsBeforeFetchEnd() throws DBCException {
+        Mockito.doAnswer(invocation -> events.add(String.valueOf(((DBCResultSet) invocation.getArguments()[1]).getAttributeValue(0))))
+            .when(consumer).fetchRow(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+
+        DataTransferPipeline pipeline = new DataTransferPipeline(dataContainer, consumer, 4);
+        pipeline.fetchStart(session, resultSet, 0, 0);
+        for (currentRow = 0; currentRow < ROW_COUNT; currentRow++) {
+            pipeline.fetchRow(session, resultSet);
+        }
+        pipeline.fetchEnd(session, resultSet);
+        pipeline.close();
+
+        Assert.assertEquals(ROW_COUNT + 3, events.size());
+        Assert.assertEquals("fetchStart", events.get(0));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Assert.assertEquals("row" + i, events.get(i + 1));
+        }
+        Assert.assertEquals("fetchEnd", events.get(ROW_COUNT + 1));
+        Assert.assertEquals("close", events.get(ROW_COUNT + 2));
+        Assert.assertEquals(ROW_COUNT, pipeline.getRowsProduced());
+        Assert.assertEquals(ROW_COUNT, pipeline.getRowsConsumed());
+    }
+
+    @Test
+    public void propagateConsumerError() throws DBCException {
+        DBCException consumerError = new DBCException("Target table is read-only");
+        Mockito.doThrow(consumerError)
+            .when(consumer).fetchRow(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+
+        DataTransferPipeline pipeline = new DataTransferPipeline(dataContainer, consumer, 4);
+        pipeline.fetchStart(session, resultSet, 0, 0);
+        DBCException producerError = null;
+        try {
+            // Producer must stop once consumer failed, even if buffer is full
+            for (currentRow = 0; currentRow < ROW_COUNT; currentRow++) {
+                pipeline.fetchRow(session, resultSet);
+            }
+            pipeline.fetchEnd(session, resultSet);
+        } catch (DBCException e) {
+            producerError = e;
+        } finally {
+            pipeline.close();
+        }
+        Assert.assertSame(consumerError, producerError);
+        Assert.assertFalse(events.contains("fetchEnd"));
+        Assert.assertEquals("close", events.get(events.size() - 1));
+        Assert.assertEquals(0, pipeline.getRowsConsumed());
+    }
+
+    @Test
+    public void closeBeforeFetchEnd() throws DBCException {
+        Mockito.doAnswer(invocation -> events.add("row"))
+            .when(consumer).fetchRow(Mockito.any(DBCSession.class), Mockito.any(DBCResultSet.class));
+
+        DataTransferPipeline pipeline = new DataTransferPipeline(dataContainer, consumer, 4);
+        pipeline.fetchStart(session, resultSet, 0, 0);
+        pipeline.fetchRow(session, resultSet);
+        // Source fetch failed, fetchEnd is never called
+        pipeline.close();
+
+        Assert.assertFalse(events.contains("fetchEnd"));
+        Assert.assertEquals("close", events.get(events.size() - 1));
+        Mockito.verify(consumer, Mockito.times(1)).close();
+    }
+
+    @Test
+    public void drainBufferAfterClose() throws InterruptedException {
+        DataTransferRowBuffer buffer = new DataTransferRowBuffer(3, 1);
+        for (int i = 0; i < 3; i++) {
+            Object[] slot = buffer.beginWrite(0);
+            Assert.assertNotNull(slot);
+            slot[0] = i;
+            buffer.commitWrite();
+        }
+        // Buffer is full
+        Assert.assertNull(buffer.beginWrite(0));
+        buffer.close();
+        Assert.assertFalse(buffer.isFinished());
+
+        for (int i = 0; i < 3; i++) {
+            Object[] slot = buffer.beginRead(0);
+            Assert.assertNotNull(slot);
+            Assert.assertEquals(i, slot[0]);
+            buffer.commitRead();
+        }
+        Assert.assertNull(buffer.beginRead(0));
+        Assert.assertTrue(buffer.isFinished());
+    }
+
+    @Test
+    public void abortWakesWriter() throws InterruptedException {
+        DataTransferRowBuffer buffer = new DataTransferRowBuffer(1, 1);
+        Assert.assertNotNull(buffer.beginWrite(0));
+        buffer.commitWrite();
+
+        CountDownLatch writerDone = new CountDownLatch(1);
+        Object[][] writerSlot = new Object[1][];
+        Thread writer = new Thread(() -> {
+            try {
+                writerSlot[0] = buffer.beginWrite(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            writerDone.countDown();
+        });
+        writer.start();
+        buffer.abort();
+        Assert.assertTrue(writerDone.await(5, TimeUnit.SECONDS));
+        Assert.assertNull(writerSlot[0]);
+        Assert.assertTrue(buffer.isFinished());
+        Assert.assertNull(buffer.beginRead(0));
+    }
+
+}
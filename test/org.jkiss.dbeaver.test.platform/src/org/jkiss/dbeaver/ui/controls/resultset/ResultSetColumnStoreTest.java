@@ -0,0 +1,139 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.controls.resultset;
+
+import org.jkiss.dbeaver.model.data.DBDValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public class ResultSetColumnStoreTest {
+
+    private static final int ROW_COUNT = 1000;
+
+    @Test
+    public void testAddAndRead() {
+        ResultSetColumnStore store = new ResultSetColumnStore(6);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Assert.assertEquals(i, store.addRow(makeRow(i)));
+        }
+        Assert.assertEquals(ROW_COUNT, store.getRowCount());
+        Assert.assertEquals(6, store.getColumnCount());
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Assert.assertArrayEquals(makeRow(i), store.getValues(i));
+        }
+        Assert.assertEquals("LongColumn", store.getColumnKind(0));
+        Assert.assertEquals("DoubleColumn", store.getColumnKind(1));
+        Assert.assertEquals("StringColumn", store.getColumnKind(2));
+        Assert.assertEquals("BooleanColumn", store.getColumnKind(3));
+        Assert.assertEquals("DateColumn", store.getColumnKind(4));
+        Assert.assertEquals("ObjectColumn", store.getColumnKind(5));
+
+        // Boxed classes are preserved
+        Assert.assertEquals(Integer.class, store.getValue(1, 0).getClass());
+        Assert.assertEquals(Timestamp.class, store.getValue(1, 4).getClass());
+
+        Assert.assertTrue(store.compareValues(0, 1, 2) < 0);
+        Assert.assertTrue(store.compareValues(2, 3, 3) == 0);
+        // Nulls go last
+        Assert.assertTrue(store.compareValues(1, 0, 1) > 0);
+
+        Assert.assertEquals(-1, store.addRow(new Object[2]));
+        Assert.assertEquals(ROW_COUNT, store.getRowCount());
+    }
+
+    @Test
+    public void testColumnInflation() {
+        ResultSetColumnStore store = new ResultSetColumnStore(2);
+        store.addRow(new Object[] { null, "a" });
+        Assert.assertEquals("EmptyColumn", store.getColumnKind(0));
+        store.addRow(new Object[] { 1L, "b" });
+        Assert.assertEquals("LongColumn", store.getColumnKind(0));
+        store.addRow(new Object[] { "text", 2 });
+        Assert.assertEquals("ObjectColumn", store.getColumnKind(0));
+        Assert.assertEquals("ObjectColumn", store.getColumnKind(1));
+
+        Assert.assertArrayEquals(new Object[] { null, "a" }, store.getValues(0));
+        Assert.assertArrayEquals(new Object[] { 1L, "b" }, store.getValues(1));
+        Assert.assertArrayEquals(new Object[] { "text", 2 }, store.getValues(2));
+    }
+
+    @Test
+    public void testUpdateDetachedRow() {
+        ResultSetColumnStore store = new ResultSetColumnStore(6);
+        for (int i = 0; i < 10; i++) {
+            store.addRow(makeRow(i));
+        }
+        ResultSetRow row = new ResultSetRow(5, store, 5);
+        Assert.assertEquals("value5", row.getValue(2));
+        Assert.assertEquals(6, row.getValueCount());
+
+        // Row is moved out of the store on the first modification
+        row.getValues()[2] = "changed";
+        Assert.assertEquals("changed", row.getValue(2));
+        Assert.assertEquals(BigDecimal.valueOf(5, 2), row.getValue(5));
+        // Store doesn't hold object values of the detached row anymore
+        Assert.assertNull(store.getValue(5, 5));
+        Assert.assertEquals("value5", store.getValue(5, 2));
+        Assert.assertArrayEquals(makeRow(4), store.getValues(4));
+        Assert.assertArrayEquals(makeRow(6), store.getValues(6));
+    }
+
+    @Test
+    public void testReadValuesKeepsRowInStore() {
+        ResultSetColumnStore store = new ResultSetColumnStore(6);
+        for (int i = 0; i < 10; i++) {
+            store.addRow(makeRow(i));
+        }
+        ResultSetRow row = new ResultSetRow(5, store, 5);
+        Assert.assertArrayEquals(makeRow(5), row.readValues());
+        // Read-only access doesn't move the row out of the store
+        Assert.assertEquals(BigDecimal.valueOf(5, 2), store.getValue(5, 5));
+        row.readValues()[2] = "changed";
+        Assert.assertEquals("value5", row.getValue(2));
+    }
+
+    @Test
+    public void testReleaseRow() {
+        DBDValue value1 = Mockito.mock(DBDValue.class);
+        DBDValue value2 = Mockito.mock(DBDValue.class);
+        ResultSetColumnStore store = new ResultSetColumnStore(2);
+        store.addRow(new Object[] { 1, value1 });
+        store.addRow(new Object[] { 2, value2 });
+
+        store.releaseRow(0);
+        Mockito.verify(value1).release();
+        Mockito.verify(value2, Mockito.never()).release();
+        Assert.assertArrayEquals(new Object[] { 1, null }, store.getValues(0));
+        Assert.assertSame(value2, store.getValue(1, 1));
+    }
+
+    private static Object[] makeRow(int i) {
+        return new Object[] {
+            i,
+            i % 7 == 0 ? null : i * 0.5,
+            "value" + (i % 50),
+            i % 2 == 0,
+            new Timestamp(1_600_000_000_000L + i * 1000L),
+            BigDecimal.valueOf(i, 2)
+        };
+    }
+
+}
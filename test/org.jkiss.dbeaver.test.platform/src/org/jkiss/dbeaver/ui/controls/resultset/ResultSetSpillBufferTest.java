@@ -0,0 +1,124 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.controls.resultset;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+public class ResultSetSpillBufferTest {
+
+    private static final int ROW_COUNT = 2000;
+    private static final int CHUNK_SIZE = 1024;
+
+    private File file;
+    private ResultSetSpillBuffer buffer;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("dbeaver-rs-test", ".tmp");
+        buffer = new ResultSetSpillBuffer(file, 8, CHUNK_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        buffer.close();
+        file.delete();
+    }
+
+    @Test
+    public void testSpillAndReload() {
+        for (int i = 0; i < ROW_COUNT; i++) {
+            buffer.addRow(makeRow(i));
+        }
+        Assert.assertEquals(ROW_COUNT, buffer.getRowCount());
+        Assert.assertEquals(0, buffer.getMemoryRowCount());
+        // Records are spread over many chunks
+        Assert.assertTrue(buffer.getFileSize() > CHUNK_SIZE * 10);
+
+        // Read in reverse order so that rows are decoded from the file, not from the read cache
+        for (int i = ROW_COUNT - 1; i >= 0; i--) {
+            Assert.assertArrayEquals(makeRow(i), buffer.getValues(i));
+        }
+        Assert.assertEquals("value" + 100, buffer.getValue(100, 3));
+        Assert.assertNull(buffer.getValue(0, 1));
+    }
+
+    @Test
+    public void testRowsKeptInMemory() {
+        Object complexValue = new Object();
+        char[] longText = new char[CHUNK_SIZE * 2];
+        Arrays.fill(longText, 'x');
+
+        buffer.addRow(makeRow(0));
+        buffer.addRow(new Object[] { 1L, null, null, complexValue, null, null, null, null });
+        buffer.addRow(new Object[] { 2L, null, null, new String(longText), null, null, null, null });
+        buffer.addRow(makeRow(3));
+        Assert.assertEquals(4, buffer.getRowCount());
+        Assert.assertEquals(2, buffer.getMemoryRowCount());
+
+        Assert.assertSame(complexValue, buffer.getValue(1, 3));
+        Assert.assertEquals(new String(longText), buffer.getValue(2, 3));
+        Assert.assertArrayEquals(makeRow(3), buffer.getValues(3));
+
+        // Detached memory row is owned by the caller
+        Object[] detached = buffer.detachRow(1);
+        Assert.assertSame(complexValue, detached[3]);
+        Assert.assertEquals(1, buffer.getMemoryRowCount());
+        Assert.assertNull(buffer.getValue(1, 3));
+
+        // Row on disk can be detached and is still readable
+        Assert.assertArrayEquals(makeRow(0), buffer.detachRow(0));
+        Assert.assertArrayEquals(makeRow(0), buffer.getValues(0));
+
+        buffer.close();
+        Assert.assertArrayEquals(new Object[8], buffer.getValues(3));
+        Assert.assertEquals(new String(longText), buffer.getValue(2, 3));
+        // Rows added after close stay in memory
+        buffer.addRow(makeRow(4));
+        Assert.assertArrayEquals(makeRow(4), buffer.getValues(4));
+    }
+
+    private static Object[] makeRow(int i) {
+        return new Object[] {
+            (long) i,
+            i % 10 == 0 ? null : i * 1.5,
+            i % 3 == 0,
+            "value" + i,
+            BigDecimal.valueOf(i * 100 + 1, 2),
+            BigInteger.valueOf(i).shiftLeft(70),
+            i % 2 == 0 ? new Time(i * 1000L) : new java.sql.Date(i * 86_400_000L),
+            makeTimestamp(i)
+        };
+    }
+
+    private static Timestamp makeTimestamp(int i) {
+        Timestamp timestamp = new Timestamp(1_600_000_000_000L + i * 1000L);
+        timestamp.setNanos(i * 1001);
+        return timestamp;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.dashboard.model.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DashboardSeriesBufferTest {
+
+    @Test
+    public void testRingWrapAround() {
+        DashboardSeriesBuffer buffer = new DashboardSeriesBuffer("test", 4, 0);
+        for (int i = 0; i < 10; i++) {
+            buffer.addOrUpdate(i * 10L, i);
+        }
+        Assert.assertEquals(4, buffer.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(60L + i * 10, buffer.getTimestamp(i));
+            Assert.assertEquals(6 + i, buffer.getValue(i), 0);
+        }
+        Assert.assertEquals(2, buffer.indexOf(80));
+        Assert.assertEquals(-1, buffer.indexOf(50));
+
+        buffer.addOrUpdate(90, 100);
+        Assert.assertEquals(4, buffer.size());
+        Assert.assertEquals(100, buffer.getValue(3), 0);
+
+        buffer.setCapacity(2);
+        Assert.assertEquals(2, buffer.size());
+        Assert.assertEquals(80, buffer.getTimestamp(0));
+        Assert.assertEquals(90, buffer.getTimestamp(1));
+    }
+
+    @Test
+    public void testOutOfOrderPoints() {
+        DashboardSeriesBuffer buffer = new DashboardSeriesBuffer("test", 5, 0);
+        buffer.addOrUpdate(10, 1);
+        buffer.addOrUpdate(30, 3);
+        buffer.addOrUpdate(20, 2);
+        buffer.addOrUpdate(5, 0.5);
+        assertTimestamps(buffer, 5, 10, 20, 30);
+        Assert.assertEquals(2, buffer.getValue(2), 0);
+
+        buffer.addOrUpdate(20, 22);
+        assertTimestamps(buffer, 5, 10, 20, 30);
+        Assert.assertEquals(22, buffer.getValue(2), 0);
+
+        // Fill, then wrap around and insert in the middle of the ring
+        buffer.addOrUpdate(40, 4);
+        buffer.addOrUpdate(50, 5);
+        buffer.addOrUpdate(25, 2.5);
+        assertTimestamps(buffer, 20, 25, 30, 40, 50);
+        Assert.assertEquals(2.5, buffer.getValue(1), 0);
+
+        // Older than all kept points in a full buffer
+        buffer.addOrUpdate(1, 0);
+        assertTimestamps(buffer, 20, 25, 30, 40, 50);
+    }
+
+    @Test
+    public void testMaxAge() {
+        DashboardSeriesBuffer buffer = new DashboardSeriesBuffer("test", 100, 25);
+        for (int i = 0; i < 10; i++) {
+            buffer.addOrUpdate(i * 10L, i);
+        }
+        assertTimestamps(buffer, 70, 80, 90);
+
+        // Out-of-order point which is already expired
+        buffer.addOrUpdate(60, 6);
+        assertTimestamps(buffer, 70, 80, 90);
+
+        buffer.setMaxAge(15);
+        assertTimestamps(buffer, 80, 90);
+    }
+
+    @Test
+    public void testDownsample() {
+        DashboardSeriesBuffer buffer = new DashboardSeriesBuffer("test", 10, 0);
+        for (int i = 0; i < 10; i++) {
+            buffer.addOrUpdate(i * 10L, i);
+        }
+        long[] timestamps = new long[10];
+        double[] values = new double[10];
+        Assert.assertEquals(5, buffer.downsample(5, timestamps, values));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i * 20L + 5, timestamps[i]);
+            Assert.assertEquals(i * 2 + 0.5, values[i], 0);
+        }
+        Assert.assertEquals(10, buffer.downsample(20, timestamps, values));
+        Assert.assertEquals(90, timestamps[9]);
+    }
+
+    private static void assertTimestamps(DashboardSeriesBuffer buffer, long... expected) {
+        long[] actual = new long[buffer.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = buffer.getTimestamp(i);
+        }
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+}
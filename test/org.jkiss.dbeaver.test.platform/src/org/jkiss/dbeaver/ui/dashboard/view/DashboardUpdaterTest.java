@@ -0,0 +1,134 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.dashboard.view;
+
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.ui.dashboard.model.DashboardContainer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DashboardUpdaterTest {
+
+    private final TestUpdater updater = new TestUpdater();
+    private List<DashboardContainer> dashboards;
+
+    @Before
+    public void init() {
+        DBPDataSourceContainer dataSourceContainer = Mockito.mock(DBPDataSourceContainer.class);
+        Mockito.when(dataSourceContainer.getName()).thenReturn("test");
+        dashboards = Collections.singletonList(mockDashboard(dataSourceContainer, 1000));
+    }
+
+    @After
+    public void release() throws InterruptedException {
+        updater.release.countDown();
+        for (TestUpdater.TestUpdateJob job : updater.jobs) {
+            job.join();
+        }
+    }
+
+    @Test
+    public void testUpdateTimeout() {
+        DBPDataSourceContainer dataSourceContainer = Mockito.mock(DBPDataSourceContainer.class);
+        Assert.assertEquals(10000, DashboardUpdater.getUpdateTimeout(Collections.singletonList(mockDashboard(dataSourceContainer, 100))));
+        Assert.assertEquals(50000, DashboardUpdater.getUpdateTimeout(Arrays.asList(
+            mockDashboard(dataSourceContainer, 1000),
+            mockDashboard(dataSourceContainer, 5000))));
+    }
+
+    @Test
+    public void testSkipWhileRunning() throws InterruptedException {
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis());
+        Assert.assertTrue(updater.started.await(10, TimeUnit.SECONDS));
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis());
+        Assert.assertEquals(1, updater.jobs.size());
+        Assert.assertFalse(updater.jobs.get(0).isCanceled());
+
+        updater.release.countDown();
+        updater.jobs.get(0).join();
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis());
+        Assert.assertEquals(2, updater.jobs.size());
+    }
+
+    @Test
+    public void testTimeoutCancel() throws InterruptedException {
+        long timeout = DashboardUpdater.getUpdateTimeout(dashboards);
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis());
+        Assert.assertTrue(updater.started.await(10, TimeUnit.SECONDS));
+        TestUpdater.TestUpdateJob job = updater.jobs.get(0);
+
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis() + timeout / 2);
+        Assert.assertFalse(job.isCanceled());
+
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis() + timeout + 1000);
+        Assert.assertTrue(job.isCanceled());
+        job.join();
+        Assert.assertEquals(1, updater.jobs.size());
+
+        updater.scheduleUpdates(dashboards, System.currentTimeMillis());
+        Assert.assertEquals(2, updater.jobs.size());
+    }
+
+    private static DashboardContainer mockDashboard(DBPDataSourceContainer dataSourceContainer, long updatePeriod) {
+        DashboardContainer dashboard = Mockito.mock(DashboardContainer.class);
+        Mockito.when(dashboard.getDataSourceContainer()).thenReturn(dataSourceContainer);
+        Mockito.when(dashboard.getUpdatePeriod()).thenReturn(updatePeriod);
+        return dashboard;
+    }
+
+    private static class TestUpdater extends DashboardUpdater {
+        private final List<TestUpdateJob> jobs = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected DataSourceUpdateJob createUpdateJob(DBPDataSourceContainer dataSourceContainer, List<DashboardContainer> dashboards) {
+            TestUpdateJob job = new TestUpdateJob(dataSourceContainer, dashboards);
+            jobs.add(job);
+            return job;
+        }
+
+        private class TestUpdateJob extends DataSourceUpdateJob {
+            TestUpdateJob(DBPDataSourceContainer dataSourceContainer, List<DashboardContainer> dashboards) {
+                super(dataSourceContainer, dashboards);
+            }
+
+            @Override
+            protected void updateDashboards(DBRProgressMonitor monitor, List<DashboardContainer> dashboards) {
+                started.countDown();
+                try {
+                    while (!monitor.isCanceled() && !release.await(10, TimeUnit.MILLISECONDS)) {
+                        // Wait for release or cancel
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.editors.sql.syntax;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.model.sql.SQLScriptElement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SQLScriptStructureModelTest {
+
+    private static final int STATEMENT_COUNT = 7;
+
+    private Document document;
+    private SQLScriptStructureModel model;
+    // Ranges passed to the parser, as {start, end}
+    private final List<int[]> parseCalls = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 1; i <= STATEMENT_COUNT; i++) {
+            script.append("select ").append(i).append(";\n");
+        }
+        document = new Document(script.toString());
+        model = new SQLScriptStructureModel(this::parse);
+        model.setDocument(document);
+    }
+
+    @Test
+    public void testStatementStartBeforeParse() {
+        // Nothing is parsed yet
+        Assert.assertEquals(0, model.getStatementStart(statementOffset(6) + 3));
+        Assert.assertTrue(parseCalls.isEmpty());
+
+        assertStructure();
+        Assert.assertEquals(statementOffset(6), model.getStatementStart(statementOffset(6) + 3));
+        Assert.assertEquals(statementOffset(6), model.getStatementStart(statementOffset(6)));
+        Assert.assertEquals(statementOffset(2), model.getStatementStart(statementOffset(3) - 1));
+        Assert.assertEquals(0, model.getStatementStart(0));
+    }
+
+    @Test
+    public void testEdit() throws BadLocationException {
+        assertStructure();
+        parseCalls.clear();
+
+        document.replace(statementOffset(3) + 7, 0, "0");
+        // Edited statement and the previous one are dirty, statements before them are still valid
+        Assert.assertEquals(statementOffset(1), model.getStatementStart(statementOffset(6) + 3));
+        Assert.assertTrue(parseCalls.isEmpty());
+
+        assertStructure();
+        // Only the dirty region and the following statement were parsed
+        Assert.assertFalse(parseCalls.isEmpty());
+        for (int[] call : parseCalls) {
+            Assert.assertTrue(call[0] > statementOffset(1));
+            Assert.assertTrue(call[1] < document.getLength());
+        }
+        Assert.assertEquals(statementOffset(6), model.getStatementStart(statementOffset(6) + 3));
+    }
+
+    @Test
+    public void testSeveralEdits() throws BadLocationException {
+        assertStructure();
+
+        document.replace(statementOffset(1), 0, "select 0;\n");
+        document.replace(statementOffset(5) + 7, 1, "55");
+        document.replace(document.getLength(), 0, "select 8");
+        assertStructure();
+
+        document.replace(0, statementOffset(2), "");
+        assertStructure();
+    }
+
+    @Test
+    public void testInvalidate() {
+        assertStructure();
+        Assert.assertEquals(statementOffset(4), model.getStatementStart(statementOffset(4) + 1));
+
+        model.reset();
+        Assert.assertEquals(0, model.getStatementStart(statementOffset(4) + 1));
+
+        parseCalls.clear();
+        assertStructure();
+        Assert.assertEquals(0, parseCalls.get(0)[0]);
+        Assert.assertEquals(statementOffset(4), model.getStatementStart(statementOffset(4) + 1));
+    }
+
+    @Test
+    public void testResync() throws BadLocationException {
+        assertStructure();
+
+        // Split statement
+        document.replace(statementOffset(2) + 3, 0, ";");
+        assertStructure();
+
+        // Merge statements - the parser is out of sync with following statements
+        int delimiter = document.get().indexOf(';', statementOffset(3));
+        document.replace(delimiter, 1, "");
+        assertStructure();
+
+        // Unterminated statement absorbs the rest of the script
+        document.replace(0, document.getLength(), document.get().replace(';', ' '));
+        assertStructure();
+
+        document.replace(statementOffset(0) + 1, 0, ";");
+        assertStructure();
+    }
+
+    @Test
+    public void testModifiedDuringParse() {
+        model.dispose();
+        String text = document.get();
+        boolean[] modified = { false };
+        model = new SQLScriptStructureModel((offset, length) -> {
+            List<SQLScriptElement> result = parse(offset, length);
+            if (!modified[0]) {
+                modified[0] = true;
+                document.set("select 0;\n" + text);
+            }
+            return result;
+        });
+        model.setDocument(document);
+
+        // Document was changed while it was parsed - results are discarded
+        Assert.assertNull(model.getStatementRegions(0, document.getLength()));
+        Assert.assertEquals(0, model.getStatementStart(document.getLength()));
+        assertStructure();
+    }
+
+    private void assertStructure() {
+        List<IRegion> regions = model.getStatementRegions(0, document.getLength());
+        Assert.assertNotNull(regions);
+        List<IRegion> expected = new ArrayList<>();
+        for (SQLScriptElement element : extract(document.get(), 0, document.getLength())) {
+            expected.add(new Region(element.getOffset(), element.getLength()));
+        }
+        Assert.assertEquals(expected, regions);
+    }
+
+    private int statementOffset(int index) {
+        List<SQLScriptElement> elements = extract(document.get(), 0, document.getLength());
+        return elements.get(index).getOffset();
+    }
+
+    private List<SQLScriptElement> parse(int offset, int length) {
+        parseCalls.add(new int[] { offset, offset + length });
+        return extract(document.get(), offset, offset + length);
+    }
+
+    /**
+     * Simplified script parser: statements are delimited by semicolons, leading whitespaces are skipped
+     */
+    private static List<SQLScriptElement> extract(String text, int start, int end) {
+        List<SQLScriptElement> result = new ArrayList<>();
+        int pos = start;
+        while (pos < end) {
+            while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= end) {
+                break;
+            }
+            int delimiter = text.indexOf(';', pos);
+            int statementEnd = delimiter < 0 || delimiter >= end ? end : delimiter + 1;
+            result.add(new TestElement(text.substring(pos, statementEnd), pos));
+            pos = statementEnd;
+        }
+        return result;
+    }
+
+    private static class TestElement implements SQLScriptElement {
+        private final String text;
+        private final int offset;
+        private Object data;
+
+        TestElement(String text, int offset) {
+            this.text = text;
+            this.offset = offset;
+        }
+
+        @NotNull
+        @Override
+        public String getOriginalText() {
+            return text;
+        }
+
+        @NotNull
+        @Override
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getLength() {
+            return text.length();
+        }
+
+        @Override
+        public Object getData() {
+            return data;
+        }
+
+        @Override
+        public void setData(Object data) {
+            this.data = data;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ui.search.data;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.connection.DBPDriver;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchDataExecutorTest {
+
+    @Test
+    public void testQueue() throws Exception {
+        List<DBSDataContainer> tables = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DBPDataSource dataSource = createDataSource(false);
+            for (int k = 0; k < 10; k++) {
+                tables.add(createTable("table" + i + "_" + k, dataSource));
+            }
+        }
+        // Tables of embedded databases are searched in a shared context
+        tables.add(createTable("embedded", createDataSource(true)));
+        TestSearcher searcher = new TestSearcher() {
+            @Override
+            int search(DBRProgressMonitor monitor, DBSDataContainer dataContainer) {
+                return dataContainer.getName().endsWith("0") ? 0 : 1;
+            }
+        };
+
+        int matched = new SearchDataExecutor(4, 0, 0).searchData(new VoidProgressMonitor(), tables, searcher);
+        Assert.assertEquals(28, matched);
+        Assert.assertEquals(28, searcher.results.size());
+        Assert.assertEquals(new HashSet<>(tables), new HashSet<>(searcher.searched));
+        Assert.assertEquals(tables.size(), searcher.searched.size());
+        Assert.assertTrue(searcher.isolatedSearched.contains(tables.get(0)));
+        Assert.assertFalse(searcher.isolatedSearched.contains(tables.get(tables.size() - 1)));
+    }
+
+    @Test
+    public void testMetadataReadPerDataSource() throws Exception {
+        DBPDataSource dataSource = createDataSource(false);
+        List<DBSDataContainer> tables = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tables.add(createTable("table" + i, dataSource));
+        }
+        AtomicInteger activeReads = new AtomicInteger();
+        AtomicInteger maxActiveReads = new AtomicInteger();
+        TestSearcher searcher = new TestSearcher() {
+            @Override
+            DBSDataContainer prepare(DBSDataContainer dataContainer) {
+                int active = activeReads.incrementAndGet();
+                maxActiveReads.accumulateAndGet(active, Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    // ignore
+                } finally {
+                    activeReads.decrementAndGet();
+                }
+                return dataContainer;
+            }
+        };
+
+        new SearchDataExecutor(4, 0, 0).searchData(new VoidProgressMonitor(), tables, searcher);
+        Assert.assertEquals(tables.size(), searcher.searched.size());
+        Assert.assertEquals(1, maxActiveReads.get());
+    }
+
+    @Test
+    public void testTableTimeout() throws Exception {
+        DBPDataSource dataSource = createDataSource(false);
+        DBSDataContainer slowTable = createTable("slow", dataSource);
+        List<DBSDataContainer> tables = Arrays.asList(slowTable, createTable("table1", dataSource), createTable("table2", dataSource));
+        CountDownLatch blockCanceled = new CountDownLatch(1);
+        DBRBlockingObject block = createBlock(blockCanceled);
+        TestSearcher searcher = new TestSearcher() {
+            @Override
+            int search(DBRProgressMonitor monitor, DBSDataContainer dataContainer) throws DBException {
+                if (dataContainer == slowTable) {
+                    waitForCancel(monitor, block, blockCanceled);
+                }
+                return 1;
+            }
+        };
+
+        int matched = new SearchDataExecutor(1, 100, 0).searchData(new VoidProgressMonitor(), tables, searcher);
+        Assert.assertEquals(0, blockCanceled.getCount());
+        // Other tables are searched after timeout
+        Assert.assertEquals(3, searcher.searched.size());
+        Assert.assertEquals(3, matched);
+    }
+
+    @Test
+    public void testMaxMatchedTables() throws Exception {
+        DBPDataSource dataSource = createDataSource(false);
+        List<DBSDataContainer> tables = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tables.add(createTable("table" + i, dataSource));
+        }
+        TestSearcher searcher = new TestSearcher();
+
+        int matched = new SearchDataExecutor(1, 0, 3).searchData(new VoidProgressMonitor(), tables, searcher);
+        Assert.assertEquals(3, matched);
+        Assert.assertEquals(tables.subList(0, 3), searcher.results);
+        Assert.assertEquals(3, searcher.searched.size());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        DBPDataSource dataSource = createDataSource(false);
+        List<DBSDataContainer> tables = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tables.add(createTable("table" + i, dataSource));
+        }
+        TestMonitor monitor = new TestMonitor();
+        CountDownLatch blockCanceled = new CountDownLatch(1);
+        DBRBlockingObject block = createBlock(blockCanceled);
+        TestSearcher searcher = new TestSearcher() {
+            @Override
+            int search(DBRProgressMonitor monitor1, DBSDataContainer dataContainer) throws DBException {
+                monitor.canceled = true;
+                waitForCancel(monitor1, block, blockCanceled);
+                return 0;
+            }
+        };
+
+        int matched = new SearchDataExecutor(1, 0, 0).searchData(monitor, tables, searcher);
+        Assert.assertEquals(0, blockCanceled.getCount());
+        // Remaining tables are not searched
+        Assert.assertEquals(1, searcher.searched.size());
+        Assert.assertEquals(0, matched);
+    }
+
+    private static void waitForCancel(DBRProgressMonitor monitor, DBRBlockingObject block, CountDownLatch blockCanceled) throws DBException {
+        // Query which hangs until canceled
+        monitor.startBlock(block, "Search");
+        try {
+            if (!blockCanceled.await(10, TimeUnit.SECONDS)) {
+                throw new DBException("Query wasn't canceled");
+            }
+            if (!monitor.isCanceled()) {
+                throw new DBException("Monitor wasn't canceled");
+            }
+        } catch (InterruptedException e) {
+            throw new DBException("Interrupted", e);
+        } finally {
+            monitor.endBlock();
+        }
+    }
+
+    private static DBRBlockingObject createBlock(CountDownLatch blockCanceled) throws DBException {
+        DBRBlockingObject block = Mockito.mock(DBRBlockingObject.class);
+        Mockito.doAnswer(invocation -> {
+            blockCanceled.countDown();
+            return null;
+        }).when(block).cancelBlock(Mockito.any(DBRProgressMonitor.class), Mockito.any(Thread.class));
+        return block;
+    }
+
+    private static DBPDataSource createDataSource(boolean embedded) {
+        DBPDataSource dataSource = Mockito.mock(DBPDataSource.class);
+        DBPDataSourceContainer container = Mockito.mock(DBPDataSourceContainer.class);
+        DBPDriver driver = Mockito.mock(DBPDriver.class);
+        Mockito.when(driver.isEmbedded()).thenReturn(embedded);
+        Mockito.when(container.getDriver()).thenReturn(driver);
+        Mockito.when(dataSource.getContainer()).thenReturn(container);
+        return dataSource;
+    }
+
+    private static DBSDataContainer createTable(String name, DBPDataSource dataSource) {
+        DBSDataContainer table = Mockito.mock(DBSDataContainer.class);
+        Mockito.when(table.getName()).thenReturn(name);
+        Mockito.when(table.getDataSource()).thenReturn(dataSource);
+        return table;
+    }
+
+    private static class TestSearcher implements SearchDataExecutor.TableSearcher<DBSDataContainer> {
+        private final List<DBSDataContainer> searched = Collections.synchronizedList(new ArrayList<>());
+        private final Set<DBSDataContainer> isolatedSearched = Collections.synchronizedSet(new HashSet<>());
+        private final List<DBSDataContainer> results = Collections.synchronizedList(new ArrayList<>());
+
+        DBSDataContainer prepare(DBSDataContainer dataContainer) {
+            return dataContainer;
+        }
+
+        int search(DBRProgressMonitor monitor, DBSDataContainer dataContainer) throws DBException {
+            return 1;
+        }
+
+        @Nullable
+        @Override
+        public DBSDataContainer prepareSearch(@NotNull DBRProgressMonitor monitor, @NotNull DBSDataContainer dataContainer) {
+            return prepare(dataContainer);
+        }
+
+        @Override
+        public int searchTable(
+            @NotNull DBRProgressMonitor monitor,
+            @NotNull DBSDataContainer dataContainer,
+            @NotNull DBSDataContainer search,
+            @Nullable SearchDataExecutor.ContextProvider contextProvider) throws DBException
+        {
+            searched.add(dataContainer);
+            if (contextProvider != null) {
+                isolatedSearched.add(dataContainer);
+            }
+            return search(monitor, dataContainer);
+        }
+
+        @Override
+        public void addResult(@NotNull DBSDataContainer dataContainer, @NotNull DBSDataContainer search, int rowCount) {
+            results.add(dataContainer);
+        }
+    }
+
+    private static class TestMonitor extends VoidProgressMonitor {
+        private volatile boolean canceled;
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+}